@@ -0,0 +1,172 @@
+package com.example.library.reactive.controller;
+
+import com.example.library.reactive.exception.*;
+import com.example.library.reactive.model.LoanRequest;
+import com.example.library.reactive.model.LoanView;
+import com.example.library.reactive.model.MessageResponse;
+import com.example.library.reactive.service.LoanService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The LoanController class handles HTTP requests related to loans on WebFlux.
+ * It serves the same {@code /api/loans} contract as the LoanController of the servlet
+ * application, apart from the event log endpoints, which belong to the audit trail there.
+ */
+@RestController
+@RequestMapping("/api/loans")
+public class LoanController {
+
+    @Autowired
+    private LoanService loanService;
+
+    /**
+     * Retrieves a page of loans.
+     *
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of loans in the page
+     * @return ResponseEntity containing the page of loans and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
+     */
+    @GetMapping
+    @Operation(summary = "Get all loans", description = "Retrieves a page of loans ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of loans"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public Mono<ResponseEntity<?>> getAllLoans(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                               @Parameter(description = "Maximum number of loans in the page") @RequestParam(defaultValue = "100") int limit) {
+        return loanService.findPage(after, limit)
+                .<ResponseEntity<?>>map(loans -> new ResponseEntity<>(loans, HttpStatus.OK))
+                .onErrorResume(InvalidDataException.class, e -> message(e, HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Streams all loans as newline-delimited JSON.
+     * Loans are read from the database as fast as the client takes them.
+     *
+     * @return the stream of every loan, one per line
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all loans", description = "Streams every loan ordered by ID as newline-delimited JSON")
+    public Flux<LoanView> streamAllLoans() {
+        return loanService.streamAll();
+    }
+
+    /**
+     * Retrieves a page of active overdue loans.
+     *
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of loans in the page
+     * @return ResponseEntity containing the page of overdue loans and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
+     */
+    @GetMapping("/overdue")
+    @Operation(summary = "Get overdue loans", description = "Retrieves a page of active loans flagged as overdue, ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of overdue loans"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public Mono<ResponseEntity<?>> getOverdueLoans(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                                   @Parameter(description = "Maximum number of loans in the page") @RequestParam(defaultValue = "100") int limit) {
+        return loanService.findOverduePage(after, limit)
+                .<ResponseEntity<?>>map(loans -> new ResponseEntity<>(loans, HttpStatus.OK))
+                .onErrorResume(InvalidDataException.class, e -> message(e, HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Retrieves a loan by ID.
+     *
+     * @param id the ID of the loan to retrieve
+     * @return ResponseEntity containing the loan and HttpStatus OK if successful,
+     *         or HttpStatus NOT_FOUND if the loan does not exist
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get loan by ID", description = "Retrieves a loan by its ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Loan found"),
+            @ApiResponse(responseCode = "404", description = "Loan not found")
+    })
+    public Mono<ResponseEntity<?>> getLoanById(@Parameter(description = "ID of the loan") @PathVariable Long id) {
+        return loanService.findById(id)
+                .<ResponseEntity<?>>map(loan -> new ResponseEntity<>(loan, HttpStatus.OK))
+                .onErrorResume(LoanNotFoundException.class, e -> message(e, HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Creates a new loan.
+     *
+     * @param loan the loan to create
+     * @return ResponseEntity containing the created loan and HttpStatus CREATED if successful,
+     *         or HttpStatus BAD_REQUEST if the request is invalid
+     */
+    @PostMapping
+    @Operation(summary = "Create a new loan", description = "Creates a new loan")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Loan created successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    public Mono<ResponseEntity<?>> createLoan(@RequestBody LoanRequest loan) {
+        return loanService.save(loan.getUser().getId(), loan.getBook().getId(), loan.getStartDate(), loan.getEndDate())
+                .<ResponseEntity<?>>map(newLoan -> new ResponseEntity<>(newLoan, HttpStatus.CREATED))
+                .onErrorResume(e -> e instanceof UserNotFoundException || e instanceof BookNotFoundException
+                                || e instanceof NoBookAvailableException || e instanceof InconsistentDatesException
+                                || e instanceof LoanLimitExceededException,
+                        e -> message(e, HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Updates an existing loan.
+     *
+     * @param id   the ID of the loan to update
+     * @param loan the updated loan information
+     * @return ResponseEntity containing the updated loan and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the request is invalid
+     */
+    @PutMapping("/{id}")
+    @Operation(summary = "Update an existing loan", description = "Updates an existing loan")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Loan updated successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    public Mono<ResponseEntity<?>> updateLoan(@Parameter(description = "ID of the loan") @PathVariable Long id, @RequestBody LoanRequest loan) {
+        return loanService.update(id, loan.getUser().getId(), loan.getBook().getId(), loan.getStartDate(), loan.getEndDate())
+                .<ResponseEntity<?>>map(updatedLoan -> new ResponseEntity<>(updatedLoan, HttpStatus.OK))
+                .onErrorResume(e -> e instanceof LoanNotFoundException || e instanceof UserNotFoundException
+                                || e instanceof BookNotFoundException || e instanceof InconsistentDatesException
+                                || e instanceof LoanLimitExceededException,
+                        e -> message(e, HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Deletes a loan by ID.
+     *
+     * @param id the ID of the loan to delete
+     * @return ResponseEntity with a success message and HttpStatus OK if successful,
+     *         or HttpStatus NOT_FOUND if the loan does not exist
+     */
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete a loan by ID", description = "Deletes a loan by its ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Loan deleted successfully"),
+            @ApiResponse(responseCode = "404", description = "Loan not found")
+    })
+    public Mono<ResponseEntity<?>> deleteLoan(@Parameter(description = "ID of the loan") @PathVariable Long id) {
+        return loanService.delete(id)
+                .then(Mono.<ResponseEntity<?>>fromSupplier(() -> new ResponseEntity<>(new MessageResponse("Loan successfully deleted"), HttpStatus.OK)))
+                .onErrorResume(LoanNotFoundException.class, e -> message(e, HttpStatus.NOT_FOUND));
+    }
+
+    private static Mono<ResponseEntity<?>> message(Throwable e, HttpStatus status) {
+        return Mono.just(new ResponseEntity<>(new MessageResponse(e.getMessage()), status));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.library.reactive.exception;
+
+/**
+ * The InconsistentDatesException class represents an exception that is thrown
+ * when the dates provided for a loan are inconsistent, such as when
+ * the start date is after the end date.
+ */
+public class InconsistentDatesException extends RuntimeException {
+
+    /**
+     * Constructs a new InconsistentDatesException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InconsistentDatesException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.library.reactive.exception;
+
+/**
+ * The InvalidDataException class represents an exception that is thrown
+ * when invalid data is encountered, such as a limit out of range.
+ */
+public class InvalidDataException extends RuntimeException {
+
+    /**
+     * Constructs a new InvalidDataException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InvalidDataException(String message) {
+        super(message);
+    }
+}
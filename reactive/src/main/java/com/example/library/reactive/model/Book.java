@@ -0,0 +1,60 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * The Book class represents a row of the loan_books table, read when a loan is created or updated.
+ * Its stock is only changed by the conditional updates of BookRepository.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Table("loan_books")
+public class Book {
+
+    /**
+     * The unique identifier for the book.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The ISBN of the book.
+     */
+    private String isbn;
+
+    /**
+     * The title of the book.
+     */
+    private String title;
+
+    /**
+     * The author of the book.
+     */
+    private String author;
+
+    /**
+     * The number of copies of the book in stock.
+     */
+    private int quantity;
+
+    /**
+     * Constructs a new Book object with the given ID, ISBN, title, author, and quantity.
+     * @param id The ID of the book.
+     * @param isbn The ISBN of the book.
+     * @param title The title of the book.
+     * @param author The author of the book.
+     * @param quantity The number of copies in stock.
+     */
+    public Book(Long id, String isbn, String title, String author, int quantity) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The CursorPage class represents one page of a keyset-paginated listing.
+ * It contains the items of the page and the cursor to request the next page with.
+ *
+ * @param <T> the type of the items in the page
+ */
+@Getter
+public class CursorPage<T> {
+
+    /**
+     * The largest number of items that can be requested in a single page.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * The items included in the page, ordered by ID.
+     */
+    private final List<T> items;
+
+    /**
+     * The cursor to pass as {@code after} to fetch the next page, or null if this is the last page.
+     */
+    private final Long nextCursor;
+
+    /**
+     * Constructs a new CursorPage object with the given items and next cursor.
+     * @param items The items included in the page.
+     * @param nextCursor The cursor of the next page, or null if there are no more items.
+     */
+    public CursorPage(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from the items fetched with the given limit.
+     * A full page means there may be more items, so its last ID becomes the next cursor.
+     * @param items The items fetched for the page.
+     * @param limit The maximum number of items requested.
+     * @param idExtractor The function returning the ID of an item.
+     * @param <T> The type of the items in the page.
+     * @return The page for the given items.
+     */
+    public static <T> CursorPage<T> of(List<T> items, int limit, Function<T, Long> idExtractor) {
+        Long nextCursor = !items.isEmpty() && items.size() == limit ? idExtractor.apply(items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+/**
+ * The Loan class represents a row of the loan table.
+ * Unlike the JPA entity of the servlet application, it refers to its user and book by ID.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Table("loan")
+public class Loan {
+
+    /**
+     * The unique identifier for the loan, taken from the loan_seq sequence.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The ID of the user who borrowed the book.
+     */
+    private Long userId;
+
+    /**
+     * The ID of the book being borrowed.
+     */
+    private Long bookId;
+
+    /**
+     * The start date of the loan.
+     */
+    private LocalDate startDate;
+
+    /**
+     * The end date of the loan.
+     */
+    private LocalDate endDate;
+
+    /**
+     * A flag indicating if the loan has been finalized.
+     */
+    private boolean finalized;
+
+    /**
+     * A flag indicating if the loan was found past its end date while still active.
+     */
+    private boolean overdue;
+
+    /**
+     * Constructs a new Loan object with the given ID, user, book, start date, and end date.
+     * @param id The ID of the loan.
+     * @param userId The ID of the user borrowing the book.
+     * @param bookId The ID of the book being borrowed.
+     * @param startDate The start date of the loan.
+     * @param endDate The end date of the loan.
+     */
+    public Loan(Long id, Long userId, Long bookId, LocalDate startDate, LocalDate endDate) {
+        this.id = id;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.finalized = false;
+    }
+}
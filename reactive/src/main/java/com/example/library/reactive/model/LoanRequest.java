@@ -0,0 +1,52 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * The LoanRequest class represents the body of a request creating or updating a loan.
+ * It has the shape of a loan of the servlet application, with the user and book given by ID:
+ * {@code {"user":{"id":1},"book":{"id":2},"startDate":"2024-05-02","endDate":"2024-05-16"}}.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class LoanRequest {
+
+    /**
+     * The user borrowing the book.
+     */
+    private Reference user;
+
+    /**
+     * The book being borrowed.
+     */
+    private Reference book;
+
+    /**
+     * The start date of the loan.
+     */
+    private LocalDate startDate;
+
+    /**
+     * The end date of the loan.
+     */
+    private LocalDate endDate;
+
+    /**
+     * The Reference class refers to a user or a book by its ID.
+     */
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class Reference {
+
+        /**
+         * The ID of the user or book.
+         */
+        private Long id;
+    }
+}
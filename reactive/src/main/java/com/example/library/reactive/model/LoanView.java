@@ -0,0 +1,97 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * The LoanView class is a read-only projection of a loan for listings and API responses.
+ * It carries the identifiers and display names of the user and the book instead of the
+ * full entities, so it can be built by a single query and serialized compactly.
+ */
+@Getter
+public class LoanView {
+
+    /**
+     * The unique identifier of the loan.
+     */
+    private final Long id;
+
+    /**
+     * The ID of the user who borrowed the book.
+     */
+    private final Long userId;
+
+    /**
+     * The name of the user who borrowed the book.
+     */
+    private final String userName;
+
+    /**
+     * The ID of the borrowed book.
+     */
+    private final Long bookId;
+
+    /**
+     * The title of the borrowed book.
+     */
+    private final String bookTitle;
+
+    /**
+     * The start date of the loan.
+     */
+    private final LocalDate startDate;
+
+    /**
+     * The end date of the loan.
+     */
+    private final LocalDate endDate;
+
+    /**
+     * A flag indicating if the loan has been finalized.
+     */
+    private final boolean finalized;
+
+    /**
+     * A flag indicating if the loan is overdue.
+     */
+    private final boolean overdue;
+
+    /**
+     * Constructs a new LoanView with the given values.
+     * It is also used to map the rows of the view queries of LoanRepository.
+     * @param id The ID of the loan.
+     * @param userId The ID of the user.
+     * @param userName The name of the user.
+     * @param bookId The ID of the book.
+     * @param bookTitle The title of the book.
+     * @param startDate The start date of the loan.
+     * @param endDate The end date of the loan.
+     * @param finalized Whether the loan has been finalized.
+     * @param overdue Whether the loan is overdue.
+     */
+    public LoanView(Long id, Long userId, String userName, Long bookId, String bookTitle,
+                    LocalDate startDate, LocalDate endDate, boolean finalized, boolean overdue) {
+        this.id = id;
+        this.userId = userId;
+        this.userName = userName;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.finalized = finalized;
+        this.overdue = overdue;
+    }
+
+    /**
+     * Creates the view of a loan from its row and the user and book it refers to.
+     * @param loan The loan to project.
+     * @param user The user of the loan.
+     * @param book The book of the loan.
+     * @return The view of the loan.
+     */
+    public static LoanView of(Loan loan, User user, Book book) {
+        return new LoanView(loan.getId(), user.getId(), user.getName(), book.getId(), book.getTitle(),
+                loan.getStartDate(), loan.getEndDate(), loan.isFinalized(), loan.isOverdue());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.library.reactive.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * The User class represents a row of the loan_users table, read when a loan is created or updated.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Table("loan_users")
+public class User {
+
+    /**
+     * The unique identifier for the user.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The name of the user.
+     */
+    private String name;
+
+    /**
+     * The email of the user.
+     */
+    private String email;
+
+    /**
+     * Constructs a new User object with the given ID, name, and email.
+     * @param id The ID of the user.
+     * @param name The name of the user.
+     * @param email The email of the user.
+     */
+    public User(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.library.reactive.repository;
+
+import com.example.library.reactive.model.Book;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * The BookRepository interface provides reactive access to the loan_books table.
+ * It extends the ReactiveCrudRepository interface, which provides basic CRUD operations.
+ */
+public interface BookRepository extends ReactiveCrudRepository<Book, Long> {
+
+    /**
+     * Takes one copy of a book out of stock, if any is left.
+     * The stock is checked and decremented by a single statement, so concurrent calls never
+     * take more copies than are available.
+     * @param id The ID of the book to reserve.
+     * @return 1 if a copy was reserved, or 0 if the book has no copies left or does not exist.
+     */
+    @Modifying
+    @Query("update loan_books set quantity = quantity - 1, version = version + 1, updated_at = current_timestamp"
+            + " where id = :id and quantity > 0")
+    Mono<Integer> reserveCopy(Long id);
+
+    /**
+     * Puts one copy of a book back in stock.
+     * @param id The ID of the book to release.
+     * @return 1 if the copy was released, or 0 if the book does not exist.
+     */
+    @Modifying
+    @Query("update loan_books set quantity = quantity + 1, version = version + 1, updated_at = current_timestamp"
+            + " where id = :id")
+    Mono<Integer> releaseCopy(Long id);
+}
@@ -0,0 +1,77 @@
+package com.example.library.reactive.repository;
+
+import com.example.library.reactive.model.Loan;
+import com.example.library.reactive.model.LoanView;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The LoanRepository interface provides reactive access to the loan table.
+ * It extends the ReactiveCrudRepository interface, which provides basic CRUD operations;
+ * new loans are inserted through R2dbcEntityTemplate, since their ID is set beforehand.
+ */
+public interface LoanRepository extends ReactiveCrudRepository<Loan, Long> {
+
+    /**
+     * The columns of a LoanView, read from a loan {@code l}, its user {@code u} and its book {@code b}.
+     */
+    String VIEW = "select l.id, u.id as user_id, u.name as user_name, b.id as book_id, b.title as book_title,"
+            + " l.start_date, l.end_date, l.finalized, l.overdue"
+            + " from loan l join loan_users u on u.id = l.user_id join loan_books b on b.id = l.book_id";
+
+    /**
+     * Takes the next ID from the loan sequence.
+     * The sequence advances 50 at a time for the pooled IDs of the servlet application, so every
+     * value taken here is left out of the IDs it hands out.
+     * @return The ID of the next loan.
+     */
+    @Query("select next value for loan_seq")
+    Mono<Long> nextId();
+
+    /**
+     * Retrieves the view of a loan by its ID, with its user and book read in the same query.
+     * @param id The ID of the loan to retrieve.
+     * @return The view of the loan, or empty if not found.
+     */
+    @Query(VIEW + " where l.id = :id")
+    Mono<LoanView> findViewById(Long id);
+
+    /**
+     * Retrieves the views of the loans with an ID greater than the given cursor, ordered by ID.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return At most {@code limit} loan views following the cursor.
+     */
+    @Query(VIEW + " where l.id > :id order by l.id limit :limit")
+    Flux<LoanView> findViewsByIdGreaterThan(Long id, int limit);
+
+    /**
+     * Retrieves the views of the active overdue loans with an ID greater than the given cursor, ordered by ID.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return At most {@code limit} overdue loan views following the cursor.
+     */
+    @Query(VIEW + " where not l.finalized and l.overdue and l.id > :id order by l.id limit :limit")
+    Flux<LoanView> findOverdueViewsByIdGreaterThan(Long id, int limit);
+
+    /**
+     * Streams the views of all loans ordered by ID.
+     * Rows are emitted as they are requested, so a slow subscriber holds back the query.
+     * @return The views of all loans.
+     */
+    @Query(VIEW + " order by l.id")
+    Flux<LoanView> streamAllViews();
+
+    /**
+     * Marks a loan as finalized if it is still active.
+     * Only one of several concurrent calls for the same loan can succeed.
+     * @param id The ID of the loan to finalize.
+     * @return 1 if the loan was finalized by this call, or 0 if it was already finalized or does not exist.
+     */
+    @Modifying
+    @Query("update loan set finalized = true where id = :id and not finalized")
+    Mono<Integer> markFinalized(Long id);
+}
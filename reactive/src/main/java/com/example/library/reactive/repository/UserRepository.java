@@ -0,0 +1,37 @@
+package com.example.library.reactive.repository;
+
+import com.example.library.reactive.model.User;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * The UserRepository interface provides reactive access to the loan_users table.
+ * It extends the ReactiveCrudRepository interface, which provides basic CRUD operations.
+ */
+public interface UserRepository extends ReactiveCrudRepository<User, Long> {
+
+    /**
+     * Counts one more active loan of a user, if that keeps them within the limit.
+     * The counter is checked and incremented by a single statement, so concurrent loans never
+     * take a user over the limit.
+     * @param id The ID of the user.
+     * @param limit The highest number of active loans the user may have.
+     * @return 1 if the loan was counted, or 0 if the user does not exist or is at the limit.
+     */
+    @Modifying
+    @Query("update loan_users set active_loan_count = active_loan_count + 1, version = version + 1, updated_at = current_timestamp"
+            + " where id = :id and active_loan_count < :limit")
+    Mono<Integer> reserveLoan(Long id, int limit);
+
+    /**
+     * Uncounts one active loan of a user.
+     * @param id The ID of the user.
+     * @return 1 if a loan was uncounted, or 0 if the user does not exist or has no active loans.
+     */
+    @Modifying
+    @Query("update loan_users set active_loan_count = active_loan_count - 1, version = version + 1, updated_at = current_timestamp"
+            + " where id = :id and active_loan_count > 0")
+    Mono<Integer> releaseLoan(Long id);
+}
@@ -0,0 +1,268 @@
+package com.example.library.reactive.service;
+
+import com.example.library.reactive.exception.*;
+import com.example.library.reactive.model.Book;
+import com.example.library.reactive.model.CursorPage;
+import com.example.library.reactive.model.Loan;
+import com.example.library.reactive.model.LoanView;
+import com.example.library.reactive.model.User;
+import com.example.library.reactive.repository.BookRepository;
+import com.example.library.reactive.repository.LoanRepository;
+import com.example.library.reactive.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The LoanService class provides the business logic of the loan API without blocking.
+ * It follows the rules of the LoanService of the servlet application. The user, book and loan
+ * a change refers to are looked up concurrently, each on its own connection, and only the
+ * writes run in a transaction. As there, the active loans of every user are counted on the user,
+ * and the borrowing limit is checked with a single conditional update after the stock is reserved.
+ */
+@Service
+public class LoanService {
+
+    /**
+     * The number of loans requested from the database at a time while streaming.
+     */
+    static final int STREAM_BATCH_SIZE = 256;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    /**
+     * The highest number of active loans a user may have.
+     */
+    @Value("${library.loans.max-active-per-user:10}")
+    private int maxActiveLoans;
+
+    /**
+     * Retrieves a page of loans ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of loans in the page
+     * @return the page of loans, or an InvalidDataException if the limit is out of range
+     */
+    public Mono<CursorPage<LoanView>> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            return Mono.error(new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT));
+        }
+        return loanRepository.findViewsByIdGreaterThan(after == null ? 0L : after, limit)
+                .collectList()
+                .map(loans -> CursorPage.of(loans, limit, LoanView::getId));
+    }
+
+    /**
+     * Retrieves a page of active overdue loans ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of loans in the page
+     * @return the page of overdue loans, or an InvalidDataException if the limit is out of range
+     */
+    public Mono<CursorPage<LoanView>> findOverduePage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            return Mono.error(new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT));
+        }
+        return loanRepository.findOverdueViewsByIdGreaterThan(after == null ? 0L : after, limit)
+                .collectList()
+                .map(loans -> CursorPage.of(loans, limit, LoanView::getId));
+    }
+
+    /**
+     * Streams all loans ordered by ID.
+     * Rows are fetched in batches as the subscriber asks for them, so a slow client holds back
+     * the query instead of having the loans buffered in memory.
+     *
+     * @return the views of all loans
+     */
+    public Flux<LoanView> streamAll() {
+        return loanRepository.streamAllViews().limitRate(STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Finds a loan by its ID, together with its user and book.
+     *
+     * @param id the ID of the loan to find
+     * @return the view of the loan, or a LoanNotFoundException if the loan is not found
+     */
+    public Mono<LoanView> findById(Long id) {
+        return loanRepository.findViewById(id)
+                .switchIfEmpty(Mono.error(() -> new LoanNotFoundException("Loan not found")));
+    }
+
+    /**
+     * Saves a new loan to the database, taking one copy of the book out of stock.
+     * The user and the book are looked up at the same time; the copy is then reserved and the loan
+     * counted on the user with conditional updates, in the same transaction as the insert of the loan.
+     *
+     * @param userId    the ID of the user borrowing the book
+     * @param bookId    the ID of the book being borrowed
+     * @param startDate the start date of the loan
+     * @param endDate   the end date of the loan
+     * @return the view of the saved loan, or a UserNotFoundException, InconsistentDatesException,
+     *         BookNotFoundException, NoBookAvailableException or LoanLimitExceededException,
+     *         checked in that order
+     */
+    public Mono<LoanView> save(Long userId, Long bookId, LocalDate startDate, LocalDate endDate) {
+        return Mono.zip(find(userRepository.findById(userId)), find(bookRepository.findById(bookId)))
+                .flatMap(found -> {
+                    User user = found.getT1().orElse(null);
+                    Book book = found.getT2().orElse(null);
+                    if(user != null) {
+                        if(startDate.isBefore(endDate)) {
+                            if(book != null) {
+                                return reserve(bookId)
+                                        .then(countLoan(userId))
+                                        .then(loanRepository.nextId())
+                                        .flatMap(id -> entityTemplate.insert(new Loan(id, userId, bookId, startDate, endDate)))
+                                        .as(transactionalOperator::transactional)
+                                        .map(loan -> LoanView.of(loan, user, book));
+                            } else {
+                                return Mono.error(new BookNotFoundException("Book not found"));
+                            }
+                        } else {
+                            return Mono.error(new InconsistentDatesException("Start date must be before end date"));
+                        }
+                    } else {
+                        return Mono.error(new UserNotFoundException("User not found"));
+                    }
+                });
+    }
+
+    /**
+     * Updates an existing loan in the database.
+     * The loan, the user and the book are looked up at the same time. An active loan that moves
+     * to another book reserves a copy of it before putting the previous one back in stock, and one
+     * that moves to another user is counted on them before being uncounted from the previous one.
+     *
+     * @param id        the ID of the loan to update
+     * @param userId    the new ID of the user borrowing the book
+     * @param bookId    the new ID of the book being borrowed
+     * @param startDate the new start date of the loan
+     * @param endDate   the new end date of the loan
+     * @return the view of the updated loan, or a LoanNotFoundException, UserNotFoundException,
+     *         BookNotFoundException, InconsistentDatesException, NoBookAvailableException or
+     *         LoanLimitExceededException
+     */
+    public Mono<LoanView> update(Long id, Long userId, Long bookId, LocalDate startDate, LocalDate endDate) {
+        return Mono.zip(find(loanRepository.findById(id)), find(userRepository.findById(userId)), find(bookRepository.findById(bookId)))
+                .flatMap(found -> {
+                    Loan loan = found.getT1().orElse(null);
+                    User user = found.getT2().orElse(null);
+                    Book book = found.getT3().orElse(null);
+                    if(loan != null) {
+                        if(user != null) {
+                            if(book != null) {
+                                if(startDate.isBefore(endDate)) {
+                                    Long previousBookId = loan.getBookId();
+                                    Long previousUserId = loan.getUserId();
+                                    Mono<Void> stock = Mono.empty();
+                                    if(!loan.isFinalized() && !Objects.equals(previousBookId, bookId)) {
+                                        stock = reserve(bookId).then(previousBookId != null ? bookRepository.releaseCopy(previousBookId).then() : Mono.<Void>empty());
+                                    }
+                                    if(!loan.isFinalized() && !Objects.equals(previousUserId, userId)) {
+                                        stock = stock.then(countLoan(userId))
+                                                .then(previousUserId != null ? Mono.defer(() -> userRepository.releaseLoan(previousUserId)).then() : Mono.<Void>empty());
+                                    }
+                                    loan.setUserId(userId);
+                                    loan.setBookId(bookId);
+                                    loan.setStartDate(startDate);
+                                    loan.setEndDate(endDate);
+                                    if(!endDate.isBefore(LocalDate.now())) {
+                                        loan.setOverdue(false);
+                                    }
+                                    return stock.then(loanRepository.save(loan))
+                                            .as(transactionalOperator::transactional)
+                                            .map(updatedLoan -> LoanView.of(updatedLoan, user, book));
+                                } else {
+                                    return Mono.error(new InconsistentDatesException("Start date must be before end date"));
+                                }
+                            } else {
+                                return Mono.error(new BookNotFoundException("Book not found"));
+                            }
+                        } else {
+                            return Mono.error(new UserNotFoundException("User not found"));
+                        }
+                    } else {
+                        return Mono.error(new LoanNotFoundException("Loan not found"));
+                    }
+                });
+    }
+
+    /**
+     * Deletes a loan from the database.
+     * The loan is marked as finalized, its copy is put back in stock and it is uncounted from its
+     * user; finalizing an already finalized loan has no further effect.
+     *
+     * @param id the ID of the loan to delete
+     * @return completion, or a LoanNotFoundException if the loan to delete is not found
+     */
+    public Mono<Void> delete(Long id) {
+        return loanRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new LoanNotFoundException("Loan not found")))
+                .flatMap(loan -> {
+                    if(!loan.isFinalized()) {
+                        return loanRepository.markFinalized(id)
+                                .flatMap(finalized -> finalized == 1
+                                        ? bookRepository.releaseCopy(loan.getBookId())
+                                                .then(loan.getUserId() != null ? userRepository.releaseLoan(loan.getUserId()).then() : Mono.<Void>empty())
+                                        : Mono.<Void>empty())
+                                .as(transactionalOperator::transactional);
+                    } else {
+                        return Mono.<Void>empty();
+                    }
+                });
+    }
+
+    /**
+     * Takes one copy of a book out of stock.
+     *
+     * @param bookId the ID of the book, known to exist
+     * @return completion, or a NoBookAvailableException if the book has no copies left
+     */
+    private Mono<Void> reserve(Long bookId) {
+        return bookRepository.reserveCopy(bookId)
+                .flatMap(reserved -> reserved == 1 ? Mono.<Void>empty() : Mono.<Void>error(new NoBookAvailableException("No book available")));
+    }
+
+    /**
+     * Counts one more active loan of a user.
+     *
+     * @param userId the ID of the user, known to exist
+     * @return completion, or a LoanLimitExceededException if the user already has as many active loans as allowed
+     */
+    private Mono<Void> countLoan(Long userId) {
+        return Mono.defer(() -> userRepository.reserveLoan(userId, maxActiveLoans))
+                .flatMap(counted -> counted == 1 ? Mono.<Void>empty()
+                        : Mono.<Void>error(new LoanLimitExceededException("User cannot have more than " + maxActiveLoans + " active loans")));
+    }
+
+    /**
+     * Wraps the result of a lookup in an Optional, so that lookups can be zipped and an
+     * absent row be reported in the same order as the servlet application does.
+     */
+    private static <T> Mono<Optional<T>> find(Mono<T> lookup) {
+        return lookup.map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.library.reactive.controller;
+
+import com.example.library.reactive.model.Book;
+import com.example.library.reactive.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The LoanControllerTest class runs the reactive loan API against an in-memory database
+ * created by the migrations of the servlet application.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-loans?options=DB_CLOSE_DELAY=-1",
+        "spring.flyway.url=jdbc:h2:mem:reactive-loans;DB_CLOSE_DELAY=-1",
+        "library.loans.max-active-per-user=3"
+})
+@AutoConfigureWebTestClient
+class LoanControllerTest {
+
+    private static final String LOAN = "{\"user\":{\"id\":%d},\"book\":{\"id\":%d},\"startDate\":\"%s\",\"endDate\":\"%s\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("delete from loan").then()
+                .then(databaseClient.sql("delete from loan_users").then())
+                .then(databaseClient.sql("delete from loan_books").then())
+                .then(entityTemplate.insert(new User(1L, "User", "user@example.com")))
+                .then(entityTemplate.insert(new Book(2L, "9780000000001", "Title", "Author", 1)))
+                .block();
+    }
+
+    @Test
+    void testCreateLoan() {
+        // Act
+        Map<?, ?> loan = createLoan(1L, 2L, "2024-05-02", "2024-05-16")
+                .expectStatus().isCreated()
+                .expectBody(Map.class).returnResult().getResponseBody();
+
+        // Assert
+        assertEquals("User", loan.get("userName"));
+        assertEquals("Title", loan.get("bookTitle"));
+        assertEquals(0, quantity(2L));
+        webTestClient.get().uri("/api/loans/{id}", loan.get("id")).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.bookTitle").isEqualTo("Title");
+    }
+
+    @Test
+    void testCreateLoan_NoBookAvailable() {
+        // Arrange
+        createLoan(1L, 2L, "2024-05-02", "2024-05-16").expectStatus().isCreated();
+
+        // Act and Assert
+        createLoan(1L, 2L, "2024-05-02", "2024-05-16")
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("No book available");
+        assertEquals(0, quantity(2L));
+    }
+
+    @Test
+    void testCreateLoan_UserNotFound() {
+        // Act and Assert
+        createLoan(9L, 2L, "2024-05-02", "2024-05-16")
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("User not found");
+    }
+
+    @Test
+    void testDeleteLoan_PutsCopyBackInStock() {
+        // Arrange
+        Map<?, ?> loan = createLoan(1L, 2L, "2024-05-02", "2024-05-16")
+                .expectBody(Map.class).returnResult().getResponseBody();
+
+        // Act and Assert
+        webTestClient.delete().uri("/api/loans/{id}", loan.get("id")).exchange().expectStatus().isOk();
+        assertEquals(1, quantity(2L));
+        assertEquals(0, activeLoanCount(1L));
+        webTestClient.delete().uri("/api/loans/{id}", 999L).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void testGetLoans_PagedAndStreamed() {
+        // Arrange
+        databaseClient.sql("update loan_books set quantity = 10 where id = 2").then().block();
+        for (int i = 0; i < 3; i++) {
+            createLoan(1L, 2L, "2024-05-02", "2024-05-16").expectStatus().isCreated();
+        }
+
+        // Act
+        List<Map> streamed = webTestClient.get().uri("/api/loans/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(Map.class).getResponseBody().collectList().block();
+
+        // Assert
+        assertEquals(3, streamed.size());
+        webTestClient.get().uri("/api/loans?limit=2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.nextCursor").isEqualTo(streamed.get(1).get("id"));
+        webTestClient.get().uri("/api/loans?limit=0").exchange().expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testCreateLoan_LoanLimitExceeded() {
+        // Arrange
+        databaseClient.sql("update loan_books set quantity = 10 where id = 2").then().block();
+        Map<?, ?> first = null;
+        for (int i = 0; i < 3; i++) {
+            Map<?, ?> loan = createLoan(1L, 2L, "2024-05-02", "2024-05-16")
+                    .expectStatus().isCreated()
+                    .expectBody(Map.class).returnResult().getResponseBody();
+            first = first == null ? loan : first;
+        }
+
+        // Act and Assert
+        createLoan(1L, 2L, "2024-05-02", "2024-05-16")
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("User cannot have more than 3 active loans");
+        assertEquals(7, quantity(2L));
+        assertEquals(3, activeLoanCount(1L));
+        webTestClient.delete().uri("/api/loans/{id}", first.get("id")).exchange().expectStatus().isOk();
+        createLoan(1L, 2L, "2024-05-02", "2024-05-16").expectStatus().isCreated();
+        assertEquals(3, activeLoanCount(1L));
+    }
+
+    private WebTestClient.ResponseSpec createLoan(Long userId, Long bookId, String startDate, String endDate) {
+        return webTestClient.post().uri("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(String.format(LOAN, userId, bookId, startDate, endDate))
+                .exchange();
+    }
+
+    private int activeLoanCount(Long userId) {
+        return databaseClient.sql("select active_loan_count from loan_users where id = :id")
+                .bind("id", userId)
+                .map(row -> row.get("active_loan_count", Integer.class))
+                .one()
+                .block();
+    }
+
+    private int quantity(Long bookId) {
+        return databaseClient.sql("select quantity from loan_books where id = :id")
+                .bind("id", bookId)
+                .map(row -> row.get("quantity", Integer.class))
+                .one()
+                .block();
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.library.reactive.service;
+
+import com.example.library.reactive.exception.*;
+import com.example.library.reactive.model.Book;
+import com.example.library.reactive.model.Loan;
+import com.example.library.reactive.model.LoanView;
+import com.example.library.reactive.model.User;
+import com.example.library.reactive.repository.BookRepository;
+import com.example.library.reactive.repository.LoanRepository;
+import com.example.library.reactive.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The LoanServiceTest class contains unit tests for the reactive LoanService class.
+ */
+public class LoanServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END = LocalDate.of(2024, 5, 16);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @InjectMocks
+    private LoanService loanService;
+
+    private final User user = new User(1L, "User", "user@example.com");
+
+    private final Book book = new Book(2L, "9780000000001", "Title", "Author", 1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanService, "maxActiveLoans", 10);
+        when(userRepository.reserveLoan(any(), any(Integer.class))).thenReturn(Mono.just(1));
+        when(userRepository.releaseLoan(any())).thenReturn(Mono.just(1));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(entityTemplate.insert(any(Loan.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void testSave() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(bookRepository.reserveCopy(2L)).thenReturn(Mono.just(1));
+        when(loanRepository.nextId()).thenReturn(Mono.just(51L));
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .assertNext(loan -> {
+                    assertEquals(51L, loan.getId());
+                    assertEquals("User", loan.getUserName());
+                    assertEquals("Title", loan.getBookTitle());
+                })
+                .verifyComplete();
+        verify(userRepository).reserveLoan(1L, 10);
+    }
+
+    @Test
+    public void testSave_LooksUpUserAndBookConcurrently() {
+        // Arrange
+        Sinks.One<User> pendingUser = Sinks.one();
+        PublisherProbe<Book> bookLookup = PublisherProbe.of(Mono.just(book));
+        when(userRepository.findById(1L)).thenReturn(pendingUser.asMono());
+        when(bookRepository.findById(2L)).thenReturn(bookLookup.mono());
+        when(bookRepository.reserveCopy(2L)).thenReturn(Mono.just(1));
+        when(loanRepository.nextId()).thenReturn(Mono.just(51L));
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .then(bookLookup::assertWasSubscribed)
+                .then(() -> pendingUser.tryEmitValue(user))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testSave_UserNotFound() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+        when(bookRepository.findById(2L)).thenReturn(Mono.empty());
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .verifyError(UserNotFoundException.class);
+        verify(bookRepository, never()).reserveCopy(any());
+    }
+
+    @Test
+    public void testSave_InconsistentDates() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, END, START))
+                .verifyError(InconsistentDatesException.class);
+        verify(bookRepository, never()).reserveCopy(any());
+    }
+
+    @Test
+    public void testSave_BookNotFound() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.empty());
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .verifyError(BookNotFoundException.class);
+        verify(bookRepository, never()).reserveCopy(any());
+    }
+
+    @Test
+    public void testSave_NoBookAvailable() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(bookRepository.reserveCopy(2L)).thenReturn(Mono.just(0));
+        when(loanRepository.nextId()).thenReturn(Mono.just(51L));
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .verifyError(NoBookAvailableException.class);
+        verify(entityTemplate, never()).insert(any(Loan.class));
+    }
+
+    @Test
+    public void testSave_LoanLimitExceeded() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(bookRepository.reserveCopy(2L)).thenReturn(Mono.just(1));
+        when(userRepository.reserveLoan(1L, 10)).thenReturn(Mono.just(0));
+        when(loanRepository.nextId()).thenReturn(Mono.just(51L));
+
+        // Act and Assert
+        StepVerifier.create(loanService.save(1L, 2L, START, END))
+                .verifyError(LoanLimitExceededException.class);
+        verify(entityTemplate, never()).insert(any(Loan.class));
+    }
+
+    @Test
+    public void testUpdate_MovesCopyToNewBook() {
+        // Arrange
+        Loan loan = new Loan(51L, 1L, 3L, START, END);
+        when(loanRepository.findById(51L)).thenReturn(Mono.just(loan));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(bookRepository.reserveCopy(2L)).thenReturn(Mono.just(1));
+        when(bookRepository.releaseCopy(3L)).thenReturn(Mono.just(1));
+        when(loanRepository.save(loan)).thenReturn(Mono.just(loan));
+
+        // Act and Assert
+        StepVerifier.create(loanService.update(51L, 1L, 2L, START, END))
+                .assertNext(view -> assertEquals(2L, view.getBookId()))
+                .verifyComplete();
+        verify(bookRepository).releaseCopy(3L);
+        verify(userRepository, never()).reserveLoan(any(), any(Integer.class));
+    }
+
+    @Test
+    public void testUpdate_MovesLoanToNewUser() {
+        // Arrange
+        Loan loan = new Loan(51L, 3L, 2L, START, END);
+        when(loanRepository.findById(51L)).thenReturn(Mono.just(loan));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(loanRepository.save(loan)).thenReturn(Mono.just(loan));
+
+        // Act and Assert
+        StepVerifier.create(loanService.update(51L, 1L, 2L, START, END))
+                .assertNext(view -> assertEquals(1L, view.getUserId()))
+                .verifyComplete();
+        verify(userRepository).reserveLoan(1L, 10);
+        verify(userRepository).releaseLoan(3L);
+        verify(bookRepository, never()).reserveCopy(any());
+    }
+
+    @Test
+    public void testUpdate_NewUserAtLimit() {
+        // Arrange
+        Loan loan = new Loan(51L, 3L, 2L, START, END);
+        when(loanRepository.findById(51L)).thenReturn(Mono.just(loan));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+        when(userRepository.reserveLoan(1L, 10)).thenReturn(Mono.just(0));
+        when(loanRepository.save(loan)).thenReturn(Mono.just(loan));
+
+        // Act and Assert
+        StepVerifier.create(loanService.update(51L, 1L, 2L, START, END))
+                .verifyError(LoanLimitExceededException.class);
+        verify(userRepository, never()).releaseLoan(any());
+    }
+
+    @Test
+    public void testUpdate_LoanNotFound() {
+        // Arrange
+        when(loanRepository.findById(51L)).thenReturn(Mono.empty());
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(bookRepository.findById(2L)).thenReturn(Mono.just(book));
+
+        // Act and Assert
+        StepVerifier.create(loanService.update(51L, 1L, 2L, START, END))
+                .verifyError(LoanNotFoundException.class);
+    }
+
+    @Test
+    public void testDelete() {
+        // Arrange
+        when(loanRepository.findById(51L)).thenReturn(Mono.just(new Loan(51L, 1L, 2L, START, END)));
+        when(loanRepository.markFinalized(51L)).thenReturn(Mono.just(1));
+        when(bookRepository.releaseCopy(2L)).thenReturn(Mono.just(1));
+
+        // Act and Assert
+        StepVerifier.create(loanService.delete(51L)).verifyComplete();
+        verify(bookRepository).releaseCopy(2L);
+        verify(userRepository).releaseLoan(1L);
+    }
+
+    @Test
+    public void testDelete_AlreadyFinalized() {
+        // Arrange
+        Loan loan = new Loan(51L, 1L, 2L, START, END);
+        loan.setFinalized(true);
+        when(loanRepository.findById(51L)).thenReturn(Mono.just(loan));
+
+        // Act and Assert
+        StepVerifier.create(loanService.delete(51L)).verifyComplete();
+        verify(bookRepository, never()).releaseCopy(any());
+        verify(userRepository, never()).releaseLoan(any());
+    }
+
+    @Test
+    public void testFindById_NotFound() {
+        // Arrange
+        when(loanRepository.findViewById(51L)).thenReturn(Mono.empty());
+
+        // Act and Assert
+        StepVerifier.create(loanService.findById(51L)).verifyError(LoanNotFoundException.class);
+    }
+
+    @Test
+    public void testFindPage_InvalidLimit() {
+        // Act and Assert
+        StepVerifier.create(loanService.findPage(null, 0)).verifyError(InvalidDataException.class);
+    }
+
+    @Test
+    public void testStreamAll_RequestsRowsInBatches() {
+        // Arrange
+        List<Long> requests = new ArrayList<>();
+        Flux<LoanView> loans = Flux.range(1, 1000)
+                .map(id -> new LoanView((long) id, 1L, "User", 2L, "Title", START, END, false, false))
+                .doOnRequest(requests::add);
+        when(loanRepository.streamAllViews()).thenReturn(loans);
+
+        // Act and Assert
+        StepVerifier.create(loanService.streamAll())
+                .expectNextCount(1000)
+                .verifyComplete();
+        assertTrue(requests.stream().allMatch(request -> request <= LoanService.STREAM_BATCH_SIZE));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.BookHit;
+import com.example.library.model.SearchPage;
+import com.example.library.search.BookIndex;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BookSearchBenchmark class measures full-text searches against an index of synthetic titles.
+ * The index is held in memory, so the figures exclude disk reads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "history", "garden", "river", "winter", "shadow", "empire", "journey", "silence", "ocean", "memory",
+            "kingdom", "letters", "mountain", "secret", "engine", "harvest", "island", "machine", "thunder", "voyage"
+    };
+
+    private static final String[] AUTHORS = {
+            "García", "Müller", "Smith", "Tanaka", "Okafor", "Novak", "Rossi", "Dubois", "Silva", "Kowalski"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private BookIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = new BookIndex(new ByteBuffersDirectory());
+        for (long id = 1; id <= rows; id++) {
+            int i = (int) id;
+            String title = "The " + word(i) + " of the " + word(i / WORDS.length) + " " + id;
+            String author = AUTHORS[i % AUTHORS.length] + " " + word(i / 7);
+            index.update(id, LibraryState.isbn(id), title, author);
+        }
+        index.commit();
+        index.refresh();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchPage<BookHit> searchWord() {
+        return index.search(randomWord(), 0, 20);
+    }
+
+    @Benchmark
+    public SearchPage<BookHit> searchPrefix() {
+        return index.search(randomWord().substring(0, 3), 0, 20);
+    }
+
+    @Benchmark
+    public SearchPage<BookHit> searchTitleAndAuthor() {
+        return index.search(randomWord() + " " + AUTHORS[ThreadLocalRandom.current().nextInt(AUTHORS.length)], 0, 20);
+    }
+
+    @Benchmark
+    public SearchPage<BookHit> searchDeepPage() {
+        return index.search(randomWord(), 1_000, 20);
+    }
+
+    private static String word(int i) {
+        return WORDS[i % WORDS.length];
+    }
+
+    private static String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+}
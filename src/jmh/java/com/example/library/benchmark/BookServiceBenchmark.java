@@ -0,0 +1,34 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BookServiceBenchmark class measures the BookService operations behind the book endpoints.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookServiceBenchmark {
+
+    @Benchmark
+    public Book findById(LibraryState state) {
+        return state.bookService.findById(state.randomId());
+    }
+
+    @Benchmark
+    public Book save(LibraryState state) {
+        long key = state.nextKey();
+        return state.bookService.save(LibraryState.isbn(key), "Title " + key, "Author", 1);
+    }
+
+    @Benchmark
+    public Book update(LibraryState state) {
+        long id = state.randomId();
+        return state.bookService.update(id, LibraryState.isbn(id), "Updated title " + id, "Author", LibraryState.STOCK);
+    }
+}
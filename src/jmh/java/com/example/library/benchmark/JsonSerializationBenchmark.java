@@ -0,0 +1,52 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.Book;
+import com.example.library.model.LoanView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JsonSerializationBenchmark class measures the JSON serialization of the API
+ * representations of books and loans, with a mapper configured like the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Book book;
+
+    private LoanView loan;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        book = new Book("9780000000001", "The Pragmatic Programmer", "Andrew Hunt", 3);
+        book.setId(1L);
+        loan = new LoanView(1L, 1L, "Ada Lovelace", 1L, "The Pragmatic Programmer",
+                LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16), false, false);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeLoan() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loan);
+    }
+}
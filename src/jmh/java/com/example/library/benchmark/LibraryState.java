@@ -0,0 +1,172 @@
+package com.example.library.benchmark;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.model.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.LoanService;
+import com.example.library.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * The LibraryState class holds the services under benchmark, backed by an embedded
+ * H2 database seeded with {@link #rows} books, users and loans.
+ * The application context is started once per trial, so each fork measures a warm cache.
+ * With {@code -p database=h2,postgres} the benchmarks also run with the postgres profile against
+ * a PostgreSQL server started from the embedded binaries, e.g.
+ * {@code mvn -P benchmark verify -Djmh.args="LoanServiceBenchmark -p rows=100000 -p database=h2,postgres"}.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    /**
+     * The number of copies of every seeded book, large enough never to run out during a run.
+     */
+    static final int STOCK = 1_000_000;
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    /**
+     * The number of rows seeded in each of the books, users and loans tables.
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * The database the application runs on: h2 or postgres.
+     */
+    @Param({"h2"})
+    public String database;
+
+    BookService bookService;
+
+    UserService userService;
+
+    LoanService loanService;
+
+    private ConfigurableApplicationContext context;
+
+    private EmbeddedPostgres postgres;
+
+    /**
+     * Source of keys for the rows inserted by the benchmarks, above the seeded ones.
+     */
+    private final AtomicLong nextKey = new AtomicLong();
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, UserService.class, LoanService.class, AvailabilityService.class})
+    static class Config {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.jpa.show-sql=false",
+                "--library.availability.path=target/benchmark-availability-" + UUID.randomUUID() + ".idx",
+                "--library.loans.max-active-per-user=" + Integer.MAX_VALUE,
+                "--logging.level.root=WARN"));
+        if ("postgres".equals(database)) {
+            postgres = EmbeddedPostgres.start();
+            args.addAll(List.of(
+                    "--spring.profiles.active=postgres",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password="));
+        } else {
+            args.add("--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        }
+        context = new SpringApplicationBuilder(Config.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        bookService = context.getBean(BookService.class);
+        userService = context.getBean(UserService.class);
+        loanService = context.getBean(LoanService.class);
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(AvailabilityService.class).reconcile();
+        nextKey.set(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    /**
+     * Returns the ID of a random seeded row.
+     */
+    long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1L);
+    }
+
+    /**
+     * Returns a key that no other row uses yet.
+     */
+    long nextKey() {
+        return nextKey.incrementAndGet();
+    }
+
+    static String isbn(long key) {
+        return String.format("978%010d", key);
+    }
+
+    static String email(long key) {
+        return "user" + key + "@example.com";
+    }
+
+    /**
+     * Inserts the rows with plain JDBC batches and moves the sequences past them,
+     * which is much faster than going through the services.
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        LocalDate startDate = LocalDate.of(2024, 5, 2);
+        insert(jdbcTemplate, "insert into loan_books (id, isbn, title, author, quantity) values (?, ?, ?, ?, ?)",
+                id -> new Object[]{id, isbn(id), "Title " + id, "Author " + id % 10_000, STOCK});
+        insert(jdbcTemplate, "insert into loan_users (id, name, email) values (?, ?, ?)",
+                id -> new Object[]{id, "User " + id, email(id)});
+        insert(jdbcTemplate, "insert into loan (id, user_id, book_id, start_date, end_date, finalized) values (?, ?, ?, ?, ?, ?)",
+                id -> new Object[]{id, id, id, Date.valueOf(startDate), Date.valueOf(startDate.plusDays(14)), id % 2 == 0});
+        for (String sequence : List.of("loan_books_seq", "loan_users_seq", "loan_seq")) {
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (rows + 100));
+        }
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate, String sql, IntFunction<Object[]> row) {
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int id = 1; id <= rows; id++) {
+            batch.add(row.apply(id));
+            if (batch.size() == SEED_BATCH_SIZE || id == rows) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+}
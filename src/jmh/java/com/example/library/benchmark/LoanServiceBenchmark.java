@@ -0,0 +1,29 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.Loan;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LoanServiceBenchmark class measures loan creation through LoanService,
+ * including the stock reservation on the borrowed book.
+ * Run it with {@code -p database=h2,postgres} to compare the throughput on H2 and PostgreSQL.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoanServiceBenchmark {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 16);
+
+    @Benchmark
+    public Loan save(LibraryState state) {
+        return state.loanService.save(state.randomId(), state.randomId(), START_DATE, END_DATE);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.library.benchmark;
+
+import com.example.library.controller.ApiExceptionHandler;
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.model.MessageResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The NotFoundBenchmark class measures the 404 path of a lookup: an exception thrown below the
+ * controller and turned into a MessageResponse.
+ * {@code withStackTrace} is the path as it was, with an exception capturing its stack trace and
+ * caught in the controller; {@code stackless} is the path as it is, with a BookNotFoundException
+ * handled by ApiExceptionHandler. The exception is thrown {@link #depth} frames deep, about what
+ * the servlet filters, the dispatcher, the proxies and the service put on the stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    /**
+     * The number of frames between the controller and the throw.
+     */
+    @Param({"20", "120"})
+    public int depth;
+
+    private final ApiExceptionHandler handler = new ApiExceptionHandler();
+
+    @Benchmark
+    public ResponseEntity<MessageResponse> withStackTrace() {
+        try {
+            return lookup(depth, () -> new StackTraceNotFoundException("Book not found"));
+        } catch (StackTraceNotFoundException e) {
+            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<MessageResponse> stackless() {
+        try {
+            return lookup(depth, () -> new BookNotFoundException("Book not found"));
+        } catch (BookNotFoundException e) {
+            return handler.handleLibraryException(e);
+        }
+    }
+
+    private static ResponseEntity<MessageResponse> lookup(int depth, Supplier<RuntimeException> notFound) {
+        if (depth == 0) {
+            throw notFound.get();
+        }
+        return lookup(depth - 1, notFound);
+    }
+
+    /**
+     * A not-found exception as the domain exceptions were before, filling in its stack trace.
+     */
+    static class StackTraceNotFoundException extends RuntimeException {
+
+        StackTraceNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
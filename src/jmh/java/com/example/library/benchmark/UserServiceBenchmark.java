@@ -0,0 +1,23 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The UserServiceBenchmark class measures user registration through UserService.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserServiceBenchmark {
+
+    @Benchmark
+    public User save(LibraryState state) {
+        long key = state.nextKey();
+        return state.userService.save("User " + key, LibraryState.email(key));
+    }
+}
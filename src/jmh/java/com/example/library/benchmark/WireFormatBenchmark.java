@@ -0,0 +1,105 @@
+package com.example.library.benchmark;
+
+import com.example.library.model.Book;
+import com.example.library.model.CursorPage;
+import com.example.library.model.LoanView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WireFormatBenchmark class compares the JSON and CBOR encodings of the API responses:
+ * a book as returned by the detail endpoint, and full pages of books and loans as returned by
+ * the listings. Besides the serialization time, every benchmark reports the size of the payload
+ * as the {@code payloadBytes} counter; the allocation per response is reported with {@code -prof gc}:
+ * {@code mvn -P benchmark verify -Djmh.args="WireFormatBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    /**
+     * The number of items in a page, the default limit of the listings.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectWriter writer;
+
+    private Book book;
+
+    private CursorPage<Book> books;
+
+    private CursorPage<LoanView> loans;
+
+    /**
+     * The size of the last payload written, reported as is rather than as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        writer = builder.build().writer();
+        book = book(1);
+        List<Book> bookItems = new ArrayList<>();
+        List<LoanView> loanItems = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            bookItems.add(book(i));
+            loanItems.add(new LoanView((long) i, (long) i % 10 + 1, "Ada Lovelace", (long) i, "Title " + i,
+                    LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16), i % 3 == 0, i % 7 == 0));
+        }
+        books = CursorPage.of(bookItems, PAGE_SIZE, Book::getId);
+        loans = CursorPage.of(loanItems, PAGE_SIZE, LoanView::getId);
+    }
+
+    @Benchmark
+    public byte[] serializeBook(Payload payload) throws JsonProcessingException {
+        return write(book, payload);
+    }
+
+    @Benchmark
+    public byte[] serializeBookPage(Payload payload) throws JsonProcessingException {
+        return write(books, payload);
+    }
+
+    @Benchmark
+    public byte[] serializeLoanPage(Payload payload) throws JsonProcessingException {
+        return write(loans, payload);
+    }
+
+    private byte[] write(Object value, Payload payload) throws JsonProcessingException {
+        byte[] bytes = writer.writeValueAsBytes(value);
+        payload.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    private static Book book(long id) {
+        Book book = new Book(String.format("978%010d", id), "The Pragmatic Programmer, volume " + id, "Andrew Hunt", 3);
+        book.setId(id);
+        return book;
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.library.audit;
+
+import com.example.library.config.TimedService;
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.CursorPage;
+import com.example.library.model.Loan;
+import com.example.library.model.LoanEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoanAuditService class records every committed change to a loan in a LoanEventLog, and
+ * reads the history of loans back from it.
+ * Changes are handed to a bounded lock-free queue and written behind by a single writer thread,
+ * which syncs the log to disk in batches: once enough events are pending or the sync interval has
+ * elapsed. Requests never wait for the log; if the queue is full the event is dropped and counted
+ * under {@code library.audit.dropped}, and events not yet synced are lost if the host crashes.
+ * The history of a loan is read at the offsets of its events, found in the per-segment loan index
+ * of the log without scanning it.
+ */
+@Service
+@TimedService
+public class LoanAuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanAuditService.class);
+
+    /**
+     * The largest number of events appended between two flushes.
+     */
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    /**
+     * The longest {@link #flush()} waits for the writer.
+     */
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The directory holding the log segments.
+     */
+    @Value("${library.audit.path:audit-log}")
+    private Path path;
+
+    /**
+     * The size after which a segment is closed and a new one started, 64 MB by default.
+     */
+    @Value("${library.audit.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    /**
+     * The largest number of events waiting to be written.
+     */
+    @Value("${library.audit.queue-capacity:65536}")
+    private int queueCapacity;
+
+    /**
+     * The longest time written events wait to be synced to disk.
+     */
+    @Value("${library.audit.fsync-interval-ms:200}")
+    private long fsyncIntervalMs;
+
+    /**
+     * The number of written events after which the log is synced without waiting for the interval.
+     */
+    @Value("${library.audit.fsync-batch-size:1000}")
+    private int fsyncBatchSize;
+
+    private final Queue<LoanChangedEvent> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of events in the queue, which bounds it without locking.
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * The number of events accepted into the queue since startup.
+     */
+    private final AtomicLong accepted = new AtomicLong();
+
+    /**
+     * The number of events taken from the queue since startup and either written to the log and
+     * flushed, or dropped because they could not be appended; updated by the writer only.
+     */
+    private volatile long written;
+
+    /**
+     * Whether the writer is parked waiting for events.
+     */
+    private volatile boolean idle;
+
+    private volatile boolean running;
+
+    private LoanEventLog eventLog;
+
+    private Thread writer;
+
+    private Counter dropped;
+
+    private Timer fsync;
+
+    /**
+     * Opens the log and starts the writer.
+     *
+     * @throws IOException if the log cannot be opened
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        long start = System.nanoTime();
+        eventLog = LoanEventLog.open(path, segmentBytes);
+        log.info("Loan event log opened: {} segments in {} ms", eventLog.segmentCount(), (System.nanoTime() - start) / 1_000_000);
+        dropped = Counter.builder("library.audit.dropped")
+                .description("Loan events dropped because the audit queue was full")
+                .register(meterRegistry);
+        fsync = Timer.builder("library.audit.fsync")
+                .description("Time spent syncing the loan event log to disk")
+                .register(meterRegistry);
+        meterRegistry.gauge("library.audit.queue.size", queued);
+        running = true;
+        writer = Thread.ofPlatform().name("loan-audit-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Stops the writer once every queued event is written, and closes the log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(FLUSH_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        eventLog.close();
+    }
+
+    /**
+     * Queues a change to a loan once its transaction has committed, or right away outside a transaction.
+     *
+     * @param event the change to record
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(event);
+        accepted.incrementAndGet();
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Retrieves a page of loan events ordered by offset, starting after the given cursor.
+     *
+     * @param after the offset after which the page starts, or null to start from the first event
+     * @param limit the maximum number of events in the page
+     * @return the page of events
+     * @throws InvalidDataException if the limit is out of range
+     */
+    public CursorPage<LoanEvent> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        List<LoanEvent> events = eventLog.read(after == null ? -1L : after, limit);
+        return CursorPage.of(events, limit, LoanEvent::getOffset);
+    }
+
+    /**
+     * Retrieves every recorded change to a loan, oldest first, reading each of its events at
+     * its offset.
+     *
+     * @param loanId the ID of the loan
+     * @return the events of the loan, empty if none were recorded
+     */
+    public List<LoanEvent> history(Long loanId) {
+        long[] offsets = eventLog.offsetsOf(loanId);
+        List<LoanEvent> events = new ArrayList<>(offsets.length);
+        for (long offset : offsets) {
+            events.addAll(eventLog.read(offset - 1, 1));
+        }
+        return events;
+    }
+
+    /**
+     * Rebuilds the state of every recorded loan by replaying the log from the first event.
+     * The loans are not managed, and their users and books only hold their IDs.
+     *
+     * @return the loans by ID, in the order they were first recorded
+     */
+    public Map<Long, Loan> rebuildLoans() {
+        Map<Long, Loan> loans = new LinkedHashMap<>();
+        eventLog.replay(0, event -> loans.put(event.getLoanId(), event.toLoan()));
+        return loans;
+    }
+
+    /**
+     * Waits until every event queued so far has been written and is visible to readers.
+     *
+     * @return true if the events were written, false if the writer did not catch up in time
+     */
+    public boolean flush() {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT.toNanos();
+        while (written < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Appends the queued events in batches, syncing the log when enough events are pending or
+     * the interval has elapsed, and parks while there is nothing to do.
+     */
+    private void writeLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        long lastSync = System.nanoTime();
+        int unsynced = 0;
+        // Events taken from the queue and not yet flushed, kept across a failed flush
+        int unflushed = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                int batch = 0;
+                LoanChangedEvent event;
+                while (batch < WRITE_BATCH_SIZE && (event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    try {
+                        eventLog.append(event);
+                    } catch (RuntimeException e) {
+                        dropped.increment();
+                        log.error("Could not append a loan event to the log, dropped", e);
+                    }
+                    unflushed++;
+                    batch++;
+                }
+                if (unflushed > 0) {
+                    eventLog.flush();
+                    written += unflushed;
+                    unsynced += unflushed;
+                    unflushed = 0;
+                }
+                long now = System.nanoTime();
+                if (unsynced > 0 && (unsynced >= fsyncBatchSize || now - lastSync >= intervalNanos)) {
+                    fsync.record(eventLog::sync);
+                    unsynced = 0;
+                    lastSync = now;
+                }
+                if (batch == 0) {
+                    idle = true;
+                    if (queue.isEmpty() && running) {
+                        LockSupport.parkNanos(unsynced > 0 ? Math.max(0, lastSync + intervalNanos - now) : intervalNanos);
+                    }
+                    idle = false;
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not write to the loan event log", e);
+                LockSupport.parkNanos(intervalNanos);
+            }
+        }
+    }
+}
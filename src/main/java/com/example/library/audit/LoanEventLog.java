@@ -0,0 +1,755 @@
+package com.example.library.audit;
+
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.model.LoanEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * The LoanEventLog class is an append-only log of loan events, stored in segment files in a directory.
+ * Every event gets the next offset, starting at 0. A segment holds the events from the offset in its
+ * name onwards, as records made of the payload length, a CRC32C of the payload and the payload itself;
+ * once a segment reaches its maximum size it is synced and a new one is started.
+ * Next to each segment, a sparse index maps one offset every 4 KB to the position of its record,
+ * so reads starting at any offset only scan a few records of a single segment.
+ * The offsets of the events of every loan are kept per segment: in memory for the segment appended to,
+ * rebuilt from that segment alone when the log is opened, and in a file sorted by loan ID next to every
+ * segment once it is full, so that memory only grows with the last segment and the history of a loan
+ * is found with a binary search per segment.
+ * Appends are buffered until {@link #flush()}, which makes them visible to readers, and are only
+ * durable after {@link #sync()}. When the log is opened, a torn or corrupt tail left by a crash is
+ * truncated from the last segment. Appends must come from a single thread; reads may run concurrently.
+ */
+public class LoanEventLog implements Closeable {
+
+    static final String LOG_SUFFIX = ".log";
+
+    static final String INDEX_SUFFIX = ".idx";
+
+    static final String LOANS_SUFFIX = ".loans";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int PAYLOAD_SIZE = 59;
+
+    private static final int RECORD_SIZE = HEADER_SIZE + PAYLOAD_SIZE;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    /**
+     * The size of an entry of a loan index: the loan ID and the offset of its event relative to the segment.
+     */
+    private static final int LOAN_ENTRY_SIZE = 12;
+
+    /**
+     * The number of log bytes between two index entries.
+     */
+    private static final int INDEX_INTERVAL_BYTES = 4096;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final LoanChangedEvent.Type[] TYPES = LoanChangedEvent.Type.values();
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    /**
+     * The segments by the offset of their first event.
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE / INDEX_INTERVAL_BYTES * INDEX_ENTRY_SIZE + INDEX_ENTRY_SIZE);
+
+    private final CRC32C checksum = new CRC32C();
+
+    /**
+     * The loan IDs and offsets of the events in the write buffer, indexed once flushed.
+     */
+    private final long[] pendingLoanIds = new long[WRITE_BUFFER_SIZE / RECORD_SIZE];
+
+    private final long[] pendingOffsets = new long[WRITE_BUFFER_SIZE / RECORD_SIZE];
+
+    private int pending;
+
+    /**
+     * The segment appended to.
+     */
+    private Segment active;
+
+    /**
+     * The offset of the next event appended, flushed or not.
+     */
+    private long nextOffset;
+
+    /**
+     * The offset after the last flushed event.
+     */
+    private volatile long endOffset;
+
+    /**
+     * A segment file with its index. Its size and end offset only cover flushed records.
+     * The offsets of its events by loan are held in memory while it is the last segment, and in its
+     * loan index once full; the loan index is set before the offsets in memory are dropped.
+     */
+    private static final class Segment {
+
+        private final long baseOffset;
+
+        private final FileChannel log;
+
+        private final FileChannel index;
+
+        private volatile Map<Long, OffsetList> loanOffsets;
+
+        private volatile FileChannel loans;
+
+        private volatile long size;
+
+        private volatile long indexSize;
+
+        private volatile long endOffset;
+
+        /**
+         * The position of the last indexed record, or of the segment start; used by the writer only.
+         */
+        private long lastIndexedPosition;
+
+        private Segment(long baseOffset, FileChannel log, FileChannel index) {
+            this.baseOffset = baseOffset;
+            this.log = log;
+            this.index = index;
+        }
+    }
+
+    /**
+     * A growable list of offsets in increasing order, appended to by the writer while read by others.
+     */
+    private static final class OffsetList {
+
+        private long[] offsets = new long[4];
+
+        private int size;
+
+        private synchronized void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        private synchronized long[] toArray() {
+            return Arrays.copyOf(offsets, size);
+        }
+    }
+
+    /**
+     * Visits the records of a segment.
+     */
+    private interface RecordVisitor {
+
+        /**
+         * @return false to stop before the record, true to go on to the next one.
+         */
+        boolean visit(long position, LoanEvent event);
+    }
+
+    private LoanEventLog(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the log stored in the given directory, creating it if needed, and recovers from a crash
+     * by truncating the records of the last segment that were not completely written.
+     *
+     * @param directory    the directory holding the segments
+     * @param segmentBytes the size after which a segment is closed and a new one started
+     * @return the opened log
+     * @throws IOException if the segments cannot be read or created
+     */
+    public static LoanEventLog open(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + RECORD_SIZE + " and " + Integer.MAX_VALUE + " bytes");
+        }
+        Files.createDirectories(directory);
+        LoanEventLog log = new LoanEventLog(directory, segmentBytes);
+        List<Long> baseOffsets;
+        try (Stream<Path> files = Files.list(directory)) {
+            baseOffsets = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < baseOffsets.size(); i++) {
+            Segment segment = log.openSegment(baseOffsets.get(i));
+            if (i < baseOffsets.size() - 1) {
+                segment.size = segment.log.size();
+                segment.indexSize = segment.index.size();
+                segment.endOffset = baseOffsets.get(i + 1);
+                log.openLoans(segment);
+            } else {
+                log.recover(segment);
+                Files.deleteIfExists(log.loansFile(segment.baseOffset));
+                segment.loanOffsets = readLoanOffsets(segment);
+            }
+            log.segments.put(segment.baseOffset, segment);
+        }
+        if (log.segments.isEmpty()) {
+            Segment segment = log.openSegment(0L);
+            segment.loanOffsets = new ConcurrentHashMap<>();
+            log.segments.put(0L, segment);
+        }
+        log.active = log.segments.lastEntry().getValue();
+        log.nextOffset = log.active.endOffset;
+        log.endOffset = log.active.endOffset;
+        return log;
+    }
+
+    /**
+     * Appends an event to the log. The event is only visible to readers once flushed.
+     *
+     * @param event the event to append
+     * @return the offset of the event
+     */
+    public synchronized long append(LoanChangedEvent event) {
+        // Read before anything is written, so that an invalid event leaves the buffers as they were
+        byte type = (byte) event.getType().ordinal();
+        long occurredAt = event.getOccurredAt().toEpochMilli();
+        if (writeBuffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        long position = active.size + writeBuffer.position();
+        if (position > 0 && position + RECORD_SIZE > segmentBytes) {
+            roll();
+            position = 0;
+        }
+        if (position == 0 || position - active.lastIndexedPosition >= INDEX_INTERVAL_BYTES) {
+            indexBuffer.putInt((int) (nextOffset - active.baseOffset));
+            indexBuffer.putInt((int) position);
+            active.lastIndexedPosition = position;
+        }
+        int start = writeBuffer.position();
+        writeBuffer.putInt(PAYLOAD_SIZE);
+        writeBuffer.putInt(0);
+        writeBuffer.put(FORMAT_VERSION);
+        writeBuffer.put(type);
+        writeBuffer.putLong(nextOffset);
+        writeBuffer.putLong(id(event.getLoanId()));
+        writeBuffer.putLong(id(event.getUserId()));
+        writeBuffer.putLong(id(event.getBookId()));
+        writeBuffer.putLong(event.getStartDate() == null ? Long.MIN_VALUE : event.getStartDate().toEpochDay());
+        writeBuffer.putLong(event.getEndDate() == null ? Long.MIN_VALUE : event.getEndDate().toEpochDay());
+        writeBuffer.put((byte) (event.isFinalized() ? 1 : 0));
+        writeBuffer.putLong(occurredAt);
+        checksum.reset();
+        checksum.update(writeBuffer.slice(start + HEADER_SIZE, PAYLOAD_SIZE));
+        writeBuffer.putInt(start + 4, (int) checksum.getValue());
+        if (event.getLoanId() != null) {
+            pendingLoanIds[pending] = event.getLoanId();
+            pendingOffsets[pending] = nextOffset;
+            pending++;
+        }
+        return nextOffset++;
+    }
+
+    /**
+     * Writes the appended events to the active segment, making them visible to readers.
+     */
+    public synchronized void flush() {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        try {
+            writeBuffer.flip();
+            long position = active.size;
+            while (writeBuffer.hasRemaining()) {
+                position += active.log.write(writeBuffer, position);
+            }
+            writeBuffer.clear();
+            indexBuffer.flip();
+            long indexPosition = active.indexSize;
+            while (indexBuffer.hasRemaining()) {
+                indexPosition += active.index.write(indexBuffer, indexPosition);
+            }
+            indexBuffer.clear();
+            active.indexSize = indexPosition;
+            active.endOffset = nextOffset;
+            active.size = position;
+            endOffset = nextOffset;
+            // Indexed once flushed, so that the offsets found by readers can be read
+            for (int i = 0; i < pending; i++) {
+                active.loanOffsets.computeIfAbsent(pendingLoanIds[i], loanId -> new OffsetList()).add(pendingOffsets[i]);
+            }
+            pending = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the appended events and forces them to disk.
+     */
+    public synchronized void sync() {
+        flush();
+        try {
+            active.log.force(false);
+            active.index.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the offset the next event will be appended at.
+     *
+     * @return the offset after the last appended event
+     */
+    public synchronized long nextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Returns the number of segments in the log.
+     *
+     * @return the number of segments
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the offsets of the flushed events of a loan.
+     *
+     * @param loanId the ID of the loan
+     * @return the offsets of the events of the loan in increasing order, empty if none were appended
+     */
+    public long[] offsetsOf(long loanId) {
+        OffsetList offsets = new OffsetList();
+        try {
+            for (Segment segment : segments.values()) {
+                Map<Long, OffsetList> inMemory = segment.loanOffsets;
+                if (inMemory != null) {
+                    OffsetList found = inMemory.get(loanId);
+                    if (found != null) {
+                        for (long offset : found.toArray()) {
+                            offsets.add(offset);
+                        }
+                    }
+                } else {
+                    findLoan(segment, loanId, offsets);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return offsets.toArray();
+    }
+
+    /**
+     * Reads the flushed events following an offset.
+     *
+     * @param after the offset after which to start, or -1 to start with the first event
+     * @param limit the maximum number of events to read
+     * @return the events in offset order
+     */
+    public List<LoanEvent> read(long after, int limit) {
+        List<LoanEvent> events = new ArrayList<>(Math.min(limit, 1024));
+        if (limit > 0) {
+            scanFrom(after + 1, event -> {
+                events.add(event);
+                return events.size() < limit;
+            });
+        }
+        return events;
+    }
+
+    /**
+     * Replays the flushed events from an offset to the end of the log.
+     *
+     * @param from     the offset of the first event to replay
+     * @param consumer the consumer receiving each event in offset order
+     */
+    public void replay(long from, Consumer<LoanEvent> consumer) {
+        scanFrom(from, event -> {
+            consumer.accept(event);
+            return true;
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        for (Segment segment : segments.values()) {
+            segment.log.close();
+            segment.index.close();
+            if (segment.loans != null) {
+                segment.loans.close();
+            }
+        }
+    }
+
+    /**
+     * Visits the flushed events from an offset, across segments, until the visitor stops.
+     */
+    private void scanFrom(long from, Predicate<LoanEvent> visitor) {
+        long start = Math.max(0, from);
+        long end = endOffset;
+        Map.Entry<Long, Segment> entry = segments.floorEntry(start);
+        if (entry == null) {
+            entry = segments.firstEntry();
+        }
+        try {
+            while (entry != null && start < end) {
+                Segment segment = entry.getValue();
+                long segmentEnd = segment.size;
+                long position = lookup(segment, start);
+                long first = start;
+                boolean[] stopped = {false};
+                scan(segment.log, position, segmentEnd, (recordPosition, event) -> {
+                    if (event.getOffset() < first) {
+                        return true;
+                    }
+                    if (event.getOffset() >= end || !visitor.test(event)) {
+                        stopped[0] = true;
+                        return false;
+                    }
+                    return true;
+                });
+                if (stopped[0]) {
+                    return;
+                }
+                entry = segments.higherEntry(entry.getKey());
+                if (entry != null) {
+                    start = Math.max(start, entry.getKey());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the position of the last indexed record at or before an offset in a segment.
+     */
+    private static long lookup(Segment segment, long offset) throws IOException {
+        long relative = offset - segment.baseOffset;
+        long low = 0;
+        long high = segment.indexSize / INDEX_ENTRY_SIZE - 1;
+        long position = 0;
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            entry.clear();
+            readFully(segment.index, entry, middle * INDEX_ENTRY_SIZE);
+            entry.flip();
+            if (entry.getInt() <= relative) {
+                position = entry.getInt();
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Adds the offsets of the events of a loan found in the loan index of a full segment.
+     */
+    private static void findLoan(Segment segment, long loanId, OffsetList offsets) throws IOException {
+        FileChannel loans = segment.loans;
+        long low = 0;
+        long high = loans.size() / LOAN_ENTRY_SIZE;
+        ByteBuffer entry = ByteBuffer.allocate(LOAN_ENTRY_SIZE);
+        // The first entry of the loan, or of the next loan if it has none
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            entry.clear();
+            readFully(loans, entry, middle * LOAN_ENTRY_SIZE);
+            entry.flip();
+            if (entry.getLong() < loanId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE / LOAN_ENTRY_SIZE * LOAN_ENTRY_SIZE);
+        long position = low * LOAN_ENTRY_SIZE;
+        long end = loans.size() / LOAN_ENTRY_SIZE * LOAN_ENTRY_SIZE;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(loans, buffer, position);
+            buffer.flip();
+            while (buffer.remaining() >= LOAN_ENTRY_SIZE) {
+                if (buffer.getLong() != loanId) {
+                    return;
+                }
+                offsets.add(segment.baseOffset + buffer.getInt());
+            }
+            position += buffer.limit();
+        }
+    }
+
+    /**
+     * Reads the records of a segment between two positions, in blocks.
+     *
+     * @return the position after the last valid record visited, which is where a torn or corrupt tail starts
+     */
+    private static long scan(FileChannel channel, long position, long end, RecordVisitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        CRC32C crc = new CRC32C();
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(channel, buffer, position);
+            buffer.flip();
+            int consumed = 0;
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length != PAYLOAD_SIZE) {
+                    return position + start;
+                }
+                if (buffer.remaining() < length) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(start + HEADER_SIZE, length));
+                if ((int) crc.getValue() != expected || buffer.get(start + HEADER_SIZE) != FORMAT_VERSION) {
+                    return position + start;
+                }
+                LoanEvent event = decode(buffer);
+                if (event == null) {
+                    return position + start;
+                }
+                if (!visitor.visit(position + start, event)) {
+                    return position + start;
+                }
+                consumed = buffer.position();
+            }
+            if (consumed == 0) {
+                return position;
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    private static LoanEvent decode(ByteBuffer buffer) {
+        buffer.get();
+        int type = buffer.get();
+        long offset = buffer.getLong();
+        Long loanId = nullableId(buffer.getLong());
+        Long userId = nullableId(buffer.getLong());
+        Long bookId = nullableId(buffer.getLong());
+        long startDay = buffer.getLong();
+        long endDay = buffer.getLong();
+        boolean finalized = buffer.get() == 1;
+        Instant occurredAt = Instant.ofEpochMilli(buffer.getLong());
+        if (type < 0 || type >= TYPES.length) {
+            return null;
+        }
+        return new LoanEvent(offset, TYPES[type], loanId, userId, bookId,
+                startDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(startDay),
+                endDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(endDay),
+                finalized, occurredAt);
+    }
+
+    private static long id(Long id) {
+        return id == null ? 0 : id;
+    }
+
+    private static Long nullableId(long id) {
+        return id == 0 ? null : id;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Finds the end of the valid records of the last segment and truncates anything after it,
+     * together with the index entries pointing past it.
+     */
+    private void recover(Segment segment) throws IOException {
+        long indexSize = segment.index.size() / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE;
+        long logSize = segment.log.size();
+        long position = 0;
+        long offset = segment.baseOffset;
+        // Start from the last index entry that points inside the log
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        while (indexSize > 0) {
+            entry.clear();
+            readFully(segment.index, entry, indexSize - INDEX_ENTRY_SIZE);
+            entry.flip();
+            int relative = entry.getInt();
+            int indexed = entry.getInt();
+            if (indexed < logSize) {
+                position = indexed;
+                offset = segment.baseOffset + relative;
+                break;
+            }
+            indexSize -= INDEX_ENTRY_SIZE;
+        }
+        long[] next = {offset};
+        long[] lastPosition = {-1};
+        long end = scan(segment.log, position, logSize, (recordPosition, event) -> {
+            if (event.getOffset() != next[0]) {
+                return false;
+            }
+            next[0]++;
+            lastPosition[0] = recordPosition;
+            return true;
+        });
+        if (end == position && indexSize > 0 && lastPosition[0] < 0) {
+            // The indexed record itself is corrupt: drop its entry and the records from it on
+            indexSize -= INDEX_ENTRY_SIZE;
+        }
+        segment.log.truncate(end);
+        segment.index.truncate(indexSize);
+        segment.size = end;
+        segment.indexSize = indexSize;
+        segment.endOffset = next[0];
+        segment.lastIndexedPosition = lastIndexedPosition(segment);
+    }
+
+    private static long lastIndexedPosition(Segment segment) throws IOException {
+        if (segment.indexSize == 0) {
+            return 0;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        readFully(segment.index, entry, segment.indexSize - INDEX_ENTRY_SIZE);
+        entry.flip();
+        entry.getInt();
+        return entry.getInt();
+    }
+
+    /**
+     * Syncs the active segment and starts a new one at the next offset.
+     */
+    private void roll() {
+        sync();
+        try {
+            writeLoans(active, active.loanOffsets);
+            Segment segment = openSegment(nextOffset);
+            segment.endOffset = nextOffset;
+            segment.loanOffsets = new ConcurrentHashMap<>();
+            segments.put(segment.baseOffset, segment);
+            active = segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment openSegment(long baseOffset) throws IOException {
+        String name = String.format("%020d", baseOffset);
+        FileChannel log = FileChannel.open(directory.resolve(name + LOG_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(directory.resolve(name + INDEX_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(baseOffset, log, index);
+        segment.endOffset = baseOffset;
+        return segment;
+    }
+
+    private Path loansFile(long baseOffset) {
+        return directory.resolve(String.format("%020d", baseOffset) + LOANS_SUFFIX);
+    }
+
+    /**
+     * Opens the loan index of a full segment, writing it from the segment if it is missing.
+     */
+    private void openLoans(Segment segment) throws IOException {
+        Path file = loansFile(segment.baseOffset);
+        if (Files.exists(file)) {
+            segment.loans = FileChannel.open(file, StandardOpenOption.READ);
+        } else {
+            writeLoans(segment, readLoanOffsets(segment));
+        }
+    }
+
+    /**
+     * Reads the offsets of the events of every loan from the records of a segment.
+     */
+    private static Map<Long, OffsetList> readLoanOffsets(Segment segment) throws IOException {
+        Map<Long, OffsetList> loanOffsets = new ConcurrentHashMap<>();
+        scan(segment.log, 0, segment.size, (position, event) -> {
+            if (event.getLoanId() != null) {
+                loanOffsets.computeIfAbsent(event.getLoanId(), loanId -> new OffsetList()).add(event.getOffset());
+            }
+            return true;
+        });
+        return loanOffsets;
+    }
+
+    /**
+     * Writes the loan index of a full segment, sorted by loan ID and offset, and drops its offsets in memory.
+     * The index is written to a temporary file first, so that it is either complete or missing.
+     */
+    private void writeLoans(Segment segment, Map<Long, OffsetList> loanOffsets) throws IOException {
+        Path file = loansFile(segment.baseOffset);
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        long[] loanIds = loanOffsets.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE / LOAN_ENTRY_SIZE * LOAN_ENTRY_SIZE);
+            for (long loanId : loanIds) {
+                for (long offset : loanOffsets.get(loanId).toArray()) {
+                    if (!buffer.hasRemaining()) {
+                        writeFully(channel, buffer);
+                    }
+                    buffer.putLong(loanId);
+                    buffer.putInt((int) (offset - segment.baseOffset));
+                }
+            }
+            writeFully(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segment.loans = FileChannel.open(file, StandardOpenOption.READ);
+        segment.loanOffsets = null;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.library.availability;
+
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.StockChangedEvent;
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.model.Book;
+import com.example.library.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * The AvailabilityService class answers how many copies of a book are available without
+ * querying the database, from an AvailabilityTable mapped from the local filesystem.
+ * The table follows every committed change to the stock made through BookService and LoanService
+ * on this instance, and is checked against the database when the application starts, before
+ * requests are served, and then every reconcile interval, which bounds how long it may drift from
+ * the changes made by other instances or applied out of order after their commits.
+ * The table only answers reads: loans reserve their copy with a conditional update in the database,
+ * which alone decides whether a copy is left.
+ * Unlike the other services its methods are not timed, as a timer would cost more than a lookup.
+ */
+@Service
+public class AvailabilityService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityService.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * The file holding the table.
+     */
+    @Value("${library.availability.path:availability.idx}")
+    private Path path;
+
+    private AvailabilityTable table;
+
+    /**
+     * Whether the table has been checked against the database since it was opened.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Opens the table.
+     *
+     * @throws IOException if the table cannot be opened
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        table = AvailabilityTable.open(path);
+    }
+
+    /**
+     * Closes the table, writing it through to the file.
+     *
+     * @throws IOException if the table cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        table.close();
+    }
+
+    /**
+     * Checks the table against the database once every bean is created, before the server starts.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconcile();
+    }
+
+    /**
+     * Returns the number of copies of a book available for loan.
+     * Until the table has been checked against the database, the book is read from the database.
+     *
+     * @param bookId the ID of the book
+     * @return the number of copies available
+     * @throws BookNotFoundException if the book is not found
+     */
+    public int available(Long bookId) {
+        if (ready) {
+            int available = table.get(bookId);
+            if (available == AvailabilityTable.ABSENT) {
+                throw new BookNotFoundException("Book not found.");
+            }
+            return available;
+        }
+        return bookRepository.findById(bookId).map(Book::getQuantity)
+                .orElseThrow(() -> new BookNotFoundException("Book not found."));
+    }
+
+    /**
+     * Applies a change to a book once its transaction has committed, or right away outside a transaction.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isDeleted()) {
+            table.remove(event.getId());
+        } else {
+            table.put(event.getId(), event.getQuantity());
+        }
+    }
+
+    /**
+     * Applies a loan or a return once its transaction has committed, or right away outside a transaction.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        table.add(event.getBookId(), event.getDelta());
+    }
+
+    /**
+     * Corrects the table to match the stock of every book in the database, streaming them in ID order.
+     * Books missing from the table or with another count are written, and books no longer in the
+     * database are removed. The interval can be changed with the
+     * {@code library.availability.reconcile-interval-ms} property.
+     *
+     * @return the number of entries corrected
+     */
+    @Scheduled(fixedDelayString = "${library.availability.reconcile-interval-ms:60000}",
+            initialDelayString = "${library.availability.reconcile-interval-ms:60000}")
+    public int reconcile() {
+        long start = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        int corrected = transactionTemplate.execute(status -> {
+            long[] ids = table.ids();
+            int next = 0;
+            int count = 0;
+            try (Stream<BookRepository.Stock> books = bookRepository.streamStock()) {
+                Iterator<BookRepository.Stock> iterator = books.iterator();
+                while (iterator.hasNext()) {
+                    BookRepository.Stock book = iterator.next();
+                    while (next < ids.length && ids[next] < book.getId()) {
+                        table.remove(ids[next++]);
+                        count++;
+                    }
+                    if (next < ids.length && ids[next] == book.getId()) {
+                        next++;
+                    }
+                    if (table.get(book.getId()) != book.getQuantity()) {
+                        table.put(book.getId(), book.getQuantity());
+                        count++;
+                    }
+                }
+            }
+            while (next < ids.length) {
+                table.remove(ids[next++]);
+                count++;
+            }
+            return count;
+        });
+        table.force();
+        if (!ready || corrected > 0) {
+            log.info("Availability table checked against the database: {} books, {} entries corrected in {} ms",
+                    table.size(), corrected, (System.nanoTime() - start) / 1_000_000);
+        }
+        ready = true;
+        return corrected;
+    }
+}
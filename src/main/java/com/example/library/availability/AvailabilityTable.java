@@ -0,0 +1,353 @@
+package com.example.library.availability;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The AvailabilityTable class maps book IDs to the number of copies available, in a
+ * memory-mapped file that survives restarts.
+ * The file holds an open-addressing hash table with linear probing: a 64-byte header followed by
+ * 16-byte slots, each with the ID as a long and the count as an int. Lookups read the mapping
+ * directly through VarHandles, without locking or allocating; changes are serialized on the table
+ * and publish the count before the ID, so a reader that finds an ID always sees its count.
+ * Removed IDs keep their slot until the table grows, as book IDs are never reused.
+ */
+public class AvailabilityTable implements Closeable {
+
+    /**
+     * Returned by {@link #get(long)} for IDs that are not in the table.
+     */
+    public static final int ABSENT = -1;
+
+    private static final int MAGIC = 0x41564C31;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int CAPACITY_OFFSET = 4;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int COUNT_OFFSET = 8;
+
+    /**
+     * The ID of a slot that was never used; book IDs start at 1.
+     */
+    private static final long EMPTY = 0;
+
+    /**
+     * The count of a slot whose ID was removed.
+     */
+    private static final int REMOVED = Integer.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    /**
+     * The largest capacity whose slots can all be addressed with int offsets.
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+
+    /**
+     * The current mapping, replaced as a whole when the table grows.
+     */
+    private volatile Mapping mapping;
+
+    /**
+     * The number of slots holding an ID, removed or not; guarded by this table.
+     */
+    private int used;
+
+    /**
+     * The number of IDs in the table; guarded by this table.
+     */
+    private int size;
+
+    /**
+     * A mapped file together with the mask deriving slots from hashes.
+     */
+    private record Mapping(FileChannel channel, MappedByteBuffer buffer, int mask) {
+    }
+
+    /**
+     * Opens a table over the given mapping, counting its slots rather than trusting a stored
+     * count that a crash may have left behind.
+     */
+    private AvailabilityTable(Path path, Mapping mapping) {
+        this.path = path;
+        this.mapping = mapping;
+        for (int slot = 0; slot <= mapping.mask; slot++) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            if ((long) LONGS.get(mapping.buffer, offset) != EMPTY) {
+                used++;
+                if ((int) INTS.get(mapping.buffer, offset + COUNT_OFFSET) != REMOVED) {
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the table stored in the given file, or creates an empty one if the file does not
+     * exist or does not hold a table.
+     *
+     * @param path the file holding the table
+     * @return the opened table
+     * @throws IOException if the file cannot be read or created
+     */
+    public static AvailabilityTable open(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Mapping mapping = Files.exists(path) ? remap(path) : null;
+        if (mapping == null) {
+            mapping = create(path, MIN_CAPACITY);
+        }
+        return new AvailabilityTable(path, mapping);
+    }
+
+    /**
+     * Returns the number of copies available of a book.
+     *
+     * @param id the ID of the book
+     * @return the number of copies, or {@link #ABSENT} if the book is not in the table
+     */
+    public int get(long id) {
+        Mapping current = mapping;
+        int slot = hash(id) & current.mask;
+        while (true) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long key = (long) LONGS.getAcquire(current.buffer, offset);
+            if (key == EMPTY) {
+                return ABSENT;
+            }
+            if (key == id) {
+                int count = (int) INTS.getAcquire(current.buffer, offset + COUNT_OFFSET);
+                return count == REMOVED ? ABSENT : count;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+    }
+
+    /**
+     * Sets the number of copies available of a book, adding the book if needed.
+     *
+     * @param id    the ID of the book
+     * @param count the number of copies available
+     * @throws IllegalArgumentException if the ID is not positive or the count is negative
+     */
+    public synchronized void put(long id, int count) {
+        if (id <= 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid entry " + id + " = " + count);
+        }
+        int offset = find(mapping, id);
+        if (offset < 0 && (used + 1) * 10L > (mapping.mask + 1) * 7L) {
+            grow();
+            offset = find(mapping, id);
+        }
+        MappedByteBuffer buffer = mapping.buffer;
+        if (offset >= 0) {
+            if ((int) INTS.get(buffer, offset + COUNT_OFFSET) == REMOVED) {
+                size++;
+            }
+            INTS.setRelease(buffer, offset + COUNT_OFFSET, count);
+        } else {
+            offset = -offset - 1;
+            INTS.setRelease(buffer, offset + COUNT_OFFSET, count);
+            LONGS.setRelease(buffer, offset, id);
+            used++;
+            size++;
+        }
+    }
+
+    /**
+     * Adds to the number of copies available of a book, never going below zero.
+     *
+     * @param id    the ID of the book
+     * @param delta the number of copies to add, negative to take copies
+     * @return the new number of copies, or {@link #ABSENT} if the book is not in the table
+     */
+    public synchronized int add(long id, int delta) {
+        int offset = find(mapping, id);
+        if (offset < 0) {
+            return ABSENT;
+        }
+        int count = (int) INTS.get(mapping.buffer, offset + COUNT_OFFSET);
+        if (count == REMOVED) {
+            return ABSENT;
+        }
+        int updated = (int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) count + delta));
+        INTS.setRelease(mapping.buffer, offset + COUNT_OFFSET, updated);
+        return updated;
+    }
+
+    /**
+     * Removes a book from the table.
+     *
+     * @param id the ID of the book
+     */
+    public synchronized void remove(long id) {
+        int offset = find(mapping, id);
+        if (offset >= 0 && (int) INTS.get(mapping.buffer, offset + COUNT_OFFSET) != REMOVED) {
+            INTS.setRelease(mapping.buffer, offset + COUNT_OFFSET, REMOVED);
+            size--;
+        }
+    }
+
+    /**
+     * Returns the IDs in the table, in ascending order.
+     *
+     * @return the sorted IDs
+     */
+    public synchronized long[] ids() {
+        long[] ids = new long[size];
+        int count = 0;
+        MappedByteBuffer buffer = mapping.buffer;
+        for (int slot = 0; slot <= mapping.mask; slot++) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long key = (long) LONGS.get(buffer, offset);
+            if (key != EMPTY && (int) INTS.get(buffer, offset + COUNT_OFFSET) != REMOVED) {
+                ids[count++] = key;
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Returns the number of books in the table.
+     *
+     * @return the number of books
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Writes the changes to the table through to the file.
+     * Changes already survive a crash of the application; this makes them survive a crash of the host.
+     */
+    public synchronized void force() {
+        mapping.buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapping.buffer.force();
+        mapping.channel.close();
+    }
+
+    /**
+     * Finds the slot of an ID.
+     *
+     * @return the offset of the slot holding the ID, or {@code -offset - 1} of the empty slot where it would go
+     */
+    private static int find(Mapping mapping, long id) {
+        int slot = hash(id) & mapping.mask;
+        while (true) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long key = (long) LONGS.get(mapping.buffer, offset);
+            if (key == id) {
+                return offset;
+            }
+            if (key == EMPTY) {
+                return -offset - 1;
+            }
+            slot = (slot + 1) & mapping.mask;
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Moves the table to a file with twice the slots per book, dropping removed IDs.
+     * The new file is filled aside and then moved over the old one, so a crash leaves either
+     * the old or the new table; lookups keep reading the old mapping until the new one is published.
+     */
+    private void grow() {
+        int capacity = MIN_CAPACITY;
+        while ((size + 1) * 10L > capacity * 5L) {
+            capacity <<= 1;
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Availability table cannot hold more than " + MAX_CAPACITY / 2 + " books");
+        }
+        Path next = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(next);
+            Mapping grown = create(next, capacity);
+            Mapping current = mapping;
+            int moved = 0;
+            for (int slot = 0; slot <= current.mask; slot++) {
+                int offset = HEADER_SIZE + slot * SLOT_SIZE;
+                long key = (long) LONGS.get(current.buffer, offset);
+                int count = (int) INTS.get(current.buffer, offset + COUNT_OFFSET);
+                if (key != EMPTY && count != REMOVED) {
+                    int target = -find(grown, key) - 1;
+                    INTS.set(grown.buffer, target + COUNT_OFFSET, count);
+                    LONGS.set(grown.buffer, target, key);
+                    moved++;
+                }
+            }
+            grown.buffer.force();
+            Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapping = grown;
+            used = moved;
+            size = moved;
+            current.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a file holding an empty table with the given number of slots.
+     */
+    private static Mapping create(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        INTS.set(buffer, MAGIC_OFFSET, MAGIC);
+        INTS.set(buffer, CAPACITY_OFFSET, capacity);
+        return new Mapping(channel, buffer, capacity - 1);
+    }
+
+    /**
+     * Maps an existing file, or returns null if it does not hold a table.
+     */
+    private static Mapping remap(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = channel.size();
+        if (length >= HEADER_SIZE) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            int capacity = (int) INTS.get(buffer, CAPACITY_OFFSET);
+            if ((int) INTS.get(buffer, MAGIC_OFFSET) == MAGIC && capacity >= MIN_CAPACITY && capacity <= MAX_CAPACITY
+                    && Integer.bitCount(capacity) == 1 && length == HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+                return new Mapping(channel, buffer, capacity - 1);
+            }
+        }
+        channel.close();
+        return null;
+    }
+}
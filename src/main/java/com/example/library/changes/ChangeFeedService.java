@@ -0,0 +1,359 @@
+package com.example.library.changes;
+
+import com.example.library.config.TimedService;
+import com.example.library.event.ChangesPublishedEvent;
+import com.example.library.exception.ChangesExpiredException;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.Change;
+import com.example.library.model.ChangePage;
+import com.example.library.model.CursorPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The ChangeFeedService class serves the changes made to books, users and loans, in the order
+ * they were committed, to consumers that follow them by sequence number.
+ * Changes are written to the change_log table by ChangeLogWriter, in the transaction making them,
+ * without a sequence number. A single relay thread then numbers the committed changes in the order
+ * they were written, while holding the lock on the change_feed row, so that numbers only become
+ * visible in increasing order without gaps: a consumer asking for the changes after the last one
+ * it read never misses one. The relay is woken up by every commit recording changes, and otherwise
+ * looks for the changes of other instances every relay interval. Consumers waiting for changes are
+ * woken up, and a ChangesPublishedEvent published, whenever the feed grows.
+ */
+@Service
+@TimedService
+public class ChangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    /**
+     * The largest number of changes numbered in one transaction of the relay.
+     */
+    static final int RELAY_BATCH_SIZE = 1000;
+
+    /**
+     * The number of changes deleted per statement when purging the feed.
+     */
+    static final int PURGE_CHUNK_SIZE = 10_000;
+
+    /**
+     * The longest a consumer may wait for changes.
+     */
+    public static final Duration MAX_WAIT = Duration.ofSeconds(60);
+
+    private static final String SELECT_CHANGES = "select seq, entity_type, entity_id, operation, payload, occurred_at "
+            + "from change_log where seq > ? order by seq fetch first ? rows only";
+
+    /**
+     * Maps a row of the change log, parsing its payload into a tree.
+     */
+    private final RowMapper<Change> changeMapper = (rs, rowNum) -> new Change(
+            rs.getLong("seq"),
+            Change.Entity.valueOf(rs.getString("entity_type")),
+            rs.getLong("entity_id"),
+            rs.getString("operation"),
+            toTree(rs.getString("payload")),
+            rs.getTimestamp("occurred_at").toInstant());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The longest the relay waits before looking for changes committed by other instances.
+     */
+    @Value("${library.changes.relay-interval-ms:1000}")
+    private long relayIntervalMs;
+
+    /**
+     * The number of days changes are kept in the feed.
+     */
+    @Value("${library.changes.retention-days:7}")
+    private int retentionDays;
+
+    /**
+     * The sequence number of the latest change known to this instance.
+     */
+    private final AtomicLong latestSeq = new AtomicLong();
+
+    /**
+     * The consumers waiting for changes.
+     */
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Reads the changes for the consumers woken up, off the relay thread.
+     */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile boolean running;
+
+    private Thread relay;
+
+    private Counter relayed;
+
+    /**
+     * Reads the latest sequence number and starts the relay.
+     */
+    @PostConstruct
+    public void start() {
+        latestSeq.set(jdbcTemplate.queryForObject("select last_seq from change_feed where id = 1", Long.class));
+        relayed = Counter.builder("library.changes.relayed")
+                .description("Changes given their sequence number by the relay")
+                .register(meterRegistry);
+        Gauge.builder("library.changes.latest", latestSeq, AtomicLong::get)
+                .description("Sequence number of the latest change in the feed")
+                .register(meterRegistry);
+        Gauge.builder("library.changes.waiting", waiters, Set::size)
+                .description("Consumers waiting for changes")
+                .register(meterRegistry);
+        running = true;
+        relay = Thread.ofPlatform().name("change-feed-relay").daemon().start(this::relayLoop);
+    }
+
+    /**
+     * Stops the relay and releases the waiting consumers.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(relay);
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Wakes the relay up to number the changes just committed.
+     */
+    public void wakeUp() {
+        Thread thread = relay;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Numbers the committed changes that have no sequence number yet, in the order they were written,
+     * and notifies the consumers if the feed has grown, through this instance or another.
+     *
+     * @return the number of changes numbered
+     */
+    public int relay() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long[] relay = transaction.execute(status -> {
+            long lastSeq = jdbcTemplate.queryForObject("select last_seq from change_feed where id = 1 for update", Long.class);
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "select id from change_log where seq is null order by id fetch first ? rows only", Long.class, RELAY_BATCH_SIZE);
+            if (!ids.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    rows.add(new Object[]{++lastSeq, id});
+                }
+                jdbcTemplate.batchUpdate("update change_log set seq = ? where id = ?", rows);
+                jdbcTemplate.update("update change_feed set last_seq = ? where id = 1", lastSeq);
+            }
+            return new long[]{lastSeq, ids.size()};
+        });
+        relayed.increment(relay[1]);
+        publish(relay[0]);
+        return (int) relay[1];
+    }
+
+    /**
+     * Retrieves the changes following the given sequence number, ordered by sequence number.
+     * The changes are read from the primary database, which replicas may lag behind.
+     *
+     * @param since the sequence number of the last change read, or null to read from the start
+     * @param limit the maximum number of changes to read
+     * @return the page of changes, empty if there is none after the sequence number yet
+     * @throws InvalidDataException if the limit is out of range or the sequence number negative
+     * @throws ChangesExpiredException if changes following the sequence number were purged
+     */
+    public ChangePage findChanges(Long since, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        long from = since == null ? 0L : since;
+        if (from < 0) {
+            throw new InvalidDataException("Since must not be negative");
+        }
+        long latest = latestSeq.get();
+        List<Change> changes = jdbcTemplate.query(SELECT_CHANGES, changeMapper, from, limit);
+        if (changes.isEmpty() ? from < latest : changes.get(0).getSeq() > from + 1) {
+            throw new ChangesExpiredException("The changes following " + from + " were purged; read the data again and follow the changes from "
+                    + (changes.isEmpty() ? latest : changes.get(0).getSeq() - 1));
+        }
+        return new ChangePage(changes, from, Math.max(latest, changes.isEmpty() ? from : changes.get(changes.size() - 1).getSeq()));
+    }
+
+    /**
+     * Retrieves the changes following the given sequence number, waiting for one to be published
+     * if there is none yet. The future completes with an empty page if none is published in time.
+     *
+     * @param since the sequence number of the last change read, or null to read from the start
+     * @param limit the maximum number of changes to read
+     * @param timeout the longest to wait for a change, zero to return at once
+     * @return the page of changes, once there is one or the timeout has elapsed
+     * @throws InvalidDataException if the limit, the sequence number or the timeout is out of range
+     * @throws ChangesExpiredException if changes following the sequence number were purged
+     */
+    public CompletableFuture<ChangePage> poll(Long since, int limit, Duration timeout) {
+        if (timeout.isNegative() || timeout.compareTo(MAX_WAIT) > 0) {
+            throw new InvalidDataException("Wait must be between 0 and " + MAX_WAIT.toSeconds() + " seconds");
+        }
+        ChangePage page = findChanges(since, limit);
+        if (!page.getChanges().isEmpty() || timeout.isZero()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        Waiter waiter = new Waiter(page.getNext());
+        waiters.add(waiter);
+        if (latestSeq.get() > waiter.since && waiters.remove(waiter)) {
+            // A change was published while the waiter was registered
+            waiter.signal.complete(null);
+        }
+        return waiter.signal
+                .thenApplyAsync(ignored -> findChanges(waiter.since, limit), executor)
+                .completeOnTimeout(page, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> waiters.remove(waiter));
+    }
+
+    /**
+     * Returns the sequence number of the latest change known to this instance.
+     *
+     * @return the latest sequence number, 0 if the feed is empty
+     */
+    public long latestSeq() {
+        return latestSeq.get();
+    }
+
+    /**
+     * Deletes the changes older than the retention period, oldest first, in chunks.
+     * The schedule can be changed with the {@code library.changes.purge-cron} property.
+     *
+     * @return the number of changes deleted
+     */
+    @Scheduled(cron = "${library.changes.purge-cron:0 20 0 * * *}")
+    public int purge() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofDays(retentionDays)));
+        Long upTo = jdbcTemplate.queryForObject("select max(seq) from change_log where occurred_at < ?", Long.class, cutoff);
+        if (upTo == null) {
+            return 0;
+        }
+        long from = jdbcTemplate.queryForObject("select min(seq) from change_log", Long.class) - 1;
+        int deleted = 0;
+        for (long start = from; start < upTo; start += PURGE_CHUNK_SIZE) {
+            deleted += jdbcTemplate.update("delete from change_log where seq > ? and seq <= ?", start, Math.min(start + PURGE_CHUNK_SIZE, upTo));
+        }
+        log.info("Purged {} changes up to {}", deleted, upTo);
+        return deleted;
+    }
+
+    /**
+     * Parses the payload of a change, or returns null if it has none.
+     */
+    private JsonNode toTree(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records the latest sequence number, and notifies the consumers if it has grown.
+     */
+    private void publish(long seq) {
+        long previous = latestSeq.getAndAccumulate(seq, Math::max);
+        if (seq > previous) {
+            for (Waiter waiter : waiters) {
+                if (waiter.since < seq && waiters.remove(waiter)) {
+                    waiter.signal.complete(null);
+                }
+            }
+            eventPublisher.publishEvent(new ChangesPublishedEvent(seq));
+        }
+    }
+
+    /**
+     * Numbers the committed changes, and parks until woken up or the interval has elapsed once
+     * there are none left.
+     */
+    private void relayLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(relayIntervalMs);
+        while (running) {
+            try {
+                if (relay() < RELAY_BATCH_SIZE && running) {
+                    LockSupport.parkNanos(intervalNanos);
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not relay the changes", e);
+                LockSupport.parkNanos(intervalNanos);
+            }
+        }
+    }
+
+    /**
+     * The Waiter class represents a consumer waiting for the changes following a sequence number.
+     */
+    private static final class Waiter {
+
+        private final long since;
+
+        private final CompletableFuture<Void> signal = new CompletableFuture<>();
+
+        private Waiter(long since) {
+            this.since = since;
+        }
+    }
+}
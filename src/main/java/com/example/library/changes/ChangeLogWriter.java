@@ -0,0 +1,114 @@
+package com.example.library.changes;
+
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.event.StockChangedEvent;
+import com.example.library.event.UserChangedEvent;
+import com.example.library.model.Change;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ChangeLogWriter class records the changes made to books, users and loans in the change_log
+ * table, the outbox of the change feed.
+ * It listens to the events of the services as they are published, inside their transaction: the
+ * changes of a transaction are collected and inserted in one batch just before it commits, so that
+ * they are stored if and only if the changes themselves are. The relay of ChangeFeedService is woken
+ * up once the transaction has committed. A change published outside a transaction is inserted at once.
+ */
+@Component
+public class ChangeLogWriter {
+
+    static final String INSERT = "insert into change_log (entity_type, entity_id, operation, payload, occurred_at) values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        record(Change.Entity.BOOK, event.getId(), event.isDeleted() ? "DELETED" : "SAVED", event);
+    }
+
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        record(Change.Entity.BOOK, event.getBookId(), "STOCK", event);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        record(Change.Entity.USER, event.getId(), event.isDeleted() ? "DELETED" : "SAVED", event);
+    }
+
+    @EventListener
+    public void onLoanChanged(LoanChangedEvent event) {
+        record(Change.Entity.LOAN, event.getLoanId(), event.getType().name(), event);
+    }
+
+    private void record(Change.Entity entity, Long id, String operation, Object event) {
+        Object[] row = {entity.name(), id, operation, toJson(event), Timestamp.from(Instant.now())};
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingChanges().rows.add(row);
+        } else {
+            jdbcTemplate.update(INSERT, row);
+            changeFeedService.wakeUp();
+        }
+    }
+
+    /**
+     * Returns the changes collected in the current transaction, registering them with it on the first change.
+     */
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The PendingChanges class holds the changes of a transaction until it commits.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<Object[]> rows = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+
+        @Override
+        public void afterCommit() {
+            changeFeedService.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.library.changes;
+
+import com.example.library.event.ChangesPublishedEvent;
+import com.example.library.exception.ChangesExpiredException;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.Change;
+import com.example.library.model.ChangePage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The ChangeStreamService class streams the change feed to consumers as Server-Sent Events.
+ * A stream starts after the sequence number given by the consumer and is sent the following
+ * changes as soon as they are published, one event per change with its sequence number as event
+ * ID, so that a consumer reconnecting with the Last-Event-ID header resumes where it left off.
+ * Each stream is read and written on a virtual thread of its own, so that a slow consumer holds
+ * back nobody else, and idle streams are sent a comment every heartbeat interval to keep them open
+ * through proxies.
+ */
+@Service
+public class ChangeStreamService {
+
+    /**
+     * The largest number of changes read and sent at once to a stream.
+     */
+    static final int STREAM_BATCH_SIZE = 500;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The time after which a stream is ended, and the consumer expected to reconnect.
+     */
+    @Value("${library.changes.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("library.changes.streams", streams, Set::size)
+                .description("Open streams of changes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ends the open streams.
+     */
+    @PreDestroy
+    public void stop() {
+        for (Stream stream : streams) {
+            stream.emitter.complete();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of the changes following the given sequence number.
+     *
+     * @param since the sequence number of the last change read, or null to read from the start
+     * @return the emitter of the stream
+     * @throws InvalidDataException if the sequence number is negative
+     * @throws ChangesExpiredException if changes following the sequence number were purged
+     */
+    public SseEmitter open(Long since) {
+        // Checks the position before the response starts, so that an expired one is answered with an error
+        changeFeedService.findChanges(since, 1);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Stream stream = new Stream(emitter, since == null ? 0L : since);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> streams.remove(stream));
+        emitter.onError(error -> streams.remove(stream));
+        streams.add(stream);
+        drainLater(stream);
+        return emitter;
+    }
+
+    /**
+     * Sends the newly published changes to the streams that have not received them yet.
+     *
+     * @param event the event carrying the latest sequence number
+     */
+    @EventListener
+    public void onChangesPublished(ChangesPublishedEvent event) {
+        for (Stream stream : streams) {
+            if (stream.since < event.getLatestSeq()) {
+                drainLater(stream);
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every stream, so that idle connections are not closed.
+     * The interval can be changed with the {@code library.changes.heartbeat-interval-ms} property.
+     */
+    @Scheduled(fixedRateString = "${library.changes.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Stream stream : streams) {
+            executor.execute(() -> {
+                try {
+                    stream.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    close(stream, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Schedules the stream to be sent the changes it has not received, unless it is being sent some already,
+     * in which case the sender goes on once it is done.
+     */
+    private void drainLater(Stream stream) {
+        stream.pending.set(true);
+        if (stream.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(stream));
+        }
+    }
+
+    private void drain(Stream stream) {
+        try {
+            do {
+                while (stream.pending.getAndSet(false)) {
+                    ChangePage page;
+                    do {
+                        page = changeFeedService.findChanges(stream.since, STREAM_BATCH_SIZE);
+                        if (!page.getChanges().isEmpty()) {
+                            Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+                            for (Change change : page.getChanges()) {
+                                events.addAll(SseEmitter.event()
+                                        .id(Long.toString(change.getSeq()))
+                                        .data(change, MediaType.APPLICATION_JSON)
+                                        .build());
+                            }
+                            // One write and one flush for the whole batch
+                            stream.emitter.send(events);
+                        }
+                        stream.since = page.getNext();
+                    } while (page.getChanges().size() == STREAM_BATCH_SIZE);
+                }
+                stream.draining.set(false);
+                // A change published while the sender was stopping is picked up by whoever claims the stream
+            } while (stream.pending.get() && stream.draining.compareAndSet(false, true));
+        } catch (IOException | RuntimeException e) {
+            // The consumer went away, or fell behind the purge of the feed
+            stream.draining.set(false);
+            close(stream, e);
+        }
+    }
+
+    private void close(Stream stream, Exception error) {
+        if (streams.remove(stream)) {
+            stream.emitter.completeWithError(error);
+        }
+    }
+
+    /**
+     * The Stream class represents an open stream and its position in the feed.
+     */
+    private static final class Stream {
+
+        private final SseEmitter emitter;
+
+        /**
+         * The sequence number of the last change sent; updated by the sender only.
+         */
+        private volatile long since;
+
+        /**
+         * Whether changes may have been published since the sender last looked.
+         */
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        /**
+         * Whether a sender is running for the stream.
+         */
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Stream(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.library.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The CompressingResponseWrapper class holds back the start of a response until it knows whether
+ * to compress it: the body is buffered up to the size threshold, and the length declared by the
+ * application is kept aside meanwhile, since it no longer holds once the body is compressed.
+ * Flushes before that point are ignored, so that the end of a small body written at once is not
+ * mistaken for the start of a stream, unless the response cannot be compressed anyway: a stream of
+ * events is then sent on its first flush rather than held back until the threshold.
+ */
+final class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final int level;
+
+    private final int minResponseSize;
+
+    private final Predicate<HttpServletResponse> compressible;
+
+    private CompressingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    /**
+     * The length declared by the application, or -1 if it declared none.
+     */
+    private long contentLength = -1;
+
+    /**
+     * Constructs a new CompressingResponseWrapper.
+     * @param response The response to wrap.
+     * @param level The compression level.
+     * @param minResponseSize The size in bytes from which the response is compressed.
+     * @param compressible Tells whether the response may be compressed once its headers are set.
+     */
+    CompressingResponseWrapper(HttpServletResponse response, int level, int minResponseSize, Predicate<HttpServletResponse> compressible) {
+        super(response);
+        this.level = level;
+        this.minResponseSize = minResponseSize;
+        this.compressible = compressible;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (outputStream == null || !outputStream.isStarted()) {
+            contentLength = len;
+        } else if (!outputStream.isCompressing()) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (outputStream == null || outputStream.isStarted()) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (outputStream != null && !outputStream.isStarted()) {
+            outputStream.discard();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        contentLength = -1;
+        super.reset();
+    }
+
+    /**
+     * Sends what is left of the response: the buffered body if it stayed under the threshold,
+     * or the end of the compressed stream.
+     * @throws IOException if the response cannot be written.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.close();
+        } else if (contentLength >= 0) {
+            super.setContentLengthLong(contentLength);
+        }
+    }
+
+    /**
+     * Frees the compressor of a response that will not be finished, because the application failed
+     * writing it. Whatever was buffered is not sent, and the response is left to the error handling.
+     */
+    void abort() {
+        if (outputStream != null) {
+            outputStream.abort();
+        }
+    }
+
+    /**
+     * The CompressingOutputStream class buffers the body until the threshold, and then writes it
+     * either through a gzip stream or as it is.
+     */
+    private final class CompressingOutputStream extends ServletOutputStream {
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(minResponseSize, GZIP_BUFFER_SIZE));
+
+        private OutputStream target;
+
+        private LevelGzipOutputStream gzip;
+
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (target != null) {
+                target.write(b);
+            } else {
+                buffer.write(b);
+                startIfFull();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (target != null) {
+                target.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+                startIfFull();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target == null && !closed && !compressible.test(CompressingResponseWrapper.this)) {
+                start(false);
+            }
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (target == null) {
+                    if (contentLength < 0) {
+                        contentLength = buffer.size();
+                    }
+                    start(false);
+                }
+                if (gzip != null) {
+                    gzip.finish();
+                }
+                target.flush();
+            } finally {
+                endDeflater();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported on compressed responses");
+        }
+
+        boolean isStarted() {
+            return target != null;
+        }
+
+        boolean isCompressing() {
+            return gzip != null;
+        }
+
+        void discard() {
+            buffer.reset();
+        }
+
+        void abort() {
+            closed = true;
+            endDeflater();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("The response has been finished");
+            }
+        }
+
+        private void endDeflater() {
+            if (gzip != null) {
+                gzip.end();
+            }
+        }
+
+        private void startIfFull() throws IOException {
+            if (buffer.size() >= minResponseSize) {
+                start(compressible.test(CompressingResponseWrapper.this));
+            }
+        }
+
+        /**
+         * Sends the headers, with the length held back if the body is sent as it is, and the buffered body.
+         */
+        private void start(boolean compress) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (compress && !response.isCommitted()) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                gzip = new LevelGzipOutputStream(response.getOutputStream(), level);
+                target = gzip;
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                target = response.getOutputStream();
+            }
+            buffer.writeTo(target);
+            buffer = null;
+        }
+    }
+
+    /**
+     * The LevelGzipOutputStream class is a gzip stream compressing at a given level, whose compressor
+     * is ended without closing the stream: it is finished but never closed, as closing it would close
+     * the response.
+     */
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, GZIP_BUFFER_SIZE, true);
+            def.setLevel(level);
+        }
+
+        /**
+         * Frees the native memory of the compressor.
+         */
+        void end() {
+            def.end();
+        }
+
+        Deflater deflater() {
+            return def;
+        }
+    }
+}
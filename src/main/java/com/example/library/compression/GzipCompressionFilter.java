@@ -0,0 +1,123 @@
+package com.example.library.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * The GzipCompressionFilter class compresses the responses of the API with gzip, at a configurable
+ * level, for the clients that accept it.
+ * A response is compressed once it has grown to the size threshold, if its content type is one of
+ * the compressible types; from then on it is streamed through the deflater as it is written, so that
+ * neither a page nor a stream is ever held in memory as a whole. Smaller responses are sent as they
+ * are, with their length. Responses carrying a strong ETag are left alone, as their entity tag would
+ * not match the compressed representation.
+ */
+public class GzipCompressionFilter extends OncePerRequestFilter {
+
+    private final int level;
+
+    private final int minResponseSize;
+
+    private final Set<String> mimeTypes;
+
+    /**
+     * Constructs a new GzipCompressionFilter.
+     * @param level The compression level, from 1 (fastest) to 9 (smallest).
+     * @param minResponseSize The size in bytes from which a response is compressed.
+     * @param mimeTypes The content types of the responses to compress, without parameters.
+     */
+    public GzipCompressionFilter(int level, int minResponseSize, Collection<String> mimeTypes) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION || minResponseSize < 0) {
+            throw new IllegalArgumentException("The level must lie between 1 and 9, and the minimum size be positive");
+        }
+        this.level = level;
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = mimeTypes.stream()
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Streamed responses are written asynchronously, and finished on the dispatch that follows
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletResponse responseToUse = response;
+        if (!isAsyncDispatch(request)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                responseToUse = new CompressingResponseWrapper(response, level, minResponseSize, this::isCompressible);
+            }
+        }
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, responseToUse);
+            completed = true;
+        } finally {
+            if (!isAsyncStarted(request)) {
+                CompressingResponseWrapper wrapper = WebUtils.getNativeResponse(responseToUse, CompressingResponseWrapper.class);
+                if (wrapper != null && completed) {
+                    wrapper.finish();
+                } else if (wrapper != null) {
+                    // The application failed: free the compressor, and leave the response to the error handling
+                    wrapper.abort();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a response may be compressed, judging from its headers.
+     */
+    private boolean isCompressible(HttpServletResponse response) {
+        String contentEncoding = response.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding)) {
+            return false;
+        }
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return false;
+        }
+        String contentType = response.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mimeType = parameters < 0 ? contentType : contentType.substring(0, parameters);
+        return mimeTypes.contains(mimeType.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Tells whether the client accepts gzip, by name or through the wildcard, with a non-zero weight.
+     */
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                    return parts.length < 2 || !parts[1].replace(" ", "").matches("(?i)q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+}
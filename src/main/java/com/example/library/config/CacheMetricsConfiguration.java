@@ -0,0 +1,45 @@
+package com.example.library.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+/**
+ * Configuration class for the metrics of the second-level cache.
+ * Hibernate publishes hits and misses per region under {@code hibernate.second.level.cache.*};
+ * this configuration adds the Caffeine statistics of every region, including evictions,
+ * under {@code cache.gets}, {@code cache.puts} and {@code cache.evictions}.
+ */
+@Configuration
+public class CacheMetricsConfiguration {
+
+    /**
+     * Binds the statistics of every second-level cache region to the meter registry.
+     * The regions are created by Hibernate, so they are bound once the entity manager factory is built.
+     *
+     * @param meterRegistry        the registry receiving the metrics
+     * @param entityManagerFactory the entity manager factory owning the regions
+     * @param provider             the class name of the JCache provider used by Hibernate
+     * @return the initializer binding the metrics
+     */
+    @Bean
+    public SmartInitializingSingleton secondLevelCacheMetrics(
+            MeterRegistry meterRegistry,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${spring.jpa.properties.hibernate.javax.cache.provider}") String provider) {
+        return () -> {
+            CacheManager cacheManager = Caching.getCachingProvider(provider).getCacheManager();
+            for (String cacheName : cacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(meterRegistry, cacheManager.getCache(cacheName), Tags.of("cache.layer", "hibernate"));
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.library.config;
+
+import com.example.library.compression.GzipCompressionFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Configuration class for the compression of the API responses with gzip.
+ * It is enabled unless {@code library.compression.enabled} is false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.compression.enabled", havingValue = "true", matchIfMissing = true)
+public class CompressionConfiguration {
+
+    /**
+     * The compression level, from 1 (fastest) to 9 (smallest).
+     */
+    @Value("${library.compression.level:6}")
+    private int level;
+
+    /**
+     * The size in bytes from which a response is compressed.
+     */
+    @Value("${library.compression.min-response-size:2048}")
+    private int minResponseSize;
+
+    /**
+     * The content types of the responses to compress.
+     */
+    @Value("${library.compression.mime-types:application/json,application/x-ndjson,application/cbor,text/csv,text/plain}")
+    private String[] mimeTypes;
+
+    /**
+     * Defines the filter compressing the responses of {@code /api/*}, on the initial dispatch and on
+     * the asynchronous one that completes the streamed responses.
+     *
+     * @return the registration of the compression filter
+     */
+    @Bean
+    public FilterRegistrationBean<GzipCompressionFilter> gzipCompressionFilter() {
+        FilterRegistrationBean<GzipCompressionFilter> registration =
+                new FilterRegistrationBean<>(new GzipCompressionFilter(level, minResponseSize, List.of(mimeTypes)));
+        registration.addUrlPatterns("/api/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+}
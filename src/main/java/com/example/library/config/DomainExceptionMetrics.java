@@ -0,0 +1,48 @@
+package com.example.library.config;
+
+import com.example.library.exception.LibraryException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The DomainExceptionMetrics aspect counts the domain exceptions thrown by the services,
+ * such as NoBookAvailableException or BookAlreadyExistsException, under the
+ * {@code library.domain.exceptions} metric, tagged by exception, error code, class and method.
+ */
+@Aspect
+@Component
+public class DomainExceptionMetrics {
+
+    /**
+     * The name of the counter.
+     */
+    public static final String METRIC_NAME = "library.domain.exceptions";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Counts a domain exception thrown by a service method.
+     * Only a LibraryException binds the advice; other exceptions are not counted here,
+     * as they are already reported by the request and service timers.
+     *
+     * @param joinPoint the service method that threw the exception
+     * @param exception the exception thrown
+     */
+    @AfterThrowing(pointcut = "@within(org.springframework.stereotype.Service)", throwing = "exception")
+    public void count(JoinPoint joinPoint, LibraryException exception) {
+        Counter.builder(METRIC_NAME)
+                .description("Domain exceptions thrown by the services")
+                .tag("exception", exception.getClass().getSimpleName())
+                .tag("code", exception.getErrorCode().name())
+                .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.library.config;
+
+import com.example.library.ratelimit.AdaptiveConcurrencyLimiter;
+import com.example.library.ratelimit.ClientRateLimiter;
+import com.example.library.ratelimit.RateLimitInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the admission control of write requests to the API: a rate per client
+ * and an adaptive limit on the requests in flight, both enforced by RateLimitInterceptor.
+ * It is enabled unless {@code library.rate-limit.enabled} is false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfiguration {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The sustained rate of write requests allowed to every client.
+     */
+    @Value("${library.rate-limit.requests-per-second:20}")
+    private double requestsPerSecond;
+
+    /**
+     * The number of write requests a client may send at once after being idle.
+     */
+    @Value("${library.rate-limit.burst:40}")
+    private int burst;
+
+    /**
+     * The header carrying the API key that identifies a client.
+     */
+    @Value("${library.rate-limit.client-header:X-API-Key}")
+    private String clientHeader;
+
+    /**
+     * The API keys identifying a client; requests with no key or another key are identified by their address.
+     */
+    @Value("${library.rate-limit.api-keys:}")
+    private Set<String> apiKeys;
+
+    @Value("${library.rate-limit.concurrency.initial-limit:32}")
+    private int initialLimit;
+
+    @Value("${library.rate-limit.concurrency.min-limit:4}")
+    private int minLimit;
+
+    @Value("${library.rate-limit.concurrency.max-limit:256}")
+    private int maxLimit;
+
+    /**
+     * The latency above which a write request counts as a sign of overload.
+     */
+    @Value("${library.rate-limit.concurrency.latency-threshold-ms:250}")
+    private long latencyThresholdMs;
+
+    /**
+     * The ratio the concurrency limit is multiplied by on overload.
+     */
+    @Value("${library.rate-limit.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    /**
+     * Defines the rate limiter of the clients, with its number of clients as a gauge.
+     *
+     * @return the rate limiter
+     */
+    @Bean
+    public ClientRateLimiter clientRateLimiter() {
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(requestsPerSecond, burst);
+        Gauge.builder("library.ratelimit.clients", rateLimiter, ClientRateLimiter::clientCount)
+                .description("Clients whose rate is being tracked")
+                .register(meterRegistry);
+        return rateLimiter;
+    }
+
+    /**
+     * Defines the concurrency limiter shared by all clients, with its limit and the requests in flight as gauges.
+     *
+     * @return the concurrency limiter
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter() {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs), backoffRatio);
+        Gauge.builder("library.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Write requests allowed in flight")
+                .register(meterRegistry);
+        Gauge.builder("library.concurrency.in-flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Write requests in flight")
+                .register(meterRegistry);
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Registers the interceptor enforcing both limits on the API endpoints.
+     *
+     * @param objectMapper the mapper writing the body of the rejections
+     * @return the configurer registering the interceptor
+     */
+    @Bean
+    public WebMvcConfigurer rateLimitConfigurer(ObjectMapper objectMapper) {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(clientRateLimiter(), adaptiveConcurrencyLimiter(),
+                clientHeader, apiKeys, objectMapper, meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+
+    /**
+     * Forgets the clients that have been idle long enough to be back to a full burst.
+     */
+    @Scheduled(fixedDelayString = "${library.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleClients() {
+        clientRateLimiter().evictIdle();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.library.config;
+
+import com.example.library.replica.ReadYourWrites;
+import com.example.library.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class routing read-only transactions to read replicas of the database, enabled
+ * by listing their JDBC URLs in {@code library.replicas.urls}.
+ * The primary is configured by the usual {@code spring.datasource.*} properties, and each replica
+ * gets a pool with the same settings and credentials. Writes and read-write transactions always go
+ * to the primary; see ReplicaRoutingDataSource for how replicas are picked.
+ */
+@Configuration
+@ConditionalOnProperty("library.replicas.urls")
+public class ReplicaConfiguration {
+
+    /**
+     * Creates the connection pool of the primary database.
+     *
+     * @param properties the properties of the data source
+     * @return the pool of the primary
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates the tracker of the last write of each session.
+     *
+     * @param cookieMaxAgeSeconds how long clients remember their last write
+     * @return the tracker
+     */
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${library.replicas.read-your-writes-seconds:60}") int cookieMaxAgeSeconds) {
+        return new ReadYourWrites(cookieMaxAgeSeconds);
+    }
+
+    /**
+     * Creates the data source choosing between the primary and the replicas, with one pool per replica.
+     *
+     * @param primaryDataSource the pool of the primary
+     * @param readYourWrites    the tracker of the last write of each session
+     * @param urls              the JDBC URLs of the replicas
+     * @param maxLagMillis      the longest a replica may lag behind and still serve reads
+     * @param meterRegistry     the registry receiving the lag of every replica
+     * @return the routing data source
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, ReadYourWrites readYourWrites,
+                                                             @Value("${library.replicas.urls}") List<String> urls,
+                                                             @Value("${library.replicas.max-lag-ms:5000}") long maxLagMillis,
+                                                             MeterRegistry meterRegistry) {
+        String poolName = primaryDataSource.getPoolName() == null ? "library" : primaryDataSource.getPoolName();
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            primaryDataSource.copyStateTo(replica);
+            replica.setJdbcUrl(url);
+            replica.setPoolName(poolName + "-replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites, maxLagMillis);
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            Gauge.builder("library.replica.lag", dataSource, routing -> routing.lagMillis(index))
+                    .description("Time since the last heartbeat received by the replica, or -1 if unknown")
+                    .baseUnit("milliseconds")
+                    .tag("replica", Integer.toString(index))
+                    .register(meterRegistry);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Creates the data source used by the application, which only obtains a connection once the
+     * transaction is set up, so that read-only transactions can be told apart.
+     *
+     * @param replicaRoutingDataSource the routing data source
+     * @return the data source of the application
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Releases connections at the end of every transaction rather than at the end of the session,
+     * so that a session kept open for a whole request does not write through a replica connection
+     * obtained by an earlier read-only transaction.
+     *
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * Creates the scheduled heartbeat measuring the lag of the replicas.
+     *
+     * @param replicaRoutingDataSource the routing data source
+     * @return the heartbeat
+     */
+    @Bean
+    public ReplicaHeartbeat replicaHeartbeat(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new ReplicaHeartbeat(replicaRoutingDataSource);
+    }
+
+    /**
+     * The ReplicaHeartbeat class sends the heartbeat of the replicas on a fixed delay.
+     */
+    public static class ReplicaHeartbeat {
+
+        private final ReplicaRoutingDataSource dataSource;
+
+        ReplicaHeartbeat(ReplicaRoutingDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Sends a heartbeat.
+         */
+        @Scheduled(fixedDelayString = "${library.replicas.heartbeat-interval-ms:1000}")
+        public void beat() {
+            dataSource.heartbeat();
+        }
+    }
+}
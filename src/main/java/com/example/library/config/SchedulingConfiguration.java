@@ -0,0 +1,12 @@
+package com.example.library.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling scheduled jobs, such as the overdue loan sweep.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
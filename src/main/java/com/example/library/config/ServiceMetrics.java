@@ -0,0 +1,67 @@
+package com.example.library.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The ServiceMetrics aspect times every method of the services marked with {@link TimedService} under
+ * the {@code library.service} metric, with its percentiles, tagged by class, method and exception
+ * ({@code none} when the method returned). Methods returning a CompletionStage are timed until it completes.
+ */
+@Aspect
+@Component
+public class ServiceMetrics {
+
+    /**
+     * The name of the timer.
+     */
+    public static final String METRIC_NAME = "library.service";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Times a service method.
+     *
+     * @param joinPoint the service method called
+     * @return the result of the method
+     * @throws Throwable the exception thrown by the method
+     */
+    @Around("@within(com.example.library.config.TimedService)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Signature signature = joinPoint.getStaticPart().getSignature();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            record(sample, signature, e);
+            throw e;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, error) -> record(sample, signature, error));
+        } else {
+            record(sample, signature, null);
+        }
+        return result;
+    }
+
+    private void record(Timer.Sample sample, Signature signature, Throwable error) {
+        sample.stop(Timer.builder(METRIC_NAME)
+                .description("Time spent in the service methods")
+                .tag("class", signature.getDeclaringTypeName())
+                .tag("method", signature.getName())
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+    }
+}
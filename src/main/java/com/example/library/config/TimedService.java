@@ -0,0 +1,18 @@
+package com.example.library.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service whose methods are timed by the ServiceMetrics aspect under the
+ * {@code library.service} metric. Services answering from memory on hot paths, such as
+ * AvailabilityService, are left unmarked, as a timer would cost more than the call.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimedService {
+}
@@ -0,0 +1,50 @@
+package com.example.library.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Configuration class for the binary wire format of the API.
+ * Every endpoint answering with JSON also answers with CBOR to clients that ask for
+ * {@code application/cbor}, and accepts CBOR request bodies. JSON stays the default, and the
+ * responses vary on {@code Accept} so that caches keep the two formats apart.
+ */
+@Configuration
+public class WireFormatConfiguration {
+
+    /**
+     * Defines the converter reading and writing CBOR.
+     * Its mapper is built from the same builder as the JSON one, so that both formats carry the
+     * same fields under the same names, with the same date formats.
+     *
+     * @param builder the builder configured by Spring Boot, a new one for every injection
+     * @return the converter for {@code application/cbor}
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Defines the filter adding {@code Vary: Accept} to the responses of {@code /api/*}, whose
+     * format is negotiated from that header.
+     *
+     * @return the registration of the filter
+     */
+    @Bean
+    public FilterRegistrationBean<Filter> varyAcceptFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            ((HttpServletResponse) response).addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            chain.doFilter(request, response);
+        });
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
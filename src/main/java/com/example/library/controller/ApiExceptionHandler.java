@@ -0,0 +1,43 @@
+package com.example.library.controller;
+
+import com.example.library.exception.LibraryException;
+import com.example.library.exception.VersionMismatchException;
+import com.example.library.model.MessageResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * The ApiExceptionHandler class turns the domain exceptions thrown while handling a request into
+ * a MessageResponse with the status of their error code.
+ * Controllers only catch a domain exception where an endpoint reports it with another status.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    /**
+     * Handles a rejected update, reported as 412 for a conditional request and 409 otherwise.
+     *
+     * @param e       the exception thrown
+     * @param request the request being handled
+     * @return ResponseEntity containing the message of the exception and HttpStatus PRECONDITION_FAILED or CONFLICT
+     */
+    @ExceptionHandler(VersionMismatchException.class)
+    public ResponseEntity<MessageResponse> handleVersionMismatch(VersionMismatchException e, HttpServletRequest request) {
+        return new ResponseEntity<>(new MessageResponse(e.getMessage()), ConditionalResponses.mismatchStatus(request));
+    }
+
+    /**
+     * Handles any other domain exception.
+     *
+     * @param e the exception thrown
+     * @return ResponseEntity containing the message of the exception and the HttpStatus of its error code
+     */
+    @ExceptionHandler(LibraryException.class)
+    public ResponseEntity<MessageResponse> handleLibraryException(LibraryException e) {
+        HttpStatus status = e.getErrorCode().getStatus();
+        return new ResponseEntity<>(new MessageResponse(e.getMessage()), status);
+    }
+}
@@ -1,19 +1,30 @@
 package com.example.library.controller;
 
-import com.example.library.exception.*;
+import com.example.library.availability.AvailabilityService;
 import com.example.library.model.Book;
+import com.example.library.model.BookAvailability;
+import com.example.library.model.BookHit;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.CursorPage;
 import com.example.library.model.MessageResponse;
+import com.example.library.model.SearchPage;
+import com.example.library.search.BookSearchService;
+import com.example.library.service.BulkRowReader;
 import com.example.library.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.InputStream;
 
 /**
  * The BookController class handles HTTP requests related to books.
@@ -25,38 +36,126 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Retrieves all books.
+     * Retrieves a page of books.
      *
-     * @return ResponseEntity containing the list of books and HttpStatus OK if successful
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of books in the page
+     * @return ResponseEntity containing the page of books and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
      */
     @GetMapping
-    @Operation(summary = "Get all books", description = "Retrieves a list of all books")
-    public ResponseEntity<List<Book>> getAllBooks() {
-        List<Book> books = bookService.findAll();
+    @Operation(summary = "Get all books", description = "Retrieves a page of books ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of books"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public ResponseEntity<?> getAllBooks(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                         @Parameter(description = "Maximum number of books in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<Book> books = bookService.findPage(after, limit);
+        return new ResponseEntity<>(books, HttpStatus.OK);
+    }
+
+    /**
+     * Streams all books as newline-delimited JSON.
+     *
+     * @return ResponseEntity streaming every book, one per line
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "Stream all books", description = "Streams every book ordered by ID as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        return NdjsonResponses.stream(objectMapper, bookService::streamAll);
+    }
+
+    /**
+     * Searches the catalog by title and author.
+     *
+     * @param q      the words to search for
+     * @param offset the number of results to skip
+     * @param limit  the maximum number of results in the page
+     * @return ResponseEntity containing the page of matching books and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the search text is blank or the offset or limit are out of range
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Search books", description = "Searches books by title and author, matching every word exactly or as a prefix, most relevant first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of matching books"),
+            @ApiResponse(responseCode = "400", description = "Invalid search")
+    })
+    public ResponseEntity<?> searchBooks(@Parameter(description = "Words to search for") @RequestParam String q,
+                                         @Parameter(description = "Number of results to skip") @RequestParam(defaultValue = "0") int offset,
+                                         @Parameter(description = "Maximum number of results in the page") @RequestParam(defaultValue = "20") int limit) {
+        SearchPage<BookHit> books = bookSearchService.search(q, offset, limit);
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
     /**
      * Retrieves a book by ID.
+     * The response carries the version of the book as its ETag, and is empty if the book
+     * still matches the {@code If-None-Match} or {@code If-Modified-Since} headers.
      *
-     * @param id the ID of the book to retrieve
+     * @param id      the ID of the book to retrieve
+     * @param headers the headers of the request
      * @return ResponseEntity containing the book and HttpStatus OK if successful,
+     *         or HttpStatus NOT_MODIFIED if the client has the current version,
      *         or HttpStatus NOT_FOUND if the book does not exist
      */
     @GetMapping("/{id}")
-    @Operation(summary = "Get book by ID", description = "Retrieves a book by its ID")
+    @Operation(summary = "Get book by ID", description = "Retrieves a book by its ID, supporting If-None-Match and If-Modified-Since")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Book found"),
+            @ApiResponse(responseCode = "304", description = "Book not modified"),
             @ApiResponse(responseCode = "404", description = "Book not found")
     })
-    public ResponseEntity<?> getBookById(@Parameter(description = "ID of the book") @PathVariable Long id) {
-        try {
-            Book book = bookService.findById(id);
-            return new ResponseEntity<>(book, HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+    public ResponseEntity<?> getBookById(@Parameter(description = "ID of the book") @PathVariable Long id,
+                                         @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+        Book book = bookService.findById(id);
+        return ConditionalResponses.ok(headers, book, book.getVersion(), book.getUpdatedAt());
+    }
+
+    /**
+     * Retrieves the number of copies of a book available for loan.
+     *
+     * @param id the ID of the book
+     * @return ResponseEntity containing the availability and HttpStatus OK if successful,
+     *         or HttpStatus NOT_FOUND if the book does not exist
+     */
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get book availability", description = "Retrieves the number of copies of a book available for loan, without querying the database")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Book found"),
+            @ApiResponse(responseCode = "404", description = "Book not found")
+    })
+    public ResponseEntity<?> getBookAvailability(@Parameter(description = "ID of the book") @PathVariable Long id) {
+        int available = availabilityService.available(id);
+        return new ResponseEntity<>(new BookAvailability(id, available), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves a book by ISBN.
+     *
+     * @param isbn the ISBN of the book to retrieve
+     * @return ResponseEntity containing the book and HttpStatus OK if successful,
+     *         or HttpStatus NOT_FOUND if the book does not exist
+     */
+    @GetMapping("/isbn/{isbn}")
+    @Operation(summary = "Get book by ISBN", description = "Retrieves a book by its ISBN")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Book found"),
+            @ApiResponse(responseCode = "404", description = "Book not found")
+    })
+    public ResponseEntity<?> getBookByIsbn(@Parameter(description = "ISBN of the book") @PathVariable String isbn) {
+        Book book = bookService.findByIsbn(isbn);
+        return new ResponseEntity<>(book, HttpStatus.OK);
     }
 
     /**
@@ -74,43 +173,56 @@ public class BookController {
             @ApiResponse(responseCode = "409", description = "Book already exists")
     })
     public ResponseEntity<?> createBook(@RequestBody Book book) {
-        try {
-            Book newBook = bookService.save(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getQuantity());
-            return new ResponseEntity<>(newBook, HttpStatus.CREATED);
-        } catch (InvalidDataException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
-        } catch (BookAlreadyExistsException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.CONFLICT);
-        }
+        Book newBook = bookService.save(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getQuantity());
+        return new ResponseEntity<>(newBook, HttpStatus.CREATED);
+    }
+
+    /**
+     * Imports books in bulk from a JSON array or a CSV document.
+     *
+     * @param contentType the content type of the request body
+     * @param body        the request body containing the books to import
+     * @return ResponseEntity containing the result of every row and HttpStatus OK if the input was read,
+     *         or HttpStatus BAD_REQUEST if the input is malformed
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkRowReader.TEXT_CSV_VALUE})
+    @Operation(summary = "Import books in bulk", description = "Creates books from a JSON array or a CSV document with isbn, title, author and quantity columns")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import processed, see the result of every row"),
+            @ApiResponse(responseCode = "400", description = "Malformed input")
+    })
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        BulkImportReport report = bookService.importBooks(BulkRowReader.forContentType(contentType, body, objectMapper));
+        return new ResponseEntity<>(report, HttpStatus.OK);
     }
 
     /**
      * Updates an existing book.
      *
-     * @param id   the ID of the book to update
-     * @param book the updated book information
-     * @return ResponseEntity containing the updated book and HttpStatus OK if successful,
-     *         or HttpStatus BAD_REQUEST if the request is invalid
+     * With an {@code If-Match} header, the book is only updated if it is still at that version.
+     *
+     * @param id      the ID of the book to update
+     * @param book    the updated book information
+     * @param headers the headers of the request
+     * @return ResponseEntity containing the updated book and its new ETag and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the request is invalid,
+     *         or HttpStatus CONFLICT if the book was modified concurrently,
+     *         or HttpStatus PRECONDITION_FAILED if the book is no longer at the version in {@code If-Match}
      */
     @PutMapping("/{id}")
-    @Operation(summary = "Update an existing book", description = "Updates an existing book")
+    @Operation(summary = "Update an existing book", description = "Updates an existing book, supporting If-Match")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Book updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request"),
             @ApiResponse(responseCode = "404", description = "Book not found"),
-            @ApiResponse(responseCode = "409", description = "Book already exists with provided ISBN")
+            @ApiResponse(responseCode = "409", description = "Book already exists with provided ISBN, or was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "Book modified since the version in If-Match")
     })
-    public ResponseEntity<?> updateBook(@Parameter(description = "ID of the book") @PathVariable Long id, @RequestBody Book book) {
-        try {
-            Book updatedBook = bookService.update(id, book.getIsbn(), book.getTitle(), book.getAuthor(), book.getQuantity());
-            return new ResponseEntity<>(updatedBook, HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        } catch (InvalidDataException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
-        } catch (BookAlreadyExistsException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.CONFLICT);
-        }
+    public ResponseEntity<?> updateBook(@Parameter(description = "ID of the book") @PathVariable Long id, @RequestBody Book book,
+                                        @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+        Long expectedVersion = ConditionalResponses.expectedVersion(headers);
+        Book updatedBook = bookService.update(id, expectedVersion, book.getIsbn(), book.getTitle(), book.getAuthor(), book.getQuantity());
+        return ConditionalResponses.updated(headers, updatedBook, updatedBook.getVersion(), updatedBook.getUpdatedAt());
     }
 
     /**
@@ -127,11 +239,7 @@ public class BookController {
             @ApiResponse(responseCode = "404", description = "Book not found")
     })
     public ResponseEntity<?> deleteBook(@Parameter(description = "ID of the book") @PathVariable Long id) {
-        try {
-            bookService.delete(id);
-            return new ResponseEntity<>(new MessageResponse("Book successfully deleted"), HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+        bookService.delete(id);
+        return new ResponseEntity<>(new MessageResponse("Book successfully deleted"), HttpStatus.OK);
     }
 }
@@ -0,0 +1,78 @@
+package com.example.library.controller;
+
+import com.example.library.changes.ChangeFeedService;
+import com.example.library.changes.ChangeStreamService;
+import com.example.library.model.ChangePage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The ChangeController class handles HTTP requests to the change feed, which serves every change
+ * made to books, users and loans ordered by sequence number.
+ * Consumers follow it either by long polling, asking each time for the changes after the last
+ * sequence number they read, or through a stream of Server-Sent Events.
+ */
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    /**
+     * Retrieves the changes following a sequence number, waiting for one if there is none yet.
+     *
+     * @param since the sequence number of the last change read
+     * @param limit the maximum number of changes to return
+     * @param wait the longest to wait for a change, in seconds
+     * @return a future of the ResponseEntity containing the page of changes and HttpStatus OK,
+     *         empty if none was made in time
+     */
+    @GetMapping
+    @Operation(summary = "Get changes", description = "Retrieves the changes made to books, users and loans after the given sequence number, "
+            + "waiting up to the given number of seconds for one if there is none yet")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of changes, empty if none was made in time"),
+            @ApiResponse(responseCode = "400", description = "Invalid sequence number, limit or wait"),
+            @ApiResponse(responseCode = "410", description = "Changes following the sequence number were purged")
+    })
+    public CompletableFuture<ResponseEntity<ChangePage>> getChanges(@Parameter(description = "Sequence number of the last change read") @RequestParam(defaultValue = "0") long since,
+                                                                    @Parameter(description = "Maximum number of changes in the page") @RequestParam(defaultValue = "100") int limit,
+                                                                    @Parameter(description = "Longest wait for a change in seconds, 0 to return at once") @RequestParam(defaultValue = "30") int wait) {
+        return changeFeedService.poll(since, limit, Duration.ofSeconds(wait))
+                .thenApply(page -> new ResponseEntity<>(page, HttpStatus.OK));
+    }
+
+    /**
+     * Streams the changes following a sequence number as Server-Sent Events.
+     *
+     * @param since the sequence number of the last change read
+     * @param lastEventId the ID of the last event received, sent by reconnecting clients in place of since
+     * @return the stream of changes, one event per change with its sequence number as ID
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "Stream changes", description = "Streams the changes made to books, users and loans after the given sequence number "
+            + "as Server-Sent Events, and every change made after them as it is made")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of changes"),
+            @ApiResponse(responseCode = "400", description = "Invalid sequence number"),
+            @ApiResponse(responseCode = "410", description = "Changes following the sequence number were purged")
+    })
+    public SseEmitter streamChanges(@Parameter(description = "Sequence number of the last change read") @RequestParam(required = false) Long since,
+                                    @Parameter(description = "ID of the last event received") @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeStreamService.open(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.library.controller;
+
+import com.example.library.exception.VersionMismatchException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ConditionalResponses class handles HTTP conditional requests on versioned entities.
+ * The entity tag of an entity is its version, which changes with every change to the entity,
+ * so a matching {@code If-None-Match} lets a GET answer 304 without serializing the entity,
+ * and {@code If-Match} lets a PUT only apply on top of the version the client has read.
+ * As the JSON and CBOR representations of a version differ byte for byte, the tag of the CBOR one
+ * carries a {@code -cbor} suffix, and the responses vary on {@code Accept}.
+ */
+final class ConditionalResponses {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private static final String ANY = "*";
+
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private ConditionalResponses() {
+    }
+
+    /**
+     * Returns the strong entity tag of a version in the format a request is answered with.
+     *
+     * @param request the headers of the request
+     * @param version the version of the entity
+     * @return the quoted entity tag, suffixed with {@code -cbor} for the CBOR representation
+     */
+    static String etag(HttpHeaders request, long version) {
+        return "\"" + version + (isCbor(request) ? CBOR_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Creates the response to a GET of a versioned entity: 304 Not Modified if the client already
+     * has the current version, or 200 OK with the entity otherwise.
+     * {@code If-Modified-Since} is only considered when the request has no {@code If-None-Match}.
+     *
+     * @param request   the headers of the request
+     * @param body      the entity
+     * @param version   the version of the entity
+     * @param updatedAt the time of the last change to the entity, or null if unknown
+     * @return ResponseEntity with the ETag and Last-Modified headers, and the entity unless not modified
+     */
+    static ResponseEntity<?> ok(HttpHeaders request, Object body, long version, Instant updatedAt) {
+        String etag = etag(request, version);
+        if (isNotModified(request, etag, updatedAt)) {
+            return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag, updatedAt).build();
+        }
+        return validators(ResponseEntity.ok(), etag, updatedAt).body(body);
+    }
+
+    /**
+     * Creates the response to a successful PUT of a versioned entity.
+     *
+     * @param request   the headers of the request
+     * @param body      the updated entity
+     * @param version   the new version of the entity
+     * @param updatedAt the time of the change
+     * @return ResponseEntity with the entity, its new ETag and Last-Modified headers, and HttpStatus OK
+     */
+    static ResponseEntity<?> updated(HttpHeaders request, Object body, long version, Instant updatedAt) {
+        return validators(ResponseEntity.ok(), etag(request, version), updatedAt).body(body);
+    }
+
+    /**
+     * Reads the version a PUT expects the entity to be at from its {@code If-Match} header.
+     * A single strong entity tag is supported, of either representation; a tag that is not a version
+     * matches no version.
+     *
+     * @param request the headers of the request
+     * @return the expected version, or null if the request has no {@code If-Match} or matches any version
+     * @throws VersionMismatchException if the header holds weak or several entity tags
+     */
+    static Long expectedVersion(HttpHeaders request) {
+        List<String> ifMatch;
+        try {
+            ifMatch = request.getIfMatch();
+        } catch (IllegalArgumentException e) {
+            throw new VersionMismatchException("Malformed If-Match header");
+        }
+        if (ifMatch.isEmpty() || ifMatch.contains(ANY)) {
+            return null;
+        }
+        if (ifMatch.size() > 1 || ifMatch.get(0).startsWith(WEAK_PREFIX)) {
+            throw new VersionMismatchException("If-Match must hold a single strong entity tag");
+        }
+        String tag = ifMatch.get(0);
+        try {
+            String opaque = tag.substring(1, tag.length() - 1);
+            if (opaque.endsWith(CBOR_SUFFIX)) {
+                opaque = opaque.substring(0, opaque.length() - CBOR_SUFFIX.length());
+            }
+            return Long.parseLong(opaque);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Returns the status of a rejected update: 412 for a conditional request, 409 otherwise.
+     *
+     * @param request the request
+     * @return HttpStatus PRECONDITION_FAILED if the request has an {@code If-Match} header, or HttpStatus CONFLICT
+     */
+    static HttpStatus mismatchStatus(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.IF_MATCH) != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+    }
+
+    /**
+     * Tells whether a request is answered with CBOR, the message converters choosing the most
+     * specific and preferred type the request accepts, and JSON for wildcards.
+     */
+    private static boolean isCbor(HttpHeaders request) {
+        List<MediaType> accept;
+        try {
+            accept = new ArrayList<>(request.getAccept());
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(accept);
+        for (MediaType type : accept) {
+            if (type.getQualityValue() > 0
+                    && (type.isCompatibleWith(MediaType.APPLICATION_JSON) || type.isCompatibleWith(MediaType.APPLICATION_CBOR))) {
+                return MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotModified(HttpHeaders request, String etag, Instant updatedAt) {
+        List<String> ifNoneMatch;
+        try {
+            ifNoneMatch = request.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!ifNoneMatch.isEmpty()) {
+            for (String tag : ifNoneMatch) {
+                String opaque = tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+                if (ANY.equals(opaque) || etag.equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        return ifModifiedSince >= 0 && updatedAt != null && updatedAt.getEpochSecond() * 1000 <= ifModifiedSince;
+    }
+
+    private static <B extends ResponseEntity.HeadersBuilder<B>> B validators(B builder, String etag, Instant updatedAt) {
+        builder.eTag(etag);
+        if (updatedAt != null) {
+            builder.lastModified(updatedAt);
+        }
+        return builder;
+    }
+}
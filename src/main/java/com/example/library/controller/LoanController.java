@@ -1,9 +1,18 @@
 package com.example.library.controller;
 
+import com.example.library.audit.LoanAuditService;
 import com.example.library.exception.*;
+import com.example.library.model.BulkLoanReport;
+import com.example.library.model.CursorPage;
 import com.example.library.model.Loan;
+import com.example.library.model.LoanBatchRequest;
+import com.example.library.model.LoanEvent;
+import com.example.library.model.LoanReturnRequest;
+import com.example.library.model.LoanView;
 import com.example.library.model.MessageResponse;
 import com.example.library.service.LoanService;
+import com.example.library.service.OverdueLoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,11 +21,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
 /**
  * The LoanController class handles HTTP requests related to loans.
+ * Loans are returned as LoanView projections rather than entities.
  */
 @RestController
 @RequestMapping("/api/loans")
@@ -25,18 +36,99 @@ public class LoanController {
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private OverdueLoanService overdueLoanService;
+
+    @Autowired
+    private LoanAuditService loanAuditService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Retrieves all loans.
+     * Retrieves a page of loans.
      *
-     * @return ResponseEntity containing the list of loans and HttpStatus OK if successful
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of loans in the page
+     * @return ResponseEntity containing the page of loans and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
      */
     @GetMapping
-    @Operation(summary = "Get all loans", description = "Retrieves a list of all loans")
-    public ResponseEntity<List<Loan>> getAllLoans() {
-        List<Loan> loans = loanService.findAll();
+    @Operation(summary = "Get all loans", description = "Retrieves a page of loans ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of loans"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public ResponseEntity<?> getAllLoans(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                         @Parameter(description = "Maximum number of loans in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<LoanView> loans = loanService.findPage(after, limit);
         return new ResponseEntity<>(loans, HttpStatus.OK);
     }
 
+    /**
+     * Streams all loans as newline-delimited JSON.
+     *
+     * @return ResponseEntity streaming every loan, one per line
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "Stream all loans", description = "Streams every loan ordered by ID as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllLoans() {
+        return NdjsonResponses.stream(objectMapper, loanService::streamAll);
+    }
+
+    /**
+     * Retrieves a page of active overdue loans.
+     *
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of loans in the page
+     * @return ResponseEntity containing the page of overdue loans and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
+     */
+    @GetMapping("/overdue")
+    @Operation(summary = "Get overdue loans", description = "Retrieves a page of active loans flagged as overdue, ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of overdue loans"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public ResponseEntity<?> getOverdueLoans(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                             @Parameter(description = "Maximum number of loans in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<LoanView> loans = overdueLoanService.findPage(after, limit);
+        return new ResponseEntity<>(loans, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves a page of the loan event log.
+     *
+     * @param after the offset after which the page starts
+     * @param limit the maximum number of events in the page
+     * @return ResponseEntity containing the page of events and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
+     */
+    @GetMapping("/events")
+    @Operation(summary = "Get loan events", description = "Retrieves a page of the loan event log ordered by offset, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of loan events"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public ResponseEntity<?> getLoanEvents(@Parameter(description = "Offset after which the page starts") @RequestParam(required = false) Long after,
+                                           @Parameter(description = "Maximum number of events in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<LoanEvent> events = loanAuditService.findPage(after, limit);
+        return new ResponseEntity<>(events, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the recorded history of a loan.
+     *
+     * @param id the ID of the loan
+     * @return ResponseEntity containing the events of the loan, oldest first, and HttpStatus OK
+     */
+    @GetMapping("/{id}/history")
+    @Operation(summary = "Get loan history", description = "Retrieves every recorded change to a loan from the loan event log, oldest first")
+    @ApiResponse(responseCode = "200", description = "Events of the loan, empty if none were recorded")
+    public ResponseEntity<List<LoanEvent>> getLoanHistory(@Parameter(description = "ID of the loan") @PathVariable Long id) {
+        return new ResponseEntity<>(loanAuditService.history(id), HttpStatus.OK);
+    }
+
     /**
      * Retrieves a loan by ID.
      *
@@ -51,12 +143,8 @@ public class LoanController {
             @ApiResponse(responseCode = "404", description = "Loan not found")
     })
     public ResponseEntity<?> getLoanById(@Parameter(description = "ID of the loan") @PathVariable Long id) {
-        try {
-            Loan loan = loanService.findById(id);
-            return new ResponseEntity<>(loan, HttpStatus.OK);
-        } catch (LoanNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+        Loan loan = loanService.findById(id);
+        return new ResponseEntity<>(LoanView.of(loan), HttpStatus.OK);
     }
 
     /**
@@ -73,14 +161,55 @@ public class LoanController {
             @ApiResponse(responseCode = "400", description = "Invalid request")
     })
     public ResponseEntity<?> createLoan(@RequestBody Loan loan) {
+        // Everything wrong with a loan is reported as a bad request, unlike the defaults of ApiExceptionHandler
         try {
             Loan newLoan = loanService.save(loan.getUser().getId(), loan.getBook().getId(), loan.getStartDate(), loan.getEndDate());
-            return new ResponseEntity<>(newLoan, HttpStatus.CREATED);
-        } catch (UserNotFoundException | BookNotFoundException | NoBookAvailableException | InconsistentDatesException e) {
+            return new ResponseEntity<>(LoanView.of(newLoan), HttpStatus.CREATED);
+        } catch (UserNotFoundException | BookNotFoundException | NoBookAvailableException | InconsistentDatesException | LoanLimitExceededException e) {
             return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Lends several books to a user at once.
+     *
+     * @param request the user, the books and the dates of the loans
+     * @return ResponseEntity containing the result of every book and HttpStatus OK if the batch was processed,
+     *         or HttpStatus BAD_REQUEST if the request is invalid
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Create loans in bulk", description = "Lends up to " + LoanService.MAX_BATCH_SIZE + " books to a user in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Checkout processed, see the result of every book"),
+            @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    public ResponseEntity<?> createLoans(@RequestBody LoanBatchRequest request) {
+        // Everything wrong with a loan is reported as a bad request, unlike the defaults of ApiExceptionHandler
+        try {
+            BulkLoanReport report = loanService.checkout(request.getUserId(), request.getBookIds(), request.getStartDate(), request.getEndDate());
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (UserNotFoundException | InconsistentDatesException | LoanLimitExceededException e) {
+            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Returns several loans at once.
+     *
+     * @param request the loans to return
+     * @return ResponseEntity containing the result of every loan and HttpStatus OK if the batch was processed,
+     *         or HttpStatus BAD_REQUEST if the request is invalid
+     */
+    @PostMapping("/returns")
+    @Operation(summary = "Return loans in bulk", description = "Returns up to " + LoanService.MAX_BATCH_SIZE + " loans in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns processed, see the result of every loan"),
+            @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    public ResponseEntity<BulkLoanReport> returnLoans(@RequestBody LoanReturnRequest request) {
+        return new ResponseEntity<>(loanService.returnLoans(request.getLoanIds()), HttpStatus.OK);
+    }
+
     /**
      * Updates an existing loan.
      *
@@ -96,10 +225,11 @@ public class LoanController {
             @ApiResponse(responseCode = "400", description = "Invalid request")
     })
     public ResponseEntity<?> updateLoan(@Parameter(description = "ID of the loan") @PathVariable Long id, @RequestBody Loan loan) {
+        // Everything wrong with a loan is reported as a bad request, unlike the defaults of ApiExceptionHandler
         try {
             Loan updatedLoan = loanService.update(id, loan.getUser().getId(), loan.getBook().getId(), loan.getStartDate(), loan.getEndDate());
-            return new ResponseEntity<>(updatedLoan, HttpStatus.OK);
-        } catch (LoanNotFoundException | UserNotFoundException | BookNotFoundException | InconsistentDatesException e) {
+            return new ResponseEntity<>(LoanView.of(updatedLoan), HttpStatus.OK);
+        } catch (LoanNotFoundException | UserNotFoundException | BookNotFoundException | NoBookAvailableException | InconsistentDatesException | LoanLimitExceededException e) {
             return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
         }
     }
@@ -118,11 +248,7 @@ public class LoanController {
             @ApiResponse(responseCode = "404", description = "Loan not found")
     })
     public ResponseEntity<?> deleteLoan(@Parameter(description = "ID of the loan") @PathVariable Long id) {
-        try {
-            loanService.delete(id);
-            return new ResponseEntity<>(new MessageResponse("Loan successfully deleted"), HttpStatus.OK);
-        } catch (LoanNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+        loanService.delete(id);
+        return new ResponseEntity<>(new MessageResponse("Loan successfully deleted"), HttpStatus.OK);
     }
 }
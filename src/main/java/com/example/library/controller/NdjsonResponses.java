@@ -0,0 +1,43 @@
+package com.example.library.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * The NdjsonResponses class builds streaming responses in newline-delimited JSON.
+ * Each item is serialized and written as soon as it is produced, so the response
+ * is never held in memory as a whole.
+ */
+final class NdjsonResponses {
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * Creates a streaming NDJSON response from the given source.
+     *
+     * @param objectMapper the mapper used to serialize each item
+     * @param source       the source that pushes every item to the consumer it receives
+     * @param <T>          the type of the streamed items
+     * @return ResponseEntity streaming one JSON document per line
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = outputStream -> source.accept(item -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(item));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -1,22 +1,28 @@
 package com.example.library.controller;
 
-import com.example.library.exception.InvalidDataException;
-import com.example.library.exception.UserAlreadyExistsException;
-import com.example.library.exception.UserNotFoundException;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.CursorPage;
+import com.example.library.model.LoanView;
 import com.example.library.model.MessageResponse;
 import com.example.library.model.User;
+import com.example.library.service.BulkRowReader;
+import com.example.library.service.LoanService;
 import com.example.library.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.InputStream;
 
 /**
  * The UserController class handles HTTP requests related to users.
@@ -28,38 +34,91 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Retrieves all users.
+     * Retrieves a page of users.
      *
-     * @return ResponseEntity containing the list of users and HttpStatus OK if successful
+     * @param after the ID after which the page starts
+     * @param limit the maximum number of users in the page
+     * @return ResponseEntity containing the page of users and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the limit is out of range
      */
     @GetMapping
-    @Operation(summary = "Get all users", description = "Retrieves a list of all users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.findAll();
+    @Operation(summary = "Get all users", description = "Retrieves a page of users ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of users"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public ResponseEntity<?> getAllUsers(@Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                         @Parameter(description = "Maximum number of users in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<User> users = userService.findPage(after, limit);
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Streams all users as newline-delimited JSON.
+     *
+     * @return ResponseEntity streaming every user, one per line
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "Stream all users", description = "Streams every user ordered by ID as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return NdjsonResponses.stream(objectMapper, userService::streamAll);
+    }
+
     /**
      * Retrieves a user by ID.
+     * The response carries the version of the user as its ETag, and is empty if the user
+     * still matches the {@code If-None-Match} or {@code If-Modified-Since} headers.
      *
-     * @param id the ID of the user to retrieve
+     * @param id      the ID of the user to retrieve
+     * @param headers the headers of the request
      * @return ResponseEntity containing the user and HttpStatus OK if successful,
+     *         or HttpStatus NOT_MODIFIED if the client has the current version,
      *         or HttpStatus NOT_FOUND if the user does not exist
      */
     @GetMapping("/{id}")
-    @Operation(summary = "Get user by ID", description = "Retrieves a user by their ID")
+    @Operation(summary = "Get user by ID", description = "Retrieves a user by their ID, supporting If-None-Match and If-Modified-Since")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User found"),
+            @ApiResponse(responseCode = "304", description = "User not modified"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
-    public ResponseEntity<?> getUserById(@Parameter(description = "ID of the user") @PathVariable Long id) {
-        try {
-            User user = userService.findById(id);
-            return new ResponseEntity<>(user, HttpStatus.OK);
-        } catch (UserNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+    public ResponseEntity<?> getUserById(@Parameter(description = "ID of the user") @PathVariable Long id,
+                                         @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+        User user = userService.findById(id);
+        return ConditionalResponses.ok(headers, user, user.getVersion(), user.getUpdatedAt());
+    }
+
+    /**
+     * Retrieves a page of the loans of a user.
+     *
+     * @param id     the ID of the user
+     * @param status which loans to return: active, returned or all
+     * @param after  the ID after which the page starts
+     * @param limit  the maximum number of loans in the page
+     * @return ResponseEntity containing the page of loans and HttpStatus OK if successful,
+     *         or HttpStatus BAD_REQUEST if the status or the limit is invalid,
+     *         or HttpStatus NOT_FOUND if the user does not exist
+     */
+    @GetMapping("/{id}/loans")
+    @Operation(summary = "Get the loans of a user", description = "Retrieves a page of the loans of a user ordered by ID, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of loans"),
+            @ApiResponse(responseCode = "400", description = "Invalid status or limit"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<?> getUserLoans(@Parameter(description = "ID of the user") @PathVariable Long id,
+                                          @Parameter(description = "Loans to return: active, returned or all") @RequestParam(defaultValue = "active") String status,
+                                          @Parameter(description = "ID after which the page starts") @RequestParam(required = false) Long after,
+                                          @Parameter(description = "Maximum number of loans in the page") @RequestParam(defaultValue = "100") int limit) {
+        CursorPage<LoanView> loans = loanService.findUserPage(id, status, after, limit);
+        return new ResponseEntity<>(loans, HttpStatus.OK);
     }
 
     /**
@@ -78,14 +137,27 @@ public class UserController {
             @ApiResponse(responseCode = "409", description = "User already exists")
     })
     public ResponseEntity<?> createUser(@RequestBody User user) {
-        try {
-            User newUser = userService.save(user.getName(), user.getEmail());
-            return new ResponseEntity<>(newUser, HttpStatus.CREATED);
-        } catch (InvalidDataException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
-        } catch (UserAlreadyExistsException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.CONFLICT);
-        }
+        User newUser = userService.save(user.getName(), user.getEmail());
+        return new ResponseEntity<>(newUser, HttpStatus.CREATED);
+    }
+
+    /**
+     * Imports users in bulk from a JSON array or a CSV document.
+     *
+     * @param contentType the content type of the request body
+     * @param body        the request body containing the users to import
+     * @return ResponseEntity containing the result of every row and HttpStatus OK if the input was read,
+     *         or HttpStatus BAD_REQUEST if the input is malformed
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkRowReader.TEXT_CSV_VALUE})
+    @Operation(summary = "Import users in bulk", description = "Creates users from a JSON array or a CSV document with name and email columns")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import processed, see the result of every row"),
+            @ApiResponse(responseCode = "400", description = "Malformed input")
+    })
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        BulkImportReport report = userService.importUsers(BulkRowReader.forContentType(contentType, body, objectMapper));
+        return new ResponseEntity<>(report, HttpStatus.OK);
     }
 
     /**
@@ -96,27 +168,23 @@ public class UserController {
      * @return ResponseEntity containing the updated user and HttpStatus OK if successful,
      *         or HttpStatus NOT_FOUND if the user does not exist,
      *         or HttpStatus BAD_REQUEST if the request is invalid,
-     *         or HttpStatus CONFLICT if the updated user conflicts with an existing user
+     *         or HttpStatus CONFLICT if the updated user conflicts with an existing user or was modified concurrently,
+     *         or HttpStatus PRECONDITION_FAILED if the user is no longer at the version in {@code If-Match}
      */
     @PutMapping("/{id}")
-    @Operation(summary = "Update an existing user", description = "Updates an existing user")
+    @Operation(summary = "Update an existing user", description = "Updates an existing user, supporting If-Match")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request"),
             @ApiResponse(responseCode = "404", description = "User not found"),
-            @ApiResponse(responseCode = "409", description = "User already exists with provided email")
+            @ApiResponse(responseCode = "409", description = "User already exists with provided email, or was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "User modified since the version in If-Match")
     })
-    public ResponseEntity<?> updateUser(@Parameter(description = "ID of the user") @PathVariable Long id, @RequestBody User user) {
-        try {
-            User updatedUser = userService.update(id, user.getName(), user.getEmail());
-            return new ResponseEntity<>(updatedUser, HttpStatus.OK);
-        } catch(UserNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        } catch (InvalidDataException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
-        } catch (UserAlreadyExistsException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.CONFLICT);
-        }
+    public ResponseEntity<?> updateUser(@Parameter(description = "ID of the user") @PathVariable Long id, @RequestBody User user,
+                                        @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+        Long expectedVersion = ConditionalResponses.expectedVersion(headers);
+        User updatedUser = userService.update(id, expectedVersion, user.getName(), user.getEmail());
+        return ConditionalResponses.updated(headers, updatedUser, updatedUser.getVersion(), updatedUser.getUpdatedAt());
     }
 
     /**
@@ -133,12 +201,8 @@ public class UserController {
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     public ResponseEntity<?> deleteUser(@Parameter(description = "ID of the user") @PathVariable Long id) {
-        try {
-            userService.delete(id);
-            return new ResponseEntity<>(new MessageResponse("User successfully deleted."), HttpStatus.OK);
-        } catch (UserNotFoundException e) {
-            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND);
-        }
+        userService.delete(id);
+        return new ResponseEntity<>(new MessageResponse("User successfully deleted."), HttpStatus.OK);
     }
 
 }
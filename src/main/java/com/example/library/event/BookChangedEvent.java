@@ -0,0 +1,70 @@
+package com.example.library.event;
+
+import com.example.library.model.Book;
+import lombok.Getter;
+
+/**
+ * The BookChangedEvent class is published when a book is created, updated or deleted.
+ * It carries a snapshot of the searchable fields and the stock, taken when the change was made.
+ * Listeners that depend on the change being stored should run after the transaction commits.
+ */
+@Getter
+public class BookChangedEvent {
+
+    /**
+     * The ID of the changed book.
+     */
+    private final Long id;
+
+    /**
+     * The ISBN of the book, or null if the book was deleted.
+     */
+    private final String isbn;
+
+    /**
+     * The title of the book, or null if the book was deleted.
+     */
+    private final String title;
+
+    /**
+     * The author of the book, or null if the book was deleted.
+     */
+    private final String author;
+
+    /**
+     * The number of copies in stock, or 0 if the book was deleted.
+     */
+    private final int quantity;
+
+    /**
+     * A flag indicating if the book was deleted.
+     */
+    private final boolean deleted;
+
+    private BookChangedEvent(Long id, String isbn, String title, String author, int quantity, boolean deleted) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.quantity = quantity;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Creates the event for a book that was created or updated.
+     * @param book The stored book.
+     * @return The event describing the book.
+     */
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor(), book.getQuantity(), false);
+    }
+
+    /**
+     * Creates the event for a book that was deleted.
+     * @param id The ID of the deleted book.
+     * @return The event describing the deletion.
+     */
+    public static BookChangedEvent deleted(Long id) {
+        return new BookChangedEvent(id, null, null, null, 0, true);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.library.event;
+
+import lombok.Getter;
+
+/**
+ * The ChangesPublishedEvent class is published when changes have been given their sequence
+ * numbers in the change feed, and can be read by its consumers.
+ */
+@Getter
+public class ChangesPublishedEvent {
+
+    /**
+     * The sequence number of the latest change in the feed.
+     */
+    private final long latestSeq;
+
+    /**
+     * Constructs a new ChangesPublishedEvent.
+     * @param latestSeq The sequence number of the latest change in the feed.
+     */
+    public ChangesPublishedEvent(long latestSeq) {
+        this.latestSeq = latestSeq;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.library.event;
+
+import com.example.library.model.Loan;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * The LoanChangedEvent class is published when a loan is created, updated or returned.
+ * It carries a snapshot of the whole loan, taken when the change was made, so the state of a
+ * loan can be rebuilt from its latest event alone.
+ * Listeners that depend on the change being stored should run after the transaction commits.
+ */
+@Getter
+public class LoanChangedEvent {
+
+    /**
+     * The kind of change made to a loan.
+     */
+    public enum Type {
+        CREATED, UPDATED, RETURNED
+    }
+
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the loan.
+     */
+    private final Long loanId;
+
+    /**
+     * The ID of the user borrowing the book.
+     */
+    private final Long userId;
+
+    /**
+     * The ID of the book being borrowed.
+     */
+    private final Long bookId;
+
+    /**
+     * The start date of the loan.
+     */
+    private final LocalDate startDate;
+
+    /**
+     * The end date of the loan.
+     */
+    private final LocalDate endDate;
+
+    /**
+     * A flag indicating if the loan is finalized.
+     */
+    private final boolean finalized;
+
+    /**
+     * The time at which the change was made.
+     */
+    private final Instant occurredAt;
+
+    /**
+     * Constructs a new LoanChangedEvent with the given values.
+     * @param type The kind of change.
+     * @param loanId The ID of the loan.
+     * @param userId The ID of the user borrowing the book.
+     * @param bookId The ID of the book being borrowed.
+     * @param startDate The start date of the loan.
+     * @param endDate The end date of the loan.
+     * @param finalized A flag indicating if the loan is finalized.
+     * @param occurredAt The time at which the change was made.
+     */
+    public LoanChangedEvent(Type type, Long loanId, Long userId, Long bookId, LocalDate startDate, LocalDate endDate,
+                            boolean finalized, Instant occurredAt) {
+        this.type = type;
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.finalized = finalized;
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * Creates the event for a change made to a loan now.
+     * @param type The kind of change.
+     * @param loan The loan after the change.
+     * @return The event describing the loan.
+     */
+    public static LoanChangedEvent of(Type type, Loan loan) {
+        return new LoanChangedEvent(type, loan.getId(),
+                loan.getUser() != null ? loan.getUser().getId() : null,
+                loan.getBook() != null ? loan.getBook().getId() : null,
+                loan.getStartDate(), loan.getEndDate(), loan.isFinalized(), Instant.now());
+    }
+
+    /**
+     * Creates the event for a loan returned now.
+     * The loan is described as finalized without being changed, since the row was finalized with
+     * a conditional update and the entity must not be flushed again.
+     * @param loan The loan returned.
+     * @return The event describing the returned loan.
+     */
+    public static LoanChangedEvent returned(Loan loan) {
+        return new LoanChangedEvent(Type.RETURNED, loan.getId(),
+                loan.getUser() != null ? loan.getUser().getId() : null,
+                loan.getBook() != null ? loan.getBook().getId() : null,
+                loan.getStartDate(), loan.getEndDate(), true, Instant.now());
+    }
+}
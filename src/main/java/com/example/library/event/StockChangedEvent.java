@@ -0,0 +1,45 @@
+package com.example.library.event;
+
+import lombok.Getter;
+
+/**
+ * The StockChangedEvent class is published when a loan takes a copy of a book out of stock
+ * or puts it back.
+ * Listeners that depend on the change being stored should run after the transaction commits.
+ */
+@Getter
+public class StockChangedEvent {
+
+    /**
+     * The ID of the book whose stock changed.
+     */
+    private final Long bookId;
+
+    /**
+     * The number of copies added to the stock, negative if copies were taken.
+     */
+    private final int delta;
+
+    private StockChangedEvent(Long bookId, int delta) {
+        this.bookId = bookId;
+        this.delta = delta;
+    }
+
+    /**
+     * Creates the event for a copy lent out.
+     * @param bookId The ID of the book.
+     * @return The event taking one copy out of stock.
+     */
+    public static StockChangedEvent reserved(Long bookId) {
+        return new StockChangedEvent(bookId, -1);
+    }
+
+    /**
+     * Creates the event for a copy returned.
+     * @param bookId The ID of the book.
+     * @return The event putting one copy back in stock.
+     */
+    public static StockChangedEvent released(Long bookId) {
+        return new StockChangedEvent(bookId, 1);
+    }
+}
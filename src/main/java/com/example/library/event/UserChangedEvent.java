@@ -0,0 +1,58 @@
+package com.example.library.event;
+
+import com.example.library.model.User;
+import lombok.Getter;
+
+/**
+ * The UserChangedEvent class is published when a user is created, updated or deleted.
+ * It carries a snapshot of the user, taken when the change was made.
+ * Listeners that depend on the change being stored should run after the transaction commits.
+ */
+@Getter
+public class UserChangedEvent {
+
+    /**
+     * The ID of the changed user.
+     */
+    private final Long id;
+
+    /**
+     * The name of the user, or null if the user was deleted.
+     */
+    private final String name;
+
+    /**
+     * The email of the user, or null if the user was deleted.
+     */
+    private final String email;
+
+    /**
+     * A flag indicating if the user was deleted.
+     */
+    private final boolean deleted;
+
+    private UserChangedEvent(Long id, String name, String email, boolean deleted) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Creates the event for a user that was created or updated.
+     * @param user The stored user.
+     * @return The event describing the user.
+     */
+    public static UserChangedEvent saved(User user) {
+        return new UserChangedEvent(user.getId(), user.getName(), user.getEmail(), false);
+    }
+
+    /**
+     * Creates the event for a user that was deleted.
+     * @param id The ID of the deleted user.
+     * @return The event describing the deletion.
+     */
+    public static UserChangedEvent deleted(Long id) {
+        return new UserChangedEvent(id, null, null, true);
+    }
+}
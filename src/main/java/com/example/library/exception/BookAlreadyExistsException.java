@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The BookAlreadyExistsException class represents an exception that is thrown
  * when attempting to add a book that already exists in the system.
  */
-public class BookAlreadyExistsException extends RuntimeException {
+public class BookAlreadyExistsException extends LibraryException {
 
     /**
      * Constructs a new BookAlreadyExistsException with the specified detail message.
@@ -12,6 +12,6 @@ public class BookAlreadyExistsException extends RuntimeException {
      * @param message the detail message
      */
     public BookAlreadyExistsException(String message) {
-        super(message);
+        super(ErrorCode.BOOK_ALREADY_EXISTS, message);
     }
 }
@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The BookNotFoundException class represents an exception that is thrown
  * when a book cannot be found in the system.
  */
-public class BookNotFoundException extends RuntimeException {
+public class BookNotFoundException extends LibraryException {
 
     /**
      * Constructs a new BookNotFoundException with the specified detail message.
@@ -12,6 +12,6 @@ public class BookNotFoundException extends RuntimeException {
      * @param message the detail message
      */
     public BookNotFoundException(String message) {
-        super(message);
+        super(ErrorCode.BOOK_NOT_FOUND, message);
     }
 }
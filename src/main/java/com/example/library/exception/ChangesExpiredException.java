@@ -0,0 +1,17 @@
+package com.example.library.exception;
+
+/**
+ * The ChangesExpiredException class represents an exception that is thrown
+ * when changes requested from the change feed were already purged from it.
+ */
+public class ChangesExpiredException extends LibraryException {
+
+    /**
+     * Constructs a new ChangesExpiredException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public ChangesExpiredException(String message) {
+        super(ErrorCode.CHANGES_EXPIRED, message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.library.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The ErrorCode enum lists the errors the domain exceptions stand for, each with the
+ * HTTP status it is reported with by default.
+ */
+public enum ErrorCode {
+
+    INVALID_DATA(HttpStatus.BAD_REQUEST),
+    INCONSISTENT_DATES(HttpStatus.BAD_REQUEST),
+    BOOK_NOT_FOUND(HttpStatus.NOT_FOUND),
+    USER_NOT_FOUND(HttpStatus.NOT_FOUND),
+    LOAN_NOT_FOUND(HttpStatus.NOT_FOUND),
+    BOOK_ALREADY_EXISTS(HttpStatus.CONFLICT),
+    USER_ALREADY_EXISTS(HttpStatus.CONFLICT),
+    NO_BOOK_AVAILABLE(HttpStatus.CONFLICT),
+    LOAN_LIMIT_EXCEEDED(HttpStatus.CONFLICT),
+    VERSION_MISMATCH(HttpStatus.CONFLICT),
+    CHANGES_EXPIRED(HttpStatus.GONE);
+
+    private final HttpStatus status;
+
+    ErrorCode(HttpStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status the error is reported with by default.
+     *
+     * @return the HTTP status
+     */
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -5,7 +5,7 @@ package com.example.library.exception;
  * when dates provided for a loan or a booking are inconsistent, such as when
  * the start date is after the end date.
  */
-public class InconsistentDatesException extends RuntimeException {
+public class InconsistentDatesException extends LibraryException {
 
     /**
      * Constructs a new InconsistentDatesException with the specified detail message.
@@ -13,6 +13,6 @@ public class InconsistentDatesException extends RuntimeException {
      * @param message the detail message
      */
     public InconsistentDatesException(String message) {
-        super(message);
+        super(ErrorCode.INCONSISTENT_DATES, message);
     }
 }
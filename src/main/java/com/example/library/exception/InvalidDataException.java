@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The InvalidDataException class represents an exception that is thrown
  * when invalid data is encountered, such as null, blank, or empty values.
  */
-public class InvalidDataException extends RuntimeException {
+public class InvalidDataException extends LibraryException {
 
     /**
      * Constructs a new InvalidDataException with the specified detail message.
@@ -12,6 +12,6 @@ public class InvalidDataException extends RuntimeException {
      * @param message the detail message
      */
     public InvalidDataException(String message) {
-        super(message);
+        super(ErrorCode.INVALID_DATA, message);
     }
 }
@@ -0,0 +1,34 @@
+package com.example.library.exception;
+
+/**
+ * The LibraryException class is the base of the domain exceptions, thrown by the services
+ * when a request cannot be fulfilled, such as a lookup of a missing book or a loan of a book
+ * out of stock.
+ * These are expected outcomes reported to the client, not failures to debug, so the exceptions
+ * capture no stack trace and record no suppressed exceptions: throwing one costs little more than
+ * allocating it, which matters on paths like 404s and 409s that clients hit routinely.
+ */
+public abstract class LibraryException extends RuntimeException {
+
+    private final ErrorCode errorCode;
+
+    /**
+     * Constructs a new LibraryException with the specified error code and detail message.
+     *
+     * @param errorCode the error the exception stands for
+     * @param message   the detail message
+     */
+    protected LibraryException(ErrorCode errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Returns the error the exception stands for.
+     *
+     * @return the error code
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.library.exception;
+
+/**
+ * The LoanLimitExceededException class represents an exception that is thrown
+ * when a user would have more active loans than the borrowing limit allows.
+ */
+public class LoanLimitExceededException extends LibraryException {
+
+    /**
+     * Constructs a new LoanLimitExceededException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public LoanLimitExceededException(String message) {
+        super(ErrorCode.LOAN_LIMIT_EXCEEDED, message);
+    }
+}
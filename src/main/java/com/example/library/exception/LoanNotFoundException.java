@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The LoanNotFoundException class represents an exception that is thrown
  * when a loan is not found in the system.
  */
-public class LoanNotFoundException extends RuntimeException {
+public class LoanNotFoundException extends LibraryException {
 
     /**
      * Constructs a new LoanNotFoundException with the specified detail message.
@@ -12,6 +12,6 @@ public class LoanNotFoundException extends RuntimeException {
      * @param message the detail message
      */
     public LoanNotFoundException(String message) {
-        super(message);
+        super(ErrorCode.LOAN_NOT_FOUND, message);
     }
 }
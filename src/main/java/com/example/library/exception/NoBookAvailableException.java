@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The NoBookAvailableException class represents an exception that is thrown
  * when there are no books available for a particular operation.
  */
-public class NoBookAvailableException extends RuntimeException {
+public class NoBookAvailableException extends LibraryException {
 
     /**
      * Constructs a new NoBookAvailableException with the specified detail message.
@@ -12,7 +12,7 @@ public class NoBookAvailableException extends RuntimeException {
      * @param message the detail message
      */
     public NoBookAvailableException(String message) {
-        super(message);
+        super(ErrorCode.NO_BOOK_AVAILABLE, message);
     }
 
 }
@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The UserAlreadyExistsException class represents an exception that is thrown
  * when a user with the same email already exists.
  */
-public class UserAlreadyExistsException extends RuntimeException {
+public class UserAlreadyExistsException extends LibraryException {
 
     /**
      * Constructs a new UserAlreadyExistsException with the specified detail message.
@@ -12,7 +12,7 @@ public class UserAlreadyExistsException extends RuntimeException {
      * @param message the detail message
      */
     public UserAlreadyExistsException(String message) {
-        super(message);
+        super(ErrorCode.USER_ALREADY_EXISTS, message);
     }
 
 }
@@ -4,7 +4,7 @@ package com.example.library.exception;
  * The UserNotFoundException class represents an exception that is thrown
  * when a user is not found in the system.
  */
-public class UserNotFoundException extends RuntimeException {
+public class UserNotFoundException extends LibraryException {
 
     /**
      * Constructs a new UserNotFoundException with the specified detail message.
@@ -12,7 +12,7 @@ public class UserNotFoundException extends RuntimeException {
      * @param message the detail message
      */
     public UserNotFoundException(String message) {
-        super(message);
+        super(ErrorCode.USER_NOT_FOUND, message);
     }
 
 }
@@ -0,0 +1,17 @@
+package com.example.library.exception;
+
+/**
+ * The VersionMismatchException class represents an exception that is thrown
+ * when attempting to update an entity that was modified since the version the client last read.
+ */
+public class VersionMismatchException extends LibraryException {
+
+    /**
+     * Constructs a new VersionMismatchException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public VersionMismatchException(String message) {
+        super(ErrorCode.VERSION_MISMATCH, message);
+    }
+}
@@ -1,32 +1,45 @@
 package com.example.library.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 /**
  * The Book entity represents books available in the library.
- * It contains an auto-generated ID, an ISBN, a title, an author, and a quantity.
+ * It contains an auto-generated ID, an ISBN, a title, an author, and a quantity,
+ * together with the version and time of its last change.
+ * Entities are kept in the "books" region of the second-level cache.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
 @NoArgsConstructor
 @Getter
 @Setter
 @ToString
-@Table(name = "loan_books")
+@Table(name = "loan_books", uniqueConstraints = @UniqueConstraint(name = "uk_loan_books_isbn", columnNames = "isbn"))
 public class Book {
 
     /**
      * The unique identifier for the book.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "loan_books_seq", allocationSize = 50)
     private Long id;
 
     /**
      * The ISBN (International Standard Book Number) of the book.
+     * It is unique across all books.
      */
     private String isbn;
 
@@ -45,6 +58,22 @@ public class Book {
      */
     private int quantity;
 
+    /**
+     * The version of the book, incremented on every change and used for optimistic locking.
+     * It is exposed to clients as the entity tag of the book.
+     */
+    @Version
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
+    /**
+     * The time of the last change to the book, or null if it has not changed since it was migrated.
+     */
+    @UpdateTimestamp
+    @JsonIgnore
+    private Instant updatedAt;
+
     /**
      * Constructs a new Book object with the given ISBN, title, author, and quantity.
      * @param isbn The ISBN of the book.
@@ -0,0 +1,30 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+/**
+ * The BookAvailability class represents the number of copies of a book available for loan.
+ */
+@Getter
+public class BookAvailability {
+
+    /**
+     * The ID of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The number of copies available for loan.
+     */
+    private final int available;
+
+    /**
+     * Constructs a new BookAvailability with the given values.
+     * @param bookId The ID of the book.
+     * @param available The number of copies available for loan.
+     */
+    public BookAvailability(Long bookId, int available) {
+        this.bookId = bookId;
+        this.available = available;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+/**
+ * The BookHit class represents a book matching a catalog search, with its relevance score.
+ * The fields are read from the search index, so the database is not queried to list results.
+ */
+@Getter
+public class BookHit {
+
+    /**
+     * The ID of the book.
+     */
+    private final Long id;
+
+    /**
+     * The ISBN of the book.
+     */
+    private final String isbn;
+
+    /**
+     * The title of the book.
+     */
+    private final String title;
+
+    /**
+     * The author of the book.
+     */
+    private final String author;
+
+    /**
+     * The relevance of the book to the search; higher is more relevant.
+     */
+    private final float score;
+
+    /**
+     * Constructs a new BookHit with the given values.
+     * @param id The ID of the book.
+     * @param isbn The ISBN of the book.
+     * @param title The title of the book.
+     * @param author The author of the book.
+     * @param score The relevance score.
+     */
+    public BookHit(Long id, String isbn, String title, String author, float score) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.score = score;
+    }
+}
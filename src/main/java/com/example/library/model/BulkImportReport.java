@@ -0,0 +1,44 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The BulkImportReport class summarizes the outcome of a bulk import.
+ * It contains the number of created and rejected rows along with the result of every row.
+ */
+@Getter
+public class BulkImportReport {
+
+    /**
+     * The number of rows that were created.
+     */
+    private final int created;
+
+    /**
+     * The number of rows that were rejected.
+     */
+    private final int rejected;
+
+    /**
+     * The result of every row, in input order.
+     */
+    private final List<BulkItemResult> results;
+
+    /**
+     * Constructs a new BulkImportReport object from the results of every row.
+     * @param results The result of every row, in input order.
+     */
+    public BulkImportReport(List<BulkItemResult> results) {
+        int createdRows = 0;
+        for (BulkItemResult result : results) {
+            if (result.getStatus() == BulkItemResult.Status.CREATED) {
+                createdRows++;
+            }
+        }
+        this.created = createdRows;
+        this.rejected = results.size() - createdRows;
+        this.results = results;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+/**
+ * The BulkItemResult class represents the outcome of a single item of a bulk request.
+ * It contains the position of the item in the request, its status, the ID of the
+ * resulting entity if any, and a message explaining why the item was rejected.
+ */
+@Getter
+public class BulkItemResult {
+
+    /**
+     * The possible outcomes of a bulk item.
+     */
+    public enum Status {
+        CREATED,
+        RETURNED,
+        DUPLICATE,
+        INVALID,
+        NOT_FOUND,
+        UNAVAILABLE
+    }
+
+    /**
+     * The zero-based position of the item in the request.
+     */
+    private final int index;
+
+    /**
+     * The outcome of the item.
+     */
+    private final Status status;
+
+    /**
+     * The ID of the entity created or affected by the item, or null if it was rejected.
+     */
+    private final Long id;
+
+    /**
+     * The reason the item was rejected, or null if it succeeded.
+     */
+    private final String message;
+
+    /**
+     * Constructs a new BulkItemResult object with the given position, status, ID, and message.
+     * @param index The zero-based position of the item in the request.
+     * @param status The outcome of the item.
+     * @param id The ID of the affected entity, or null if none.
+     * @param message The reason the item was rejected, or null if it succeeded.
+     */
+    public BulkItemResult(int index, Status status, Long id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The BulkLoanReport class summarizes the outcome of a batch of checkouts or returns.
+ * It contains the number of succeeded and rejected items along with the result of every item.
+ */
+@Getter
+public class BulkLoanReport {
+
+    /**
+     * The number of items that were checked out or returned.
+     */
+    private final int succeeded;
+
+    /**
+     * The number of items that were rejected.
+     */
+    private final int rejected;
+
+    /**
+     * The result of every item, in request order.
+     */
+    private final List<BulkItemResult> results;
+
+    /**
+     * Constructs a new BulkLoanReport object from the results of every item.
+     * @param results The result of every item, in request order.
+     */
+    public BulkLoanReport(List<BulkItemResult> results) {
+        int succeededItems = 0;
+        for (BulkItemResult result : results) {
+            if (result.getStatus() == BulkItemResult.Status.CREATED || result.getStatus() == BulkItemResult.Status.RETURNED) {
+                succeededItems++;
+            }
+        }
+        this.succeeded = succeededItems;
+        this.rejected = results.size() - succeededItems;
+        this.results = results;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.library.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * The Change class represents a change made to a book, a user or a loan, as served by the change feed.
+ * Its sequence number orders it among all changes; a consumer that has read every change up to a
+ * sequence number gets all later ones by asking for the changes after it.
+ */
+@Getter
+public class Change {
+
+    /**
+     * The kind of entity a change is made to.
+     */
+    public enum Entity {
+        BOOK, USER, LOAN
+    }
+
+    /**
+     * The position of the change in the feed, starting at 1.
+     */
+    private final long seq;
+
+    /**
+     * The kind of the changed entity.
+     */
+    private final Entity entity;
+
+    /**
+     * The ID of the changed entity.
+     */
+    private final Long entityId;
+
+    /**
+     * The kind of change: SAVED or DELETED for books and users, STOCK for the stock of a book,
+     * and CREATED, UPDATED or RETURNED for loans.
+     */
+    private final String operation;
+
+    /**
+     * The state of the entity after the change, as a document tree, so that it is
+     * encoded in the format of the response, JSON or CBOR.
+     */
+    private final JsonNode payload;
+
+    /**
+     * The time at which the change was made.
+     */
+    private final Instant occurredAt;
+
+    /**
+     * Constructs a new Change with the given values.
+     * @param seq The position of the change in the feed.
+     * @param entity The kind of the changed entity.
+     * @param entityId The ID of the changed entity.
+     * @param operation The kind of change.
+     * @param payload The state of the entity after the change, as a document tree.
+     * @param occurredAt The time at which the change was made.
+     */
+    public Change(long seq, Entity entity, Long entityId, String operation, JsonNode payload, Instant occurredAt) {
+        this.seq = seq;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.payload = payload;
+        this.occurredAt = occurredAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The ChangePage class represents the changes read from the change feed in one request.
+ * Unlike a CursorPage, it always carries the cursor of the next request, as the feed has no end.
+ */
+@Getter
+public class ChangePage {
+
+    /**
+     * The changes read, ordered by sequence number.
+     */
+    private final List<Change> changes;
+
+    /**
+     * The sequence number to pass as {@code since} to read the changes that follow: that of the last
+     * change read, or the one requested if there were none.
+     */
+    private final long next;
+
+    /**
+     * The sequence number of the latest change in the feed when the changes were read, which tells
+     * how far behind the consumer is.
+     */
+    private final long latest;
+
+    /**
+     * Constructs a new ChangePage with the given changes.
+     * @param changes The changes read, ordered by sequence number.
+     * @param since The sequence number after which the changes were read.
+     * @param latest The sequence number of the latest change in the feed.
+     */
+    public ChangePage(List<Change> changes, long since, long latest) {
+        this.changes = changes;
+        this.next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        this.latest = latest;
+    }
+}
@@ -4,36 +4,46 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDate;
 
 /**
  * The Loan entity represents a loan of a book to a user.
  * It contains an auto-generated ID, references to the user and the book involved in the loan,
- * start and end dates of the loan, and a flag indicating if the loan has been finalized.
+ * start and end dates of the loan, and flags indicating if the loan has been finalized or is overdue.
  */
 @Entity
 @NoArgsConstructor
 @Getter
 @Setter
+@Table(indexes = {
+        @Index(name = "idx_loan_user_id", columnList = "user_id"),
+        @Index(name = "idx_loan_user_finalized", columnList = "user_id, finalized, id"),
+        @Index(name = "idx_loan_book_id", columnList = "book_id"),
+        @Index(name = "idx_loan_overdue_candidates", columnList = "finalized, overdue, end_date")
+})
 public class Loan {
 
     /**
      * The unique identifier for the loan.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
 
     /**
      * The user who borrowed the book.
+     * A user may have many loans; the user is only loaded when accessed.
      */
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
     /**
      * The book being borrowed.
+     * A book may have many loans; the book is only loaded when accessed.
      */
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     /**
@@ -51,6 +61,13 @@ public class Loan {
      */
     private boolean finalized;
 
+    /**
+     * A flag indicating if the loan was found past its end date while still active.
+     * It is set by the overdue sweep, and cleared when the end date is moved forward.
+     */
+    @ColumnDefault("false")
+    private boolean overdue;
+
     /**
      * Constructs a new Loan object with the given user, book, start date, and end date.
      * @param user The user borrowing the book.
@@ -68,16 +85,19 @@ public class Loan {
 
     /**
      * Returns a string representation of the Loan object.
+     * The user and book are represented by their IDs, so that they are not loaded.
      * @return A string representation of the Loan object.
      */
     @Override
     public String toString() {
         return "Loan{" +
                 "id=" + id +
-                ", user=" + user +
-                ", book=" + book +
+                ", userId=" + (user != null ? user.getId() : null) +
+                ", bookId=" + (book != null ? book.getId() : null) +
                 ", startDate=" + startDate +
                 ", endDate=" + endDate +
+                ", finalized=" + finalized +
+                ", overdue=" + overdue +
                 '}';
     }
 }
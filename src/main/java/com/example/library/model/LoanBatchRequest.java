@@ -0,0 +1,38 @@
+package com.example.library.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The LoanBatchRequest class represents the checkout of several books by one user at once.
+ * Every book is lent for the same dates.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class LoanBatchRequest {
+
+    /**
+     * The ID of the user borrowing the books.
+     */
+    private Long userId;
+
+    /**
+     * The IDs of the books being borrowed, one loan per entry.
+     */
+    private List<Long> bookIds;
+
+    /**
+     * The start date of the loans.
+     */
+    private LocalDate startDate;
+
+    /**
+     * The end date of the loans.
+     */
+    private LocalDate endDate;
+}
@@ -0,0 +1,101 @@
+package com.example.library.model;
+
+import com.example.library.event.LoanChangedEvent;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * The LoanEvent class represents a change to a loan as recorded in the loan event log.
+ * Each event holds the whole loan after the change, and its offset orders it among all events.
+ */
+@Getter
+public class LoanEvent {
+
+    /**
+     * The position of the event in the log, starting at 0.
+     */
+    private final long offset;
+
+    /**
+     * The kind of change.
+     */
+    private final LoanChangedEvent.Type type;
+
+    /**
+     * The ID of the loan.
+     */
+    private final Long loanId;
+
+    /**
+     * The ID of the user borrowing the book.
+     */
+    private final Long userId;
+
+    /**
+     * The ID of the book being borrowed.
+     */
+    private final Long bookId;
+
+    /**
+     * The start date of the loan.
+     */
+    private final LocalDate startDate;
+
+    /**
+     * The end date of the loan.
+     */
+    private final LocalDate endDate;
+
+    /**
+     * A flag indicating if the loan is finalized.
+     */
+    private final boolean finalized;
+
+    /**
+     * The time at which the change was made.
+     */
+    private final Instant occurredAt;
+
+    /**
+     * Constructs a new LoanEvent with the given values.
+     * @param offset The position of the event in the log.
+     * @param type The kind of change.
+     * @param loanId The ID of the loan.
+     * @param userId The ID of the user borrowing the book.
+     * @param bookId The ID of the book being borrowed.
+     * @param startDate The start date of the loan.
+     * @param endDate The end date of the loan.
+     * @param finalized A flag indicating if the loan is finalized.
+     * @param occurredAt The time at which the change was made.
+     */
+    public LoanEvent(long offset, LoanChangedEvent.Type type, Long loanId, Long userId, Long bookId,
+                     LocalDate startDate, LocalDate endDate, boolean finalized, Instant occurredAt) {
+        this.offset = offset;
+        this.type = type;
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.finalized = finalized;
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * Rebuilds the loan described by this event.
+     * The loan is not managed, and its user and book only hold their IDs.
+     * @return The loan as it was after the change.
+     */
+    public Loan toLoan() {
+        User user = new User();
+        user.setId(userId);
+        Book book = new Book();
+        book.setId(bookId);
+        Loan loan = new Loan(user, book, startDate, endDate);
+        loan.setId(loanId);
+        loan.setFinalized(finalized);
+        return loan;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.library.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * The LoanReturnRequest class represents the return of several loans at once.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class LoanReturnRequest {
+
+    /**
+     * The IDs of the loans being returned.
+     */
+    private List<Long> loanIds;
+}
@@ -0,0 +1,52 @@
+package com.example.library.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The SearchPage class represents one page of search results, ordered by relevance.
+ * Relevance order has no stable key to resume from, so pages are addressed by offset.
+ *
+ * @param <T> the type of the items in the page
+ */
+@Getter
+public class SearchPage<T> {
+
+    /**
+     * The largest number of items that can be requested in a single page.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * The largest offset that can be requested; deeper pages are not served.
+     */
+    public static final int MAX_OFFSET = 10_000;
+
+    /**
+     * The items included in the page, most relevant first.
+     */
+    private final List<T> items;
+
+    /**
+     * The number of matching items; a lower bound when the search stops counting early.
+     */
+    private final long total;
+
+    /**
+     * The offset to request the next page with, or null if this is the last page.
+     */
+    private final Integer nextOffset;
+
+    /**
+     * Constructs a new SearchPage.
+     * @param items The items included in the page.
+     * @param total The number of matching items.
+     * @param nextOffset The offset of the next page, or null if this is the last page.
+     */
+    public SearchPage(List<T> items, long total, Integer nextOffset) {
+        this.items = items;
+        this.total = total;
+        this.nextOffset = nextOffset;
+    }
+}
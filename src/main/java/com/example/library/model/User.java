@@ -1,26 +1,39 @@
 package com.example.library.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 /**
  * The User entity represents users who can borrow books from the library.
- * It contains an auto-generated ID, a name, and an email address.
+ * It contains an auto-generated ID, a name, and an email address,
+ * together with the version and time of its last change.
+ * Entities are kept in the "users" region of the second-level cache.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Getter
 @Setter
 @ToString
 @NoArgsConstructor
-@Table(name = "loan_users")
+@Table(name = "loan_users", uniqueConstraints = @UniqueConstraint(name = "uk_loan_users_email", columnNames = "email"))
 public class User {
 
     /**
      * The unique identifier for the user.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "loan_users_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -30,10 +43,36 @@ public class User {
 
     /**
      * The email address of the user.
+     * It is unique across all users.
      */
     @Email
     private String email;
 
+    /**
+     * The number of active loans of the user, which the borrowing limit applies to.
+     * It is only changed by the loan counter updates of UserRepository, never written from the entity.
+     */
+    @Column(insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int activeLoanCount;
+
+    /**
+     * The version of the user, incremented on every change and used for optimistic locking.
+     * It is exposed to clients as the entity tag of the user.
+     */
+    @Version
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
+    /**
+     * The time of the last change to the user, or null if it has not changed since it was migrated.
+     */
+    @UpdateTimestamp
+    @JsonIgnore
+    private Instant updatedAt;
+
     /**
      * Constructs a new User object with the given name and email.
      * @param name The name of the user.
@@ -0,0 +1,117 @@
+package com.example.library.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The AdaptiveConcurrencyLimiter class caps the number of requests in flight, with a limit that
+ * follows what the application can currently sustain.
+ * The limit is adjusted by additive increase and multiplicative decrease (AIMD): a request that
+ * completes within the latency threshold while the limit is at least half used raises the limit
+ * by one, and a request that fails or exceeds the threshold cuts it by the backoff ratio. The limit
+ * is cut at most once per window: only a request admitted after the last cut can cut it again, so
+ * that the requests caught in one slowdown count as a single sign of overload. Requests over the
+ * limit are turned away at once rather than queued, so that a backlog cannot build up in front of
+ * the database.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The time of the last cut of the limit.
+     */
+    private final AtomicLong lastBackoff;
+
+    private final LongSupplier nanoClock;
+
+    /**
+     * Constructs a new AdaptiveConcurrencyLimiter.
+     * @param initialLimit The limit to start from.
+     * @param minLimit The lowest the limit can be cut to.
+     * @param maxLimit The highest the limit can be raised to.
+     * @param latencyThresholdNanos The latency above which a request counts as a sign of overload.
+     * @param backoffRatio The ratio the limit is multiplied by on overload, between 0 and 1.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdNanos, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("The limits must satisfy 1 <= min <= initial <= max, and the backoff ratio lie between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+        this.nanoClock = nanoClock;
+        // Far enough in the past for the first slow request to cut the limit
+        this.lastBackoff = new AtomicLong(nanoClock.getAsLong() - Long.MAX_VALUE / 2);
+    }
+
+    /**
+     * Admits a request if fewer requests than the limit are in flight.
+     * Every admitted request must be followed by a call to {@link #release(long, boolean)}.
+     * @return true if the request is admitted, or false if the limit is reached.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records the completion of an admitted request and adjusts the limit.
+     * @param latencyNanos How long the request took.
+     * @param failed Whether the request failed on the side of the application.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            long now = nanoClock.getAsLong();
+            long last = lastBackoff.get();
+            // Requests admitted before the last cut were already accounted for by it
+            if (now - latencyNanos - last > 0 && lastBackoff.compareAndSet(last, now)) {
+                limit.updateAndGet(value -> Math.max(minLimit, (int) (value * backoffRatio)));
+            }
+        } else if (current * 2 >= limit.get()) {
+            limit.updateAndGet(value -> Math.min(maxLimit, value + 1));
+        }
+    }
+
+    /**
+     * Returns the current limit.
+     * @return The number of requests that may be in flight.
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     * @return The number of admitted requests not yet released.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
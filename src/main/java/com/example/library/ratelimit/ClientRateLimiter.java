@@ -0,0 +1,107 @@
+package com.example.library.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The ClientRateLimiter class is a token bucket per client, which lets each client send requests
+ * at a sustained rate with bursts up to a given size.
+ * It is implemented as the generic cell rate algorithm: instead of a token count refilled over time,
+ * each client has a single number, the theoretical arrival time of its next request, advanced by the
+ * emission interval on every request admitted. A request is admitted while that time is less than a
+ * burst ahead of now, so admitting one is a read and a compare-and-set on the counter of the client,
+ * without locks. Clients idle long enough to have a full bucket hold no state beyond that number, and
+ * are removed by {@link #evictIdle()}.
+ */
+public class ClientRateLimiter {
+
+    /**
+     * The time between two requests at the sustained rate.
+     */
+    private final long emissionIntervalNanos;
+
+    /**
+     * How far ahead of now the theoretical arrival time may be for a request to be admitted.
+     */
+    private final long burstToleranceNanos;
+
+    private final LongSupplier nanoClock;
+
+    /**
+     * The theoretical arrival time of the next request of each client.
+     */
+    private final Map<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ClientRateLimiter.
+     * @param requestsPerSecond The sustained rate allowed to every client.
+     * @param burst The number of requests a client may send at once after being idle.
+     */
+    public ClientRateLimiter(double requestsPerSecond, int burst) {
+        this(requestsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new ClientRateLimiter reading the time from the given clock.
+     * @param requestsPerSecond The sustained rate allowed to every client.
+     * @param burst The number of requests a client may send at once after being idle.
+     * @param nanoClock The clock, in nanoseconds.
+     */
+    ClientRateLimiter(double requestsPerSecond, int burst, LongSupplier nanoClock) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate must be positive and the burst at least 1");
+        }
+        this.emissionIntervalNanos = Math.max(1, Math.round(1_000_000_000L / requestsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Admits a request of the given client if it is within its rate.
+     * @param client The key of the client.
+     * @return 0 if the request is admitted, or else how long the client must wait before
+     *         its next request can be admitted, in nanoseconds.
+     */
+    public long tryAcquire(String client) {
+        AtomicLong arrival = arrivals.computeIfAbsent(client, key -> new AtomicLong(nanoClock.getAsLong()));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = arrival.get();
+            // Compared by difference, as the clock may wrap around
+            long theoretical = current - now > 0 ? current : now;
+            long ahead = theoretical - now;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (arrival.compareAndSet(current, theoretical + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the clients whose bucket has refilled, which are admitted in the same way as new ones.
+     * A request of such a client racing the removal may go uncounted.
+     * @return The number of clients removed.
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : arrivals.entrySet()) {
+            if (entry.getValue().get() - now <= 0 && arrivals.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of clients tracked.
+     * @return The number of clients with state.
+     */
+    public int clientCount() {
+        return arrivals.size();
+    }
+}
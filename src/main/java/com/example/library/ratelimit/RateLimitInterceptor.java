@@ -0,0 +1,130 @@
+package com.example.library.ratelimit;
+
+import com.example.library.model.MessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RateLimitInterceptor class admits or turns away the write requests to the API; reads pass through.
+ * A request is first checked against the rate of its client, and then against the concurrency limit
+ * shared by all clients. A client is identified by its API key header when the key is one of the
+ * configured keys, and by its address otherwise, so that it cannot escape its rate, nor grow the
+ * clients tracked, by making up keys. A request turned away gets {@code 429 Too Many Requests} with
+ * a {@code Retry-After} header, before any query is run, and is counted under the
+ * {@code library.ratelimit.rejected} metric by reason.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * The name of the counter of rejected requests.
+     */
+    public static final String REJECTED_METRIC = "library.ratelimit.rejected";
+
+    private static final String START_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".start";
+
+    private final ClientRateLimiter rateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final String clientHeader;
+
+    private final Set<String> apiKeys;
+
+    private final ObjectMapper objectMapper;
+
+    private final Counter rateRejections;
+
+    private final Counter concurrencyRejections;
+
+    /**
+     * Constructs a new RateLimitInterceptor.
+     * @param rateLimiter The rate limiter of the clients.
+     * @param concurrencyLimiter The concurrency limiter shared by all clients.
+     * @param clientHeader The header carrying the API key of a client.
+     * @param apiKeys The API keys identifying a client; other keys are ignored.
+     * @param objectMapper The mapper writing the body of the rejections.
+     * @param meterRegistry The registry receiving the counts of rejected requests.
+     */
+    public RateLimitInterceptor(ClientRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter, String clientHeader,
+                                Set<String> apiKeys, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientHeader = clientHeader;
+        this.apiKeys = Set.copyOf(apiKeys);
+        this.objectMapper = objectMapper;
+        this.rateRejections = rejections(meterRegistry, "rate");
+        this.concurrencyRejections = rejections(meterRegistry, "concurrency");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!isWrite(request)) {
+            return true;
+        }
+        long waitNanos = rateLimiter.tryAcquire(client(request));
+        if (waitNanos > 0) {
+            rateRejections.increment();
+            reject(response, waitNanos, "Too many requests from this client");
+            return false;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            concurrencyRejections.increment();
+            reject(response, TimeUnit.SECONDS.toNanos(1), "Too many requests in progress");
+            return false;
+        }
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            boolean failed = ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+            concurrencyLimiter.release(System.nanoTime() - (Long) start, failed);
+        }
+    }
+
+    /**
+     * Tells whether a request may change data, which reads never do.
+     */
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    /**
+     * Returns the key of the client of a request: its API key if it sends one, or else its address.
+     */
+    private String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(clientHeader);
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "addr:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Retry-After is in whole seconds, rounded up so that the retry is admitted
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new MessageResponse(message));
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(REJECTED_METRIC)
+                .description("Write requests turned away with 429 Too Many Requests")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.library.replica;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * The ReadYourWrites class remembers when a session last committed a write, so that its reads
+ * are only served by replicas that have caught up with that write.
+ * Within an HTTP request the time is kept on the request and handed to the client in a cookie,
+ * which carries it over to the following requests of the same client; outside of a request it
+ * is kept for the current thread.
+ */
+public class ReadYourWrites {
+
+    /**
+     * The cookie holding the time of the last write of a client, in milliseconds since the epoch.
+     */
+    public static final String COOKIE = "library-last-write";
+
+    private static final String ATTRIBUTE = ReadYourWrites.class.getName() + ".lastWrite";
+
+    private final ThreadLocal<Long> threadLastWrite = new ThreadLocal<>();
+
+    /**
+     * How long clients keep the cookie, in seconds.
+     */
+    private final int cookieMaxAgeSeconds;
+
+    /**
+     * Constructs a new ReadYourWrites handing out cookies that last the given time.
+     * @param cookieMaxAgeSeconds How long clients keep the time of their last write, in seconds.
+     */
+    public ReadYourWrites(int cookieMaxAgeSeconds) {
+        this.cookieMaxAgeSeconds = cookieMaxAgeSeconds;
+    }
+
+    /**
+     * Records that the current session committed a write at the given time.
+     * @param time The time of the write, in milliseconds since the epoch.
+     */
+    public void recordWrite(long time) {
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null) {
+            threadLastWrite.set(time);
+            return;
+        }
+        attributes.setAttribute(ATTRIBUTE, time, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(time));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(cookieMaxAgeSeconds);
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * Returns the time of the last write of the current session.
+     * @return The time in milliseconds since the epoch, or 0 if the session has not written.
+     */
+    public long lastWrite() {
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null) {
+            Long time = threadLastWrite.get();
+            return time == null ? 0 : time;
+        }
+        Object recorded = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (recorded != null) {
+            return (Long) recorded;
+        }
+        Cookie[] cookies = attributes.getRequest().getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        // A tampered cookie is ignored rather than failing the request
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes ? attributes : null;
+    }
+}
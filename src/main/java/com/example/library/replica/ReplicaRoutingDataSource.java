@@ -0,0 +1,158 @@
+package com.example.library.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The ReplicaRoutingDataSource class hands out connections to the primary database, or to one of
+ * its read replicas for read-only transactions.
+ * Replicas are picked in turn, skipping those that lag too far behind and those that have not yet
+ * caught up with the last write of the current session (see {@link ReadYourWrites}); when none
+ * qualifies the primary is used. The lag is measured with a heartbeat: {@link #heartbeat()} writes
+ * the current time to the primary, and reads back from each replica the last time it received.
+ * The decision is taken when the connection is obtained, so this data source must be wrapped in a
+ * LazyConnectionDataSourceProxy that obtains it once the transaction is set up.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final HikariDataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final ReadYourWrites readYourWrites;
+
+    /**
+     * The longest a replica may lag behind the primary and still serve reads.
+     */
+    private final long maxLagMillis;
+
+    private final JdbcTemplate primaryTemplate;
+
+    private final List<JdbcTemplate> replicaTemplates;
+
+    /**
+     * The last heartbeat read from each replica, or 0 until it has been read.
+     */
+    private final AtomicLongArray beats;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructs a new ReplicaRoutingDataSource over the given databases.
+     * Replicas serve no reads until their heartbeat has been read once.
+     * @param primary The primary database, receiving every write.
+     * @param replicas The read replicas of the primary.
+     * @param readYourWrites The tracker of the last write of each session.
+     * @param maxLagMillis The longest a replica may lag behind and still serve reads.
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    ReadYourWrites readYourWrites, long maxLagMillis) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        this.maxLagMillis = maxLagMillis;
+        this.primaryTemplate = new JdbcTemplate(primary);
+        this.replicaTemplates = this.replicas.stream().map(JdbcTemplate::new).toList();
+        this.beats = new AtomicLongArray(this.replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return select().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return select().getConnection(username, password);
+    }
+
+    /**
+     * Writes a heartbeat to the primary and reads back the last one received by each replica.
+     * A replica that cannot be read is left out until it answers again.
+     */
+    public void heartbeat() {
+        primaryTemplate.update("update replication_heartbeat set beat = ? where id = 1", System.currentTimeMillis());
+        for (int i = 0; i < replicaTemplates.size(); i++) {
+            try {
+                Long beat = replicaTemplates.get(i).queryForObject("select beat from replication_heartbeat where id = 1", Long.class);
+                beats.set(i, beat == null ? 0 : beat);
+            } catch (DataAccessException e) {
+                if (beats.getAndSet(i, 0) != 0) {
+                    log.warn("Replica {} left out of reads: {}", replicas.get(i).getPoolName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how far a replica lags behind, as of its last heartbeat.
+     * @param index The position of the replica.
+     * @return The lag in milliseconds, or -1 if the heartbeat of the replica has not been read.
+     */
+    public long lagMillis(int index) {
+        long beat = beats.get(index);
+        return beat == 0 ? -1 : Math.max(0, System.currentTimeMillis() - beat);
+    }
+
+    /**
+     * Returns the number of replicas.
+     * @return The number of replicas.
+     */
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Closes the connection pools of the replicas; the primary is left to its owner.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Picks the data source of the next connection: a replica for read-only transactions if one
+     * qualifies, or the primary, in which case a committed read-write transaction is recorded as a write.
+     */
+    private DataSource select() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        readYourWrites.recordWrite(System.currentTimeMillis());
+                    }
+                });
+            }
+            return primary;
+        }
+        long lastWrite = readYourWrites.lastWrite();
+        long oldestBeat = System.currentTimeMillis() - maxLagMillis;
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = Math.floorMod(start + i, replicas.size());
+            long beat = beats.get(index);
+            // The heartbeat is written after the session's write has committed only if its time is later
+            if (beat > lastWrite && beat >= oldestBeat) {
+                return replicas.get(index);
+            }
+        }
+        return primary;
+    }
+}
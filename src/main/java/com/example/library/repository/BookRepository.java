@@ -1,21 +1,87 @@
 package com.example.library.repository;
 
 import com.example.library.model.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The BookRepository interface provides access to the database for Book entities.
- * It extends the JpaRepository interface, which provides basic CRUD operations.
+ * It extends the JpaRepository interface, which provides basic CRUD operations,
+ * and BookRepositoryCustom, which provides the stock updates.
  */
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     /**
      * Retrieves a book by its ISBN.
+     * The result is kept in the query cache until the books table changes.
      * @param isbn The ISBN of the book to retrieve.
      * @return An Optional containing the book with the given ISBN, or empty if not found.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Book> findByIsbn(String isbn);
-}
 
+    /**
+     * Retrieves which of the given ISBNs already belong to a book, in a single query.
+     * @param isbns The ISBNs to look up.
+     * @return The ISBNs that are already in use.
+     */
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Retrieves the books with an ID greater than the given cursor, ordered by ID.
+     * @param id The cursor; only books with a greater ID are returned.
+     * @param limit The maximum number of books to return.
+     * @return A list with at most {@code limit} books following the cursor.
+     */
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Streams all books ordered by ID, fetching rows from the database in chunks.
+     * The stream must be consumed and closed inside a transaction, and bypasses the
+     * second-level cache so that a full scan does not evict the frequently read books.
+     * @return A stream over all books.
+     */
+    @Query("select b from Book b order by b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Book> streamAll();
+
+    /**
+     * Streams the ID and quantity of all books ordered by ID, without loading the entities.
+     * The stream must be consumed and closed inside a transaction.
+     * @return A stream over the stock of all books.
+     */
+    @Query("select b.id as id, b.quantity as quantity from Book b order by b.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Stock> streamStock();
+
+    /**
+     * The Stock interface is the projection of a book read to check the availability table.
+     */
+    interface Stock {
+
+        /**
+         * @return The ID of the book.
+         */
+        Long getId();
+
+        /**
+         * @return The number of copies in stock.
+         */
+        int getQuantity();
+    }
+}
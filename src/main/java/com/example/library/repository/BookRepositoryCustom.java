@@ -0,0 +1,41 @@
+package com.example.library.repository;
+
+import java.util.List;
+
+/**
+ * The BookRepositoryCustom interface declares the stock updates of BookRepository,
+ * which are run as plain SQL so that only the affected book is evicted from the second-level cache.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Takes one copy of a book out of stock if at least one is available.
+     * The check and the decrement happen in a single conditional update, so concurrent
+     * reservations can never take the quantity below zero.
+     * @param id The ID of the book to reserve.
+     * @return 1 if a copy was reserved, or 0 if the book does not exist or has no copies left.
+     */
+    int reserveCopy(Long id);
+
+    /**
+     * Puts one copy of a book back in stock.
+     * @param id The ID of the book to release.
+     * @return 1 if the copy was released, or 0 if the book does not exist.
+     */
+    int releaseCopy(Long id);
+
+    /**
+     * Takes one copy of each of the given books out of stock, in a single batch of conditional updates.
+     * A book given several times has several copies reserved.
+     * @param ids The IDs of the books to reserve, best sorted so that concurrent batches lock them in the same order.
+     * @return For each ID in order, 1 if a copy was reserved, or 0 if the book does not exist or has no copies left.
+     */
+    int[] reserveCopies(List<Long> ids);
+
+    /**
+     * Puts one copy of each of the given books back in stock, in a single batch of updates.
+     * @param ids The IDs of the books to release, best sorted so that concurrent batches lock them in the same order.
+     * @return For each ID in order, 1 if the copy was released, or 0 if the book does not exist.
+     */
+    int[] releaseCopies(List<Long> ids);
+}
@@ -0,0 +1,98 @@
+package com.example.library.repository;
+
+import com.example.library.model.Book;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * The BookRepositoryCustomImpl class implements the stock updates of BookRepository.
+ * A JPQL bulk update would invalidate the whole "books" cache region on every loan,
+ * so the updates are run through JDBC and only the updated book is evicted instead.
+ * Each update bumps the version of the book, so its entity tag changes with its stock.
+ * The batch variants rely on the driver reporting the row count of every statement of a batch,
+ * which the H2 and PostgreSQL drivers do.
+ */
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final String RESERVE = "update loan_books set quantity = quantity - 1, version = version + 1, updated_at = current_timestamp "
+            + "where id = ? and quantity > 0";
+
+    private static final String RELEASE = "update loan_books set quantity = quantity + 1, version = version + 1, updated_at = current_timestamp "
+            + "where id = ?";
+
+    /**
+     * The template used to run the updates on the connection of the current transaction.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The entity manager factory owning the second-level cache.
+     */
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public int reserveCopy(Long id) {
+        int updated = jdbcTemplate.update(RESERVE, id);
+        evict(id, updated);
+        return updated;
+    }
+
+    @Override
+    public int releaseCopy(Long id) {
+        int updated = jdbcTemplate.update(RELEASE, id);
+        evict(id, updated);
+        return updated;
+    }
+
+    @Override
+    public int[] reserveCopies(List<Long> ids) {
+        return batchUpdate(RESERVE, ids);
+    }
+
+    @Override
+    public int[] releaseCopies(List<Long> ids) {
+        return batchUpdate(RELEASE, ids);
+    }
+
+    /**
+     * Runs an update once for each of the given books, in a single JDBC batch.
+     */
+    private int[] batchUpdate(String sql, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new int[0];
+        }
+        int[] updated = jdbcTemplate.batchUpdate(sql, ids.stream().map(id -> new Object[]{id}).toList());
+        for (int i = 0; i < ids.size(); i++) {
+            evict(ids.get(i), updated[i]);
+        }
+        return updated;
+    }
+
+    /**
+     * Evicts the updated book from the second-level cache.
+     * The book is evicted again once the transaction commits, so that a copy cached by a
+     * concurrent reader before the commit is not served afterwards.
+     */
+    private void evict(Long id, int updated) {
+        if (updated == 0) {
+            return;
+        }
+        entityManagerFactory.getCache().evict(Book.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManagerFactory.getCache().evict(Book.class, id);
+                }
+            });
+        }
+    }
+}
@@ -1,11 +1,158 @@
 package com.example.library.repository;
 
 import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The LoanRepository interface provides access to the database for Loan entities.
- * It extends the JpaRepository interface, which provides basic CRUD operations.
+ * It extends the JpaRepository interface, which provides basic CRUD operations,
+ * and LoanRepositoryCustom, which provides the batch updates.
  */
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
+
+    /**
+     * The constructor expression building a LoanView from a loan {@code l}, its user {@code u} and its book {@code b}.
+     */
+    String VIEW = "new com.example.library.model.LoanView(l.id, u.id, u.name, b.id, b.title, l.startDate, l.endDate, l.finalized, l.overdue)";
+
+    /**
+     * Retrieves a loan by its ID together with its user and book, in a single query.
+     * @param id The ID of the loan to retrieve.
+     * @return An Optional containing the loan with the given ID, or empty if not found.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"user", "book"})
+    Optional<Loan> findById(Long id);
+
+    /**
+     * Retrieves all loans together with their users and books, in a single query.
+     * @return A list of all loans.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"user", "book"})
+    List<Loan> findAll();
+
+    /**
+     * Retrieves the views of the loans with an ID greater than the given cursor, ordered by ID.
+     * The user and book columns are read in the same query.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return A list with at most {@code limit} loan views following the cursor.
+     */
+    @Query("select " + VIEW + " from Loan l join l.user u join l.book b where l.id > :id order by l.id")
+    List<LoanView> findViewsByIdGreaterThan(@Param("id") Long id, Limit limit);
+
+    /**
+     * Retrieves the views of the active or finalized loans of a user with an ID greater than the given cursor, ordered by ID.
+     * The range is read from the index on (user_id, finalized, id).
+     * @param userId The ID of the user.
+     * @param finalized Whether to return the finalized loans rather than the active ones.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return A list with at most {@code limit} loan views of the user following the cursor.
+     */
+    @Query("select " + VIEW + " from Loan l join l.user u join l.book b"
+            + " where u.id = :userId and l.finalized = :finalized and l.id > :id order by l.id")
+    List<LoanView> findUserViewsByFinalized(@Param("userId") Long userId, @Param("finalized") boolean finalized,
+                                            @Param("id") Long id, Limit limit);
+
+    /**
+     * Retrieves the views of all loans of a user with an ID greater than the given cursor, ordered by ID.
+     * @param userId The ID of the user.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return A list with at most {@code limit} loan views of the user following the cursor.
+     */
+    @Query("select " + VIEW + " from Loan l join l.user u join l.book b where u.id = :userId and l.id > :id order by l.id")
+    List<LoanView> findUserViews(@Param("userId") Long userId, @Param("id") Long id, Limit limit);
+
+    /**
+     * Streams the views of all loans ordered by ID, fetching rows from the database in chunks.
+     * The stream must be consumed and closed inside a transaction.
+     * @return A stream over the views of all loans.
+     */
+    @Query("select " + VIEW + " from Loan l join l.user u join l.book b order by l.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LoanView> streamAllViews();
+
+    /**
+     * Retrieves the views of the active overdue loans with an ID greater than the given cursor, ordered by ID.
+     * @param id The cursor; only loans with a greater ID are returned.
+     * @param limit The maximum number of loans to return.
+     * @return A list with at most {@code limit} overdue loan views following the cursor.
+     */
+    @Query("select " + VIEW + " from Loan l join l.user u join l.book b"
+            + " where l.finalized = false and l.overdue = true and l.id > :id order by l.id")
+    List<LoanView> findOverdueViewsByIdGreaterThan(@Param("id") Long id, Limit limit);
+
+    /**
+     * Retrieves the active loans not yet flagged as overdue that ended before the given date,
+     * following the given (end date, ID) cursor in that order. The range is read from the index
+     * on (finalized, overdue, end_date), so each chunk only touches the rows it returns, and
+     * loans flagged by earlier sweeps are not read again.
+     * @param today The date before which loans are overdue.
+     * @param endDate The end date of the cursor.
+     * @param id The ID of the cursor.
+     * @param limit The maximum number of loans to return.
+     * @return A list with at most {@code limit} loans following the cursor.
+     */
+    @Query("select l.id as id, l.endDate as endDate from Loan l"
+            + " where l.finalized = false and l.overdue = false and l.endDate < :today"
+            + " and (l.endDate > :endDate or (l.endDate = :endDate and l.id > :id))"
+            + " order by l.endDate, l.id")
+    List<OverdueCandidate> findOverdueCandidates(@Param("today") LocalDate today, @Param("endDate") LocalDate endDate,
+                                                 @Param("id") Long id, Limit limit);
+
+    /**
+     * Flags the given loans as overdue in a single statement.
+     * Loans finalized or extended since they were read are left untouched.
+     * @param ids The IDs of the loans to flag.
+     * @param today The date before which loans are overdue.
+     * @return The number of loans flagged.
+     */
+    @Modifying
+    @Query("update Loan l set l.overdue = true"
+            + " where l.id in :ids and l.finalized = false and l.overdue = false and l.endDate < :today")
+    int markOverdue(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today);
+
+    /**
+     * Marks a loan as finalized if it is still active.
+     * Only one of several concurrent calls for the same loan can succeed.
+     * @param id The ID of the loan to finalize.
+     * @return 1 if the loan was finalized by this call, or 0 if it was already finalized or does not exist.
+     */
+    @Modifying
+    @Query("update Loan l set l.finalized = true where l.id = :id and l.finalized = false")
+    int markFinalized(@Param("id") Long id);
+
+    /**
+     * The OverdueCandidate interface is the projection of a loan read by the overdue sweep.
+     */
+    interface OverdueCandidate {
+
+        /**
+         * @return The ID of the loan.
+         */
+        Long getId();
+
+        /**
+         * @return The end date of the loan.
+         */
+        LocalDate getEndDate();
+    }
 }
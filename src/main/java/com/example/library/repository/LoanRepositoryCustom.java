@@ -0,0 +1,18 @@
+package com.example.library.repository;
+
+import java.util.List;
+
+/**
+ * The LoanRepositoryCustom interface declares the batch updates of LoanRepository,
+ * which are run as plain SQL so that each loan gets its own row count.
+ */
+public interface LoanRepositoryCustom {
+
+    /**
+     * Marks each of the given loans as finalized if it is still active, in a single batch of updates.
+     * Only one of several concurrent calls for the same loan can succeed.
+     * @param ids The IDs of the loans to finalize, best sorted so that concurrent batches lock them in the same order.
+     * @return For each ID in order, 1 if the loan was finalized by this call, or 0 if it was already finalized or does not exist.
+     */
+    int[] markAllFinalized(List<Long> ids);
+}
@@ -0,0 +1,26 @@
+package com.example.library.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * The LoanRepositoryCustomImpl class implements the batch updates of LoanRepository.
+ * A JPQL update cannot be batched nor report which of its rows it changed, so the updates
+ * are run through a JDBC batch on the connection of the current transaction instead.
+ */
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] markAllFinalized(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate("update loan set finalized = true where id = ? and finalized = false",
+                ids.stream().map(id -> new Object[]{id}).toList());
+    }
+}
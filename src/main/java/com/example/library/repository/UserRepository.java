@@ -1,15 +1,25 @@
 package com.example.library.repository;
 
 import com.example.library.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The UserRepository interface provides access to the database for User entities.
- * It extends the JpaRepository interface, which provides basic CRUD operations.
+ * It extends the JpaRepository interface, which provides basic CRUD operations,
+ * and UserRepositoryCustom, which provides the updates of the active loan counters.
  */
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     /**
      * Finds a user by their email address.
@@ -19,4 +29,47 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findUserByEmail(String email);
 
+    /**
+     * Finds which of the given email addresses already belong to a user, in a single query.
+     *
+     * @param emails the email addresses to look up
+     * @return the email addresses that are already in use
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Finds the users with an ID greater than the given cursor, ordered by ID.
+     *
+     * @param id    the cursor; only users with a greater ID are returned
+     * @param limit the maximum number of users to return
+     * @return a list with at most {@code limit} users following the cursor
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Finds the IDs of the users with an ID greater than the given cursor, ordered by ID.
+     *
+     * @param id    the cursor; only users with a greater ID are returned
+     * @param limit the maximum number of IDs to return
+     * @return a list with at most {@code limit} user IDs following the cursor
+     */
+    @Query("select u.id from User u where u.id > :id order by u.id")
+    List<Long> findIdsAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * Streams all users ordered by ID, fetching rows from the database in chunks.
+     * The stream must be consumed and closed inside a transaction, and bypasses the
+     * second-level cache so that a full scan does not evict the frequently read entries.
+     *
+     * @return a stream over all users
+     */
+    @Query("select u from User u order by u.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<User> streamAll();
+
 }
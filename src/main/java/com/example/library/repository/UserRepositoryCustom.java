@@ -0,0 +1,38 @@
+package com.example.library.repository;
+
+import java.util.List;
+
+/**
+ * The UserRepositoryCustom interface declares the updates of the active loan counters of UserRepository,
+ * which are run as plain SQL so that only the affected users are evicted from the second-level cache.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Counts new active loans of a user if they stay within the limit.
+     * The check and the increment happen in a single conditional update, so concurrent
+     * checkouts can never take the user over the limit.
+     * @param id The ID of the user.
+     * @param count The number of new loans.
+     * @param limit The highest number of active loans the user may have.
+     * @return 1 if the loans were counted, or 0 if the user does not exist or would exceed the limit.
+     */
+    int reserveLoans(Long id, int count, int limit);
+
+    /**
+     * Uncounts one active loan of each of the given users, in a single batch of updates.
+     * A user given several times has several loans uncounted.
+     * @param ids The IDs of the users, best sorted so that concurrent batches lock them in the same order.
+     * @return For each ID in order, 1 if a loan was uncounted, or 0 if the user does not exist or has no active loans.
+     */
+    int[] releaseLoans(List<Long> ids);
+
+    /**
+     * Sets the active loan counter of each of the given users to their number of active loans.
+     * The users are locked first, so that the loans of checkouts and returns still in progress are
+     * counted once they commit; this must run in a transaction.
+     * @param ids The IDs of the users to check.
+     * @return The number of users whose counter was wrong.
+     */
+    int reconcileActiveLoans(List<Long> ids);
+}
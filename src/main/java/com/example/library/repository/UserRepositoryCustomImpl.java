@@ -0,0 +1,88 @@
+package com.example.library.repository;
+
+import com.example.library.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The UserRepositoryCustomImpl class implements the updates of the active loan counters of UserRepository.
+ * Like the stock updates of BookRepositoryCustomImpl, they are run through JDBC and only evict the
+ * updated users. Each update bumps the version of the user, so its entity tag changes with its counter
+ * and an update of the user loaded before cannot write back a stale counter.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String ACTIVE_LOANS = "(select count(*) from loan l where l.user_id = loan_users.id and l.finalized = false)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public int reserveLoans(Long id, int count, int limit) {
+        int updated = jdbcTemplate.update("update loan_users set active_loan_count = active_loan_count + :count, "
+                        + "version = version + 1, updated_at = current_timestamp where id = :id and active_loan_count + :count <= :limit",
+                Map.of("id", id, "count", count, "limit", limit));
+        evict(id, updated);
+        return updated;
+    }
+
+    @Override
+    public int[] releaseLoans(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new int[0];
+        }
+        int[] updated = jdbcTemplate.getJdbcTemplate().batchUpdate("update loan_users set active_loan_count = active_loan_count - 1, "
+                        + "version = version + 1, updated_at = current_timestamp where id = ? and active_loan_count > 0",
+                ids.stream().map(id -> new Object[]{id}).toList());
+        for (int i = 0; i < ids.size(); i++) {
+            evict(ids.get(i), updated[i]);
+        }
+        return updated;
+    }
+
+    @Override
+    public int reconcileActiveLoans(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<Long>> parameters = Map.of("ids", ids);
+        // Waits for the checkouts and returns holding these users, whose loans the count below then sees
+        jdbcTemplate.queryForList("select id from loan_users where id in (:ids) for update", parameters, Long.class);
+        int updated = jdbcTemplate.update("update loan_users set active_loan_count = " + ACTIVE_LOANS + ", "
+                + "version = version + 1, updated_at = current_timestamp where id in (:ids) and active_loan_count <> " + ACTIVE_LOANS, parameters);
+        if (updated > 0) {
+            for (Long id : ids) {
+                evict(id, updated);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Evicts the updated user from the second-level cache, again once the transaction completes.
+     */
+    private void evict(Long id, int updated) {
+        if (updated == 0) {
+            return;
+        }
+        entityManagerFactory.getCache().evict(User.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManagerFactory.getCache().evict(User.class, id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.library.search;
+
+import com.example.library.model.BookHit;
+import com.example.library.model.SearchPage;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The BookIndex class maintains an inverted index over the title and author of every book.
+ * Text is split into words, lower-cased and folded to ASCII, so "García" matches "garcia".
+ * Every word of a query must match the title or the author, either exactly or as a prefix,
+ * and results are ranked with BM25, exact words and titles weighing more than prefixes and authors.
+ * Changes become visible to searches within a second; they are made durable by {@link #commit()}.
+ */
+public class BookIndex implements Closeable {
+
+    static final String ID = "id";
+
+    static final String ISBN = "isbn";
+
+    /**
+     * The ISBN as given, returned with the hits; the indexed ISBN is normalized.
+     */
+    static final String STORED_ISBN = "isbn_stored";
+
+    static final String TITLE = "title";
+
+    static final String AUTHOR = "author";
+
+    /**
+     * The key of the commit data holding the ID of the last change to the catalog recorded before
+     * the index was rebuilt.
+     */
+    static final String REBUILT_AT = "rebuiltAt";
+
+    /**
+     * Words shorter than this are only matched exactly, as their prefixes match too many words.
+     */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * The longest a change may take to become visible to searches, in seconds.
+     */
+    private static final double MAX_STALE_SECONDS = 1.0;
+
+    private static final Pattern ISBN_PATTERN = Pattern.compile("[0-9Xx-]{10,17}");
+
+    private final Directory directory;
+
+    private final Analyzer analyzer = new BookAnalyzer();
+
+    private final IndexWriter writer;
+
+    private final SearcherManager searcherManager;
+
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    /**
+     * Opens the index stored in the given directory, creating it if it does not exist.
+     * @param directory The directory holding the index.
+     * @throws IOException if the index cannot be opened.
+     */
+    public BookIndex(Directory directory) throws IOException {
+        this.directory = directory;
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, MAX_STALE_SECONDS, 0.0);
+        reopenThread.setName("book-index-refresh");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    /**
+     * Adds a book to the index, or replaces it if it is already indexed.
+     * @param id The ID of the book.
+     * @param isbn The ISBN of the book.
+     * @param title The title of the book.
+     * @param author The author of the book.
+     */
+    public void update(Long id, String isbn, String title, String author) {
+        Document document = new Document();
+        document.add(new StringField(ID, id.toString(), Field.Store.YES));
+        document.add(new StringField(ISBN, normalizeIsbn(isbn), Field.Store.NO));
+        document.add(new TextField(TITLE, title, Field.Store.YES));
+        document.add(new TextField(AUTHOR, author, Field.Store.YES));
+        document.add(new StoredField(STORED_ISBN, isbn));
+        try {
+            writer.updateDocument(new Term(ID, id.toString()), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     * @param id The ID of the book.
+     */
+    public void delete(Long id) {
+        try {
+            writer.deleteDocuments(new Term(ID, id.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the IDs of the books in the index, as of the last refresh.
+     * @return The IDs of the indexed books, in increasing order.
+     */
+    public long[] ids() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                IndexReader reader = searcher.getIndexReader();
+                Bits liveDocs = MultiBits.getLiveDocs(reader);
+                StoredFields storedFields = searcher.storedFields();
+                Set<String> fields = Set.of(ID);
+                long[] ids = new long[reader.numDocs()];
+                int count = 0;
+                for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        ids[count++] = Long.parseLong(storedFields.document(doc, fields).get(ID));
+                    }
+                }
+                Arrays.sort(ids);
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of books in the index, as of the last refresh.
+     * @return The number of indexed books.
+     */
+    public int size() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes every change so far durable on disk.
+     */
+    public void commit() {
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes every change so far durable on disk, recording that the index was rebuilt from the
+     * catalog as of the given change.
+     * @param rebuiltAt The ID of the last change to the catalog recorded before the rebuild.
+     */
+    public void commit(long rebuiltAt) {
+        writer.setLiveCommitData(Map.of(REBUILT_AT, Long.toString(rebuiltAt)).entrySet());
+        commit();
+    }
+
+    /**
+     * Returns the ID of the last change to the catalog recorded before the index was last rebuilt.
+     * @return The ID of the change, or -1 if the index was never rebuilt.
+     */
+    public long rebuiltAt() {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (REBUILT_AT.equals(entry.getKey())) {
+                    return Long.parseLong(entry.getValue());
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes every change so far visible to searches, waiting if needed.
+     */
+    public void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Searches the books matching the given text.
+     * @param text The words to search for; an ISBN also matches the book with that ISBN.
+     * @param offset The number of results to skip.
+     * @param limit The maximum number of results to return.
+     * @return The page of matching books, most relevant first.
+     */
+    public SearchPage<BookHit> search(String text, int offset, int limit) {
+        Query query = buildQuery(text);
+        if (query == null) {
+            return new SearchPage<>(List.of(), 0, null);
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, offset + limit);
+                StoredFields storedFields = searcher.storedFields();
+                List<BookHit> hits = new ArrayList<>(limit);
+                for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    Document document = storedFields.document(scoreDoc.doc);
+                    hits.add(new BookHit(Long.valueOf(document.get(ID)), document.get(STORED_ISBN),
+                            document.get(TITLE), document.get(AUTHOR), scoreDoc.score));
+                }
+                long total = topDocs.totalHits.value;
+                int next = offset + hits.size();
+                Integer nextOffset = hits.size() == limit && next < total && next <= SearchPage.MAX_OFFSET ? next : null;
+                return new SearchPage<>(hits, total, nextOffset);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        analyzer.close();
+        directory.close();
+    }
+
+    /**
+     * Builds the query for the given text: every word must match the title or the author.
+     * Returns null if the text has no words.
+     */
+    private Query buildQuery(String text) {
+        List<String> words = analyze(text);
+        if (words.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder allWords = new BooleanQuery.Builder();
+        for (String word : words) {
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            addWord(anyField, TITLE, word, 2.0f);
+            addWord(anyField, AUTHOR, word, 1.0f);
+            allWords.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        String trimmed = text.trim();
+        if (!ISBN_PATTERN.matcher(trimmed).matches()) {
+            return allWords.build();
+        }
+        return new BooleanQuery.Builder()
+                .add(new BoostQuery(new TermQuery(new Term(ISBN, normalizeIsbn(trimmed))), 10.0f), BooleanClause.Occur.SHOULD)
+                .add(allWords.build(), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    private static void addWord(BooleanQuery.Builder builder, String field, String word, float boost) {
+        builder.add(new BoostQuery(new TermQuery(new Term(field, word)), 2 * boost), BooleanClause.Occur.SHOULD);
+        if (word.length() >= MIN_PREFIX_LENGTH) {
+            builder.add(new BoostQuery(new PrefixQuery(new Term(field, word)), boost), BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    /**
+     * Splits the text into words the same way the indexed fields are.
+     */
+    private List<String> analyze(String text) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    private static String normalizeIsbn(String isbn) {
+        return isbn.replace("-", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Tokenizes text into words, lower-cased and folded to ASCII.
+     */
+    private static final class BookAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
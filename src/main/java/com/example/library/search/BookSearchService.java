@@ -0,0 +1,278 @@
+package com.example.library.search;
+
+import com.example.library.config.TimedService;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.BookHit;
+import com.example.library.model.SearchPage;
+import com.example.library.service.BookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The BookSearchService class provides full-text search over the catalog.
+ * It keeps a BookIndex in the local filesystem up to date with every committed change to the
+ * books, and commits it to disk periodically. At startup, the index is rebuilt from the database
+ * unless no change to the catalog has been recorded in the change log since its last rebuild.
+ * The rebuild replaces the books in place, so searches keep finding every book while it runs.
+ */
+@Service
+@TimedService
+public class BookSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchService.class);
+
+    private static final String LAST_CHANGE = "select coalesce(max(id), 0) from change_log";
+
+    private static final String FIRST_CHANGE = "select min(id) from change_log";
+
+    private static final String CATALOG_CHANGES_AFTER = "select id from change_log "
+            + "where id > ? and entity_type = 'BOOK' and operation <> 'STOCK' fetch first 1 rows only";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The directory holding the index.
+     */
+    @Value("${library.search.index-path:search-index}")
+    private Path indexPath;
+
+    /**
+     * Whether the index is rebuilt from the database at startup.
+     */
+    @Value("${library.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private BookIndex index;
+
+    /**
+     * Serializes the books written by a rebuild with the changes applied meanwhile. It is a lock
+     * rather than a monitor, as index writes may flush segments to disk, which would pin the
+     * carrier of a virtual thread waiting for a monitor.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Lets a single rebuild run at a time.
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * The IDs of the books changed since the running rebuild started, null if none is running;
+     * guarded by the lock.
+     */
+    private Set<Long> changedDuringRebuild;
+
+    /**
+     * Opens the index.
+     *
+     * @throws IOException if the index cannot be opened
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        index = new BookIndex(FSDirectory.open(indexPath));
+    }
+
+    /**
+     * Commits and closes the index.
+     *
+     * @throws IOException if the index cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        index.commit();
+        index.close();
+    }
+
+    /**
+     * Searches the catalog for books whose title or author match the given text.
+     *
+     * @param text   the words to search for, each matched as a whole word or as a prefix
+     * @param offset the number of results to skip
+     * @param limit  the maximum number of results in the page
+     * @return the page of matching books, most relevant first
+     * @throws InvalidDataException if the text is blank or the offset or limit are out of range
+     */
+    public SearchPage<BookHit> search(String text, int offset, int limit) {
+        if (text == null || text.isBlank()) {
+            throw new InvalidDataException("Search text is required");
+        }
+        if (limit <= 0 || limit > SearchPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + SearchPage.MAX_LIMIT);
+        }
+        if (offset < 0 || offset > SearchPage.MAX_OFFSET) {
+            throw new InvalidDataException("Offset must be between 0 and " + SearchPage.MAX_OFFSET);
+        }
+        return index.search(text, offset, limit);
+    }
+
+    /**
+     * Applies a change to a book once its transaction has committed, or right away outside a transaction.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event.getId());
+            }
+            if (event.isDeleted()) {
+                index.delete(event.getId());
+            } else {
+                index.update(event.getId(), event.getIsbn(), event.getTitle(), event.getAuthor());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database once the application has started, if enabled and
+     * the index is not current.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            if (isCurrent()) {
+                log.info("Search index is current with {} books, not rebuilt", index.size());
+            } else {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from every book in the database, streaming them in ID order.
+     * Every book read is written over its previous version, and the books no longer in the database
+     * are removed as the stream passes them, so the index is never emptied. A book changed while the
+     * rebuild runs is left as {@link #onBookChanged} wrote it, rather than overwritten with the row
+     * read before the change.
+     *
+     * @return the number of books indexed
+     */
+    public int rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            long rebuiltAt = jdbcTemplate.queryForObject(LAST_CHANGE, Long.class);
+            index.refresh();
+            long[] ids = index.ids();
+            Set<Long> changed = new HashSet<>();
+            setChangedDuringRebuild(changed);
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger count = new AtomicInteger();
+            try {
+                bookService.streamAll(book -> {
+                    lock.lock();
+                    try {
+                        removeUntil(ids, next, book.getId(), changed);
+                        if (!changed.contains(book.getId())) {
+                            index.update(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor());
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    count.incrementAndGet();
+                });
+                lock.lock();
+                try {
+                    removeUntil(ids, next, Long.MAX_VALUE, changed);
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                setChangedDuringRebuild(null);
+            }
+            index.commit(rebuiltAt);
+            index.refresh();
+            log.info("Search index rebuilt with {} books in {} ms", count.get(), (System.nanoTime() - start) / 1_000_000);
+            return count.get();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void setChangedDuringRebuild(Set<Long> changed) {
+        lock.lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the changes to the index durable on disk every 30 seconds by default.
+     * Changes lost in a crash are restored by the rebuild at startup.
+     */
+    @Scheduled(fixedDelayString = "${library.search.commit-interval-ms:30000}")
+    public void commit() {
+        index.commit();
+    }
+
+    /**
+     * Makes every change so far visible to searches, waiting if needed.
+     */
+    public void refresh() {
+        index.refresh();
+    }
+
+    /**
+     * Checks whether the committed index holds every book in the database, and no change to the
+     * catalog has been recorded since it was rebuilt, nor purged from the change log.
+     */
+    private boolean isCurrent() {
+        long rebuiltAt = index.rebuiltAt();
+        if (rebuiltAt < 0) {
+            return false;
+        }
+        Long firstChange = jdbcTemplate.queryForObject(FIRST_CHANGE, Long.class);
+        if (firstChange == null ? rebuiltAt > 0 : firstChange > rebuiltAt + 1) {
+            return false;
+        }
+        long books = jdbcTemplate.queryForObject("select count(*) from loan_books", Long.class);
+        return books == index.size() && jdbcTemplate.queryForList(CATALOG_CHANGES_AFTER, Long.class, rebuiltAt).isEmpty();
+    }
+
+    /**
+     * Removes from the index the books of the sorted IDs, from the next one up to the given ID
+     * excluded, unless they were changed during the rebuild, and skips the given ID.
+     */
+    private void removeUntil(long[] ids, AtomicInteger next, long id, Set<Long> changed) {
+        int i = next.get();
+        while (i < ids.length && ids[i] < id) {
+            if (!changed.contains(ids[i])) {
+                index.delete(ids[i]);
+            }
+            i++;
+        }
+        if (i < ids.length && ids[i] == id) {
+            i++;
+        }
+        next.set(i);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.library.service;
+
+import com.example.library.config.TimedService;
+import com.example.library.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * The ActiveLoanReconciliationService class checks the active loan counters of the users against
+ * their loans and corrects the ones that drifted, for instance after loans were changed directly
+ * in the database.
+ * The job walks the users by ID in fixed-size chunks and corrects each chunk with a single update
+ * in its own short transaction, like the overdue sweep. Each run records the
+ * {@code library.loans.reconcile} metrics.
+ */
+@Service
+@TimedService
+public class ActiveLoanReconciliationService {
+
+    /**
+     * Number of users checked per transaction.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Reconciles the counters once a day by default, after the overdue sweep.
+     * The schedule can be changed with the {@code library.loans.reconcile-cron} property.
+     */
+    @Scheduled(cron = "${library.loans.reconcile-cron:0 35 0 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Sets the active loan counter of every user to their number of active loans.
+     *
+     * @return the number of users whose counter was corrected
+     */
+    public int reconcile() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long id = 0L;
+        int scanned = 0;
+        int corrected = 0;
+        List<Long> chunk;
+        do {
+            chunk = userRepository.findIdsAfter(id, Limit.of(CHUNK_SIZE));
+            scanned += chunk.size();
+            if (!chunk.isEmpty()) {
+                List<Long> ids = chunk;
+                Integer updated = transactionTemplate.execute(status -> userRepository.reconcileActiveLoans(ids));
+                corrected += updated != null ? updated : 0;
+                id = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+        meterRegistry.counter("library.loans.reconcile.scanned").increment(scanned);
+        meterRegistry.counter("library.loans.reconcile.corrected").increment(corrected);
+        sample.stop(meterRegistry.timer("library.loans.reconcile"));
+        return corrected;
+    }
+}
@@ -1,36 +1,119 @@
 package com.example.library.service;
 
+import com.example.library.config.TimedService;
+import com.example.library.event.BookChangedEvent;
 import com.example.library.exception.BookAlreadyExistsException;
 import com.example.library.exception.BookNotFoundException;
 import com.example.library.exception.InvalidDataException;
+import com.example.library.exception.VersionMismatchException;
 import com.example.library.model.Book;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.CursorPage;
 import com.example.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * The BookService class provides business logic for managing Book entities.
  * It handles operations such as finding, saving, updating, and deleting books.
  */
 @Service
+@TimedService
 public class BookService {
 
+    /**
+     * Number of streamed books after which the persistence context is cleared.
+     */
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
+    /**
+     * Number of rows imported per transaction in bulk imports.
+     */
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * Number of attempts to import a chunk that races with concurrent inserts of the same ISBN.
+     */
+    private static final int IMPORT_CHUNK_ATTEMPTS = 3;
+
+    /**
+     * Name of the unique constraint on the ISBN of books.
+     */
+    private static final String ISBN_CONSTRAINT = "uk_loan_books_isbn";
+
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Retrieves all books from the database.
      *
      * @return a list of all books
      */
+    @Transactional(readOnly = true)
     public List<Book> findAll() {
         return bookRepository.findAll();
     }
 
+    /**
+     * Retrieves a page of books ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of books in the page
+     * @return the page of books
+     * @throws InvalidDataException if the limit is out of range
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Book> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(limit));
+        return CursorPage.of(books, limit, Book::getId);
+    }
+
+    /**
+     * Streams all books ordered by ID to the given consumer.
+     * Books are read in chunks and detached once consumed, so memory use does not grow with the table.
+     *
+     * @param consumer the consumer receiving each book
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            Iterator<Book> iterator = books.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
     /**
      * Finds a book by its ID.
      *
@@ -38,12 +121,27 @@ public class BookService {
      * @return the book if found
      * @throws BookNotFoundException if the book is not found
      */
+    @Transactional(readOnly = true)
     public Book findById(Long id) {
         return bookRepository.findById(id).orElseThrow(() -> new BookNotFoundException("Book not found."));
     }
 
+    /**
+     * Finds a book by its ISBN.
+     *
+     * @param isbn the ISBN of the book to find
+     * @return the book if found
+     * @throws BookNotFoundException if the book is not found
+     */
+    @Transactional(readOnly = true)
+    public Book findByIsbn(String isbn) {
+        return bookRepository.findByIsbn(isbn).orElseThrow(() -> new BookNotFoundException("Book not found."));
+    }
+
     /**
      * Saves a new book to the database.
+     * Duplicates are detected by the unique constraint on the ISBN, so the book is stored
+     * in a single round-trip without looking it up first.
      *
      * @param isbn     the ISBN of the book
      * @param title    the title of the book
@@ -53,14 +151,50 @@ public class BookService {
      * @throws InvalidDataException      if the provided data is invalid
      * @throws BookAlreadyExistsException if a book with the same ISBN already exists
      */
+    @Transactional
     public Book save(String isbn, String title, String author, int quantity) {
         validateData(isbn, title, author, quantity);
-        Optional<Book> optionalBook = bookRepository.findByIsbn(isbn);
-        if (optionalBook.isPresent()) {
-            throw new BookAlreadyExistsException("Book already exists");
+        try {
+            Book book = bookRepository.saveAndFlush(new Book(isbn, title, author, quantity));
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+            return book;
+        } catch (DataIntegrityViolationException e) {
+            if (isIsbnViolation(e)) {
+                throw new BookAlreadyExistsException("Book already exists");
+            }
+            throw e;
         }
+    }
 
-        return bookRepository.save(new Book(isbn, title, author, quantity));
+    /**
+     * Imports books in bulk from rows with isbn, title, author, and quantity fields.
+     * Rows are processed in chunks, each in its own transaction: duplicates are detected with
+     * one lookup per chunk and the new books are inserted in JDBC batches.
+     *
+     * @param rows the reader over the rows to import
+     * @return the report with the result of every row
+     * @throws InvalidDataException if the input is malformed; chunks imported before the error are kept
+     */
+    public BulkImportReport importBooks(BulkRowReader rows) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Map<String, String>> chunk;
+        while (!(chunk = rows.nextChunk(IMPORT_CHUNK_SIZE)).isEmpty()) {
+            List<Map<String, String>> chunkRows = chunk;
+            int offset = results.size();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    results.addAll(transactionTemplate.execute(status -> importChunk(chunkRows, offset)));
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent insert took one of the ISBNs after the lookup; the next attempt will see it
+                    if (attempt == IMPORT_CHUNK_ATTEMPTS || !isIsbnViolation(e)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        return new BulkImportReport(results);
     }
 
     /**
@@ -75,25 +209,55 @@ public class BookService {
      * @throws BookNotFoundException     if the book to update is not found
      * @throws InvalidDataException      if the provided data is invalid
      * @throws BookAlreadyExistsException if a book with the same ISBN already exists
+     * @throws VersionMismatchException  if the book is modified concurrently
      */
+    @Transactional
     public Book update(Long id, String isbn, String title, String author, int quantity) {
+        return update(id, null, isbn, title, author, quantity);
+    }
+
+    /**
+     * Updates an existing book in the database, provided it is still at the expected version.
+     * The version is checked again when the change is written, so a concurrent change made in
+     * between is never overwritten.
+     *
+     * @param id              the ID of the book to update
+     * @param expectedVersion the version the book must be at, or null to update any version
+     * @param isbn            the new ISBN of the book
+     * @param title           the new title of the book
+     * @param author          the new author of the book
+     * @param quantity        the new quantity of the book
+     * @return the updated book
+     * @throws BookNotFoundException     if the book to update is not found
+     * @throws InvalidDataException      if the provided data is invalid
+     * @throws BookAlreadyExistsException if a book with the same ISBN already exists
+     * @throws VersionMismatchException  if the book is not at the expected version or is modified concurrently
+     */
+    @Transactional
+    public Book update(Long id, Long expectedVersion, String isbn, String title, String author, int quantity) {
         Book book = findById(id);
         if (book != null) {
-            validateData(isbn, title, author, quantity);
-            Optional<Book> optionalBook = bookRepository.findByIsbn(isbn);
-            if (optionalBook.isPresent()) {
-                Book auxBook = optionalBook.get();
-                if (!Objects.equals(book.getId(), id)) {
-                    throw new BookAlreadyExistsException("Book already exists with the same ISBN");
-                }
+            if (expectedVersion != null && book.getVersion() != expectedVersion) {
+                throw new VersionMismatchException("Book was modified since version " + expectedVersion);
             }
-
+            validateData(isbn, title, author, quantity);
             book.setIsbn(isbn);
             book.setTitle(title);
             book.setAuthor(author);
             book.setQuantity(quantity);
 
-            return bookRepository.save(book);
+            try {
+                Book updatedBook = bookRepository.saveAndFlush(book);
+                eventPublisher.publishEvent(BookChangedEvent.saved(updatedBook));
+                return updatedBook;
+            } catch (DataIntegrityViolationException e) {
+                if (isIsbnViolation(e)) {
+                    throw new BookAlreadyExistsException("Book already exists with the same ISBN");
+                }
+                throw e;
+            } catch (OptimisticLockingFailureException e) {
+                throw new VersionMismatchException("Book was modified concurrently");
+            }
         } else {
             throw new BookNotFoundException("Book not found.");
         }
@@ -105,15 +269,94 @@ public class BookService {
      * @param id the ID of the book to delete
      * @throws BookNotFoundException if the book to delete is not found
      */
+    @Transactional
     public void delete(Long id) {
         Book book = bookRepository.findById(id).orElse(null);
         if (book != null) {
             bookRepository.delete(book);
+            eventPublisher.publishEvent(BookChangedEvent.deleted(id));
         } else {
             throw new BookNotFoundException("Book not found.");
         }
     }
 
+    /**
+     * Imports one chunk of book rows.
+     *
+     * @param rows   the rows of the chunk
+     * @param offset the position of the first row of the chunk in the whole import
+     * @return the result of every row of the chunk, in input order
+     */
+    private List<BulkItemResult> importChunk(List<Map<String, String>> rows, int offset) {
+        BulkItemResult[] results = new BulkItemResult[rows.size()];
+        Map<String, Integer> rowsByIsbn = new HashMap<>();
+        List<Book> candidates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> row = rows.get(i);
+            try {
+                int quantity = parseQuantity(row.get("quantity"));
+                validateData(row.get("isbn"), row.get("title"), row.get("author"), quantity);
+                Book book = new Book(row.get("isbn"), row.get("title"), row.get("author"), quantity);
+                if (rowsByIsbn.putIfAbsent(book.getIsbn(), i) == null) {
+                    candidates.add(book);
+                } else {
+                    results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.DUPLICATE, null, "Duplicate ISBN in request");
+                }
+            } catch (InvalidDataException e) {
+                results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.INVALID, null, e.getMessage());
+            }
+        }
+
+        Set<String> existingIsbns = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(bookRepository.findExistingIsbns(rowsByIsbn.keySet()));
+        List<Book> newBooks = new ArrayList<>(candidates.size());
+        for (Book book : candidates) {
+            if (existingIsbns.contains(book.getIsbn())) {
+                int i = rowsByIsbn.get(book.getIsbn());
+                results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.DUPLICATE, null, "Book already exists");
+            } else {
+                newBooks.add(book);
+            }
+        }
+
+        bookRepository.saveAll(newBooks);
+        bookRepository.flush();
+        for (Book book : newBooks) {
+            int i = rowsByIsbn.get(book.getIsbn());
+            results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.CREATED, book.getId(), null);
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        }
+        entityManager.clear();
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Checks whether a data integrity violation was caused by the unique constraint on the ISBN.
+     *
+     * @param e the data integrity violation
+     * @return true if the ISBN is already used by another book
+     */
+    private boolean isIsbnViolation(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(ISBN_CONSTRAINT);
+    }
+
+    /**
+     * Parses the quantity of an imported book.
+     *
+     * @param quantity the textual quantity
+     * @return the parsed quantity
+     * @throws InvalidDataException if the quantity is not a number
+     */
+    private int parseQuantity(String quantity) {
+        try {
+            return quantity == null ? 0 : Integer.parseInt(quantity.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Quantity must be a number");
+        }
+    }
+
     /**
      * Verifies the validity of book data.
      *
@@ -0,0 +1,212 @@
+package com.example.library.service;
+
+import com.example.library.exception.InvalidDataException;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The BulkRowReader class reads the rows of a bulk import from a JSON array or a CSV document.
+ * Rows are parsed lazily and handed out in chunks, so arbitrarily large inputs can be imported
+ * without holding them in memory. Each row is a map from field name to its textual value.
+ */
+public abstract class BulkRowReader {
+
+    /**
+     * The media type of CSV documents.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * The number of rows read so far.
+     */
+    private int rowsRead;
+
+    /**
+     * Creates a reader for the given content type: CSV for {@code text/csv}, JSON otherwise.
+     *
+     * @param contentType  the content type of the input
+     * @param inputStream  the input containing the rows
+     * @param objectMapper the mapper used to parse JSON input
+     * @return the reader over the rows of the input
+     */
+    public static BulkRowReader forContentType(String contentType, InputStream inputStream, ObjectMapper objectMapper) {
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(TEXT_CSV_VALUE)) {
+            return csv(inputStream);
+        }
+        return json(inputStream, objectMapper);
+    }
+
+    /**
+     * Creates a reader for a JSON array of objects.
+     *
+     * @param inputStream  the input containing the JSON array
+     * @param objectMapper the mapper used to parse each object
+     * @return the reader over the objects of the array
+     */
+    public static BulkRowReader json(InputStream inputStream, ObjectMapper objectMapper) {
+        return new JsonRowReader(inputStream, objectMapper);
+    }
+
+    /**
+     * Creates a reader for a CSV document whose first line holds the field names.
+     *
+     * @param inputStream the input containing the CSV document
+     * @return the reader over the records of the document
+     */
+    public static BulkRowReader csv(InputStream inputStream) {
+        return new CsvRowReader(inputStream);
+    }
+
+    /**
+     * Reads the next chunk of rows.
+     *
+     * @param size the maximum number of rows in the chunk
+     * @return the rows read, or an empty list once the input is exhausted
+     * @throws InvalidDataException if the input is malformed
+     */
+    public List<Map<String, String>> nextChunk(int size) {
+        List<Map<String, String>> chunk = new ArrayList<>(size);
+        try {
+            Map<String, String> row;
+            while (chunk.size() < size && (row = nextRow()) != null) {
+                chunk.add(row);
+            }
+        } catch (JacksonException e) {
+            throw new InvalidDataException("Malformed input after row " + (rowsRead + chunk.size()) + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rowsRead += chunk.size();
+        return chunk;
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return the next row, or null once the input is exhausted
+     * @throws IOException if the input cannot be read
+     */
+    protected abstract Map<String, String> nextRow() throws IOException;
+
+    /**
+     * Reads the objects of a JSON array one at a time.
+     */
+    private static final class JsonRowReader extends BulkRowReader {
+
+        private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {
+        };
+
+        private final InputStream inputStream;
+
+        private final ObjectMapper objectMapper;
+
+        private JsonParser parser;
+
+        private JsonRowReader(InputStream inputStream, ObjectMapper objectMapper) {
+            this.inputStream = inputStream;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected Map<String, String> nextRow() throws IOException {
+            if (parser == null) {
+                parser = objectMapper.createParser(inputStream);
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new InvalidDataException("Expected a JSON array");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new InvalidDataException("Expected a JSON object at position " + parser.currentLocation().getCharOffset());
+            }
+            Map<String, Object> values = parser.readValueAs(ROW_TYPE);
+            Map<String, String> row = new HashMap<>();
+            values.forEach((key, value) -> row.put(key, value == null ? null : value.toString()));
+            return row;
+        }
+    }
+
+    /**
+     * Reads the records of a CSV document one line at a time.
+     * Fields may be quoted, with doubled quotes standing for a literal quote.
+     */
+    private static final class CsvRowReader extends BulkRowReader {
+
+        private final BufferedReader reader;
+
+        private List<String> header;
+
+        private CsvRowReader(InputStream inputStream) {
+            this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected Map<String, String> nextRow() throws IOException {
+            if (header == null) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                header = parseLine(line.startsWith("\uFEFF") ? line.substring(1) : line);
+            }
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            List<String> fields = parseLine(line);
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i).trim(), i < fields.size() ? fields.get(i) : null);
+            }
+            return row;
+        }
+
+        /**
+         * Splits a CSV line into its fields.
+         */
+        private static List<String> parseLine(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,25 +1,57 @@
 package com.example.library.service;
 
+import com.example.library.config.TimedService;
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.event.StockChangedEvent;
 import com.example.library.exception.*;
 import com.example.library.model.Book;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.BulkLoanReport;
+import com.example.library.model.CursorPage;
 import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
 import com.example.library.model.User;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.LoanRepository;
 import com.example.library.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * The LoanService class provides business logic for managing Loan entities.
  * It handles operations such as finding, saving, updating, and deleting loans.
+ * Every change is published as a LoanChangedEvent, which the audit trail records.
+ * The active loans of every user are counted on the user as they are created and finalized,
+ * so the borrowing limit is checked with a single conditional update rather than a count of
+ * their loans. Stock is always reserved before the user is counted, so that concurrent
+ * checkouts lock the rows of books and users in the same order.
  */
 @Service
+@TimedService
 public class LoanService {
 
+    /**
+     * The largest number of books or loans in a batch, which matches the JDBC batch size and the
+     * allocation size of the loan IDs so that a batch is inserted in a single round-trip.
+     */
+    public static final int MAX_BATCH_SIZE = 50;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -29,28 +61,103 @@ public class LoanService {
     @Autowired
     private LoanRepository loanRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
-     * Retrieves all loans from the database.
+     * The highest number of active loans a user may have.
+     */
+    @Value("${library.loans.max-active-per-user:10}")
+    private int maxActiveLoans;
+
+    /**
+     * Retrieves all loans from the database, together with their users and books.
      *
      * @return a list of all loans
      */
+    @Transactional(readOnly = true)
     public List<Loan> findAll() {
         return loanRepository.findAll();
     }
 
     /**
-     * Finds a loan by its ID.
+     * Retrieves a page of loan views ordered by ID, starting after the given cursor.
+     * The page is read with a single query, whatever its size.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of loans in the page
+     * @return the page of loan views
+     * @throws InvalidDataException if the limit is out of range
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LoanView> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        List<LoanView> loans = loanRepository.findViewsByIdGreaterThan(after == null ? 0L : after, Limit.of(limit));
+        return CursorPage.of(loans, limit, LoanView::getId);
+    }
+
+    /**
+     * Retrieves a page of the loans of a user ordered by ID, starting after the given cursor.
+     * The page is read with a single query on the index of the loans by user, status and ID;
+     * the user is only looked up when the page is empty, to tell an unknown user apart.
+     *
+     * @param userId the ID of the user
+     * @param status which loans to return: active, returned or all
+     * @param after  the ID after which the page starts, or null to start from the beginning
+     * @param limit  the maximum number of loans in the page
+     * @return the page of loan views
+     * @throws InvalidDataException  if the status is unknown or the limit is out of range
+     * @throws UserNotFoundException if the user is not found
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LoanView> findUserPage(Long userId, String status, Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        long cursor = after == null ? 0L : after;
+        List<LoanView> loans = switch (status == null ? "" : status.toLowerCase()) {
+            case "active" -> loanRepository.findUserViewsByFinalized(userId, false, cursor, Limit.of(limit));
+            case "returned" -> loanRepository.findUserViewsByFinalized(userId, true, cursor, Limit.of(limit));
+            case "all" -> loanRepository.findUserViews(userId, cursor, Limit.of(limit));
+            default -> throw new InvalidDataException("Status must be active, returned or all");
+        };
+        if (loans.isEmpty() && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException("User not found");
+        }
+        return CursorPage.of(loans, limit, LoanView::getId);
+    }
+
+    /**
+     * Streams the views of all loans ordered by ID to the given consumer.
+     * Views are not managed entities, so memory use does not grow with the table.
+     *
+     * @param consumer the consumer receiving each loan view
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<LoanView> consumer) {
+        try (Stream<LoanView> loans = loanRepository.streamAllViews()) {
+            loans.forEach(consumer);
+        }
+    }
+
+    /**
+     * Finds a loan by its ID, together with its user and book.
      *
      * @param id the ID of the loan to find
      * @return the loan if found
      * @throws LoanNotFoundException if the loan is not found
      */
+    @Transactional(readOnly = true)
     public Loan findById(Long id) {
         return loanRepository.findById(id).orElseThrow(() -> new LoanNotFoundException("Loan not found"));
     }
 
     /**
-     * Saves a new loan to the database.
+     * Saves a new loan to the database, taking one copy of the book out of stock.
+     * The copy is reserved with a single conditional update, so concurrent loans of the
+     * same book never lend more copies than are available.
      *
      * @param userId    the ID of the user borrowing the book
      * @param bookId    the ID of the book being borrowed
@@ -60,30 +167,164 @@ public class LoanService {
      * @throws UserNotFoundException        if the user is not found
      * @throws BookNotFoundException        if the book is not found
      * @throws NoBookAvailableException     if the book is not available for loan
+     * @throws LoanLimitExceededException   if the user already has as many active loans as allowed
      * @throws InconsistentDatesException   if the start date is after the end date
      */
+    @Transactional
     public Loan save(Long userId, Long bookId, LocalDate startDate, LocalDate endDate) {
         User user = userRepository.findById(userId).orElse(null);
         if(user != null) {
-            Book book = bookRepository.findById(bookId).orElse(null);
-            if(book != null) {
-                if (book.getQuantity() >=1) {
-                    if(startDate.isBefore(endDate)) {
-                        return loanRepository.save(new Loan(user, book, startDate, endDate));
+            if(startDate.isBefore(endDate)) {
+                if(bookRepository.reserveCopy(bookId) == 1) {
+                    eventPublisher.publishEvent(StockChangedEvent.reserved(bookId));
+                    countLoans(userId, 1);
+                    Book book = bookRepository.findById(bookId).orElseThrow(() -> new BookNotFoundException("Book not found"));
+                    Loan loan = new Loan(user, book, startDate, endDate);
+                    Loan savedLoan = loanRepository.save(loan);
+                    eventPublisher.publishEvent(LoanChangedEvent.of(LoanChangedEvent.Type.CREATED, loan));
+                    return savedLoan;
+                } else if(bookRepository.findById(bookId).isPresent()) {
+                    throw new NoBookAvailableException("No book available");
+                } else {
+                    throw new BookNotFoundException("Book not found");
+                }
+            } else {
+                throw new InconsistentDatesException("Start date must be before end date");
+            }
+        } else {
+            throw new UserNotFoundException("User not found");
+        }
+    }
+
+    /**
+     * Lends several books to a user at once, in a single transaction.
+     * The user is read once, the books with a single query, the copies are reserved with a single
+     * batch of conditional updates and the loans are inserted with a single batch, so a checkout of
+     * up to {@value #MAX_BATCH_SIZE} books costs the same number of round-trips whatever its size.
+     * Every book gets its own result: a book that is missing or out of stock is rejected without
+     * failing the others. The borrowing limit applies to the batch as a whole, which is rejected
+     * if the books lent would take the user over it.
+     *
+     * @param userId    the ID of the user borrowing the books
+     * @param bookIds   the IDs of the books being borrowed, one loan per entry
+     * @param startDate the start date of the loans
+     * @param endDate   the end date of the loans
+     * @return the report holding the result of every book, with the ID of its loan if created
+     * @throws InvalidDataException       if no books, too many books or no dates are given
+     * @throws UserNotFoundException      if the user is not found
+     * @throws LoanLimitExceededException if the books lent would exceed the borrowing limit of the user
+     * @throws InconsistentDatesException if the start date is after the end date
+     */
+    @Transactional
+    public BulkLoanReport checkout(Long userId, List<Long> bookIds, LocalDate startDate, LocalDate endDate) {
+        checkBatch(bookIds, "books");
+        if(startDate == null || endDate == null) {
+            throw new InvalidDataException("Start and end dates are required");
+        }
+        User user = userRepository.findById(userId).orElse(null);
+        if(user != null) {
+            if(startDate.isBefore(endDate)) {
+                Map<Long, Book> books = new HashMap<>();
+                for (Book book : bookRepository.findAllById(new HashSet<>(bookIds))) {
+                    books.put(book.getId(), book);
+                }
+                BulkItemResult[] results = new BulkItemResult[bookIds.size()];
+                List<Integer> candidates = new ArrayList<>();
+                for (int i = 0; i < bookIds.size(); i++) {
+                    Long bookId = bookIds.get(i);
+                    if(!books.containsKey(bookId)) {
+                        results[i] = new BulkItemResult(i, BulkItemResult.Status.NOT_FOUND, null, "Book not found");
                     } else {
-                        throw new InconsistentDatesException("Start date must be before end date");
+                        candidates.add(i);
                     }
-                } else {
-                    throw new NoBookAvailableException("No book available");
                 }
+                // Reserved in the order of the book IDs, so that concurrent batches lock the rows in the same order
+                candidates.sort(Comparator.comparing(bookIds::get));
+                int[] reserved = bookRepository.reserveCopies(candidates.stream().map(bookIds::get).toList());
+                List<Integer> lent = new ArrayList<>();
+                List<Loan> loans = new ArrayList<>();
+                for (int j = 0; j < candidates.size(); j++) {
+                    int i = candidates.get(j);
+                    if(reserved[j] == 1) {
+                        eventPublisher.publishEvent(StockChangedEvent.reserved(bookIds.get(i)));
+                        lent.add(i);
+                        loans.add(new Loan(user, books.get(bookIds.get(i)), startDate, endDate));
+                    } else {
+                        results[i] = new BulkItemResult(i, BulkItemResult.Status.UNAVAILABLE, null, "No book available");
+                    }
+                }
+                if(!loans.isEmpty()) {
+                    countLoans(userId, loans.size());
+                }
+                loanRepository.saveAll(loans);
+                for (int k = 0; k < loans.size(); k++) {
+                    Loan loan = loans.get(k);
+                    results[lent.get(k)] = new BulkItemResult(lent.get(k), BulkItemResult.Status.CREATED, loan.getId(), null);
+                    eventPublisher.publishEvent(LoanChangedEvent.of(LoanChangedEvent.Type.CREATED, loan));
+                }
+                return new BulkLoanReport(Arrays.asList(results));
             } else {
-                throw new BookNotFoundException("Book not found");
+                throw new InconsistentDatesException("Start date must be before end date");
             }
         } else {
             throw new UserNotFoundException("User not found");
         }
     }
 
+    /**
+     * Returns several loans at once, in a single transaction.
+     * The loans are read with a single query, finalized with a single batch of conditional updates,
+     * and their copies put back in stock and their users uncounted with a batch each. Every loan gets its own result:
+     * returning a loan already finalized has no further effect, as with {@link #delete(Long)},
+     * and a missing loan is rejected without failing the others.
+     *
+     * @param loanIds the IDs of the loans being returned
+     * @return the report holding the result of every loan
+     * @throws InvalidDataException if no loans or too many loans are given
+     */
+    @Transactional
+    public BulkLoanReport returnLoans(List<Long> loanIds) {
+        checkBatch(loanIds, "loans");
+        Map<Long, Loan> loans = new HashMap<>();
+        for (Loan loan : loanRepository.findAllById(new HashSet<>(loanIds))) {
+            loans.put(loan.getId(), loan);
+        }
+        BulkItemResult[] results = new BulkItemResult[loanIds.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < loanIds.size(); i++) {
+            Loan loan = loans.get(loanIds.get(i));
+            if(loan == null) {
+                results[i] = new BulkItemResult(i, BulkItemResult.Status.NOT_FOUND, null, "Loan not found");
+            } else {
+                results[i] = new BulkItemResult(i, BulkItemResult.Status.RETURNED, loan.getId(), null);
+                if(!loan.isFinalized()) {
+                    candidates.add(i);
+                }
+            }
+        }
+        // Finalized and released in the order of the IDs, so that concurrent batches lock the rows in the same order
+        candidates.sort(Comparator.comparing(loanIds::get));
+        int[] finalized = loanRepository.markAllFinalized(candidates.stream().map(loanIds::get).toList());
+        List<Loan> returned = new ArrayList<>();
+        for (int j = 0; j < candidates.size(); j++) {
+            if(finalized[j] == 1) {
+                returned.add(loans.get(loanIds.get(candidates.get(j))));
+            }
+        }
+        List<Long> bookIds = returned.stream().map(loan -> loan.getBook().getId()).sorted().toList();
+        int[] released = bookRepository.releaseCopies(bookIds);
+        for (int j = 0; j < bookIds.size(); j++) {
+            if(released[j] == 1) {
+                eventPublisher.publishEvent(StockChangedEvent.released(bookIds.get(j)));
+            }
+        }
+        userRepository.releaseLoans(returned.stream().map(Loan::getUser).filter(Objects::nonNull).map(User::getId).sorted().toList());
+        for (Loan loan : returned) {
+            eventPublisher.publishEvent(LoanChangedEvent.returned(loan));
+        }
+        return new BulkLoanReport(Arrays.asList(results));
+    }
+
     /**
      * Updates an existing loan in the database.
      *
@@ -96,8 +337,11 @@ public class LoanService {
      * @throws LoanNotFoundException      if the loan to update is not found
      * @throws UserNotFoundException      if the user is not found
      * @throws BookNotFoundException      if the book is not found
+     * @throws NoBookAvailableException   if the loan moves to a book that is not available
+     * @throws LoanLimitExceededException if the loan moves to a user who already has as many active loans as allowed
      * @throws InconsistentDatesException if the start date is after the end date
      */
+    @Transactional
     public Loan update(Long id, Long userId, Long bookId, LocalDate startDate, LocalDate endDate) {
         Loan loan = loanRepository.findById(id).orElse(null);
         if(loan != null) {
@@ -106,15 +350,31 @@ public class LoanService {
                 Book book = bookRepository.findById(bookId).orElse(null);
                 if(book != null) {
                     if(startDate.isBefore(endDate)) {
+                        Long previousBookId = loan.getBook() != null ? loan.getBook().getId() : null;
+                        Long previousUserId = loan.getUser() != null ? loan.getUser().getId() : null;
+                        if(!loan.isFinalized() && !Objects.equals(previousBookId, bookId)) {
+                            moveCopy(previousBookId, bookId);
+                        }
+                        if(!loan.isFinalized() && !Objects.equals(previousUserId, userId)) {
+                            countLoans(userId, 1);
+                            if(previousUserId != null) {
+                                userRepository.releaseLoans(List.of(previousUserId));
+                            }
+                        }
                         loan.setUser(user);
                         loan.setBook(book);
                         loan.setStartDate(startDate);
                         loan.setEndDate(endDate);
-                        return loanRepository.save(loan);
+                        if(!endDate.isBefore(LocalDate.now())) {
+                            loan.setOverdue(false);
+                        }
+                        Loan updatedLoan = loanRepository.save(loan);
+                        eventPublisher.publishEvent(LoanChangedEvent.of(LoanChangedEvent.Type.UPDATED, loan));
+                        return updatedLoan;
                     } else {
                         throw new InconsistentDatesException("Start date must be before end date");
                     }
-                } {
+                } else {
                     throw new BookNotFoundException("Book not found");
                 }
             } else {
@@ -127,18 +387,81 @@ public class LoanService {
 
     /**
      * Deletes a loan from the database.
+     * The loan is marked as finalized and its copy is put back in stock; finalizing
+     * an already finalized loan has no further effect.
      *
      * @param id the ID of the loan to delete
      * @throws LoanNotFoundException if the loan to delete is not found
      */
+    @Transactional
     public void delete(Long id) {
         Loan loan = loanRepository.findById(id).orElse(null);
         if(loan != null) {
-            loan.setFinalized(true);
-            loanRepository.save(loan);
+            if(!loan.isFinalized() && loanRepository.markFinalized(id) == 1) {
+                release(loan.getBook().getId());
+                if(loan.getUser() != null) {
+                    userRepository.releaseLoans(List.of(loan.getUser().getId()));
+                }
+                eventPublisher.publishEvent(LoanChangedEvent.returned(loan));
+            }
         } else {
             throw new LoanNotFoundException("Loan not found");
         }
     }
 
+    /**
+     * Checks that a batch holds between 1 and {@value #MAX_BATCH_SIZE} IDs.
+     *
+     * @param ids  the IDs of the batch
+     * @param what what the IDs stand for, for the error message
+     * @throws InvalidDataException if the batch is empty, too large or holds a null ID
+     */
+    private void checkBatch(List<Long> ids, String what) {
+        if(ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE || ids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidDataException("Between 1 and " + MAX_BATCH_SIZE + " " + what + " must be given");
+        }
+    }
+
+    /**
+     * Counts new active loans of a user, within the borrowing limit.
+     *
+     * @param userId the ID of the user, known to exist
+     * @param count  the number of new loans
+     * @throws LoanLimitExceededException if the user would have more active loans than allowed
+     */
+    private void countLoans(Long userId, int count) {
+        if(userRepository.reserveLoans(userId, count, maxActiveLoans) != 1) {
+            throw new LoanLimitExceededException("User cannot have more than " + maxActiveLoans + " active loans");
+        }
+    }
+
+    /**
+     * Moves the copy held by an active loan from one book to another.
+     * The new copy is reserved before the previous one is released.
+     *
+     * @param previousBookId the ID of the book currently held, or null if none
+     * @param bookId         the ID of the book to reserve
+     * @throws NoBookAvailableException if the new book has no copies left
+     */
+    private void moveCopy(Long previousBookId, Long bookId) {
+        if(bookRepository.reserveCopy(bookId) != 1) {
+            throw new NoBookAvailableException("No book available");
+        }
+        eventPublisher.publishEvent(StockChangedEvent.reserved(bookId));
+        if(previousBookId != null) {
+            release(previousBookId);
+        }
+    }
+
+    /**
+     * Puts a copy of a book back in stock.
+     *
+     * @param bookId the ID of the book
+     */
+    private void release(Long bookId) {
+        if(bookRepository.releaseCopy(bookId) == 1) {
+            eventPublisher.publishEvent(StockChangedEvent.released(bookId));
+        }
+    }
+
 }
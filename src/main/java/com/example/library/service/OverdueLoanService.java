@@ -0,0 +1,108 @@
+package com.example.library.service;
+
+import com.example.library.config.TimedService;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.CursorPage;
+import com.example.library.model.LoanView;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.LoanRepository.OverdueCandidate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The OverdueLoanService class finds the active loans past their end date and flags them as overdue.
+ * The sweep walks the index on (finalized, overdue, end_date) in fixed-size chunks and flags each chunk
+ * with a single update in its own short transaction, so memory use is bounded and live traffic
+ * is never blocked for long. Each sweep records the {@code library.overdue.sweep} metrics.
+ */
+@Service
+@TimedService
+public class OverdueLoanService {
+
+    /**
+     * Number of loans read and flagged per transaction.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    /**
+     * Start of the (end date, ID) cursor, before any end date.
+     */
+    private static final LocalDate FIRST_END_DATE = LocalDate.of(1, 1, 1);
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Retrieves a page of active overdue loans ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of loans in the page
+     * @return the page of overdue loan views
+     * @throws InvalidDataException if the limit is out of range
+     */
+    public CursorPage<LoanView> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        List<LoanView> loans = loanRepository.findOverdueViewsByIdGreaterThan(after == null ? 0L : after, Limit.of(limit));
+        return CursorPage.of(loans, limit, LoanView::getId);
+    }
+
+    /**
+     * Flags the loans that became overdue, once a day by default.
+     * The schedule can be changed with the {@code library.overdue.cron} property.
+     */
+    @Scheduled(cron = "${library.overdue.cron:0 5 0 * * *}")
+    public void scheduledSweep() {
+        sweep(LocalDate.now());
+    }
+
+    /**
+     * Flags as overdue every active loan whose end date is before the given date.
+     *
+     * @param today the date before which loans are overdue
+     * @return the number of loans flagged by this sweep
+     */
+    public int sweep(LocalDate today) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDate endDate = FIRST_END_DATE;
+        long id = 0L;
+        int scanned = 0;
+        int flagged = 0;
+        List<OverdueCandidate> chunk;
+        do {
+            chunk = loanRepository.findOverdueCandidates(today, endDate, id, Limit.of(CHUNK_SIZE));
+            scanned += chunk.size();
+            List<Long> ids = chunk.stream().map(OverdueCandidate::getId).toList();
+            if (!ids.isEmpty()) {
+                Integer updated = transactionTemplate.execute(status -> loanRepository.markOverdue(ids, today));
+                flagged += updated != null ? updated : 0;
+            }
+            if (!chunk.isEmpty()) {
+                OverdueCandidate last = chunk.get(chunk.size() - 1);
+                endDate = last.getEndDate();
+                id = last.getId();
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+        meterRegistry.counter("library.overdue.sweep.scanned").increment(scanned);
+        meterRegistry.counter("library.overdue.sweep.flagged").increment(flagged);
+        sample.stop(meterRegistry.timer("library.overdue.sweep"));
+        return flagged;
+    }
+}
@@ -1,36 +1,119 @@
 package com.example.library.service;
 
+import com.example.library.config.TimedService;
+import com.example.library.event.UserChangedEvent;
 import com.example.library.exception.InvalidDataException;
 import com.example.library.exception.UserAlreadyExistsException;
 import com.example.library.exception.UserNotFoundException;
+import com.example.library.exception.VersionMismatchException;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.CursorPage;
 import com.example.library.model.User;
 import com.example.library.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * The UserService class provides business logic for managing User entities.
  * It handles operations such as finding, saving, updating, and deleting users.
  */
 @Service
+@TimedService
 public class UserService {
 
+    /**
+     * Number of streamed users after which the persistence context is cleared.
+     */
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
+    /**
+     * Number of rows imported per transaction in bulk imports.
+     */
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * Number of attempts to import a chunk that races with concurrent inserts of the same email.
+     */
+    private static final int IMPORT_CHUNK_ATTEMPTS = 3;
+
+    /**
+     * Name of the unique constraint on the email of users.
+     */
+    private static final String EMAIL_CONSTRAINT = "uk_loan_users_email";
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Retrieves all users from the database.
      *
      * @return a list of all users
      */
+    @Transactional(readOnly = true)
     public List<User> findAll() {
         return userRepository.findAll();
     }
 
+    /**
+     * Retrieves a page of users ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID after which the page starts, or null to start from the beginning
+     * @param limit the maximum number of users in the page
+     * @return the page of users
+     * @throws InvalidDataException if the limit is out of range
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findPage(Long after, int limit) {
+        if (limit <= 0 || limit > CursorPage.MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + CursorPage.MAX_LIMIT);
+        }
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(limit));
+        return CursorPage.of(users, limit, User::getId);
+    }
+
+    /**
+     * Streams all users ordered by ID to the given consumer.
+     * Users are read in chunks and detached once consumed, so memory use does not grow with the table.
+     *
+     * @param consumer the consumer receiving each user
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<User> consumer) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            Iterator<User> iterator = users.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
     /**
      * Finds a user by their ID.
      *
@@ -38,12 +121,15 @@ public class UserService {
      * @return the user if found
      * @throws UserNotFoundException if the user is not found
      */
+    @Transactional(readOnly = true)
     public User findById(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new UserNotFoundException("User not found"));
     }
 
     /**
      * Saves a new user to the database.
+     * Duplicates are detected by the unique constraint on the email, so the user is stored
+     * in a single round-trip without looking it up first.
      *
      * @param name  the name of the user
      * @param email the email of the user
@@ -51,13 +137,50 @@ public class UserService {
      * @throws InvalidDataException      if the provided data is invalid
      * @throws UserAlreadyExistsException if a user with the same email already exists
      */
+    @Transactional
     public User save(String name, String email) {
         validateData(name, email);
-        Optional<User> user = userRepository.findUserByEmail(email);
-        if (user.isPresent()) {
-            throw new UserAlreadyExistsException("User already exists with same email");
+        try {
+            User user = userRepository.saveAndFlush(new User(name, email));
+            eventPublisher.publishEvent(UserChangedEvent.saved(user));
+            return user;
+        } catch (DataIntegrityViolationException e) {
+            if (isEmailViolation(e)) {
+                throw new UserAlreadyExistsException("User already exists with same email");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Imports users in bulk from rows with name and email fields.
+     * Rows are processed in chunks, each in its own transaction: duplicates are detected with
+     * one lookup per chunk and the new users are inserted in JDBC batches.
+     *
+     * @param rows the reader over the rows to import
+     * @return the report with the result of every row
+     * @throws InvalidDataException if the input is malformed; chunks imported before the error are kept
+     */
+    public BulkImportReport importUsers(BulkRowReader rows) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Map<String, String>> chunk;
+        while (!(chunk = rows.nextChunk(IMPORT_CHUNK_SIZE)).isEmpty()) {
+            List<Map<String, String>> chunkRows = chunk;
+            int offset = results.size();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    results.addAll(transactionTemplate.execute(status -> importChunk(chunkRows, offset)));
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent insert took one of the emails after the lookup; the next attempt will see it
+                    if (attempt == IMPORT_CHUNK_ATTEMPTS || !isEmailViolation(e)) {
+                        throw e;
+                    }
+                }
+            }
         }
-        return userRepository.save(new User(name, email));
+        return new BulkImportReport(results);
     }
 
     /**
@@ -70,21 +193,50 @@ public class UserService {
      * @throws UserNotFoundException     if the user to update is not found
      * @throws InvalidDataException      if the provided data is invalid
      * @throws UserAlreadyExistsException if a user with the same email already exists
+     * @throws VersionMismatchException  if the user is modified concurrently
      */
+    @Transactional
     public User update(Long id, String name, String email) {
+        return update(id, null, name, email);
+    }
+
+    /**
+     * Updates an existing user in the database, provided it is still at the expected version.
+     * The version is checked again when the change is written, so a concurrent change made in
+     * between is never overwritten.
+     *
+     * @param id              the ID of the user to update
+     * @param expectedVersion the version the user must be at, or null to update any version
+     * @param name            the new name of the user
+     * @param email           the new email of the user
+     * @return the updated user
+     * @throws UserNotFoundException     if the user to update is not found
+     * @throws InvalidDataException      if the provided data is invalid
+     * @throws UserAlreadyExistsException if a user with the same email already exists
+     * @throws VersionMismatchException  if the user is not at the expected version or is modified concurrently
+     */
+    @Transactional
+    public User update(Long id, Long expectedVersion, String name, String email) {
         User user = userRepository.findById(id).orElse(null);
         if (user != null) {
+            if (expectedVersion != null && user.getVersion() != expectedVersion) {
+                throw new VersionMismatchException("User was modified since version " + expectedVersion);
+            }
             validateData(name, email);
-            Optional<User> userOptional = userRepository.findUserByEmail(email);
-            if (userOptional.isPresent()) {
-                User auxUser = userOptional.get();
-                if (!Objects.equals(auxUser.getId(), id)) {
+            user.setName(name);
+            user.setEmail(email);
+            try {
+                User updatedUser = userRepository.saveAndFlush(user);
+                eventPublisher.publishEvent(UserChangedEvent.saved(updatedUser));
+                return updatedUser;
+            } catch (DataIntegrityViolationException e) {
+                if (isEmailViolation(e)) {
                     throw new UserAlreadyExistsException("User already exists with the same email");
                 }
+                throw e;
+            } catch (OptimisticLockingFailureException e) {
+                throw new VersionMismatchException("User was modified concurrently");
             }
-            user.setName(name);
-            user.setEmail(email);
-            return userRepository.save(user);
         } else {
             throw new UserNotFoundException("User not found");
         }
@@ -96,15 +248,78 @@ public class UserService {
      * @param id the ID of the user to delete
      * @throws UserNotFoundException if the user to delete is not found
      */
+    @Transactional
     public void delete(Long id) {
         User user = userRepository.findById(id).orElse(null);
         if (user != null) {
             userRepository.delete(user);
+            eventPublisher.publishEvent(UserChangedEvent.deleted(id));
         } else {
             throw new UserNotFoundException("User not found");
         }
     }
 
+    /**
+     * Imports one chunk of user rows.
+     *
+     * @param rows   the rows of the chunk
+     * @param offset the position of the first row of the chunk in the whole import
+     * @return the result of every row of the chunk, in input order
+     */
+    private List<BulkItemResult> importChunk(List<Map<String, String>> rows, int offset) {
+        BulkItemResult[] results = new BulkItemResult[rows.size()];
+        Map<String, Integer> rowsByEmail = new HashMap<>();
+        List<User> candidates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> row = rows.get(i);
+            try {
+                validateData(row.get("name"), row.get("email"));
+                User user = new User(row.get("name"), row.get("email"));
+                if (rowsByEmail.putIfAbsent(user.getEmail(), i) == null) {
+                    candidates.add(user);
+                } else {
+                    results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.DUPLICATE, null, "Duplicate email in request");
+                }
+            } catch (InvalidDataException e) {
+                results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.INVALID, null, e.getMessage());
+            }
+        }
+
+        Set<String> existingEmails = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findExistingEmails(rowsByEmail.keySet()));
+        List<User> newUsers = new ArrayList<>(candidates.size());
+        for (User user : candidates) {
+            if (existingEmails.contains(user.getEmail())) {
+                int i = rowsByEmail.get(user.getEmail());
+                results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.DUPLICATE, null, "User already exists with same email");
+            } else {
+                newUsers.add(user);
+            }
+        }
+
+        userRepository.saveAll(newUsers);
+        userRepository.flush();
+        for (User user : newUsers) {
+            int i = rowsByEmail.get(user.getEmail());
+            results[i] = new BulkItemResult(offset + i, BulkItemResult.Status.CREATED, user.getId(), null);
+            eventPublisher.publishEvent(UserChangedEvent.saved(user));
+        }
+        entityManager.clear();
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Checks whether a data integrity violation was caused by the unique constraint on the email.
+     *
+     * @param e the data integrity violation
+     * @return true if the email is already used by another user
+     */
+    private boolean isEmailViolation(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+    }
+
     /**
      * Validates user data.
      *
@@ -0,0 +1,46 @@
+-- Books, users and loans, as mapped by the Book, User and Loan entities.
+-- IDs come from sequences advanced 50 at a time, matching the allocation size of the entities.
+
+create sequence loan_books_seq start with 1 increment by 50;
+create sequence loan_users_seq start with 1 increment by 50;
+create sequence loan_seq start with 1 increment by 50;
+
+create table loan_books (
+    id         bigint                   not null,
+    isbn       varchar(255),
+    title      varchar(255),
+    author     varchar(255),
+    quantity   integer                  not null,
+    version    bigint default 0         not null,
+    updated_at timestamp(6) with time zone,
+    constraint pk_loan_books primary key (id),
+    constraint uk_loan_books_isbn unique (isbn)
+);
+
+create table loan_users (
+    id         bigint                   not null,
+    name       varchar(255),
+    email      varchar(255),
+    version    bigint default 0         not null,
+    updated_at timestamp(6) with time zone,
+    constraint pk_loan_users primary key (id),
+    constraint uk_loan_users_email unique (email)
+);
+
+create table loan (
+    id         bigint                   not null,
+    user_id    bigint,
+    book_id    bigint,
+    start_date date,
+    end_date   date,
+    finalized  boolean                  not null,
+    overdue    boolean default false    not null,
+    constraint pk_loan primary key (id),
+    constraint fk_loan_user foreign key (user_id) references loan_users (id),
+    constraint fk_loan_book foreign key (book_id) references loan_books (id)
+);
+
+-- Loans of a user and of a book, and the active loans by end date for the overdue sweep
+create index idx_loan_user_id on loan (user_id);
+create index idx_loan_book_id on loan (book_id);
+create index idx_loan_finalized_end_date on loan (finalized, end_date);
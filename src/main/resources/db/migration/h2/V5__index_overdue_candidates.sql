@@ -0,0 +1,4 @@
+-- Active loans not yet flagged as overdue, by end date, for the overdue sweep; the loans it flagged
+-- drop out of the range it reads, so its work follows the loans becoming overdue and not the backlog.
+drop index idx_loan_finalized_end_date;
+create index idx_loan_overdue_candidates on loan (finalized, overdue, end_date);
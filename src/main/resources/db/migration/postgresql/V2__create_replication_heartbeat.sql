@@ -0,0 +1,8 @@
+-- Single row updated by the primary and read back from the read replicas to measure their lag
+create table replication_heartbeat (
+    id integer not null,
+    beat bigint not null,
+    primary key (id)
+);
+
+insert into replication_heartbeat (id, beat) values (1, 0);
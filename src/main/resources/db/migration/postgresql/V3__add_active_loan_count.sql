@@ -0,0 +1,10 @@
+-- Number of active loans of every user, kept up to date by LoanService to enforce the borrowing limit
+-- and checked against the loans by the reconciliation job.
+alter table loan_users add column active_loan_count integer default 0 not null;
+
+update loan_users u set active_loan_count = (select count(*) from loan l where l.user_id = u.id and l.finalized = false);
+
+-- Loans of a user by status and ID, for their listing; it also serves the lookups of the foreign key,
+-- which idx_loan_user_id was kept for.
+create index idx_loan_user_finalized on loan (user_id, finalized, id);
+drop index idx_loan_user_id;
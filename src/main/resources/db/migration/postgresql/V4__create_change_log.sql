@@ -0,0 +1,23 @@
+-- Transactional outbox of the changes made to books, users and loans, written in the transaction
+-- of each change. The sequence number is assigned after commit by the relay of ChangeFeedService,
+-- in commit order, so that a consumer reading past a sequence number never misses a change.
+create table change_log (
+    id          bigint generated by default as identity,
+    seq         bigint,
+    entity_type varchar(16)                 not null,
+    entity_id   bigint                      not null,
+    operation   varchar(16)                 not null,
+    payload     varchar(4000),
+    occurred_at timestamp(6) with time zone not null,
+    constraint pk_change_log primary key (id),
+    constraint uk_change_log_seq unique (seq)
+);
+
+-- Single row holding the last sequence number assigned, locked by the relay while it assigns more
+create table change_feed (
+    id       integer not null,
+    last_seq bigint  not null,
+    constraint pk_change_feed primary key (id)
+);
+
+insert into change_feed (id, last_seq) values (1, 0);
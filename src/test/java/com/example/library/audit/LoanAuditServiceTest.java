@@ -0,0 +1,238 @@
+package com.example.library.audit;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.LoanEvent;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.LoanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The LoanAuditServiceTest class verifies against an in-memory database that every committed
+ * change made through LoanService is recorded in the loan event log, and that the loans can
+ * be rebuilt from it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-audit;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "library.audit.path=target/test-audit-log-${random.uuid}"
+})
+class LoanAuditServiceTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 7);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({LoanService.class, AvailabilityService.class, LoanAuditService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private LoanAuditService loanAuditService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testHistory_RecordsCreateUpdateAndReturn() {
+        // Arrange
+        User user = userRepository.save(new User("Audited", "audited@example.com"));
+        Book book = bookRepository.save(new Book("9780000000601", "Audited Title", "Author", 2));
+
+        // Act
+        Loan loan = loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        loanService.update(loan.getId(), user.getId(), book.getId(), START_DATE, END_DATE.plusDays(7));
+        loanService.delete(loan.getId());
+        assertTrue(loanAuditService.flush());
+        List<LoanEvent> history = loanAuditService.history(loan.getId());
+
+        // Assert
+        assertEquals(List.of(LoanChangedEvent.Type.CREATED, LoanChangedEvent.Type.UPDATED, LoanChangedEvent.Type.RETURNED),
+                history.stream().map(LoanEvent::getType).toList());
+        assertEquals(END_DATE, history.get(0).getEndDate());
+        assertEquals(END_DATE.plusDays(7), history.get(1).getEndDate());
+        assertFalse(history.get(1).isFinalized());
+        assertTrue(history.get(2).isFinalized());
+        assertTrue(history.get(0).getOffset() < history.get(1).getOffset());
+    }
+
+    @Test
+    void testHistory_IgnoresRolledBackChanges() {
+        // Arrange
+        User user = userRepository.save(new User("Rolled Back", "rolled-back@example.com"));
+        Book book = bookRepository.save(new Book("9780000000602", "Rolled Back Title", "Author", 1));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Act
+        Long loanId = transactionTemplate.execute(status -> {
+            Loan loan = loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+            status.setRollbackOnly();
+            return loan.getId();
+        });
+        assertTrue(loanAuditService.flush());
+
+        // Assert
+        assertTrue(loanAuditService.history(loanId).isEmpty());
+    }
+
+    @Test
+    void testHistory_IndexedAgainAfterRestart(@TempDir Path directory) throws Exception {
+        // Arrange
+        LoanAuditService first = standalone(directory);
+        for (long loanId = 1; loanId <= 3; loanId++) {
+            first.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, loanId, 1L, 1L, START_DATE, END_DATE, false, Instant.now()));
+        }
+        first.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.RETURNED, 2L, 1L, 1L, START_DATE, END_DATE, true, Instant.now()));
+        assertTrue(first.flush());
+        List<LoanEvent> before = first.history(2L);
+        first.stop();
+
+        // Act
+        LoanAuditService second = standalone(directory);
+        List<LoanEvent> after = second.history(2L);
+        second.stop();
+
+        // Assert
+        assertEquals(List.of(1L, 3L), before.stream().map(LoanEvent::getOffset).toList());
+        assertEquals(List.of(LoanChangedEvent.Type.CREATED, LoanChangedEvent.Type.RETURNED), after.stream().map(LoanEvent::getType).toList());
+        assertEquals(List.of(1L, 3L), after.stream().map(LoanEvent::getOffset).toList());
+        assertTrue(second.history(4L).isEmpty());
+    }
+
+    @Test
+    void testFlush_CountsEventsThatCannotBeAppended(@TempDir Path directory) throws Exception {
+        // Arrange
+        LoanAuditService service = standalone(directory);
+        SimpleMeterRegistry meterRegistry = (SimpleMeterRegistry) ReflectionTestUtils.getField(service, "meterRegistry");
+
+        // Act: the event without a time cannot be encoded, between two that can
+        service.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 1L, 1L, 1L, START_DATE, END_DATE, false, Instant.now()));
+        service.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 2L, 1L, 1L, START_DATE, END_DATE, false, null));
+        service.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.CREATED, 3L, 1L, 1L, START_DATE, END_DATE, false, Instant.now()));
+        boolean flushed = service.flush();
+        service.onLoanChanged(new LoanChangedEvent(LoanChangedEvent.Type.RETURNED, 3L, 1L, 1L, START_DATE, END_DATE, true, Instant.now()));
+        boolean flushedAgain = service.flush();
+        List<LoanEvent> history = service.history(3L);
+        List<LoanEvent> droppedHistory = service.history(2L);
+        service.stop();
+
+        // Assert
+        assertTrue(flushed);
+        assertTrue(flushedAgain);
+        assertEquals(1, meterRegistry.get("library.audit.dropped").counter().count());
+        assertTrue(droppedHistory.isEmpty());
+        assertEquals(List.of(1L, 2L), history.stream().map(LoanEvent::getOffset).toList());
+    }
+
+    @Test
+    void testRebuildLoans_MatchesDatabase() {
+        // Arrange
+        Book book = bookRepository.save(new Book("9780000000603", "Rebuilt Title", "Author", 5));
+        for (int i = 0; i < 5; i++) {
+            User user = userRepository.save(new User("Rebuilt " + i, "rebuilt" + i + "@example.com"));
+            Loan loan = loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+            if (i % 2 == 0) {
+                loanService.delete(loan.getId());
+            }
+        }
+        assertTrue(loanAuditService.flush());
+
+        // Act
+        Map<Long, Loan> rebuilt = loanAuditService.rebuildLoans();
+
+        // Assert
+        for (Loan stored : loanRepository.findAll()) {
+            Loan loan = rebuilt.get(stored.getId());
+            assertNotNull(loan);
+            assertEquals(stored.getUser().getId(), loan.getUser().getId());
+            assertEquals(stored.getBook().getId(), loan.getBook().getId());
+            assertEquals(stored.getEndDate(), loan.getEndDate());
+            assertEquals(stored.isFinalized(), loan.isFinalized());
+        }
+    }
+
+    @Test
+    void testFindPage_FollowsOffsets() {
+        // Arrange
+        User user = userRepository.save(new User("Paged", "paged@example.com"));
+        Book book = bookRepository.save(new Book("9780000000604", "Paged Title", "Author", 3));
+        for (int i = 0; i < 3; i++) {
+            loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        }
+        assertTrue(loanAuditService.flush());
+
+        // Act
+        List<LoanEvent> all = loanAuditService.findPage(null, 1000).getItems();
+        LoanEvent second = all.get(all.size() - 2);
+        List<LoanEvent> after = loanAuditService.findPage(second.getOffset(), 10).getItems();
+
+        // Assert
+        assertEquals(1, after.size());
+        assertEquals(second.getOffset() + 1, after.get(0).getOffset());
+    }
+
+    /**
+     * Starts a service over the given directory, outside the application context.
+     */
+    private static LoanAuditService standalone(Path directory) throws Exception {
+        LoanAuditService service = new LoanAuditService();
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "path", directory);
+        ReflectionTestUtils.setField(service, "segmentBytes", 64 * 1024L);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(service, "fsyncIntervalMs", 200L);
+        ReflectionTestUtils.setField(service, "fsyncBatchSize", 1000);
+        service.start();
+        return service;
+    }
+}
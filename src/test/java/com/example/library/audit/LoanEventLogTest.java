@@ -0,0 +1,268 @@
+package com.example.library.audit;
+
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.model.LoanEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The LoanEventLogTest class contains unit tests for the LoanEventLog class, run against
+ * segments in a temporary directory, including recovery from a crash in the middle of a write.
+ */
+class LoanEventLogTest {
+
+    /**
+     * Small segments, so that a few hundred events span several of them.
+     */
+    private static final long SEGMENT_BYTES = 16 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private LoanEventLog log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        log.close();
+    }
+
+    @Test
+    void testAppend_AssignsOffsetsAndRoundTripsEvents() {
+        // Arrange
+        LoanChangedEvent created = event(LoanChangedEvent.Type.CREATED, 7L, false);
+        LoanChangedEvent returned = event(LoanChangedEvent.Type.RETURNED, 7L, true);
+
+        // Act
+        long first = log.append(created);
+        long second = log.append(returned);
+        List<LoanEvent> beforeFlush = log.read(-1, 10);
+        log.flush();
+        List<LoanEvent> events = log.read(-1, 10);
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertTrue(beforeFlush.isEmpty());
+        assertEquals(2, events.size());
+        LoanEvent event = events.get(1);
+        assertEquals(1, event.getOffset());
+        assertEquals(LoanChangedEvent.Type.RETURNED, event.getType());
+        assertEquals(7L, event.getLoanId());
+        assertEquals(70L, event.getUserId());
+        assertEquals(700L, event.getBookId());
+        assertEquals(LocalDate.of(2024, 5, 2), event.getStartDate());
+        assertEquals(LocalDate.of(2024, 5, 7), event.getEndDate());
+        assertTrue(event.isFinalized());
+        assertEquals(returned.getOccurredAt().toEpochMilli(), event.getOccurredAt().toEpochMilli());
+    }
+
+    @Test
+    void testRead_FromAnyOffsetAcrossSegments() {
+        // Arrange
+        append(1_000);
+
+        // Act
+        List<LoanEvent> middle = log.read(499, 3);
+        List<LoanEvent> tail = log.read(997, 10);
+        List<Long> replayed = new ArrayList<>();
+        log.replay(250, event -> replayed.add(event.getOffset()));
+
+        // Assert
+        assertTrue(log.segmentCount() > 1);
+        assertEquals(List.of(500L, 501L, 502L), middle.stream().map(LoanEvent::getOffset).toList());
+        assertEquals(List.of(998L, 999L), tail.stream().map(LoanEvent::getOffset).toList());
+        assertEquals(750, replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(250L + i, replayed.get(i));
+        }
+    }
+
+    @Test
+    void testOpen_ContinuesAfterLastEvent() throws IOException {
+        // Arrange
+        append(600);
+        log.close();
+
+        // Act
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+        long next = log.append(event(LoanChangedEvent.Type.CREATED, 601L, false));
+        log.flush();
+
+        // Assert
+        assertEquals(600, next);
+        assertEquals(601, countEvents());
+    }
+
+    @Test
+    void testOpen_RecoversFromTornWrite() throws IOException {
+        // Arrange: a crash left half a record at the end of the last segment, never synced nor closed
+        append(300);
+        Path lastSegment = lastSegment();
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 59, 1, 2, 3, 4, 1, 0, 0}));
+        }
+
+        // Act
+        LoanEventLog recovered = LoanEventLog.open(directory, SEGMENT_BYTES);
+        long next;
+        int count;
+        try {
+            next = recovered.append(event(LoanChangedEvent.Type.CREATED, 301L, false));
+            recovered.flush();
+            count = 0;
+            for (LoanEvent event : recovered.read(-1, 1_000)) {
+                assertEquals(count++, event.getOffset());
+            }
+        } finally {
+            recovered.close();
+        }
+
+        // Assert
+        assertEquals(300, next);
+        assertEquals(301, count);
+    }
+
+    @Test
+    void testOpen_TruncatesCorruptTail() throws IOException {
+        // Arrange: the last record of the last segment was only partly written to disk
+        append(300);
+        log.close();
+        Path lastSegment = lastSegment();
+        long size = Files.size(lastSegment);
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), size - 10);
+        }
+
+        // Act
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+
+        // Assert
+        assertEquals(299, log.nextOffset());
+        assertEquals(299, countEvents());
+        assertEquals(size - 67, Files.size(lastSegment));
+    }
+
+    @Test
+    void testOpen_IgnoresIndexEntriesPastTheLog() throws IOException {
+        // Arrange: the index was written but the records it points to were lost
+        append(300);
+        log.close();
+        Path lastSegment = lastSegment();
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+
+        // Act
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+        long base = Long.parseLong(lastSegment.getFileName().toString().replace(LoanEventLog.LOG_SUFFIX, ""));
+        long next = log.append(event(LoanChangedEvent.Type.CREATED, 1L, false));
+        log.flush();
+
+        // Assert
+        assertEquals(base, next);
+        assertEquals(base + 1, countEvents());
+        assertEquals(base, log.read(base - 1, 10).get(0).getOffset());
+    }
+
+    @Test
+    void testOffsetsOf_AcrossSegmentsAndAfterReopen() throws IOException {
+        // Arrange: 1000 events of 10 loans, spread over several segments
+        for (int i = 0; i < 1_000; i++) {
+            log.append(event(LoanChangedEvent.Type.UPDATED, i % 10 + 1L, false));
+        }
+        log.append(event(LoanChangedEvent.Type.CREATED, 11L, false));
+        long[] beforeFlush = log.offsetsOf(11L);
+        log.flush();
+
+        // Act
+        long[] offsets = log.offsetsOf(3L);
+        long[] latest = log.offsetsOf(11L);
+        log.close();
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+        long[] reopened = log.offsetsOf(3L);
+
+        // Assert
+        assertTrue(log.segmentCount() > 1);
+        assertEquals(log.segmentCount() - 1, countFiles(LoanEventLog.LOANS_SUFFIX));
+        assertEquals(0, beforeFlush.length);
+        assertArrayEquals(new long[]{1_000}, latest);
+        assertEquals(100, offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals(2 + 10L * i, offsets[i]);
+        }
+        assertArrayEquals(offsets, reopened);
+        assertEquals(0, log.offsetsOf(12L).length);
+    }
+
+    @Test
+    void testOpen_WritesMissingLoanIndex() throws IOException {
+        // Arrange: the loan indexes of the full segments were lost
+        append(1_000);
+        long[] offsets = log.offsetsOf(500L);
+        log.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(LoanEventLog.LOANS_SUFFIX)).toList()) {
+                Files.delete(file);
+            }
+        }
+
+        // Act
+        log = LoanEventLog.open(directory, SEGMENT_BYTES);
+
+        // Assert
+        assertArrayEquals(new long[]{499}, offsets);
+        assertArrayEquals(offsets, log.offsetsOf(500L));
+        assertEquals(log.segmentCount() - 1, countFiles(LoanEventLog.LOANS_SUFFIX));
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            log.append(event(LoanChangedEvent.Type.CREATED, i + 1L, false));
+        }
+        log.flush();
+    }
+
+    private int countEvents() {
+        int[] count = {0};
+        log.replay(0, event -> count[0]++);
+        return count[0];
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(LoanEventLog.LOG_SUFFIX)).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+    }
+
+    private static LoanChangedEvent event(LoanChangedEvent.Type type, Long loanId, boolean finalized) {
+        return new LoanChangedEvent(type, loanId, loanId * 10, loanId * 100,
+                LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7), finalized, Instant.now());
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.library.availability;
+
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.exception.NoBookAvailableException;
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.LoanService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The AvailabilityServiceTest class verifies against an in-memory database that the availability
+ * table follows the stock changes made through BookService and LoanService, and that it is
+ * corrected from the database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:availability;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "library.availability.path=target/test-availability-${random.uuid}.idx"
+})
+class AvailabilityServiceTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 7);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, LoanService.class, AvailabilityService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+        availabilityService.reconcile();
+    }
+
+    @Test
+    void testAvailable_FollowsBookChanges() {
+        // Arrange
+        Book book = bookService.save("9780000000501", "Stocked Title", "Author", 2);
+        int afterSave = availabilityService.available(book.getId());
+
+        // Act
+        bookService.update(book.getId(), "9780000000501", "Stocked Title", "Author", 5);
+        int afterUpdate = availabilityService.available(book.getId());
+        bookService.delete(book.getId());
+
+        // Assert
+        assertEquals(2, afterSave);
+        assertEquals(5, afterUpdate);
+        assertThrows(BookNotFoundException.class, () -> availabilityService.available(book.getId()));
+    }
+
+    @Test
+    void testAvailable_FollowsLoansAndReturns() {
+        // Arrange
+        Book book = bookService.save("9780000000502", "Lent Title", "Author", 1);
+        User first = userRepository.save(new User("First", "first@example.com"));
+        User second = userRepository.save(new User("Second", "second@example.com"));
+
+        // Act
+        Loan loan = loanService.save(first.getId(), book.getId(), START_DATE, END_DATE);
+        int afterLoan = availabilityService.available(book.getId());
+        assertThrows(NoBookAvailableException.class, () -> loanService.save(second.getId(), book.getId(), START_DATE, END_DATE));
+        loanService.delete(loan.getId());
+        int afterReturn = availabilityService.available(book.getId());
+
+        // Assert
+        assertEquals(0, afterLoan);
+        assertEquals(1, afterReturn);
+        assertEquals(1, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testAvailable_IgnoresRolledBackLoans() {
+        // Arrange
+        Book book = bookService.save("9780000000503", "Rolled Back Title", "Author", 1);
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(1, availabilityService.available(book.getId()));
+    }
+
+    @Test
+    void testReconcile_CorrectsTableFromDatabase() {
+        // Arrange: the stock is changed behind the table's back, and a book is added and another removed
+        Book changed = bookService.save("9780000000504", "Changed Title", "Author", 3);
+        Book removed = bookService.save("9780000000505", "Removed Title", "Author", 3);
+        jdbcTemplate.update("update loan_books set quantity = 7 where id = ?", changed.getId());
+        jdbcTemplate.update("delete from loan_books where id = ?", removed.getId());
+        Book added = bookRepository.save(new Book("9780000000506", "Added Title", "Author", 4));
+
+        // Act
+        int corrected = availabilityService.reconcile();
+
+        // Assert
+        assertEquals(3, corrected);
+        assertEquals(7, availabilityService.available(changed.getId()));
+        assertEquals(4, availabilityService.available(added.getId()));
+        assertThrows(BookNotFoundException.class, () -> availabilityService.available(removed.getId()));
+    }
+
+    @Test
+    void testSave_NotRejectedByStaleTable() {
+        // Arrange: the table sees the book sold out, then another instance returns two copies
+        Book book = bookService.save("9780000000507", "Returned Elsewhere Title", "Author", 1);
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        jdbcTemplate.update("update loan_books set quantity = 0 where id = ?", book.getId());
+        availabilityService.reconcile();
+        jdbcTemplate.update("update loan_books set quantity = 2 where id = ?", book.getId());
+
+        // Act
+        Loan loan = loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        int beforeReconcile = availabilityService.available(book.getId());
+        availabilityService.reconcile();
+
+        // Assert
+        assertEquals(book.getId(), loan.getBook().getId());
+        assertEquals(0, beforeReconcile);
+        assertEquals(1, availabilityService.available(book.getId()));
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.library.availability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The AvailabilityTableTest class contains unit tests for the AvailabilityTable class,
+ * run against a file in a temporary directory.
+ */
+class AvailabilityTableTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    private AvailabilityTable table;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = directory.resolve("availability.idx");
+        table = AvailabilityTable.open(path);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        table.close();
+    }
+
+    @Test
+    void testPutAndGet() {
+        // Act
+        table.put(1L, 3);
+        table.put(2L, 0);
+        table.put(1L, 5);
+
+        // Assert
+        assertEquals(5, table.get(1L));
+        assertEquals(0, table.get(2L));
+        assertEquals(AvailabilityTable.ABSENT, table.get(3L));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testAdd_NeverGoesBelowZero() {
+        // Arrange
+        table.put(1L, 1);
+
+        // Act
+        int taken = table.add(1L, -1);
+        int overdrawn = table.add(1L, -1);
+        int returned = table.add(1L, 1);
+        int unknown = table.add(2L, 1);
+
+        // Assert
+        assertEquals(0, taken);
+        assertEquals(0, overdrawn);
+        assertEquals(1, returned);
+        assertEquals(AvailabilityTable.ABSENT, unknown);
+        assertEquals(AvailabilityTable.ABSENT, table.get(2L));
+    }
+
+    @Test
+    void testRemove() {
+        // Arrange
+        table.put(1L, 3);
+        table.put(2L, 4);
+
+        // Act
+        table.remove(1L);
+
+        // Assert
+        assertEquals(AvailabilityTable.ABSENT, table.get(1L));
+        assertEquals(AvailabilityTable.ABSENT, table.add(1L, 1));
+        assertEquals(4, table.get(2L));
+        assertArrayEquals(new long[]{2L}, table.ids());
+
+        // Act: a removed book can be put back
+        table.put(1L, 2);
+
+        // Assert
+        assertEquals(2, table.get(1L));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testGrow_KeepsEveryEntry() {
+        // Act
+        for (long id = 1; id <= 100_000; id++) {
+            table.put(id, (int) (id % 7));
+        }
+        for (long id = 1; id <= 100_000; id += 2) {
+            table.remove(id);
+        }
+
+        // Assert
+        assertEquals(50_000, table.size());
+        for (long id = 1; id <= 100_000; id++) {
+            assertEquals(id % 2 == 0 ? (int) (id % 7) : AvailabilityTable.ABSENT, table.get(id));
+        }
+        assertFalse(Files.exists(directory.resolve("availability.idx.tmp")));
+    }
+
+    @Test
+    void testOpen_RemapsExistingFile() throws IOException {
+        // Arrange
+        for (long id = 1; id <= 5_000; id++) {
+            table.put(id, 2);
+        }
+        table.remove(10L);
+        table.add(20L, -2);
+        table.close();
+
+        // Act
+        table = AvailabilityTable.open(path);
+
+        // Assert
+        assertEquals(4_999, table.size());
+        assertEquals(AvailabilityTable.ABSENT, table.get(10L));
+        assertEquals(0, table.get(20L));
+        assertEquals(2, table.get(5_000L));
+    }
+
+    @Test
+    void testOpen_ReplacesFileThatIsNotATable() throws IOException {
+        // Arrange
+        table.close();
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        // Act
+        table = AvailabilityTable.open(path);
+
+        // Assert
+        assertEquals(0, table.size());
+        assertEquals(AvailabilityTable.ABSENT, table.get(1L));
+    }
+
+    @Test
+    void testIds_AreSorted() {
+        // Arrange
+        table.put(30L, 1);
+        table.put(10L, 1);
+        table.put(20L, 1);
+
+        // Act and Assert
+        assertArrayEquals(new long[]{10L, 20L, 30L}, table.ids());
+    }
+
+    @Test
+    void testGet_ConcurrentWithWritesAndGrowth() throws Exception {
+        // Arrange: book 1 always has 1 copy, while other books are added until the table grows several times
+        table.put(1L, 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    int misses = 0;
+                    while (writing.get()) {
+                        if (table.get(1L) != 1) {
+                            misses++;
+                        }
+                    }
+                    return misses;
+                }));
+            }
+
+            // Act
+            executor.submit(() -> {
+                for (long id = 2; id <= 50_000; id++) {
+                    table.put(id, 1);
+                }
+                writing.set(false);
+            }).get(30, TimeUnit.SECONDS);
+
+            // Assert
+            for (Future<Integer> reader : readers) {
+                assertEquals(0, reader.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+}
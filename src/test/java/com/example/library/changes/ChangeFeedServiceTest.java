@@ -0,0 +1,204 @@
+package com.example.library.changes;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.exception.ChangesExpiredException;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.Book;
+import com.example.library.model.Change;
+import com.example.library.model.ChangePage;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.LoanService;
+import com.example.library.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ChangeFeedServiceTest class checks the change feed against an in-memory database: the
+ * changes recorded by the services and their sequence numbers, the long poll, and the purge.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:change-feed;DB_CLOSE_DELAY=-1",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.show-sql=false"
+})
+class ChangeFeedServiceTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 16);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, UserService.class, LoanService.class, AvailabilityService.class,
+            ChangeFeedService.class, ChangeLogWriter.class})
+    static class Config {
+    }
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testFindChanges_InCommitOrderWithContiguousSequenceNumbers() {
+        // Arrange
+        long since = relayAll();
+        Book book = bookService.save("9780000000501", "Title", "Author", 2);
+        User user = userService.save("Reader", "reader@example.com");
+        loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        relayAll();
+
+        // Act
+        ChangePage page = changeFeedService.findChanges(since, 100);
+
+        // Assert
+        List<Change> changes = page.getChanges();
+        assertEquals(List.of("BOOK SAVED", "USER SAVED", "BOOK STOCK", "LOAN CREATED"),
+                changes.stream().map(change -> change.getEntity() + " " + change.getOperation()).toList());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(since + i + 1, changes.get(i).getSeq());
+        }
+        assertEquals(book.getId(), changes.get(0).getEntityId());
+        assertEquals("9780000000501", changes.get(0).getPayload().get("isbn").asText());
+        assertEquals(since + 4, page.getNext());
+        assertEquals(since + 4, page.getLatest());
+    }
+
+    @Test
+    void testFindChanges_RolledBackChangesAreNotRecorded() {
+        // Arrange
+        long since = relayAll();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Act
+        transaction.executeWithoutResult(status -> {
+            bookService.save("9780000000502", "Title", "Author", 1);
+            status.setRollbackOnly();
+        });
+        relayAll();
+
+        // Assert
+        assertTrue(changeFeedService.findChanges(since, 100).getChanges().isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from change_log where seq is null", Integer.class));
+    }
+
+    @Test
+    void testPoll_WakesUpOnChange() throws Exception {
+        // Arrange
+        long since = relayAll();
+
+        // Act
+        CompletableFuture<ChangePage> poll = changeFeedService.poll(since, 100, Duration.ofSeconds(30));
+        assertFalse(poll.isDone());
+        Book book = bookService.save("9780000000503", "Title", "Author", 1);
+
+        // Assert: woken up by the relay, without waiting for the timeout
+        ChangePage page = poll.get(10, TimeUnit.SECONDS);
+        assertEquals(1, page.getChanges().size());
+        assertEquals(book.getId(), page.getChanges().get(0).getEntityId());
+        assertEquals(since + 1, page.getNext());
+    }
+
+    @Test
+    void testPoll_ReturnsEmptyPageOnTimeout() throws Exception {
+        // Arrange
+        long since = relayAll();
+
+        // Act
+        ChangePage page = changeFeedService.poll(since, 100, Duration.ofMillis(100)).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(page.getChanges().isEmpty());
+        assertEquals(since, page.getNext());
+    }
+
+    @Test
+    void testPoll_InvalidArguments() {
+        assertThrows(InvalidDataException.class, () -> changeFeedService.poll(-1L, 100, Duration.ZERO));
+        assertThrows(InvalidDataException.class, () -> changeFeedService.poll(0L, 0, Duration.ZERO));
+        assertThrows(InvalidDataException.class, () -> changeFeedService.poll(0L, 100, Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void testFindChanges_PurgedChangesHaveExpired() {
+        // Arrange
+        long since = relayAll();
+        bookService.save("9780000000504", "Title", "Author", 1);
+        bookService.save("9780000000505", "Title", "Author", 1);
+        relayAll();
+        jdbcTemplate.update("update change_log set occurred_at = ? where seq = ?",
+                Timestamp.valueOf("2000-01-01 00:00:00"), since + 1);
+
+        // Act
+        int purged = changeFeedService.purge();
+
+        // Assert
+        assertTrue(purged >= 1);
+        assertThrows(ChangesExpiredException.class, () -> changeFeedService.findChanges(since, 100));
+        assertEquals(since + 2, changeFeedService.findChanges(since + 1, 100).getChanges().get(0).getSeq());
+    }
+
+    /**
+     * Numbers every committed change, and returns the latest sequence number.
+     */
+    private long relayAll() {
+        while (changeFeedService.relay() == ChangeFeedService.RELAY_BATCH_SIZE) {
+            // Keep relaying until the backlog is drained
+        }
+        return changeFeedService.latestSeq();
+    }
+}
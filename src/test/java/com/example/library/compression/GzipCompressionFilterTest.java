@@ -0,0 +1,217 @@
+package com.example.library.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The GzipCompressionFilterTest class contains unit tests for the GzipCompressionFilter class.
+ */
+public class GzipCompressionFilterTest {
+
+    private static final int MIN_RESPONSE_SIZE = 1024;
+
+    private final GzipCompressionFilter filter = new GzipCompressionFilter(6, MIN_RESPONSE_SIZE, List.of("application/json", "application/x-ndjson"));
+
+    @Test
+    public void testFilter_CompressesLargeResponse() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] body = json(200);
+
+        // Act
+        filter.doFilter(request, response, writing(MediaType.APPLICATION_JSON_VALUE, body, true));
+
+        // Assert
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertTrue(response.getContentAsByteArray().length < body.length);
+        assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testFilter_SendsSmallResponseAsItIs() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] body = json(3);
+
+        // Act: written at once and flushed, as the message converters do
+        filter.doFilter(request, response, writing(MediaType.APPLICATION_JSON_VALUE, body, false));
+
+        // Assert
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body.length, response.getContentLength());
+        assertArrayEquals(body, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testFilter_LeavesOtherTypesAndClients() throws Exception {
+        // Arrange
+        MockHttpServletResponse image = new MockHttpServletResponse();
+        MockHttpServletResponse identity = new MockHttpServletResponse();
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        byte[] body = json(200);
+
+        // Act
+        filter.doFilter(request("gzip"), image, writing(MediaType.IMAGE_PNG_VALUE, body, false));
+        filter.doFilter(request(null), identity, writing(MediaType.APPLICATION_JSON_VALUE, body, false));
+        filter.doFilter(request("gzip;q=0, identity"), refused, writing(MediaType.APPLICATION_JSON_VALUE, body, false));
+
+        // Assert
+        for (MockHttpServletResponse response : List.of(image, identity, refused)) {
+            assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(body, response.getContentAsByteArray());
+            assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        }
+    }
+
+    @Test
+    public void testFilter_LeavesResponseWithStrongETag() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] body = json(200);
+        FilterChain chain = (request, servletResponse) -> {
+            ((HttpServletResponse) servletResponse).setHeader(HttpHeaders.ETAG, "\"3\"");
+            writing(MediaType.APPLICATION_JSON_VALUE, body, false).doFilter(request, servletResponse);
+        };
+
+        // Act
+        filter.doFilter(request("gzip"), response, chain);
+
+        // Assert
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testFilter_SendsEventStreamOnFlush() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] event = "id:1\ndata:{\"id\":1}\n\n".getBytes(StandardCharsets.UTF_8);
+        FilterChain chain = (request, servletResponse) -> {
+            servletResponse.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            servletResponse.getOutputStream().write(event);
+            servletResponse.flushBuffer();
+
+            // Assert: the event has reached the client before the response ends
+            assertTrue(servletResponse.isCommitted());
+            assertArrayEquals(event, response.getContentAsByteArray());
+        };
+
+        // Act
+        filter.doFilter(request("gzip"), response, chain);
+
+        // Assert
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(event, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testFilter_EndsDeflaterWhenFinished() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<ServletOutputStream> out = new AtomicReference<>();
+        FilterChain chain = (request, servletResponse) -> {
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            out.set(servletResponse.getOutputStream());
+            out.get().write(json(200));
+        };
+
+        // Act
+        filter.doFilter(request("gzip"), response, chain);
+
+        // Assert
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(json(200), gunzip(response.getContentAsByteArray()));
+        assertEnded(out.get());
+        assertThrows(IOException.class, () -> out.get().write(1));
+    }
+
+    @Test
+    public void testFilter_EndsDeflaterWhenApplicationFails() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<ServletOutputStream> out = new AtomicReference<>();
+        FilterChain chain = (request, servletResponse) -> {
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            out.set(servletResponse.getOutputStream());
+            out.get().write(json(200));
+            throw new IllegalStateException("Failed half way");
+        };
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("gzip"), response, chain));
+        assertEnded(out.get());
+        assertThrows(IOException.class, () -> out.get().write(1));
+    }
+
+    private static void assertEnded(ServletOutputStream out) {
+        Object gzip = ReflectionTestUtils.getField(out, "gzip");
+        assertNotNull(gzip);
+        Deflater deflater = ReflectionTestUtils.invokeMethod(gzip, "deflater");
+        // An ended deflater has freed its native memory, and refuses to be used
+        assertThrows(NullPointerException.class, deflater::getBytesRead);
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    /**
+     * Returns a chain writing the given body, in small pieces with a flush after each as a stream
+     * does, or at once followed by a flush.
+     */
+    private static FilterChain writing(String contentType, byte[] body, boolean streamed) {
+        return (request, response) -> {
+            response.setContentType(contentType);
+            OutputStream out = response.getOutputStream();
+            if (streamed) {
+                for (int offset = 0; offset < body.length; offset += 100) {
+                    out.write(body, offset, Math.min(100, body.length - offset));
+                    out.flush();
+                }
+            } else {
+                out.write(body);
+                out.flush();
+            }
+        };
+    }
+
+    private static byte[] json(int items) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= items; i++) {
+            json.append(i > 1 ? "," : "").append("{\"id\":").append(i).append(",\"title\":\"Title ").append(i).append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.library.config;
+
+import com.example.library.exception.InvalidDataException;
+import com.example.library.exception.LoanNotFoundException;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.LoanService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+/**
+ * The DomainExceptionMetricsTest class contains unit tests for the DomainExceptionMetrics aspect.
+ */
+public class DomainExceptionMetricsTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @InjectMocks
+    private LoanService target;
+
+    private MeterRegistry meterRegistry;
+
+    private LoanService loanService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        DomainExceptionMetrics aspect = new DomainExceptionMetrics();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        loanService = factory.getProxy();
+    }
+
+    @Test
+    public void testCount_DomainException() {
+        // Arrange
+        when(loanRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        assertThrows(LoanNotFoundException.class, () -> loanService.delete(1L));
+        assertThrows(LoanNotFoundException.class, () -> loanService.delete(1L));
+        assertThrows(InvalidDataException.class, () -> loanService.findPage(null, 0));
+
+        // Assert
+        assertEquals(2.0, meterRegistry.get(DomainExceptionMetrics.METRIC_NAME)
+                .tags("exception", "LoanNotFoundException", "class", "LoanService", "method", "delete")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get(DomainExceptionMetrics.METRIC_NAME)
+                .tags("exception", "InvalidDataException", "method", "findPage")
+                .counter().count());
+    }
+
+    @Test
+    public void testCount_IgnoresOtherExceptions() {
+        // Arrange
+        when(loanRepository.findById(1L)).thenThrow(new IllegalStateException("Database unavailable"));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> loanService.delete(1L));
+
+        // Assert
+        assertNull(meterRegistry.find(DomainExceptionMetrics.METRIC_NAME).counter());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.library.config;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.availability.AvailabilityTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The ServiceMetricsTest class contains unit tests for the ServiceMetrics aspect.
+ */
+public class ServiceMetricsTest {
+
+    private MeterRegistry meterRegistry;
+
+    private final CatalogService target = new CatalogService();
+
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        catalogService = proxy(target);
+    }
+
+    @Test
+    public void testTime_ReturnedAndThrown() {
+        // Act
+        catalogService.count();
+        catalogService.count();
+        assertThrows(IllegalStateException.class, () -> catalogService.fail());
+
+        // Assert
+        assertEquals(2, meterRegistry.get(ServiceMetrics.METRIC_NAME)
+                .tags("class", CatalogService.class.getName(), "method", "count", "exception", "none")
+                .timer().count());
+        assertEquals(1, meterRegistry.get(ServiceMetrics.METRIC_NAME)
+                .tags("method", "fail", "exception", "IllegalStateException")
+                .timer().count());
+    }
+
+    @Test
+    public void testTime_CompletionStageUntilCompleted() {
+        // Act
+        CompletableFuture<Integer> future = catalogService.countLater();
+
+        // Assert
+        assertNull(meterRegistry.find(ServiceMetrics.METRIC_NAME).tags("method", "countLater").timer());
+        target.pending.complete(3);
+        assertEquals(3, future.join());
+        assertEquals(1, meterRegistry.get(ServiceMetrics.METRIC_NAME)
+                .tags("method", "countLater", "exception", "none")
+                .timer().count());
+    }
+
+    @Test
+    public void testTime_NotOnUnmarkedServices(@TempDir Path directory) throws Exception {
+        // Arrange
+        AvailabilityTable table = AvailabilityTable.open(directory.resolve("availability.idx"));
+        table.put(1L, 3);
+        AvailabilityService availability = new AvailabilityService();
+        ReflectionTestUtils.setField(availability, "table", table);
+        ReflectionTestUtils.setField(availability, "ready", true);
+        AvailabilityService proxied = proxy(availability);
+
+        // Act
+        int available = proxied.available(1L);
+        table.close();
+
+        // Assert
+        assertEquals(3, available);
+        assertNull(meterRegistry.find(ServiceMetrics.METRIC_NAME).timer());
+    }
+
+    private <T> T proxy(T service) {
+        ServiceMetrics aspect = new ServiceMetrics();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+        AspectJProxyFactory factory = new AspectJProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Service
+    @TimedService
+    static class CatalogService {
+
+        final CompletableFuture<Integer> pending = new CompletableFuture<>();
+
+        public int count() {
+            return 3;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("Unavailable");
+        }
+
+        public CompletableFuture<Integer> countLater() {
+            return pending;
+        }
+    }
+}
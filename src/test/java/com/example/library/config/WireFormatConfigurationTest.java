@@ -0,0 +1,127 @@
+package com.example.library.config;
+
+import com.example.library.model.Book;
+import com.example.library.model.Change;
+import com.example.library.model.ChangePage;
+import com.example.library.model.CursorPage;
+import com.example.library.model.LoanView;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The WireFormatConfigurationTest class contains unit tests for the CBOR converter and the Vary filter of WireFormatConfiguration.
+ */
+public class WireFormatConfigurationTest {
+
+    private final WireFormatConfiguration configuration = new WireFormatConfiguration();
+
+    @Test
+    public void testCborConverter_SameDocumentAsJsonInFewerBytes() throws Exception {
+        // Arrange
+        MappingJackson2CborHttpMessageConverter converter = configuration.cborHttpMessageConverter(builder());
+        ObjectMapper jsonMapper = builder().build();
+        List<LoanView> loans = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            loans.add(new LoanView(id, 1L, "Ada Lovelace", id, "Title " + id, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16), false, false));
+        }
+        CursorPage<LoanView> page = CursorPage.of(loans, 20, LoanView::getId);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        // Act
+        converter.write(page, MediaType.APPLICATION_CBOR, message);
+
+        // Assert
+        byte[] cbor = message.getBodyAsBytes();
+        byte[] json = jsonMapper.writeValueAsBytes(page);
+        JsonNode decoded = converter.getObjectMapper().readTree(cbor);
+        assertEquals(jsonMapper.readTree(json), decoded);
+        assertEquals("2024-05-02", decoded.get("items").get(0).get("startDate").asText());
+        assertTrue(cbor.length < json.length);
+        assertEquals(MediaType.APPLICATION_CBOR, message.getHeaders().getContentType());
+    }
+
+    @Test
+    public void testCborConverter_ReadsWhatItWrites() throws Exception {
+        // Arrange
+        MappingJackson2CborHttpMessageConverter converter = configuration.cborHttpMessageConverter(builder());
+        Book book = new Book("9780000000001", "The Pragmatic Programmer", "Andrew Hunt", 3);
+        book.setId(1L);
+
+        // Act
+        byte[] cbor = converter.getObjectMapper().writeValueAsBytes(book);
+        Book read = converter.getObjectMapper().readValue(cbor, Book.class);
+
+        // Assert
+        assertEquals(book.getId(), read.getId());
+        assertEquals(book.getIsbn(), read.getIsbn());
+        assertEquals(book.getTitle(), read.getTitle());
+        assertEquals(3, read.getQuantity());
+    }
+
+    @Test
+    public void testCborConverter_WritesChangePayloads() throws Exception {
+        // Arrange: a page of GET /api/changes, with a payload read from the change log and one deleted
+        MappingJackson2CborHttpMessageConverter converter = configuration.cborHttpMessageConverter(builder());
+        ObjectMapper jsonMapper = builder().build();
+        JsonNode payload = jsonMapper.readTree("{\"id\":1,\"isbn\":\"9780000000001\",\"quantity\":3}");
+        ChangePage page = new ChangePage(List.of(
+                new Change(1, Change.Entity.BOOK, 1L, "SAVED", payload, Instant.parse("2024-05-02T10:00:00Z")),
+                new Change(2, Change.Entity.BOOK, 1L, "DELETED", null, Instant.parse("2024-05-02T10:05:00Z"))), 0, 2);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        // Act
+        converter.write(page, MediaType.APPLICATION_CBOR, message);
+
+        // Assert
+        JsonNode decoded = converter.getObjectMapper().readTree(message.getBodyAsBytes());
+        assertEquals(jsonMapper.readTree(jsonMapper.writeValueAsBytes(page)), decoded);
+        assertEquals(payload, decoded.get("changes").get(0).get("payload"));
+        assertTrue(decoded.get("changes").get(1).get("payload").isNull());
+    }
+
+    @Test
+    public void testVaryAcceptFilter_KeepsOtherVaryHeaders() throws Exception {
+        // Arrange
+        Filter filter = configuration.varyAcceptFilter().getFilter();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                ((MockHttpServletResponse) response).addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+        };
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, chain);
+
+        // Assert
+        assertEquals(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING), response.getHeaders(HttpHeaders.VARY));
+    }
+
+    /**
+     * Returns a builder configured like the one of Spring Boot, which writes dates as ISO strings.
+     */
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.library.controller;
+
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.exception.ErrorCode;
+import com.example.library.exception.InvalidDataException;
+import com.example.library.exception.VersionMismatchException;
+import com.example.library.model.MessageResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ApiExceptionHandlerTest class contains unit tests for the ApiExceptionHandler class.
+ */
+class ApiExceptionHandlerTest {
+
+    private final ApiExceptionHandler handler = new ApiExceptionHandler();
+
+    @Test
+    void testHandleLibraryException_StatusOfErrorCode() {
+        // Act
+        ResponseEntity<MessageResponse> notFound = handler.handleLibraryException(new BookNotFoundException("Book not found"));
+        ResponseEntity<MessageResponse> invalid = handler.handleLibraryException(new InvalidDataException("Limit must be between 1 and 1000"));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+        assertEquals("Book not found", notFound.getBody().getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void testHandleVersionMismatch_ConditionalRequest() {
+        // Arrange
+        MockHttpServletRequest conditional = new MockHttpServletRequest("PUT", "/api/books/1");
+        conditional.addHeader(HttpHeaders.IF_MATCH, "\"3\"");
+        MockHttpServletRequest unconditional = new MockHttpServletRequest("PUT", "/api/books/1");
+        VersionMismatchException e = new VersionMismatchException("Book was modified since version 3");
+
+        // Act & Assert
+        assertEquals(HttpStatus.PRECONDITION_FAILED, handler.handleVersionMismatch(e, conditional).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, handler.handleVersionMismatch(e, unconditional).getStatusCode());
+    }
+
+    @Test
+    void testLibraryException_IsStackless() {
+        // Act
+        BookNotFoundException e = new BookNotFoundException("Book not found");
+        e.addSuppressed(new IllegalStateException());
+
+        // Assert
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(0, e.getSuppressed().length);
+        assertEquals(ErrorCode.BOOK_NOT_FOUND, e.getErrorCode());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.library.controller;
+
+import com.example.library.exception.VersionMismatchException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ConditionalResponsesTest class contains unit tests for the ConditionalResponses class.
+ */
+class ConditionalResponsesTest {
+
+    private static final Instant UPDATED_AT = Instant.parse("2024-05-02T10:00:00Z");
+
+    @Test
+    void testEtag_DependsOnFormat() {
+        // Act & Assert
+        assertEquals("\"3\"", ConditionalResponses.etag(accept("application/json"), 3));
+        assertEquals("\"3\"", ConditionalResponses.etag(new HttpHeaders(), 3));
+        assertEquals("\"3\"", ConditionalResponses.etag(accept("*/*"), 3));
+        assertEquals("\"3-cbor\"", ConditionalResponses.etag(accept("application/cbor"), 3));
+        assertEquals("\"3-cbor\"", ConditionalResponses.etag(accept("application/json;q=0.5, application/cbor"), 3));
+        assertEquals("\"3\"", ConditionalResponses.etag(accept("application/cbor;q=0, */*"), 3));
+    }
+
+    @Test
+    void testOk_TagOfOtherFormatIsModified() {
+        // Arrange
+        HttpHeaders cbor = accept("application/cbor");
+        cbor.setIfNoneMatch("\"3\"");
+        HttpHeaders json = accept("application/json");
+        json.setIfNoneMatch("\"3\"");
+
+        // Act
+        ResponseEntity<?> cborResponse = ConditionalResponses.ok(cbor, "book", 3, UPDATED_AT);
+        ResponseEntity<?> jsonResponse = ConditionalResponses.ok(json, "book", 3, UPDATED_AT);
+
+        // Assert
+        assertEquals(HttpStatus.OK, cborResponse.getStatusCode());
+        assertEquals("\"3-cbor\"", cborResponse.getHeaders().getETag());
+        assertEquals("book", cborResponse.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, jsonResponse.getStatusCode());
+        assertNull(jsonResponse.getBody());
+    }
+
+    @Test
+    void testExpectedVersion_EitherFormat() {
+        // Arrange
+        HttpHeaders json = new HttpHeaders();
+        json.setIfMatch("\"4\"");
+        HttpHeaders cbor = new HttpHeaders();
+        cbor.setIfMatch("\"4-cbor\"");
+        HttpHeaders other = new HttpHeaders();
+        other.setIfMatch("\"4-xml\"");
+        HttpHeaders weak = new HttpHeaders();
+        weak.setIfMatch("W/\"4-cbor\"");
+
+        // Act & Assert
+        assertEquals(4L, ConditionalResponses.expectedVersion(json));
+        assertEquals(4L, ConditionalResponses.expectedVersion(cbor));
+        assertEquals(-1L, ConditionalResponses.expectedVersion(other));
+        assertThrows(VersionMismatchException.class, () -> ConditionalResponses.expectedVersion(weak));
+    }
+
+    private static HttpHeaders accept(String accept) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(MediaType.parseMediaTypes(List.of(accept)));
+        return headers;
+    }
+}
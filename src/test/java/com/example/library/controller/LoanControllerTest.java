@@ -0,0 +1,89 @@
+package com.example.library.controller;
+
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.LoanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The LoanControllerTest class contains tests for the statuses returned by the LoanController class.
+ */
+class LoanControllerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private LoanService loanService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanService, "maxActiveLoans", 10);
+        LoanController controller = new LoanController();
+        ReflectionTestUtils.setField(controller, "loanService", loanService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testUpdateLoan_NewBookNotAvailable() throws Exception {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        Book previousBook = new Book("978-0-00-000001-1", "Previous", "Author", 1);
+        previousBook.setId(2L);
+        Book book = new Book("978-0-00-000002-8", "Title", "Author", 0);
+        book.setId(1L);
+        Loan loan = new Loan(user, previousBook, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/loans/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"user\":{\"id\":1},\"book\":{\"id\":1},\"startDate\":\"2024-05-02\",\"endDate\":\"2024-05-07\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("No book available"));
+        verify(loanRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.library.load;
+
+import com.example.library.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The CompressionLoadTest class measures the trade-off between bandwidth and latency of the
+ * compression of large catalog pages ({@code GET /api/books?limit=1000}): without compression, at
+ * gzip levels 1, 6 and 9 over HTTP/1.1, and at the default level over HTTP/2 in cleartext (h2c).
+ * For each run it reports the throughput, the latencies, the bytes on the wire per response and
+ * the resulting bandwidth. It is tagged as a load test and only runs on demand:
+ * {@code mvn test -Dtest.excludedGroups= -Dgroups=load -Dtest=CompressionLoadTest}.
+ */
+@Tag("load")
+class CompressionLoadTest {
+
+    private static final int CONCURRENCY = 16;
+
+    private static final Duration WARMUP_DURATION = Duration.ofSeconds(5);
+
+    private static final Duration RUN_DURATION = Duration.ofSeconds(15);
+
+    private static final double ERROR_BUDGET = 0.01;
+
+    private static final int BOOKS = 1000;
+
+    private static final String PAGE = "/api/books?limit=" + BOOKS;
+
+    @Test
+    void compareCompressionLevels() throws Exception {
+        long identityBytes = measure("identity", HttpClient.Version.HTTP_1_1, "library.compression.enabled=false");
+        long fastestBytes = measure("gzip-1", HttpClient.Version.HTTP_1_1, "library.compression.level=1");
+        long defaultBytes = measure("gzip-6", HttpClient.Version.HTTP_1_1, "library.compression.level=6");
+        long smallestBytes = measure("gzip-9", HttpClient.Version.HTTP_1_1, "library.compression.level=9");
+        long h2cBytes = measure("gzip-6-h2c", HttpClient.Version.HTTP_2, "library.compression.level=6");
+
+        assertTrue(fastestBytes < identityBytes);
+        assertTrue(smallestBytes <= defaultBytes && defaultBytes <= fastestBytes);
+        assertEquals(defaultBytes, h2cBytes);
+    }
+
+    /**
+     * Starts the application with the given properties, reads the catalog pages with clients of the
+     * given HTTP version, and returns the size of a page on the wire.
+     */
+    private long measure(String mode, HttpClient.Version version, String... properties) throws Exception {
+        try (ConfigurableApplicationContext context = LoadTestApplication.start(properties);
+             LoadGenerator generator = new LoadGenerator(HttpClient.newBuilder().version(version));
+             HttpClient client = HttpClient.newBuilder().version(version).build()) {
+            seed(context);
+            String baseUrl = LoadTestApplication.baseUrl(context);
+            HttpResponse<byte[]> page = client.send(page(baseUrl), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, page.statusCode());
+            assertEquals(version, page.version());
+            generator.run(WARMUP_DURATION, pages(baseUrl));
+
+            LoadResult pages = generator.run(RUN_DURATION, pages(baseUrl)).get("pages");
+            long bytes = page.body().length;
+            System.out.printf("%-10s %,9d bytes/page (%s), %,8.1f pages/s, p50 %6.1f ms, p99 %6.1f ms, %,8.1f MB/s%n",
+                    mode, bytes, page.headers().firstValue("Content-Encoding").orElse("identity"),
+                    pages.getThroughput(), pages.getP50Millis(), pages.getP99Millis(), pages.getThroughput() * bytes / 1_000_000);
+            assertTrue(pages.errorRate() <= ERROR_BUDGET);
+            return bytes;
+        }
+    }
+
+    private static LoadGenerator.Workload pages(String baseUrl) {
+        return new LoadGenerator.Workload("pages", CONCURRENCY, () -> page(baseUrl));
+    }
+
+    private static HttpRequest page(String baseUrl) {
+        return LoadGenerator.request(baseUrl + PAGE).header("Accept-Encoding", "gzip").GET().build();
+    }
+
+    /**
+     * Stores the books of the catalog.
+     */
+    private static void seed(ConfigurableApplicationContext context) {
+        BookService bookService = context.getBean(BookService.class);
+        for (int i = 1; i <= BOOKS; i++) {
+            bookService.save(String.format("978%010d", i), "Title of the book number " + i, "Author " + i % 50, 5);
+        }
+    }
+}
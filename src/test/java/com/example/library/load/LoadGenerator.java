@@ -0,0 +1,124 @@
+package com.example.library.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * The LoadGenerator class drives closed-loop load against a running application:
+ * each client sends its next request as soon as the previous one completes.
+ * Clients run on virtual threads, so the generator itself is not limited by threads.
+ */
+public final class LoadGenerator implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient client;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructs a new LoadGenerator with an HTTP/1.1 client.
+     */
+    public LoadGenerator() {
+        this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1));
+    }
+
+    /**
+     * Constructs a new LoadGenerator with a client built from the given builder.
+     * @param builder The builder of the HTTP client sending the requests.
+     */
+    public LoadGenerator(HttpClient.Builder builder) {
+        this.client = builder.executor(executor).connectTimeout(REQUEST_TIMEOUT).build();
+    }
+
+    /**
+     * The Workload class describes one group of clients sending the same kind of request.
+     * @param name The name of the group.
+     * @param concurrency The number of clients in the group.
+     * @param request The supplier of the next request to send.
+     */
+    public record Workload(String name, int concurrency, Supplier<HttpRequest> request) {
+    }
+
+    /**
+     * Runs all workloads at the same time for the given duration.
+     * @param duration How long the clients keep sending requests.
+     * @param workloads The groups of clients.
+     * @return The result of each group, by name.
+     * @throws Exception if a client is interrupted.
+     */
+    public Map<String, LoadResult> run(Duration duration, Workload... workloads) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Map<String, List<Future<long[]>>> futures = new LinkedHashMap<>();
+        for (Workload workload : workloads) {
+            List<Future<long[]>> clients = new ArrayList<>();
+            for (int i = 0; i < workload.concurrency(); i++) {
+                clients.add(executor.submit(() -> runClient(workload.request(), deadline)));
+            }
+            futures.put(workload.name(), clients);
+        }
+        Map<String, LoadResult> results = new LinkedHashMap<>();
+        for (Workload workload : workloads) {
+            List<Long> latencies = new ArrayList<>();
+            long errors = 0;
+            for (Future<long[]> future : futures.get(workload.name())) {
+                for (long latency : future.get()) {
+                    if (latency < 0) {
+                        errors++;
+                        latencies.add(-latency);
+                    } else {
+                        latencies.add(latency);
+                    }
+                }
+            }
+            long[] all = latencies.stream().mapToLong(Long::longValue).toArray();
+            results.put(workload.name(), new LoadResult(workload.concurrency(), all, errors, duration.toMillis() / 1000.0));
+        }
+        return results;
+    }
+
+    /**
+     * Sends requests until the deadline and returns their latencies in nanoseconds,
+     * negated for the requests that failed.
+     */
+    private long[] runClient(Supplier<HttpRequest> requests, long deadline) {
+        List<Long> latencies = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = requests.get();
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                success = response.statusCode() < 400;
+            } catch (Exception e) {
+                success = false;
+            }
+            long latency = Math.max(1, System.nanoTime() - start);
+            latencies.add(success ? latency : -latency);
+        }
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.close();
+    }
+
+    /**
+     * Creates a request builder for the given URL with the request timeout of the generator.
+     * @param url The URL of the request.
+     * @return The request builder.
+     */
+    public static HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT);
+    }
+}
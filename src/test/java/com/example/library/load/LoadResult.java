@@ -0,0 +1,83 @@
+package com.example.library.load;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The LoadResult class summarizes the requests sent by one group of load test clients.
+ */
+@Getter
+public class LoadResult {
+
+    /**
+     * The number of clients sending requests concurrently.
+     */
+    private final int concurrency;
+
+    /**
+     * The number of requests that completed with a successful status.
+     */
+    private final long successes;
+
+    /**
+     * The number of requests that failed, timed out or completed with an error status.
+     */
+    private final long errors;
+
+    /**
+     * The successful requests per second.
+     */
+    private final double throughput;
+
+    /**
+     * The median latency in milliseconds.
+     */
+    private final double p50Millis;
+
+    /**
+     * The 99th percentile latency in milliseconds.
+     */
+    private final double p99Millis;
+
+    /**
+     * Constructs a new LoadResult from the latencies of every request.
+     * @param concurrency The number of concurrent clients.
+     * @param latenciesNanos The latency of every request, in nanoseconds.
+     * @param errors The number of failed requests.
+     * @param seconds The duration of the run in seconds.
+     */
+    public LoadResult(int concurrency, long[] latenciesNanos, long errors, double seconds) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        this.concurrency = concurrency;
+        this.successes = sorted.length - errors;
+        this.errors = errors;
+        this.throughput = successes / seconds;
+        this.p50Millis = percentile(sorted, 50) / 1_000_000.0;
+        this.p99Millis = percentile(sorted, 99) / 1_000_000.0;
+    }
+
+    /**
+     * Returns the share of requests that failed.
+     * @return The error rate between 0 and 1.
+     */
+    public double errorRate() {
+        long total = successes + errors;
+        return total == 0 ? 1.0 : (double) errors / total;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%5d clients: %,9.1f req/s, p50 %,8.1f ms, p99 %,8.1f ms, errors %.2f%%",
+                concurrency, throughput, p50Millis, p99Millis, errorRate() * 100);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.library.load;
+
+import com.example.library.LibraryApplication;
+import com.example.library.LibraryApplicationTests;
+import com.example.library.model.Book;
+import com.example.library.repository.BookRepository;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The LoadTestApplication class starts the whole application in-process for load tests,
+ * on a random port and with its own in-memory database.
+ * The main components are scanned explicitly, leaving out the test configurations.
+ * With {@code load.jdbc-latency-ms} set, every JDBC statement is delayed by that many
+ * milliseconds, standing in for the network round-trip to a database server.
+ */
+@Configuration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = Book.class)
+@EnableJpaRepositories(basePackageClasses = BookRepository.class)
+@ComponentScan(basePackageClasses = LibraryApplication.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {LibraryApplication.class, LibraryApplicationTests.class}),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = ".*Test(\\$.*)?"),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.example\\.library\\.(load|benchmark)\\..*")
+})
+public class LoadTestApplication {
+
+    /**
+     * Starts the application with the given extra properties, in the form {@code name=value}.
+     * A property replaces the default of the load tests with the same name; given with an empty
+     * value, it removes that default and leaves the application configuration in effect.
+     *
+     * @param properties the properties overriding the application configuration
+     * @return the running application
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("server.port", "0");
+        args.put("management.server.port", "-1");
+        args.put("spring.datasource.url", "jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        args.put("spring.jpa.show-sql", "false");
+        args.put("spring.h2.console.enabled", "false");
+        args.put("library.rate-limit.enabled", "false");
+        args.put("library.loans.max-active-per-user", Integer.toString(Integer.MAX_VALUE));
+        args.put("library.search.index-path", "target/load-search-index-" + UUID.randomUUID());
+        args.put("library.availability.path", "target/load-availability-" + UUID.randomUUID() + ".idx");
+        args.put("library.audit.path", "target/load-audit-log-" + UUID.randomUUID());
+        args.put("logging.level.root", "WARN");
+        for (String property : properties) {
+            int separator = property.indexOf('=');
+            args.put(property.substring(0, separator), property.substring(separator + 1));
+        }
+        return new SpringApplicationBuilder(LoadTestApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.entrySet().stream()
+                        .filter(arg -> !arg.getValue().isEmpty())
+                        .map(arg -> "--" + arg.getKey() + "=" + arg.getValue())
+                        .toArray(String[]::new));
+    }
+
+    /**
+     * Returns the base URL of a running application.
+     *
+     * @param context the running application
+     * @return the URL of the application root, without a trailing slash
+     */
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * Wraps the data source so that statements are delayed by {@code load.jdbc-latency-ms}.
+     *
+     * @param environment the environment holding the latency
+     * @return the post-processor wrapping the data source
+     */
+    @Bean
+    static BeanPostProcessor jdbcLatency(Environment environment) {
+        long latencyMillis = environment.getProperty("load.jdbc-latency-ms", Long.class, 0L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (latencyMillis > 0 && bean instanceof DataSource dataSource) {
+                    return delegate(DataSource.class, dataSource, latencyMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Creates a proxy that delegates to the target, sleeping before every statement execution
+     * and wrapping the connections and statements it hands out in the same way.
+     */
+    private static <T> T delegate(Class<T> type, T target, long latencyMillis) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (Statement.class.isAssignableFrom(method.getDeclaringClass()) && method.getName().startsWith("execute")) {
+                Thread.sleep(latencyMillis);
+            }
+            Object result = invoke(method, target, args);
+            return wrap(method, result, latencyMillis);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object wrap(Method method, Object result, long latencyMillis) {
+        Class<?> type = method.getReturnType();
+        if (result != null && (type == Connection.class || (Statement.class.isAssignableFrom(type) && type.isInterface()))) {
+            return delegate((Class<Object>) type, result, latencyMillis);
+        }
+        return result;
+    }
+}
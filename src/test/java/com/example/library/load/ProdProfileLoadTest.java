@@ -0,0 +1,108 @@
+package com.example.library.load;
+
+import com.example.library.service.BookService;
+import com.example.library.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ProdProfileLoadTest class compares the throughput of checkouts ({@code POST /api/loans})
+ * and catalog reads ({@code GET /api/books/{id}}) with the default settings and with the prod profile.
+ * Both runs use an H2 database in file mode under {@code target}, as the application does, and
+ * each workload runs on its own so that their numbers do not depend on each other.
+ * The default run logs every statement to stdout, which is part of what the prod profile removes.
+ * It is tagged as a load test and only runs on demand:
+ * {@code mvn test -Dtest.excludedGroups= -Dgroups=load -Dtest=ProdProfileLoadTest}.
+ */
+@Tag("load")
+class ProdProfileLoadTest {
+
+    private static final int CONCURRENCY = 32;
+
+    private static final Duration WARMUP_DURATION = Duration.ofSeconds(5);
+
+    private static final Duration RUN_DURATION = Duration.ofSeconds(15);
+
+    private static final double ERROR_BUDGET = 0.01;
+
+    private static final int BOOKS = 100;
+
+    private static final int USERS = 100;
+
+    @Test
+    void compareThroughput() throws Exception {
+        String defaultFile = "./target/load-h2-" + UUID.randomUUID() + "/bd";
+        String prodFile = "./target/load-h2-" + UUID.randomUUID() + "/bd";
+        LoadResult[] defaults = measure("default", "spring.datasource.url=jdbc:h2:file:" + defaultFile,
+                "spring.jpa.show-sql=true");
+        LoadResult[] prod = measure("prod", "spring.profiles.active=prod", "spring.datasource.url=",
+                "library.h2.file=" + prodFile);
+
+        System.out.printf("Checkouts: default %,.1f req/s, prod %,.1f req/s%n", defaults[0].getThroughput(), prod[0].getThroughput());
+        System.out.printf("Reads:     default %,.1f req/s, prod %,.1f req/s%n", defaults[1].getThroughput(), prod[1].getThroughput());
+        for (LoadResult result : prod) {
+            assertTrue(result.errorRate() <= ERROR_BUDGET);
+        }
+        assertTrue(prod[0].getThroughput() >= defaults[0].getThroughput());
+        assertTrue(prod[1].getThroughput() >= defaults[1].getThroughput());
+    }
+
+    /**
+     * Runs the checkouts and then the reads against a fresh application, and returns their results in that order.
+     */
+    private LoadResult[] measure(String mode, String... properties) throws Exception {
+        try (ConfigurableApplicationContext context = LoadTestApplication.start(properties);
+             LoadGenerator generator = new LoadGenerator()) {
+            seed(context);
+            String baseUrl = LoadTestApplication.baseUrl(context);
+            generator.run(WARMUP_DURATION, checkouts(baseUrl), reads(baseUrl));
+
+            LoadResult checkouts = generator.run(RUN_DURATION, checkouts(baseUrl)).get("checkouts");
+            LoadResult reads = generator.run(RUN_DURATION, reads(baseUrl)).get("reads");
+            System.out.println(mode);
+            System.out.println(" checkouts " + checkouts);
+            System.out.println(" reads     " + reads);
+            return new LoadResult[]{checkouts, reads};
+        }
+    }
+
+    private static LoadGenerator.Workload checkouts(String baseUrl) {
+        return new LoadGenerator.Workload("checkouts", CONCURRENCY, () -> LoadGenerator.request(baseUrl + "/api/loans")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                        "{\"user\":{\"id\":%d},\"book\":{\"id\":%d},\"startDate\":\"2024-05-02\",\"endDate\":\"2024-05-16\"}",
+                        randomId(USERS), randomId(BOOKS))))
+                .build());
+    }
+
+    private static LoadGenerator.Workload reads(String baseUrl) {
+        return new LoadGenerator.Workload("reads", CONCURRENCY,
+                () -> LoadGenerator.request(baseUrl + "/api/books/" + randomId(BOOKS)).GET().build());
+    }
+
+    private static long randomId(int count) {
+        return ThreadLocalRandom.current().nextLong(1, count + 1);
+    }
+
+    /**
+     * Stores the books and users; the first ones stored get the IDs 1, 2, and so on.
+     */
+    private static void seed(ConfigurableApplicationContext context) {
+        BookService bookService = context.getBean(BookService.class);
+        UserService userService = context.getBean(UserService.class);
+        for (int i = 1; i <= BOOKS; i++) {
+            bookService.save(String.format("978%010d", i), "Title " + i, "Author", 1_000_000);
+        }
+        for (int i = 1; i <= USERS; i++) {
+            userService.save("User " + i, "user" + i + "@example.com");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.library.load;
+
+import com.example.library.LibraryApplication;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The ReactiveLoadTest class compares checkouts ({@code POST /api/loans}) on the servlet application
+ * and on its reactive variant in {@code reactive/}, with {@value #CONNECTIONS} clients each holding
+ * its own connection.
+ * Both applications run in their own JVM with the same heap and a connection pool of the same size,
+ * against an H2 file database migrated and seeded by the test, so that the load generator does not
+ * compete with either of them. The reactive variant must be packaged first, and the client needs a
+ * limit of open files well above the number of connections ({@code ulimit -n}):
+ * {@code mvn -f reactive/pom.xml package -DskipTests && mvn test -Dtest.excludedGroups= -Dgroups=load -Dtest=ReactiveLoadTest}.
+ */
+@Tag("load")
+class ReactiveLoadTest {
+
+    private static final int CONNECTIONS = 10_000;
+
+    private static final Duration WARMUP_DURATION = Duration.ofSeconds(10);
+
+    private static final Duration RUN_DURATION = Duration.ofSeconds(30);
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final double ERROR_BUDGET = 0.01;
+
+    private static final int BOOKS = 100;
+
+    private static final int USERS = 100;
+
+    private static final int POOL_SIZE = 16;
+
+    private static final String HEAP = "-Xmx2g";
+
+    private static final Path REACTIVE_JAR = Path.of("reactive/target/library-reactive-0.0.1-SNAPSHOT.jar");
+
+    @Test
+    void compareCheckouts() throws Exception {
+        assumeTrue(Files.exists(REACTIVE_JAR), "Package the reactive module first: mvn -f reactive/pom.xml package -DskipTests");
+
+        LoadResult servlet = measure("servlet", servletCommand(seededDatabase()));
+        LoadResult reactive = measure("reactive", reactiveCommand(seededDatabase()));
+
+        System.out.printf("Checkouts at %,d connections: servlet %,.1f req/s (p99 %.1f ms, errors %.2f%%), reactive %,.1f req/s (p99 %.1f ms, errors %.2f%%)%n",
+                CONNECTIONS, servlet.getThroughput(), servlet.getP99Millis(), servlet.errorRate() * 100,
+                reactive.getThroughput(), reactive.getP99Millis(), reactive.errorRate() * 100);
+        assertTrue(reactive.errorRate() <= ERROR_BUDGET);
+    }
+
+    /**
+     * Starts the application with the given command, runs the checkouts against it and stops it.
+     */
+    private LoadResult measure(String mode, List<String> command) throws Exception {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        Process process = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("target", "load-" + mode + ".log").toFile())
+                .start();
+        try (LoadGenerator generator = new LoadGenerator()) {
+            String baseUrl = "http://localhost:" + port;
+            awaitStartup(process, baseUrl);
+            generator.run(WARMUP_DURATION, checkouts(baseUrl));
+
+            LoadResult checkouts = generator.run(RUN_DURATION, checkouts(baseUrl)).get("checkouts");
+            System.out.println(mode);
+            System.out.println(" checkouts " + checkouts);
+            return checkouts;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> servletCommand(String url) {
+        // The main classes only, leaving out the test configurations scanned from the same packages
+        String classpath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.endsWith("test-classes"))
+                .collect(Collectors.joining(File.pathSeparator));
+        return List.of(java(), HEAP, "-cp", classpath, LibraryApplication.class.getName(),
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "--spring.jpa.show-sql=false",
+                "--management.server.port=-1",
+                "--spring.h2.console.enabled=false",
+                "--library.rate-limit.enabled=false",
+                "--library.loans.max-active-per-user=" + Integer.MAX_VALUE,
+                "--library.search.index-path=target/load-search-index-" + UUID.randomUUID(),
+                "--library.availability.path=target/load-availability-" + UUID.randomUUID() + ".idx",
+                "--library.audit.path=target/load-audit-log-" + UUID.randomUUID(),
+                "--logging.level.root=WARN");
+    }
+
+    private static List<String> reactiveCommand(String url) {
+        return List.of(java(), HEAP, "-jar", REACTIVE_JAR.toString(),
+                "--spring.r2dbc.url=r2dbc:h2:file//" + url.substring("jdbc:h2:file:".length()),
+                "--spring.r2dbc.pool.initial-size=" + POOL_SIZE,
+                "--spring.r2dbc.pool.max-size=" + POOL_SIZE,
+                "--spring.flyway.url=" + url,
+                "--logging.level.root=WARN");
+    }
+
+    /**
+     * Creates a new H2 file database with the schema of the migrations, and stores the books and
+     * users with the IDs 1, 2, and so on.
+     */
+    private static String seededDatabase() {
+        String url = "jdbc:h2:file:" + Path.of("target", "load-h2-" + UUID.randomUUID(), "bd").toAbsolutePath();
+        Flyway.configure().dataSource(url, "sa", "password").locations("classpath:db/migration/h2").load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "sa", "password"));
+        List<Object[]> books = new ArrayList<>();
+        for (int i = 1; i <= BOOKS; i++) {
+            books.add(new Object[]{(long) i, String.format("978%010d", i), "Title " + i, "Author", 1_000_000});
+        }
+        jdbcTemplate.batchUpdate("insert into loan_books (id, isbn, title, author, quantity) values (?, ?, ?, ?, ?)", books);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            users.add(new Object[]{(long) i, "User " + i, "user" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into loan_users (id, name, email) values (?, ?, ?)", users);
+        // Closes the database, which each application then opens on its own
+        jdbcTemplate.execute("shutdown");
+        return url;
+    }
+
+    private static void awaitStartup(Process process, String baseUrl) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            while (System.nanoTime() < deadline) {
+                assertTrue(process.isAlive(), "The application exited on startup");
+                try {
+                    HttpRequest request = LoadGenerator.request(baseUrl + "/api/loans?limit=1").GET().build();
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException("The application did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private static LoadGenerator.Workload checkouts(String baseUrl) {
+        return new LoadGenerator.Workload("checkouts", CONNECTIONS, () -> LoadGenerator.request(baseUrl + "/api/loans")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                        "{\"user\":{\"id\":%d},\"book\":{\"id\":%d},\"startDate\":\"2024-05-02\",\"endDate\":\"2024-05-16\"}",
+                        randomId(USERS), randomId(BOOKS))))
+                .build());
+    }
+
+    private static long randomId(int count) {
+        return ThreadLocalRandom.current().nextLong(1, count + 1);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
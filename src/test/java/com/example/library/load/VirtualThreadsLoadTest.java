@@ -0,0 +1,118 @@
+package com.example.library.load;
+
+import com.example.library.service.BookService;
+import com.example.library.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The VirtualThreadsLoadTest class compares the highest checkout concurrency the application
+ * sustains with platform threads and with the virtual-threads profile.
+ * Checkouts block on the database, which is given a latency of {@value #JDBC_LATENCY_MS} ms per
+ * statement; catalog reads are served from the cache and should stay fast. A level is sustained
+ * while catalog reads keep their p99 under {@value #READ_P99_BUDGET_MILLIS} ms and fewer than 1%
+ * of all requests fail. It is tagged as a load test and only runs on demand:
+ * {@code mvn test -Dtest.excludedGroups= -Dgroups=load -Dtest=VirtualThreadsLoadTest}.
+ */
+@Tag("load")
+class VirtualThreadsLoadTest {
+
+    private static final int[] CHECKOUT_CONCURRENCY = {50, 100, 200, 400, 800, 1600};
+
+    private static final int READ_CONCURRENCY = 32;
+
+    private static final Duration STEP_DURATION = Duration.ofSeconds(10);
+
+    private static final long JDBC_LATENCY_MS = 5;
+
+    private static final double READ_P99_BUDGET_MILLIS = 100;
+
+    private static final double ERROR_BUDGET = 0.01;
+
+    private static final int BOOKS = 100;
+
+    private static final int USERS = 100;
+
+    /**
+     * The connection pool is the same in both modes, sized as in the virtual-threads profile.
+     */
+    private static final String POOL_SIZE = "spring.datasource.hikari.maximum-pool-size=8";
+
+    @Test
+    void compareMaxSustainableConcurrency() throws Exception {
+        int platform = maxSustainableConcurrency("platform threads", "spring.threads.virtual.enabled=false");
+        int virtual = maxSustainableConcurrency("virtual threads", "spring.profiles.active=virtual-threads");
+
+        System.out.printf("Max sustainable checkout concurrency: platform threads %d, virtual threads %d%n", platform, virtual);
+        assertTrue(virtual >= platform);
+    }
+
+    /**
+     * Raises the checkout concurrency step by step and returns the last level that was sustained.
+     */
+    private int maxSustainableConcurrency(String mode, String threadProperty) throws Exception {
+        try (ConfigurableApplicationContext context = LoadTestApplication.start(threadProperty, POOL_SIZE,
+                "load.jdbc-latency-ms=" + JDBC_LATENCY_MS);
+             LoadGenerator generator = new LoadGenerator()) {
+            seed(context);
+            String baseUrl = LoadTestApplication.baseUrl(context);
+            generator.run(Duration.ofSeconds(5), checkouts(baseUrl, 20), reads(baseUrl));
+
+            System.out.println(mode);
+            int sustained = 0;
+            for (int concurrency : CHECKOUT_CONCURRENCY) {
+                Map<String, LoadResult> results = generator.run(STEP_DURATION, checkouts(baseUrl, concurrency), reads(baseUrl));
+                LoadResult checkouts = results.get("checkouts");
+                LoadResult reads = results.get("reads");
+                System.out.println(" checkouts " + checkouts);
+                System.out.println(" reads     " + reads);
+                if (reads.getP99Millis() > READ_P99_BUDGET_MILLIS
+                        || checkouts.errorRate() > ERROR_BUDGET || reads.errorRate() > ERROR_BUDGET) {
+                    break;
+                }
+                sustained = concurrency;
+            }
+            return sustained;
+        }
+    }
+
+    private static LoadGenerator.Workload checkouts(String baseUrl, int concurrency) {
+        return new LoadGenerator.Workload("checkouts", concurrency, () -> LoadGenerator.request(baseUrl + "/api/loans")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                        "{\"user\":{\"id\":%d},\"book\":{\"id\":%d},\"startDate\":\"2024-05-02\",\"endDate\":\"2024-05-16\"}",
+                        randomId(USERS), randomId(BOOKS))))
+                .build());
+    }
+
+    private static LoadGenerator.Workload reads(String baseUrl) {
+        return new LoadGenerator.Workload("reads", READ_CONCURRENCY,
+                () -> LoadGenerator.request(baseUrl + "/api/books/" + randomId(BOOKS)).GET().build());
+    }
+
+    private static long randomId(int count) {
+        return ThreadLocalRandom.current().nextLong(1, count + 1);
+    }
+
+    /**
+     * Stores the books and users; the first ones stored get the IDs 1, 2, and so on.
+     */
+    private static void seed(ConfigurableApplicationContext context) {
+        BookService bookService = context.getBean(BookService.class);
+        UserService userService = context.getBean(UserService.class);
+        for (int i = 1; i <= BOOKS; i++) {
+            bookService.save(String.format("978%010d", i), "Title " + i, "Author", 1_000_000);
+        }
+        for (int i = 1; i <= USERS; i++) {
+            userService.save("User " + i, "user" + i + "@example.com");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.library.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The AdaptiveConcurrencyLimiterTest class contains unit tests for the AdaptiveConcurrencyLimiter class.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = 1_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    void testTryAcquire_RejectsOverLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, THRESHOLD, 0.5);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testRelease_FastRequestsRaiseLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, THRESHOLD, 0.5);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.release(THRESHOLD, false);
+            limiter.release(THRESHOLD, false);
+        }
+
+        // Assert
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testRelease_LittleUsedLimitIsNotRaised() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16, THRESHOLD, 0.5);
+
+        // Act
+        limiter.tryAcquire();
+        limiter.release(THRESHOLD, false);
+
+        // Assert
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void testRelease_SlowOrFailedRequestsCutLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 3, 16, THRESHOLD, 0.5, clock::get);
+
+        // Act & Assert
+        limiter.tryAcquire();
+        clock.addAndGet(THRESHOLD + 1);
+        limiter.release(THRESHOLD + 1, false);
+        assertEquals(4, limiter.getLimit());
+        clock.incrementAndGet();
+        limiter.tryAcquire();
+        clock.addAndGet(10);
+        limiter.release(10, true);
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void testRelease_CutsOncePerWindow() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 16, THRESHOLD, 0.5, clock::get);
+        for (int i = 0; i < 8; i++) {
+            limiter.tryAcquire();
+        }
+        clock.addAndGet(THRESHOLD + 1);
+
+        // Act: the requests caught in the same slowdown all complete slowly
+        for (int i = 0; i < 8; i++) {
+            limiter.release(THRESHOLD + 1 + i, false);
+        }
+
+        // Assert
+        assertEquals(8, limiter.getLimit());
+
+        // Act: a request admitted after the cut is slow too
+        clock.incrementAndGet();
+        limiter.tryAcquire();
+        clock.addAndGet(THRESHOLD + 1);
+        limiter.release(THRESHOLD + 1, false);
+
+        // Assert
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(2, 3, 10, THRESHOLD, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(20, 1, 10, THRESHOLD, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(2, 1, 10, THRESHOLD, 1.0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.library.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ClientRateLimiterTest class contains unit tests for the ClientRateLimiter class,
+ * with a clock moved by hand.
+ */
+class ClientRateLimiterTest {
+
+    private static final long INTERVAL = 100_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(Long.MAX_VALUE - 250_000_000L);
+
+    private ClientRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 10 requests per second with bursts of 3, starting close to the wrap-around of the clock
+        rateLimiter = new ClientRateLimiter(10, 3, clock::get);
+    }
+
+    @Test
+    void testTryAcquire_AdmitsBurstThenReturnsWait() {
+        // Act & Assert
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+        assertEquals(INTERVAL, rateLimiter.tryAcquire("a"));
+    }
+
+    @Test
+    void testTryAcquire_AdmitsAtSustainedRate() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            clock.addAndGet(INTERVAL);
+            assertEquals(0, rateLimiter.tryAcquire("a"));
+            assertTrue(rateLimiter.tryAcquire("a") > 0);
+        }
+    }
+
+    @Test
+    void testTryAcquire_RejectedRequestsAreNotCounted() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+        rateLimiter.tryAcquire("a");
+        rateLimiter.tryAcquire("a");
+
+        // Act
+        clock.addAndGet(INTERVAL);
+
+        // Assert
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+    }
+
+    @Test
+    void testTryAcquire_ClientsAreIndependent() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+
+        // Act & Assert
+        assertTrue(rateLimiter.tryAcquire("a") > 0);
+        assertEquals(0, rateLimiter.tryAcquire("b"));
+        assertEquals(2, rateLimiter.clientCount());
+    }
+
+    @Test
+    void testEvictIdle_RemovesOnlyRefilledClients() {
+        // Arrange
+        rateLimiter.tryAcquire("a");
+        clock.addAndGet(INTERVAL);
+        rateLimiter.tryAcquire("b");
+
+        // Act
+        int evicted = rateLimiter.evictIdle();
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals(1, rateLimiter.clientCount());
+        clock.addAndGet(INTERVAL);
+        assertEquals(1, rateLimiter.evictIdle());
+        assertEquals(0, rateLimiter.clientCount());
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(1, 0));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.library.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The RateLimitInterceptorTest class contains unit tests for the RateLimitInterceptor class.
+ */
+class RateLimitInterceptorTest {
+
+    private MeterRegistry meterRegistry;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // One request per minute, so that the second one from a client is always turned away
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(1.0 / 60, 1);
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 1, 4, Long.MAX_VALUE, 0.5);
+        interceptor = new RateLimitInterceptor(rateLimiter, concurrencyLimiter, "X-API-Key", Set.of("a", "b"), new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    void testPreHandle_RateExceeded() throws Exception {
+        // Arrange
+        interceptor.preHandle(post("a"), new MockHttpServletResponse(), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean admitted = interceptor.preHandle(post("a"), response, null);
+
+        // Assert
+        assertFalse(admitted);
+        assertEquals(429, response.getStatus());
+        assertTrue(Integer.parseInt(response.getHeader("Retry-After")) >= 59);
+        assertTrue(response.getContentAsString().contains("Too many requests from this client"));
+        assertEquals(1.0, meterRegistry.get(RateLimitInterceptor.REJECTED_METRIC).tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    void testPreHandle_ReadsPassThrough() throws Exception {
+        // Arrange
+        interceptor.preHandle(post("a"), new MockHttpServletResponse(), null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+        request.addHeader("X-API-Key", "a");
+
+        // Act & Assert
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void testPreHandle_ClientsKeyedByApiKeyOrAddress() throws Exception {
+        // Arrange
+        MockHttpServletRequest first = post("a");
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        MockHttpServletRequest anonymous = new MockHttpServletRequest("POST", "/api/loans");
+        anonymous.setRemoteAddr("192.0.2.1");
+
+        // Act
+        boolean admitted = interceptor.preHandle(anonymous, new MockHttpServletResponse(), null);
+
+        // Assert
+        assertTrue(admitted);
+    }
+
+    @Test
+    void testPreHandle_UnknownKeysKeyedByAddress() throws Exception {
+        // Arrange
+        MockHttpServletRequest first = post("made-up-1");
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act: another made-up key from the same address
+        boolean admitted = interceptor.preHandle(post("made-up-2"), response, null);
+
+        // Assert
+        assertFalse(admitted);
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void testPreHandle_ConcurrencyExceeded() throws Exception {
+        // Arrange
+        MockHttpServletRequest first = post("a");
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean admitted = interceptor.preHandle(post("b"), response, null);
+
+        // Assert
+        assertFalse(admitted);
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get(RateLimitInterceptor.REJECTED_METRIC).tag("reason", "concurrency").counter().count());
+    }
+
+    @Test
+    void testAfterCompletion_ReleasesAdmittedRequest() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = post("a");
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(500);
+
+        // Act
+        interceptor.afterCompletion(request, response, null, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // Assert
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        assertEquals(1, concurrencyLimiter.getLimit());
+        assertTrue(interceptor.preHandle(post("b"), new MockHttpServletResponse(), null));
+    }
+
+    private static MockHttpServletRequest post(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.library.replica;
+
+import com.example.library.config.ReplicaConfiguration;
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.model.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The ReplicaRoutingTest class verifies the routing of read-only transactions with a primary and
+ * two replicas, all of them in-memory H2 databases.
+ * H2 has no replication, so the replicas are brought up to date by copying a script of the primary
+ * into them; in between they lag behind, and the tests change their rows directly to tell which
+ * database answered a read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-primary;DB_CLOSE_DELAY=-1",
+        "library.replicas.urls=" + ReplicaRoutingTest.REPLICA_A + "," + ReplicaRoutingTest.REPLICA_B,
+        "library.replicas.max-lag-ms=5000",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.show-sql=false"
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_A = "jdbc:h2:mem:replica-a;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_B = "jdbc:h2:mem:replica-b;DB_CLOSE_DELAY=-1";
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, ReplicaConfiguration.class})
+    static class Config {
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate replicaA = replica(REPLICA_A);
+
+    private final JdbcTemplate replicaB = replica(REPLICA_B);
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testFindById_ReadsFromReplicasInTurn() throws InterruptedException {
+        // Arrange
+        Book book = bookService.save("9780000000301", "Title", "Author", 1);
+        catchUp();
+        setTitle(replicaA, book, "Replica A");
+        setTitle(replicaB, book, "Replica B");
+
+        // Act
+        Set<String> titles = new HashSet<>();
+        titles.add(bookService.findById(book.getId()).getTitle());
+        titles.add(bookService.findById(book.getId()).getTitle());
+
+        // Assert
+        assertEquals(Set.of("Replica A", "Replica B"), titles);
+    }
+
+    @Test
+    void testFindById_SkipsLaggingReplicas() throws InterruptedException {
+        // Arrange
+        Book book = bookService.save("9780000000302", "Title", "Author", 1);
+        catchUp();
+        setTitle(replicaA, book, "Replica A");
+        setTitle(replicaB, book, "Replica B");
+        setBeat(replicaB, System.currentTimeMillis() - 60_000);
+        routingDataSource.heartbeat();
+
+        // Act
+        String first = bookService.findById(book.getId()).getTitle();
+        String second = bookService.findById(book.getId()).getTitle();
+        setBeat(replicaA, System.currentTimeMillis() - 60_000);
+        routingDataSource.heartbeat();
+        String fallback = bookService.findById(book.getId()).getTitle();
+
+        // Assert
+        assertEquals("Replica A", first);
+        assertEquals("Replica A", second);
+        assertEquals("Title", fallback);
+    }
+
+    @Test
+    void testFindById_ReadsOwnWritesFromPrimary() throws InterruptedException {
+        // Arrange
+        catchUp();
+        Book book = bookService.save("9780000000303", "Title", "Author", 1);
+        routingDataSource.heartbeat();
+
+        // Act
+        Book found = bookService.findById(book.getId());
+        CompletableFuture<Book> elsewhere = CompletableFuture.supplyAsync(() -> bookService.findById(book.getId()));
+
+        // Assert
+        assertEquals("Title", found.getTitle());
+        ExecutionException e = assertThrows(ExecutionException.class, elsewhere::get);
+        assertInstanceOf(BookNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    void testFindById_ReadsOwnWritesFromPrimaryAcrossRequests() throws InterruptedException {
+        // Arrange
+        Book book = bookService.save("9780000000304", "Title", "Author", 1);
+        catchUp();
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        inRequest(new MockHttpServletRequest(), writeResponse);
+        bookService.update(book.getId(), book.getIsbn(), "Updated Title", book.getAuthor(), book.getQuantity());
+        Cookie cookie = writeResponse.getCookie(ReadYourWrites.COOKIE);
+
+        // Act
+        inRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        String withoutCookie = bookService.findById(book.getId()).getTitle();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        inRequest(request, new MockHttpServletResponse());
+        String withCookie = bookService.findById(book.getId()).getTitle();
+
+        // Assert
+        assertNotNull(cookie);
+        assertEquals("Title", withoutCookie);
+        assertEquals("Updated Title", withCookie);
+    }
+
+    /**
+     * Brings both replicas up to date with the primary, including a heartbeat written after the
+     * last write of the test, and reads their heartbeats.
+     */
+    private void catchUp() throws InterruptedException {
+        // Leaves the heartbeat a clock tick later than the last write
+        Thread.sleep(2);
+        routingDataSource.heartbeat();
+        List<String> script = jdbcTemplate.queryForList("script", String.class);
+        for (JdbcTemplate replica : List.of(replicaA, replicaB)) {
+            replica.execute("drop all objects");
+            script.forEach(replica::execute);
+        }
+        routingDataSource.heartbeat();
+    }
+
+    private static void setTitle(JdbcTemplate replica, Book book, String title) {
+        replica.update("update loan_books set title = ? where id = ?", title, book.getId());
+    }
+
+    private static void setBeat(JdbcTemplate replica, long beat) {
+        replica.update("update replication_heartbeat set beat = ? where id = 1", beat);
+    }
+
+    private static void inRequest(MockHttpServletRequest request, MockHttpServletResponse response) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+    }
+
+    private static JdbcTemplate replica(String url) {
+        DataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        return new JdbcTemplate(dataSource);
+    }
+}
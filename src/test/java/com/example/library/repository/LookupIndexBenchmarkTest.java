@@ -0,0 +1,134 @@
+package com.example.library.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The LookupIndexBenchmarkTest class measures the latency of the ISBN and email lookups
+ * done on every create and update, on a table of one million rows, before and after
+ * adding the unique constraints declared on the Book and User entities.
+ * It is tagged as a benchmark and only runs on demand:
+ * {@code mvn test -Dtest.excludedGroups= -Dgroups=benchmark}.
+ */
+@Tag("benchmark")
+class LookupIndexBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final int SCAN_LOOKUPS = 20;
+
+    private static final int INDEXED_LOOKUPS = 20_000;
+
+    @Test
+    void benchmarkIsbnLookup() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:isbn-benchmark", "sa", "")) {
+            execute(connection, "create table loan_books (id bigint primary key, isbn varchar(255), "
+                    + "title varchar(255), author varchar(255), quantity integer not null)");
+            try (PreparedStatement insert = connection.prepareStatement("insert into loan_books values (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, isbn(i));
+                    insert.setString(3, "Title " + i);
+                    insert.setString(4, "Author " + (i % 10_000));
+                    insert.setInt(5, 1 + i % 5);
+                    addToBatch(insert, i);
+                }
+            }
+
+            String query = "select * from loan_books where isbn = ?";
+            long[] before = measure(connection, query, SCAN_LOOKUPS, LookupIndexBenchmarkTest::isbn);
+            execute(connection, "alter table loan_books add constraint uk_loan_books_isbn unique (isbn)");
+            long[] after = measure(connection, query, INDEXED_LOOKUPS, LookupIndexBenchmarkTest::isbn);
+
+            report("findByIsbn", before, after);
+            assertTrue(percentile(after, 50) < percentile(before, 50));
+        }
+    }
+
+    @Test
+    void benchmarkEmailLookup() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:email-benchmark", "sa", "")) {
+            execute(connection, "create table loan_users (id bigint primary key, name varchar(255), email varchar(255))");
+            try (PreparedStatement insert = connection.prepareStatement("insert into loan_users values (?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, "User " + i);
+                    insert.setString(3, email(i));
+                    addToBatch(insert, i);
+                }
+            }
+
+            String query = "select * from loan_users where email = ?";
+            long[] before = measure(connection, query, SCAN_LOOKUPS, LookupIndexBenchmarkTest::email);
+            execute(connection, "alter table loan_users add constraint uk_loan_users_email unique (email)");
+            long[] after = measure(connection, query, INDEXED_LOOKUPS, LookupIndexBenchmarkTest::email);
+
+            report("findUserByEmail", before, after);
+            assertTrue(percentile(after, 50) < percentile(before, 50));
+        }
+    }
+
+    private static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void addToBatch(PreparedStatement insert, int row) throws SQLException {
+        insert.addBatch();
+        if (row % BATCH_SIZE == 0 || row == ROWS) {
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Runs the lookup for random existing keys and returns the sorted latencies in nanoseconds.
+     */
+    private static long[] measure(Connection connection, String query, int lookups,
+                                  IntFunction<String> key) throws SQLException {
+        Random random = new Random(42);
+        long[] latencies = new long[lookups];
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < lookups; i++) {
+                statement.setString(1, key.apply(1 + random.nextInt(ROWS)));
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sortedLatencies, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)];
+    }
+
+    private static void report(String lookup, long[] before, long[] after) {
+        System.out.printf("%s at %,d rows%n", lookup, ROWS);
+        System.out.printf(" - without index: p50 %,d us, p99 %,d us (%d lookups)%n",
+                percentile(before, 50) / 1_000, percentile(before, 99) / 1_000, before.length);
+        System.out.printf(" - with unique index: p50 %,d us, p99 %,d us (%d lookups)%n",
+                percentile(after, 50) / 1_000, percentile(after, 99) / 1_000, after.length);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.library.repository;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.exception.BookAlreadyExistsException;
+import com.example.library.exception.UserAlreadyExistsException;
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
+import com.example.library.model.User;
+import com.example.library.service.BookService;
+import com.example.library.service.LoanService;
+import com.example.library.service.OverdueLoanService;
+import com.example.library.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The PostgresRepositoryTest class runs the repositories with the postgres profile against a
+ * PostgreSQL server started from the embedded binaries, with the schema created by the
+ * PostgreSQL migrations and checked against the entities on startup.
+ */
+@SpringBootTest(properties = {
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("postgres")
+class PostgresRepositoryTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, UserService.class, LoanService.class, OverdueLoanService.class, AvailabilityService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private OverdueLoanService overdueLoanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void testSchema_CreatedByMigrations() {
+        // Act
+        List<String> versions = jdbcTemplate.queryForList(
+                "select version from flyway_schema_history where success order by installed_rank", String.class);
+
+        // Assert
+        assertEquals(List.of("1", "2", "3", "4", "5"), versions);
+    }
+
+    @Test
+    void testSaveBook_DuplicateIsbn() {
+        // Arrange
+        bookService.save("9780000000201", "Title", "Author", 1);
+
+        // Act and Assert
+        assertThrows(BookAlreadyExistsException.class, () -> bookService.save("9780000000201", "Other Title", "Author", 1));
+        assertEquals(List.of("9780000000201"), bookRepository.findExistingIsbns(List.of("9780000000201", "9780000000202")));
+    }
+
+    @Test
+    void testSaveUser_DuplicateEmail() {
+        // Arrange
+        userService.save("User", "postgres-user@example.com");
+
+        // Act and Assert
+        assertThrows(UserAlreadyExistsException.class, () -> userService.save("Other User", "postgres-user@example.com"));
+        assertEquals(List.of("postgres-user@example.com"),
+                userRepository.findExistingEmails(List.of("postgres-user@example.com", "other@example.com")));
+    }
+
+    @Test
+    void testReserveAndReleaseCopy() {
+        // Arrange
+        Book book = bookService.save("9780000000203", "Title", "Author", 1);
+
+        // Act
+        int reserved = transactionTemplate.execute(status -> bookRepository.reserveCopy(book.getId()));
+        int soldOut = transactionTemplate.execute(status -> bookRepository.reserveCopy(book.getId()));
+        int released = transactionTemplate.execute(status -> bookRepository.releaseCopy(book.getId()));
+
+        // Assert
+        assertEquals(1, reserved);
+        assertEquals(0, soldOut);
+        assertEquals(1, released);
+        Book stored = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(1, stored.getQuantity());
+        assertEquals(book.getVersion() + 2, stored.getVersion());
+    }
+
+    @Test
+    void testLoans_ListedAndSweptForOverdue() {
+        // Arrange
+        User user = userService.save("Borrower", "postgres-borrower@example.com");
+        Book book = bookService.save("9780000000204", "Title", "Author", 2);
+        Loan ended = loanService.save(user.getId(), book.getId(), LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+        Loan active = loanService.save(user.getId(), book.getId(), LocalDate.of(2024, 5, 2), LocalDate.of(2099, 5, 7));
+
+        // Act
+        List<LoanView> views = loanRepository.findViewsByIdGreaterThan(0L, Limit.of(10));
+        int flagged = overdueLoanService.sweep(LocalDate.of(2024, 6, 1));
+
+        // Assert
+        assertEquals(List.of(ended.getId(), active.getId()), views.stream().map(LoanView::getId).toList());
+        assertEquals(1, flagged);
+        List<LoanView> overdue = loanRepository.findOverdueViewsByIdGreaterThan(0L, Limit.of(10));
+        assertEquals(List.of(ended.getId()), overdue.stream().map(LoanView::getId).toList());
+        assertTrue(overdue.get(0).isOverdue());
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
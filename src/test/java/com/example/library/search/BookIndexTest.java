@@ -0,0 +1,132 @@
+package com.example.library.search;
+
+import com.example.library.model.BookHit;
+import com.example.library.model.SearchPage;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The BookIndexTest class contains unit tests for the BookIndex class, on an in-memory directory.
+ */
+public class BookIndexTest {
+
+    private BookIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new BookIndex(new ByteBuffersDirectory());
+        index.update(1L, "978-0-13-595705-9", "The Pragmatic Programmer", "David Thomas");
+        index.update(2L, "9780134685991", "Effective Java", "Joshua Bloch");
+        index.update(3L, "9780321356680", "Java Concurrency in Practice", "Brian Goetz");
+        index.update(4L, "9788437604947", "Cien años de soledad", "Gabriel García Márquez");
+        index.update(5L, "9780000000005", "Programming Pearls", "Jon Bentley");
+        index.refresh();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    public void testSearch_MatchesWordsInAnyCaseAndAccent() {
+        // Act
+        SearchPage<BookHit> result = index.search("garcia ANOS", 0, 10);
+
+        // Assert
+        assertEquals(List.of(4L), ids(result));
+        assertEquals("Cien años de soledad", result.getItems().get(0).getTitle());
+    }
+
+    @Test
+    public void testSearch_MatchesPrefixes() {
+        // Act
+        SearchPage<BookHit> result = index.search("prag prog", 0, 10);
+
+        // Assert
+        assertEquals(List.of(1L), ids(result));
+    }
+
+    @Test
+    public void testSearch_RequiresEveryWord() {
+        // Act and Assert
+        assertEquals(List.of(3L), ids(index.search("java concurrency", 0, 10)));
+        assertTrue(index.search("java pearls", 0, 10).getItems().isEmpty());
+    }
+
+    @Test
+    public void testSearch_RanksExactWordsAndTitlesFirst() {
+        // Arrange
+        index.update(6L, "9780000000006", "JavaScript Patterns", "Stoyan Stefanov");
+        index.update(7L, "9780000000007", "Bloch on API Design", "Ann Author");
+        index.refresh();
+
+        // Act
+        List<Long> java = ids(index.search("java", 0, 10));
+        List<Long> bloch = ids(index.search("bloch", 0, 10));
+
+        // Assert: whole words rank above prefixes, titles above authors
+        assertEquals(3, java.size());
+        assertEquals(6L, java.get(2));
+        assertEquals(List.of(7L, 2L), bloch);
+    }
+
+    @Test
+    public void testSearch_MatchesIsbn() {
+        // Act
+        SearchPage<BookHit> result = index.search("9780135957059", 0, 10);
+
+        // Assert
+        assertEquals(List.of(1L), ids(result));
+        assertEquals("978-0-13-595705-9", result.getItems().get(0).getIsbn());
+    }
+
+    @Test
+    public void testSearch_Paginates() {
+        // Act
+        SearchPage<BookHit> first = index.search("java", 0, 1);
+        SearchPage<BookHit> second = index.search("java", first.getNextOffset(), 1);
+
+        // Assert
+        assertEquals(2, first.getTotal());
+        assertEquals(1, first.getNextOffset());
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextOffset());
+        assertNotEquals(first.getItems().get(0).getId(), second.getItems().get(0).getId());
+    }
+
+    @Test
+    public void testUpdateAndDelete_AreVisibleAfterRefresh() {
+        // Act
+        index.update(2L, "9780134685991", "Effective Kotlin", "Marcin Moskala");
+        index.delete(5L);
+        index.refresh();
+
+        // Assert
+        assertEquals(List.of(3L), ids(index.search("java", 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("kotlin", 0, 10)));
+        assertTrue(index.search("pearls", 0, 10).getItems().isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testSearch_NoWords() {
+        // Act
+        SearchPage<BookHit> result = index.search("  -- ", 0, 10);
+
+        // Assert
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(0, result.getTotal());
+    }
+
+    private static List<Long> ids(SearchPage<BookHit> page) {
+        return page.getItems().stream().map(BookHit::getId).toList();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.library.search;
+
+import com.example.library.model.Book;
+import com.example.library.model.BookHit;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.BulkRowReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The BookSearchServiceTest class verifies against an in-memory database that the search
+ * index follows the changes made through BookService and can be rebuilt from the database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-search;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "library.search.index-path=target/test-search-index-${random.uuid}"
+})
+class BookSearchServiceTest {
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, BookSearchService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        jdbcTemplate.update("delete from change_log");
+        bookSearchService.rebuild();
+    }
+
+    @Test
+    void testSearch_FollowsSaveUpdateAndDelete() {
+        // Arrange
+        Book book = bookService.save("9780000000401", "Domain-Driven Design", "Eric Evans", 1);
+        bookSearchService.refresh();
+        List<Long> afterSave = search("domain design");
+
+        // Act
+        bookService.update(book.getId(), "9780000000401", "Implementing Domain-Driven Design", "Vaughn Vernon", 1);
+        bookSearchService.refresh();
+        List<Long> afterUpdate = search("vernon");
+        List<Long> previousAuthor = search("evans");
+        bookService.delete(book.getId());
+        bookSearchService.refresh();
+
+        // Assert
+        assertEquals(List.of(book.getId()), afterSave);
+        assertEquals(List.of(book.getId()), afterUpdate);
+        assertTrue(previousAuthor.isEmpty());
+        assertTrue(search("domain").isEmpty());
+    }
+
+    @Test
+    void testSearch_FollowsBulkImport() {
+        // Arrange
+        String csv = "isbn,title,author,quantity\n"
+                + "9780000000402,Refactoring,Martin Fowler,1\n"
+                + "9780000000403,Patterns of Enterprise Application Architecture,Martin Fowler,1\n";
+
+        // Act
+        bookService.importBooks(BulkRowReader.csv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+        bookSearchService.refresh();
+
+        // Assert
+        assertEquals(2, search("fowler").size());
+    }
+
+    @Test
+    void testRebuild_IndexesEveryStoredBook() {
+        // Arrange: books stored without going through the service are not indexed yet
+        bookRepository.save(new Book("9780000000404", "Clean Code", "Robert Martin", 1));
+        bookRepository.save(new Book("9780000000405", "Clean Architecture", "Robert Martin", 1));
+
+        // Act
+        int indexed = bookSearchService.rebuild();
+
+        // Assert
+        assertEquals(2, indexed);
+        assertEquals(2, search("clean").size());
+    }
+
+    @Test
+    void testRebuild_RemovesBooksNoLongerStored() {
+        // Arrange: a book is deleted without going through the service
+        Book kept = bookService.save("9780000000406", "Working Effectively with Legacy Code", "Michael Feathers", 1);
+        Book removed = bookService.save("9780000000407", "Legacy Systems", "Author", 1);
+        jdbcTemplate.update("delete from loan_books where id = ?", removed.getId());
+
+        // Act
+        int indexed = bookSearchService.rebuild();
+
+        // Assert
+        assertEquals(1, indexed);
+        assertEquals(List.of(kept.getId()), search("legacy"));
+    }
+
+    @Test
+    void testRebuildOnStartup_SkippedUntilCatalogChanges() {
+        // Arrange: the title is changed without going through the service, or recording a change
+        Book book = bookService.save("9780000000408", "Growing Object-Oriented Software", "Steve Freeman", 1);
+        bookSearchService.rebuild();
+        jdbcTemplate.update("update loan_books set title = 'Guided by Tests' where id = ?", book.getId());
+
+        // Act
+        bookSearchService.rebuildOnStartup();
+        List<Long> whileCurrent = search("guided");
+        jdbcTemplate.update("insert into change_log (entity_type, entity_id, operation, payload, occurred_at) values ('BOOK', ?, 'SAVED', null, ?)",
+                book.getId(), Timestamp.from(Instant.now()));
+        bookSearchService.rebuildOnStartup();
+
+        // Assert
+        assertTrue(whileCurrent.isEmpty());
+        assertEquals(List.of(book.getId()), search("guided"));
+    }
+
+    private List<Long> search(String text) {
+        return bookSearchService.search(text, 0, 20).getItems().stream().map(BookHit::getId).toList();
+    }
+}
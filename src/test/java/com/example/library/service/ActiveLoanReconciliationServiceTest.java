@@ -0,0 +1,133 @@
+package com.example.library.service;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.exception.LoanLimitExceededException;
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ActiveLoanReconciliationServiceTest class checks the active loan counters of the users
+ * against an in-memory database: the borrowing limit they enforce, and their reconciliation
+ * after loans were written without going through the LoanService.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-reconcile;DB_CLOSE_DELAY=-1",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "library.loans.max-active-per-user=2",
+        "spring.jpa.show-sql=false"
+})
+class ActiveLoanReconciliationServiceTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 16);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({LoanService.class, AvailabilityService.class, ActiveLoanReconciliationService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ActiveLoanReconciliationService reconciliationService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testSave_EnforcesTheLimitAndReturnsFreeASlot() {
+        // Arrange
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        Book book = bookRepository.save(new Book("9780000000401", "Title", "Author", 5));
+        Loan first = loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+
+        // Act and Assert
+        assertThrows(LoanLimitExceededException.class, () -> loanService.save(user.getId(), book.getId(), START_DATE, END_DATE));
+        assertEquals(2, activeLoanCount(user.getId()));
+        assertEquals(3, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+
+        loanService.delete(first.getId());
+        loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+        assertEquals(2, activeLoanCount(user.getId()));
+    }
+
+    @Test
+    void testReconcile_CorrectsOnlyTheCountersThatDrifted() {
+        // Arrange: loans written directly leave the counters of their users at 0
+        int users = ActiveLoanReconciliationService.CHUNK_SIZE + 3;
+        Book book = bookRepository.save(new Book("9780000000402", "Title", "Author", 1));
+        List<User> saved = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            saved.add(new User("Borrower " + i, "borrower" + i + "@example.com"));
+        }
+        saved = userRepository.saveAll(saved);
+        User drifted = saved.get(users - 1);
+        Loan returned = new Loan(drifted, book, START_DATE, END_DATE);
+        returned.setFinalized(true);
+        loanRepository.saveAll(List.of(new Loan(drifted, book, START_DATE, END_DATE), new Loan(drifted, book, START_DATE, END_DATE), returned));
+        double scannedBefore = meterRegistry.counter("library.loans.reconcile.scanned").count();
+        double correctedBefore = meterRegistry.counter("library.loans.reconcile.corrected").count();
+
+        // Act
+        int corrected = reconciliationService.reconcile();
+        int correctedAgain = reconciliationService.reconcile();
+
+        // Assert
+        assertEquals(1, corrected);
+        assertEquals(0, correctedAgain);
+        assertEquals(2, activeLoanCount(drifted.getId()));
+        assertEquals(2, userRepository.findById(drifted.getId()).orElseThrow().getActiveLoanCount());
+        assertEquals(users * 2, meterRegistry.counter("library.loans.reconcile.scanned").count() - scannedBefore);
+        assertEquals(1, meterRegistry.counter("library.loans.reconcile.corrected").count() - correctedBefore);
+    }
+
+    private int activeLoanCount(Long userId) {
+        return jdbcTemplate.queryForObject("select active_loan_count from loan_users where id = ?", Integer.class, userId);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.library.service;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.exception.BookNotFoundException;
+import com.example.library.exception.VersionMismatchException;
+import com.example.library.model.Book;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The BookCacheTest class verifies against an in-memory database that book reads are served
+ * from the second-level and query caches, and that every kind of write invalidates them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-cache;DB_CLOSE_DELAY=-1",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.show-sql=false"
+})
+class BookCacheTest {
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({BookService.class, LoanService.class, AvailabilityService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testFindById_SecondReadIsServedFromCache() {
+        // Arrange
+        Long id = bookService.save("9780000000101", "Cached Title", "Author", 1).getId();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        // Act
+        bookService.findById(id);
+        bookService.findById(id);
+
+        // Assert
+        assertEquals(1, statistics.getSecondLevelCacheMissCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void testFindByIsbn_SecondLookupIsServedFromQueryCache() {
+        // Arrange
+        bookService.save("9780000000102", "Cached Title", "Author", 1);
+        statistics.clear();
+
+        // Act
+        bookService.findByIsbn("9780000000102");
+        bookService.findByIsbn("9780000000102");
+
+        // Assert
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void testUpdate_InvalidatesCachedBook() {
+        // Arrange
+        Long id = bookService.save("9780000000103", "Old Title", "Author", 1).getId();
+        bookService.findById(id);
+        bookService.findByIsbn("9780000000103");
+
+        // Act
+        bookService.update(id, "9780000000104", "New Title", "Author", 1);
+
+        // Assert
+        assertEquals("New Title", bookService.findById(id).getTitle());
+        assertEquals(id, bookService.findByIsbn("9780000000104").getId());
+        assertThrows(BookNotFoundException.class, () -> bookService.findByIsbn("9780000000103"));
+    }
+
+    @Test
+    void testDelete_InvalidatesCachedBook() {
+        // Arrange
+        Long id = bookService.save("9780000000105", "Deleted Title", "Author", 1).getId();
+        bookService.findById(id);
+        bookService.findByIsbn("9780000000105");
+
+        // Act
+        bookService.delete(id);
+
+        // Assert
+        assertThrows(BookNotFoundException.class, () -> bookService.findById(id));
+        assertThrows(BookNotFoundException.class, () -> bookService.findByIsbn("9780000000105"));
+    }
+
+    @Test
+    void testLoan_EvictsOnlyTheReservedBook() {
+        // Arrange
+        Long lentId = bookService.save("9780000000106", "Lent Title", "Author", 2).getId();
+        Long otherId = bookService.save("9780000000107", "Other Title", "Author", 2).getId();
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        bookService.findById(lentId);
+        bookService.findById(otherId);
+
+        // Act
+        Long loanId = loanService.save(user.getId(), lentId, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7)).getId();
+
+        // Assert
+        assertEquals(1, bookService.findById(lentId).getQuantity());
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, otherId));
+
+        // Act: returning the loan puts the copy back in stock
+        bookService.findById(lentId);
+        loanService.delete(loanId);
+
+        // Assert
+        assertEquals(2, bookService.findById(lentId).getQuantity());
+    }
+
+    @Test
+    void testLoan_BumpsTheVersionOfTheBook() {
+        // Arrange
+        Book book = bookService.save("9780000000108", "Versioned Title", "Author", 2);
+        Long id = book.getId();
+        long version = book.getVersion();
+        User user = userRepository.save(new User("Versioned Borrower", "versioned@example.com"));
+
+        // Act
+        loanService.save(user.getId(), id, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+
+        // Assert
+        Book lent = bookService.findById(id);
+        assertTrue(lent.getVersion() > version);
+        assertThrows(VersionMismatchException.class,
+                () -> bookService.update(id, version, "9780000000108", "Stale Title", "Author", 2));
+        assertEquals("Versioned Title", bookService.findById(id).getTitle());
+        assertTrue(bookService.update(id, lent.getVersion(), "9780000000108", "New Title", "Author", 1).getVersion() > lent.getVersion());
+    }
+}
@@ -1,21 +1,38 @@
 package com.example.library.service;
 
+import com.example.library.event.BookChangedEvent;
 import com.example.library.exception.BookAlreadyExistsException;
 import com.example.library.exception.BookNotFoundException;
 import com.example.library.exception.InvalidDataException;
+import com.example.library.exception.VersionMismatchException;
 import com.example.library.model.Book;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.CursorPage;
 import com.example.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -26,6 +43,15 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookService bookService;
 
@@ -67,6 +93,45 @@ class BookServiceTest {
         assertEquals(books.get(1), result.get(1));
     }
 
+    @Test
+    void testFindPage_FullPage() {
+        // Arrange
+        Book first = new Book("1234567890", "Book 1", "Author 1", 1);
+        first.setId(11L);
+        Book second = new Book("0987654321", "Book 2", "Author 2", 2);
+        second.setId(12L);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), any(Limit.class))).thenReturn(List.of(first, second));
+
+        // Act
+        CursorPage<Book> result = bookService.findPage(10L, 2);
+
+        // Assert
+        assertEquals(2, result.getItems().size());
+        assertEquals(12L, result.getNextCursor());
+    }
+
+    @Test
+    void testFindPage_LastPage() {
+        // Arrange
+        Book book = new Book("1234567890", "Book 1", "Author 1", 1);
+        book.setId(1L);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(book));
+
+        // Act
+        CursorPage<Book> result = bookService.findPage(null, 10);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testFindPage_InvalidLimit() {
+        // Act and Assert
+        assertThrows(InvalidDataException.class, () -> bookService.findPage(null, 0));
+        assertThrows(InvalidDataException.class, () -> bookService.findPage(null, CursorPage.MAX_LIMIT + 1));
+    }
+
     @Test
     void testFindById_BookExists() {
         // Arrange
@@ -92,6 +157,28 @@ class BookServiceTest {
         assertThrows(BookNotFoundException.class, () -> bookService.findById(id));
     }
 
+    @Test
+    void testFindByIsbn_BookExists() {
+        // Arrange
+        Book book = new Book("1234567890", "Book 1", "Author 1", 1);
+        when(bookRepository.findByIsbn("1234567890")).thenReturn(Optional.of(book));
+
+        // Act
+        Book result = bookService.findByIsbn("1234567890");
+
+        // Assert
+        assertEquals(book, result);
+    }
+
+    @Test
+    void testFindByIsbn_BookNotFound() {
+        // Arrange
+        when(bookRepository.findByIsbn("1234567890")).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(BookNotFoundException.class, () -> bookService.findByIsbn("1234567890"));
+    }
+
     @Test
     void testSave_ValidData() {
         // Arrange
@@ -99,8 +186,7 @@ class BookServiceTest {
         String title = "Book Title";
         String author = "Author";
         int quantity = 1;
-        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
-        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         Book result = bookService.save(isbn, title, author, quantity);
@@ -111,16 +197,18 @@ class BookServiceTest {
         assertEquals(title, result.getTitle());
         assertEquals(author, result.getAuthor());
         assertEquals(quantity, result.getQuantity());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
     void testSave_BookAlreadyExists() {
         // Arrange
         String isbn = "1234567890";
-        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(new Book()));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenThrow(uniqueViolation());
 
         // Act and Assert
         assertThrows(BookAlreadyExistsException.class, () -> bookService.save(isbn, "Book Title", "Author", 1));
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -135,6 +223,49 @@ class BookServiceTest {
         assertThrows(InvalidDataException.class, () -> bookService.save("1234567890", "Book Title", "Author", 0));
     }
 
+    @Test
+    void testImportBooks_ReportsEveryRow() {
+        // Arrange
+        String csv = "isbn,title,author,quantity\n"
+                + "111,Book 1,Author 1,2\n"
+                + "222,Book 2,Author 2,1\n"
+                + "111,\"Book 1, again\",Author 1,1\n"
+                + "333,,Author 3,1\n"
+                + "444,Book 4,Author 4,many\n";
+        when(bookRepository.findExistingIsbns(any())).thenReturn(List.of("222"));
+        when(bookRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            long id = 1;
+            for (Book book : books) {
+                book.setId(id++);
+            }
+            return books;
+        });
+
+        // Act
+        BulkImportReport report = bookService.importBooks(BulkRowReader.csv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        // Assert
+        assertEquals(1, report.getCreated());
+        assertEquals(4, report.getRejected());
+        List<BulkItemResult> results = report.getResults();
+        assertEquals(BulkItemResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(1L, results.get(0).getId());
+        assertEquals(BulkItemResult.Status.DUPLICATE, results.get(1).getStatus());
+        assertEquals(BulkItemResult.Status.DUPLICATE, results.get(2).getStatus());
+        assertEquals(BulkItemResult.Status.INVALID, results.get(3).getStatus());
+        assertEquals(BulkItemResult.Status.INVALID, results.get(4).getStatus());
+    }
+
+    @Test
+    void testImportBooks_MalformedJson() {
+        // Arrange
+        BulkRowReader rows = BulkRowReader.json(new ByteArrayInputStream("{\"isbn\": \"111\"}".getBytes(StandardCharsets.UTF_8)), new ObjectMapper());
+
+        // Act and Assert
+        assertThrows(InvalidDataException.class, () -> bookService.importBooks(rows));
+    }
+
     @Test
     void testUpdate_ValidData() {
         // Arrange
@@ -146,8 +277,7 @@ class BookServiceTest {
         Book existingBook = new Book("1234567890", "Book 1", "Author 1", 4);
         existingBook.setId(id);
         when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
-        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
-        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         Book result = bookService.update(id, isbn, title, author, quantity);
@@ -177,12 +307,58 @@ class BookServiceTest {
         Long id = 1L;
         String isbn = "1234567890";
         when(bookRepository.findById(id)).thenReturn(Optional.of(new Book()));
-        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(new Book()));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenThrow(uniqueViolation());
 
         // Act and Assert
         assertThrows(BookAlreadyExistsException.class, () -> bookService.update(id, isbn, "Book Title", "Author", 1));
     }
 
+    @Test
+    void testUpdate_ExpectedVersion() {
+        // Arrange
+        Long id = 1L;
+        Book existingBook = new Book("1234567890", "Book 1", "Author 1", 4);
+        existingBook.setId(id);
+        existingBook.setVersion(3);
+        when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Book result = bookService.update(id, 3L, "1234567890", "Book Title", "Author", 1);
+
+        // Assert
+        assertEquals("Book Title", result.getTitle());
+        verify(bookRepository).saveAndFlush(existingBook);
+    }
+
+    @Test
+    void testUpdate_VersionMismatch() {
+        // Arrange
+        Long id = 1L;
+        Book existingBook = new Book("1234567890", "Book 1", "Author 1", 4);
+        existingBook.setId(id);
+        existingBook.setVersion(3);
+        when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
+
+        // Act and Assert
+        assertThrows(VersionMismatchException.class, () -> bookService.update(id, 2L, "1234567890", "Book Title", "Author", 1));
+        verify(bookRepository, never()).saveAndFlush(any(Book.class));
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    void testUpdate_ModifiedConcurrently() {
+        // Arrange
+        Long id = 1L;
+        when(bookRepository.findById(id)).thenReturn(Optional.of(new Book()));
+        when(bookRepository.saveAndFlush(any(Book.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Book.class, id));
+
+        // Act and Assert
+        assertThrows(VersionMismatchException.class, () -> bookService.update(id, "1234567890", "Book Title", "Author", 1));
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+    }
+
     @Test
     void testDelete_BookExists() {
         // Arrange
@@ -193,7 +369,9 @@ class BookServiceTest {
         // Act
         bookService.delete(id);
 
-        // Assert: No exceptions should be thrown
+        // Assert
+        verify(bookRepository).delete(book);
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -205,4 +383,12 @@ class BookServiceTest {
         // Act and Assert
         assertThrows(BookNotFoundException.class, () -> bookService.delete(id));
     }
+
+    /**
+     * Creates the exception raised when the unique constraint of the book table is violated.
+     */
+    private static DataIntegrityViolationException uniqueViolation() {
+        return new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UK_LOAN_BOOKS_ISBN_INDEX_5\""));
+    }
 }
@@ -0,0 +1,248 @@
+package com.example.library.service;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.model.Book;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.BulkLoanReport;
+import com.example.library.model.CursorPage;
+import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The LoanQueryCountTest class counts the SQL statements issued by the loan listings
+ * against an in-memory database, to verify that users and books are not loaded one by one
+ * and that batches of checkouts and returns take the same number of statements whatever their size.
+ * The second-level cache is disabled so that cached entities cannot hide extra queries.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-query-count;DB_CLOSE_DELAY=-1",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class LoanQueryCountTest {
+
+    private static final int LOANS = 20;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({LoanService.class, AvailabilityService.class})
+    static class Config {
+
+        @Bean
+        static BeanPostProcessor statementCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts the statements executed on its connections, by Hibernate and by JdbcTemplate alike;
+     * a JDBC batch counts once, as it is sent in one round-trip.
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        static final AtomicInteger executed = new AtomicInteger();
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) proxy(Connection.class, connection, (method, result) ->
+                    result instanceof Statement statement && method.getReturnType().isInterface()
+                            ? proxy(method.getReturnType(), statement, (executed, ignored) -> {
+                                if (executed.getName().startsWith("execute")) {
+                                    CountingDataSource.executed.incrementAndGet();
+                                }
+                                return ignored;
+                            })
+                            : result);
+        }
+
+        private static Object proxy(Class<?> type, Object target, BiFunction<Method, Object, Object> after) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return after.apply(method, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            User user = userRepository.save(new User("Borrower " + i, "borrower" + i + "@example.com"));
+            Book book = bookRepository.save(new Book("97800000002" + String.format("%02d", i), "Title " + i, "Author", 1));
+            loans.add(new Loan(user, book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7)));
+        }
+        loanRepository.saveAll(loans);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CountingDataSource.executed.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testFindPage_IssuesOneStatement() {
+        // Act
+        CursorPage<LoanView> page = loanService.findPage(null, 100);
+
+        // Assert
+        assertEquals(LOANS, page.getItems().size());
+        assertNotNull(page.getItems().get(0).getBookTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testStreamAll_IssuesOneStatement() {
+        // Arrange
+        List<LoanView> loans = new ArrayList<>();
+
+        // Act
+        loanService.streamAll(loans::add);
+
+        // Assert
+        assertEquals(LOANS, loans.size());
+        assertNotNull(loans.get(0).getUserName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindAll_IssuesOneStatement() {
+        // Act
+        List<LoanView> loans = loanService.findAll().stream().map(LoanView::of).toList();
+
+        // Assert
+        assertEquals(LOANS, loans.size());
+        assertNotNull(loans.get(0).getBookTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindById_IssuesOneStatement() {
+        // Arrange
+        Long id = loanRepository.findViewsByIdGreaterThan(0L, Limit.of(1)).get(0).getId();
+        statistics.clear();
+
+        // Act
+        LoanView loan = LoanView.of(loanService.findById(id));
+
+        // Assert
+        assertNotNull(loan.getUserName());
+        assertNotNull(loan.getBookTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testCheckoutAndReturn_FixedStatements() {
+        // Arrange
+        Long userId = userRepository.findAll().get(0).getId();
+        List<Long> bookIds = bookRepository.findAll().stream().limit(10).map(Book::getId).toList();
+        statistics.clear();
+        CountingDataSource.executed.set(0);
+
+        // Act
+        BulkLoanReport checkout = loanService.checkout(userId, bookIds, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16));
+        long checkoutStatements = statistics.getPrepareStatementCount();
+        int checkoutRoundTrips = CountingDataSource.executed.getAndSet(0);
+        statistics.clear();
+        BulkLoanReport returns = loanService.returnLoans(checkout.getResults().stream().map(BulkItemResult::getId).toList());
+        long returnStatements = statistics.getPrepareStatementCount();
+        int returnRoundTrips = CountingDataSource.executed.get();
+
+        // Assert
+        assertEquals(10, checkout.getSucceeded());
+        assertEquals(10, returns.getSucceeded());
+        // Hibernate: the user, the books, the batched inserts and at most one call to the sequence
+        assertTrue(checkoutStatements <= 4, "Checkout issued " + checkoutStatements + " statements");
+        // JDBC: the batched stock updates and the update of the counter of the user
+        assertTrue(checkoutRoundTrips <= checkoutStatements + 2, "Checkout took " + checkoutRoundTrips + " round-trips");
+        // Hibernate only reads the loans: the finalized loans are not flushed again
+        assertEquals(1, returnStatements, "Return issued " + returnStatements + " statements");
+        // JDBC: the batched updates of the loans, of the stock and of the counters of the users
+        assertEquals(4, returnRoundTrips, "Return took " + returnRoundTrips + " round-trips");
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.library.service;
+
+import com.example.library.availability.AvailabilityService;
+import com.example.library.exception.NoBookAvailableException;
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The LoanServiceConcurrencyTest class stresses loan creation against an in-memory
+ * database to verify that concurrent borrowers never take more copies than are in stock.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-concurrency;DB_CLOSE_DELAY=-1",
+        "library.availability.path=target/test-availability-${random.uuid}.idx",
+        "spring.jpa.show-sql=false"
+})
+class LoanServiceConcurrencyTest {
+
+    private static final int BORROWERS = 64;
+
+    private static final int COPIES = 10;
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 5, 2);
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 7);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import({LoanService.class, AvailabilityService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testSave_ConcurrentBorrowersNeverOverAllocate() throws Exception {
+        // Arrange
+        Book book = bookRepository.save(new Book("9780000000001", "Popular Title", "Author", COPIES));
+        List<User> users = createUsers(BORROWERS);
+        AtomicInteger lent = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Act
+        runConcurrently(users, user -> {
+            try {
+                loanService.save(user.getId(), book.getId(), START_DATE, END_DATE);
+                lent.incrementAndGet();
+            } catch (NoBookAvailableException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Assert
+        assertEquals(COPIES, lent.get());
+        assertEquals(BORROWERS - COPIES, rejected.get());
+        assertEquals(COPIES, loanRepository.count());
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testDelete_ConcurrentReturnsRestoreStock() throws Exception {
+        // Arrange
+        Book book = bookRepository.save(new Book("9780000000002", "Returned Title", "Author", BORROWERS));
+        List<User> users = createUsers(BORROWERS);
+        List<Long> loanIds = new ArrayList<>();
+        for (User user : users) {
+            loanIds.add(loanService.save(user.getId(), book.getId(), START_DATE, END_DATE).getId());
+        }
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+
+        // Act: every loan is returned twice, concurrently
+        List<Long> returns = new ArrayList<>(loanIds);
+        returns.addAll(loanIds);
+        runConcurrently(returns, loanService::delete);
+
+        // Assert
+        assertEquals(BORROWERS, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+        assertEquals(BORROWERS, loanRepository.findAll().stream().filter(Loan::isFinalized).count());
+    }
+
+    /**
+     * Creates and stores the given number of users.
+     */
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(userRepository.save(new User("Borrower " + i, "borrower" + i + "@example.com")));
+        }
+        return users;
+    }
+
+    /**
+     * Runs the action for every item on its own thread, releasing all threads at once.
+     */
+    private <T> void runConcurrently(List<T> items, Consumer<T> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(items.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.accept(item);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
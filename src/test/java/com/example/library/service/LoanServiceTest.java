@@ -1,23 +1,39 @@
 package com.example.library.service;
 
+import com.example.library.event.LoanChangedEvent;
+import com.example.library.event.StockChangedEvent;
 import com.example.library.exception.*;
 import com.example.library.model.Book;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.BulkLoanReport;
+import com.example.library.model.CursorPage;
 import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
 import com.example.library.model.User;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.LoanRepository;
 import com.example.library.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -34,12 +50,37 @@ public class LoanServiceTest {
     @Mock
     private LoanRepository loanRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private LoanService loanService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanService, "maxActiveLoans", 10);
+        when(userRepository.reserveLoans(any(), anyInt(), anyInt())).thenReturn(1);
+    }
+
+    @Test
+    public void testFindPage() {
+        // Arrange
+        LoanView loan = new LoanView(3L, 1L, "User", 2L, "Title", LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7), false, false);
+        when(loanRepository.findViewsByIdGreaterThan(eq(0L), any(Limit.class))).thenReturn(List.of(loan));
+
+        // Act
+        CursorPage<LoanView> page = loanService.findPage(null, 50);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testFindPage_InvalidLimit() {
+        // Act and Assert
+        assertThrows(InvalidDataException.class, () -> loanService.findPage(null, 0));
     }
 
     @Test
@@ -54,6 +95,7 @@ public class LoanServiceTest {
         LocalDate endDate = LocalDate.of(2024, 5, 7);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(bookRepository.reserveCopy(1L)).thenReturn(1);
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
         when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -66,6 +108,25 @@ public class LoanServiceTest {
         assertEquals(book, result.getBook());
         assertEquals(startDate, result.getStartDate());
         assertEquals(endDate, result.getEndDate());
+        verify(bookRepository).reserveCopy(1L);
+        verify(userRepository).reserveLoans(1L, 1, 10);
+        verify(eventPublisher).publishEvent(any(StockChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(LoanChangedEvent.class));
+    }
+
+    @Test
+    public void testSave_LoanLimitExceeded() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(bookRepository.reserveCopy(1L)).thenReturn(1);
+        when(userRepository.reserveLoans(1L, 1, 10)).thenReturn(0);
+
+        // Act and Assert
+        assertThrows(LoanLimitExceededException.class, () -> loanService.save(1L, 1L, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7)));
+        verify(loanRepository, never()).save(any(Loan.class));
+        verify(eventPublisher, never()).publishEvent(any(LoanChangedEvent.class));
     }
 
     @Test
@@ -132,6 +193,7 @@ public class LoanServiceTest {
         when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.reserveCopy(1L)).thenReturn(1);
         when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -145,6 +207,72 @@ public class LoanServiceTest {
         assertEquals(endDate, result.getEndDate());
     }
 
+    @Test
+    public void testUpdate_ExtendedLoanIsNoLongerOverdue() {
+        // Arrange
+        Book book = new Book();
+        book.setId(1L);
+        Loan loan = new Loan(new User(), book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+        loan.setId(1L);
+        loan.setOverdue(true);
+        LocalDate endDate = LocalDate.now().plusDays(7);
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Loan result = loanService.update(1L, 1L, 1L, LocalDate.of(2024, 5, 2), endDate);
+
+        // Assert
+        assertFalse(result.isOverdue());
+        verify(bookRepository, never()).reserveCopy(any());
+    }
+
+    @Test
+    public void testUpdate_MovesCopyToNewBook() {
+        // Arrange
+        Book previousBook = new Book();
+        previousBook.setId(2L);
+        Loan loan = new Loan(new User(), previousBook, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+        loan.setId(1L);
+        Book book = new Book();
+        book.setId(1L);
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.reserveCopy(1L)).thenReturn(1);
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        loanService.update(1L, 1L, 1L, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+
+        // Assert
+        verify(bookRepository).reserveCopy(1L);
+        verify(bookRepository).releaseCopy(2L);
+    }
+
+    @Test
+    public void testUpdate_NewBookNotAvailable() {
+        // Arrange
+        Book previousBook = new Book();
+        previousBook.setId(2L);
+        Loan loan = new Loan(new User(), previousBook, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+        Book book = new Book();
+        book.setId(1L);
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.reserveCopy(1L)).thenReturn(0);
+
+        // Act and Assert
+        assertThrows(NoBookAvailableException.class, () -> loanService.update(1L, 1L, 1L, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7)));
+        verify(bookRepository, never()).releaseCopy(2L);
+    }
+
     @Test
     public void testUpdate_LoanNotFound() {
         // Arrange
@@ -189,9 +317,38 @@ public class LoanServiceTest {
     @Test
     public void testDelete_SuccessfulDeletion() {
         // Arrange
-        Loan loan = new Loan();
+        Book book = new Book();
+        book.setId(1L);
+        User user = new User();
+        user.setId(5L);
+        Loan loan = new Loan(user, book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
         loan.setId(1L);
-        loan.setFinalized(false);
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(loanRepository.markFinalized(1L)).thenReturn(1);
+        when(bookRepository.releaseCopy(1L)).thenReturn(1);
+
+        // Act
+        loanService.delete(1L);
+
+        // Assert: the row is finalized by the conditional update, and the entity left as read so it is not flushed again
+        ArgumentCaptor<LoanChangedEvent> event = ArgumentCaptor.forClass(LoanChangedEvent.class);
+        assertFalse(loan.isFinalized());
+        verify(bookRepository).releaseCopy(1L);
+        verify(userRepository).releaseLoans(List.of(5L));
+        verify(eventPublisher).publishEvent(any(StockChangedEvent.class));
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(LoanChangedEvent.Type.RETURNED, event.getValue().getType());
+        assertTrue(event.getValue().isFinalized());
+    }
+
+    @Test
+    public void testDelete_AlreadyFinalized() {
+        // Arrange
+        Book book = new Book();
+        book.setId(1L);
+        Loan loan = new Loan(new User(), book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7));
+        loan.setFinalized(true);
 
         when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
 
@@ -199,7 +356,8 @@ public class LoanServiceTest {
         loanService.delete(1L);
 
         // Assert
-        assertTrue(loan.isFinalized());
+        verify(bookRepository, never()).releaseCopy(1L);
+        verify(eventPublisher, never()).publishEvent(any(LoanChangedEvent.class));
     }
 
     @Test
@@ -210,4 +368,117 @@ public class LoanServiceTest {
         // Act and Assert
         assertThrows(LoanNotFoundException.class, () -> loanService.delete(1L));
     }
+
+    @Test
+    public void testCheckout() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        Book first = new Book();
+        first.setId(1L);
+        Book second = new Book();
+        second.setId(2L);
+        Book soldOut = new Book();
+        soldOut.setId(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(bookRepository.findAllById(any())).thenReturn(List.of(first, second, soldOut));
+        when(bookRepository.reserveCopies(List.of(1L, 2L, 3L))).thenReturn(new int[]{1, 0, 0});
+
+        // Act
+        BulkLoanReport report = loanService.checkout(1L, List.of(2L, 3L, 4L, 1L), LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16));
+
+        // Assert
+        assertEquals(1, report.getSucceeded());
+        assertEquals(3, report.getRejected());
+        assertEquals(BulkItemResult.Status.UNAVAILABLE, report.getResults().get(0).getStatus());
+        assertEquals(BulkItemResult.Status.UNAVAILABLE, report.getResults().get(1).getStatus());
+        assertEquals(BulkItemResult.Status.NOT_FOUND, report.getResults().get(2).getStatus());
+        assertEquals(BulkItemResult.Status.CREATED, report.getResults().get(3).getStatus());
+        verify(userRepository).findById(1L);
+        verify(userRepository).reserveLoans(1L, 1, 10);
+        verify(loanRepository).saveAll(any());
+        verify(eventPublisher).publishEvent(any(StockChangedEvent.class));
+    }
+
+    @Test
+    public void testCheckout_UserNotFound() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(UserNotFoundException.class, () -> loanService.checkout(1L, List.of(1L), LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16)));
+        verify(bookRepository, never()).reserveCopies(any());
+    }
+
+    @Test
+    public void testCheckout_InvalidBatch() {
+        // Arrange
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= LoanService.MAX_BATCH_SIZE + 1; id++) {
+            tooMany.add(id);
+        }
+
+        // Act and Assert
+        assertThrows(InvalidDataException.class, () -> loanService.checkout(1L, List.of(), LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16)));
+        assertThrows(InvalidDataException.class, () -> loanService.checkout(1L, tooMany, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16)));
+        assertThrows(InvalidDataException.class, () -> loanService.checkout(1L, List.of(1L), null, LocalDate.of(2024, 5, 16)));
+    }
+
+    @Test
+    public void testReturnLoans() {
+        // Arrange
+        Book book = new Book();
+        book.setId(7L);
+        User user = new User();
+        user.setId(5L);
+        Loan active = new Loan(user, book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16));
+        active.setId(2L);
+        Loan finalized = new Loan(new User(), book, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 16));
+        finalized.setId(1L);
+        finalized.setFinalized(true);
+        when(loanRepository.findAllById(any())).thenReturn(List.of(active, finalized));
+        when(loanRepository.markAllFinalized(List.of(2L))).thenReturn(new int[]{1});
+        when(bookRepository.releaseCopies(List.of(7L))).thenReturn(new int[]{1});
+
+        // Act
+        BulkLoanReport report = loanService.returnLoans(List.of(2L, 1L, 3L));
+
+        // Assert
+        assertEquals(2, report.getSucceeded());
+        assertEquals(BulkItemResult.Status.RETURNED, report.getResults().get(0).getStatus());
+        assertEquals(BulkItemResult.Status.RETURNED, report.getResults().get(1).getStatus());
+        assertEquals(BulkItemResult.Status.NOT_FOUND, report.getResults().get(2).getStatus());
+        ArgumentCaptor<LoanChangedEvent> event = ArgumentCaptor.forClass(LoanChangedEvent.class);
+        assertFalse(active.isFinalized());
+        verify(bookRepository).releaseCopies(List.of(7L));
+        verify(userRepository).releaseLoans(List.of(5L));
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(2L, event.getValue().getLoanId());
+        assertTrue(event.getValue().isFinalized());
+    }
+
+    @Test
+    public void testFindUserPage() {
+        // Arrange
+        LoanView loan = new LoanView(3L, 1L, "User", 2L, "Title", LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 7), false, false);
+        when(loanRepository.findUserViewsByFinalized(eq(1L), eq(false), eq(0L), any(Limit.class))).thenReturn(List.of(loan));
+
+        // Act
+        CursorPage<LoanView> page = loanService.findUserPage(1L, "active", null, 20);
+
+        // Assert
+        assertEquals(List.of(loan), page.getItems());
+        verify(userRepository, never()).existsById(1L);
+    }
+
+    @Test
+    public void testFindUserPage_UnknownUserOrStatus() {
+        // Arrange
+        when(loanRepository.findUserViews(eq(1L), eq(0L), any(Limit.class))).thenReturn(List.of());
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        // Act and Assert
+        assertThrows(UserNotFoundException.class, () -> loanService.findUserPage(1L, "all", null, 20));
+        assertThrows(InvalidDataException.class, () -> loanService.findUserPage(1L, "overdue", null, 20));
+    }
 }
@@ -0,0 +1,129 @@
+package com.example.library.service;
+
+import com.example.library.exception.InvalidDataException;
+import com.example.library.model.Book;
+import com.example.library.model.CursorPage;
+import com.example.library.model.Loan;
+import com.example.library.model.LoanView;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The OverdueLoanServiceTest class runs the overdue sweep against an in-memory database,
+ * with more loans than fit in a single chunk.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overdue-sweep;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class OverdueLoanServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Book.class)
+    @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+    @Import(OverdueLoanService.class)
+    static class Config {
+    }
+
+    @Autowired
+    private OverdueLoanService overdueLoanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void testSweep_FlagsOnlyActiveLoansPastTheirEndDate() {
+        // Arrange: overdue loans spread over several chunks and sharing end dates
+        int overdue = OverdueLoanService.CHUNK_SIZE * 2 + 7;
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        Book book = bookRepository.save(new Book("9780000000301", "Title", "Author", 1));
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < overdue; i++) {
+            loans.add(new Loan(user, book, TODAY.minusDays(30), TODAY.minusDays(1 + i % 10)));
+        }
+        Loan returned = new Loan(user, book, TODAY.minusDays(30), TODAY.minusDays(5));
+        returned.setFinalized(true);
+        loans.add(returned);
+        loans.add(new Loan(user, book, TODAY.minusDays(5), TODAY));
+        loans.add(new Loan(user, book, TODAY.minusDays(5), TODAY.plusDays(5)));
+        loanRepository.saveAll(loans);
+        double scannedBefore = meterRegistry.counter("library.overdue.sweep.scanned").count();
+        double flaggedBefore = meterRegistry.counter("library.overdue.sweep.flagged").count();
+        long sweepsBefore = meterRegistry.timer("library.overdue.sweep").count();
+
+        // Act
+        int flagged = overdueLoanService.sweep(TODAY);
+        int flaggedAgain = overdueLoanService.sweep(TODAY);
+
+        // Assert
+        assertEquals(overdue, flagged);
+        assertEquals(0, flaggedAgain);
+        assertEquals(overdue, loanRepository.findAll().stream().filter(Loan::isOverdue).count());
+        // The second sweep does not read the loans flagged by the first one again
+        assertEquals(overdue, meterRegistry.counter("library.overdue.sweep.scanned").count() - scannedBefore);
+        assertEquals(overdue, meterRegistry.counter("library.overdue.sweep.flagged").count() - flaggedBefore);
+        assertEquals(2, meterRegistry.timer("library.overdue.sweep").count() - sweepsBefore);
+    }
+
+    @Test
+    void testFindPage_ListsActiveOverdueLoans() {
+        // Arrange
+        User user = userRepository.save(new User("Borrower", "borrower@example.com"));
+        Book book = bookRepository.save(new Book("9780000000302", "Title", "Author", 1));
+        Loan late = loanRepository.save(new Loan(user, book, TODAY.minusDays(30), TODAY.minusDays(2)));
+        loanRepository.save(new Loan(user, book, TODAY.minusDays(1), TODAY.plusDays(2)));
+        overdueLoanService.sweep(TODAY);
+
+        // Act
+        CursorPage<LoanView> page = overdueLoanService.findPage(null, 10);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals(late.getId(), page.getItems().get(0).getId());
+        assertTrue(page.getItems().get(0).isOverdue());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testFindPage_InvalidLimit() {
+        // Act and Assert
+        assertThrows(InvalidDataException.class, () -> overdueLoanService.findPage(null, 0));
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.library.service;
 
+import com.example.library.event.UserChangedEvent;
 import com.example.library.exception.InvalidDataException;
 import com.example.library.exception.UserAlreadyExistsException;
 import com.example.library.exception.UserNotFoundException;
+import com.example.library.exception.VersionMismatchException;
+import com.example.library.model.BulkImportReport;
+import com.example.library.model.BulkItemResult;
+import com.example.library.model.CursorPage;
 import com.example.library.model.User;
 import com.example.library.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +19,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +43,15 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -52,6 +75,27 @@ public class UserServiceTest {
         assertEquals("john@example.com", users.get(0).getEmail());
     }
 
+    @Test
+    public void testFindPage() {
+        // Arrange
+        User user = new User("John", "john@example.com");
+        user.setId(5L);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(4L), any(Limit.class))).thenReturn(List.of(user));
+
+        // Act
+        CursorPage<User> page = userService.findPage(4L, 1);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals(5L, page.getNextCursor());
+    }
+
+    @Test
+    public void testFindPage_InvalidLimit() {
+        // Act & Assert
+        assertThrows(InvalidDataException.class, () -> userService.findPage(null, -1));
+    }
+
     @Test
     public void testFindById_UserExists() {
         // Arrange
@@ -82,8 +126,7 @@ public class UserServiceTest {
         // Arrange
         String name = "John";
         String email = "john@example.com";
-        when(userRepository.findUserByEmail(email)).thenReturn(Optional.empty());
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         User result = userService.save(name, email);
@@ -92,6 +135,7 @@ public class UserServiceTest {
         assertNotNull(result);
         assertEquals(name, result.getName());
         assertEquals(email, result.getEmail());
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
     }
 
     @Test
@@ -99,7 +143,7 @@ public class UserServiceTest {
         // Arrange
         String name = "John";
         String email = "john@example.com";
-        when(userRepository.findUserByEmail(email)).thenReturn(Optional.of(new User()));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation());
 
         // Act & Assert
         assertThrows(UserAlreadyExistsException.class, () -> userService.save(name, email));
@@ -121,6 +165,26 @@ public class UserServiceTest {
         assertThrows(InvalidDataException.class, () -> userService.save("John", "  "));
     }
 
+    @Test
+    public void testImportUsers_ReportsEveryRow() {
+        // Arrange
+        String json = "[{\"name\": \"John\", \"email\": \"john@example.com\"},"
+                + " {\"name\": \"Jane\", \"email\": \"jane@example.com\"},"
+                + " {\"name\": \"\", \"email\": \"nobody@example.com\"}]";
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("jane@example.com"));
+        when(userRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        BulkImportReport report = userService.importUsers(BulkRowReader.json(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), new ObjectMapper()));
+
+        // Assert
+        assertEquals(1, report.getCreated());
+        assertEquals(2, report.getRejected());
+        assertEquals(BulkItemResult.Status.CREATED, report.getResults().get(0).getStatus());
+        assertEquals(BulkItemResult.Status.DUPLICATE, report.getResults().get(1).getStatus());
+        assertEquals(BulkItemResult.Status.INVALID, report.getResults().get(2).getStatus());
+    }
+
     @Test
     public void testUpdate_UserExists() {
         // Arrange
@@ -130,8 +194,7 @@ public class UserServiceTest {
         User existingUser = new User("Existing", "existing@example.com");
         existingUser.setId(1L);
         when(userRepository.findById(id)).thenReturn(Optional.of(existingUser));
-        when(userRepository.findUserByEmail(email)).thenReturn(Optional.empty());
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         User result = userService.update(id, name, email);
@@ -163,12 +226,57 @@ public class UserServiceTest {
         String email = "john@example.com";
         User existingUser = new User("Existing", "existing@example.com");
         when(userRepository.findById(id)).thenReturn(Optional.of(existingUser));
-        when(userRepository.findUserByEmail(email)).thenReturn(Optional.of(new User()));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation());
 
         // Act & Assert
         assertThrows(UserAlreadyExistsException.class, () -> userService.update(id, name, email));
     }
 
+    @Test
+    public void testUpdate_ExpectedVersion() {
+        // Arrange
+        Long id = 1L;
+        User existingUser = new User("Existing", "existing@example.com");
+        existingUser.setId(id);
+        existingUser.setVersion(5);
+        when(userRepository.findById(id)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        User result = userService.update(id, 5L, "John", "john@example.com");
+
+        // Assert
+        assertEquals("John", result.getName());
+        verify(userRepository).saveAndFlush(existingUser);
+    }
+
+    @Test
+    public void testUpdate_VersionMismatch() {
+        // Arrange
+        Long id = 1L;
+        User existingUser = new User("Existing", "existing@example.com");
+        existingUser.setId(id);
+        existingUser.setVersion(5);
+        when(userRepository.findById(id)).thenReturn(Optional.of(existingUser));
+
+        // Act & Assert
+        assertThrows(VersionMismatchException.class, () -> userService.update(id, 4L, "John", "john@example.com"));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testUpdate_ModifiedConcurrently() {
+        // Arrange
+        Long id = 1L;
+        User existingUser = new User("Existing", "existing@example.com");
+        when(userRepository.findById(id)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, id));
+
+        // Act & Assert
+        assertThrows(VersionMismatchException.class, () -> userService.update(id, "John", "john@example.com"));
+    }
+
     @Test
     public void testUpdate_InvalidName() {
         // Arrange & Act & Assert
@@ -203,6 +311,7 @@ public class UserServiceTest {
 
         // Assert
         verify(userRepository, times(1)).delete(existingUser);
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
     }
 
     @Test
@@ -214,5 +323,12 @@ public class UserServiceTest {
         // Act & Assert
         assertThrows(UserNotFoundException.class, () -> userService.delete(id));
     }
-}
 
+    /**
+     * Creates the exception raised when the unique constraint of the user table is violated.
+     */
+    private static DataIntegrityViolationException uniqueViolation() {
+        return new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UK_LOAN_USERS_EMAIL_INDEX_5\""));
+    }
+}